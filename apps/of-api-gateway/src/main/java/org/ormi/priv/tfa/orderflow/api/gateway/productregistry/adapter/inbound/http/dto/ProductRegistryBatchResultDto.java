@@ -0,0 +1,16 @@
+package org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto;
+
+import java.util.List;
+
+public record ProductRegistryBatchResultDto(
+    boolean applied,
+    List<ItemDto> items) {
+
+  public record ItemDto(
+      int index,
+      String status,
+      String productId,
+      Long version,
+      String error) {
+  }
+}
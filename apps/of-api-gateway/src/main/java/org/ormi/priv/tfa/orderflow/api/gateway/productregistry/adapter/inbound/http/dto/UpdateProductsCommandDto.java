@@ -0,0 +1,7 @@
+package org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto;
+
+import java.util.List;
+
+public record UpdateProductsCommandDto(
+    List<UpdateProductCommandDto> products) {
+}
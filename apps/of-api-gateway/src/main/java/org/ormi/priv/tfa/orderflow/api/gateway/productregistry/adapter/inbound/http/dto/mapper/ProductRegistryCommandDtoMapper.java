@@ -4,11 +4,15 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.RegisterProductCommandDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.RegisterProductsCommandDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.RemoveProductCommandDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.UpdateProductCommandDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.UpdateProductsCommandDto;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProducts;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.mapper.ProductIdMapper;
 
 @Mapper(uses = {ProductIdMapper.class})
@@ -27,4 +31,10 @@ public interface ProductRegistryCommandDtoMapper {
 
   @Mapping(target = "productId", source = "productId", qualifiedByName = "toProductId")
   RemoveProduct toCommand(RemoveProductCommandDto dto);
+
+  @Mapping(target = "products", source = "products")
+  RegisterProducts toCommand(RegisterProductsCommandDto dto);
+
+  @Mapping(target = "products", source = "products")
+  UpdateProducts toCommand(UpdateProductsCommandDto dto);
 }
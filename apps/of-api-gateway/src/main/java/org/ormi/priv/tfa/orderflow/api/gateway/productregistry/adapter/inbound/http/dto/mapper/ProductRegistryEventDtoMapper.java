@@ -1,13 +1,18 @@
 package org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.mapper;
 
+import java.util.List;
+
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.ProductRegisteredEventDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.ProductRegistryBatchResultDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.ProductRemovedEventDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.ProductUpdatedEventDto;
 import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.mapper.EventIdMapper;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.Event;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryBatchResult;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
 
@@ -40,6 +45,23 @@ public interface ProductRegistryEventDtoMapper {
   @Mapping(target = "payload", source = "payload",  qualifiedByName = "productRemovedPayloadToDto")
   ProductRemovedEventDto toDto(ProductRemoved evt);
 
-  @Mapping(target = "errorMessage", source = "errorMessage")
-  ProductRegistryErrorDto toDto(ProductRegistryError error);
+  default ProductRegistryBatchResultDto toDto(ProductRegistryBatchResult result) {
+    final List<ProductRegistryBatchResultDto.ItemDto> items = result.items.stream()
+        .map(item -> {
+          String productId = null;
+          if (item.event instanceof ProductRegistered registered) {
+            productId = registered.payload.productId.getId();
+          } else if (item.event instanceof ProductUpdated updated) {
+            productId = updated.payload.productId.getId();
+          }
+          return new ProductRegistryBatchResultDto.ItemDto(
+              item.index,
+              item.status.name(),
+              productId,
+              item.event == null ? null : ((Event) item.event).version,
+              item.error);
+        })
+        .toList();
+    return new ProductRegistryBatchResultDto(result.applied, items);
+  }
 }
@@ -1,41 +1,51 @@
 package org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.resource;
 
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
-
-import org.apache.pulsar.client.api.Consumer as PulsarConsumer;
-import java.util.function.Consumer as FunctionalConsumer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.PulsarClientException;
-import org.apache.pulsar.client.api.Schema;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.jboss.resteasy.reactive.RestStreamElementType;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.ProductRegisteredEventDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.ProductRegistryBatchResultDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.ProductRemovedEventDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.ProductUpdatedEventDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.RegisterProductCommandDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.RegisterProductsCommandDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.RemoveProductCommandDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.UpdateProductCommandDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.UpdateProductsCommandDto;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.mapper.ProductRegistryCommandDtoMapper;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.mapper.ProductRegistryEventDtoMapper;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.resource.exception.ProductRegistryEventStreamException;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.resource.exception.ConsumerCreationException;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.metrics.ProductRegistryGatewayMetrics;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.metrics.ProductRegistryGatewayMetrics.Stage;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.tracing.ProductRegistryGatewayTracing;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProducts;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
-import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryBatchResult;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryError;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
-import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.config.ProductRegistryEventChannelName;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.config.ProductRegistryQueryChannelName;
+import org.ormi.priv.tfa.orderflow.lib.shared.schema.ProductRegistrySchemas;
 
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
 import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.reactive.messaging.pulsar.PulsarClientService;
@@ -52,157 +62,110 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
 
-/**
- * A processor that receives, processes, and emits events from a Pulsar consumer.
- * 
- * @param <T> The event type.
- * 
- * <p>This class allows configuration of event source, emitter, timeout, and handlers
- * for termination, errors, and events.</p>
- */
-public class ProductRegistryProcessor<T> {
-
-  /** The Pulsar consumer used to receive events. */
-  private PulsarConsumer<T> consumer;
-
-  /** The emitter where processed events are sent. */
-  private Emitter emitter;
-
-  /** Timeout in milliseconds for receiving events. */
-  private int timeout;
-
-  /** Callback executed on termination. */
-  private Runnable onTermination;
-
-  /** Callback executed on error. */
-  private FunctionalConsumer<Throwable> onError;
-
-  /** Callback executed when an event is received. */
-  private FunctionalConsumer<T> onEvent;
+@Path("/product/registry")
+public class ProductRegistryCommandResource {
 
   /**
-   * Sets the Pulsar consumer.
-   * 
-   * @param consumer The Pulsar consumer.
-   * @return The current ProductRegistryProcessor instance.
+   * Pulsar client service for creating consumers and producers.
    */
-  public ProductRegistryProcessor<T> from(PulsarConsumer<T> consumer) {
-      this.consumer = consumer;
-      return this;
-  }
+  @Inject
+  PulsarClientService pulsarClients;
 
   /**
-   * Sets the emitter.
-   * 
-   * @param emitter The emitter.
-   * @return The current ProductRegistryProcessor instance.
+   * Static emitter for sending product registry commands.
    */
-  public ProductRegistryProcessor<T> withEmitter(Emitter emitter) {
-      this.emitter = emitter;
-      return this;
-  }
+  @Inject
+  @Channel("product-registry-command")
+  Emitter<ProductRegistryCommand> commandEmitter;
 
   /**
-   * Sets the timeout for receiving events.
-   * 
-   * @param timeout The timeout in milliseconds.
-   * @return The current ProductRegistryProcessor instance.
+   * The timeout value for processing events, retrieved from the configuration.
+   * Default value is 10000 milliseconds if not specified.
    */
-  public ProductRegistryProcessor<T> timeout(int timeout) {
-      this.timeout = timeout;
-      return this;
-  }
-
   /**
-   * Sets the termination callback.
-   * 
-   * @param onTermination The termination callback.
-   * @return The current ProductRegistryProcessor instance.
+   * Latency metrics of the commands.
    */
-  public ProductRegistryProcessor<T> onTermination(Runnable onTermination) {
-      this.onTermination = onTermination;
-      return this;
-  }
+  @Inject
+  ProductRegistryGatewayMetrics metrics;
 
   /**
-   * Sets the error callback.
-   * 
-   * @param onError The error callback.
-   * @return The current ProductRegistryProcessor instance.
+   * Tracing of the commands.
    */
-  public ProductRegistryProcessor<T> onError(FunctionalConsumer<Throwable> onError) {
-      this.onError = onError;
-      return this;
-  }
+  @Inject
+  ProductRegistryGatewayTracing tracing;
 
-  /**
-   * Sets the event callback.
-   * 
-   * @param onEvent The event callback.
-   * @return The current ProductRegistryProcessor instance.
-   */
-  public ProductRegistryProcessor<T> onEvent(FunctionalConsumer<T> onEvent) {
-      this.onEvent = onEvent;
-      return this;
-  }
+  @ConfigProperty(name = "product.registry.command.timeout", defaultValue = "10000")
+  private int timeout;
 
   /**
-   * Processes events from the Pulsar consumer and emits results.
-   * If an event is not received within the timeout, completes the emitter.
-   * If an error occurs, calls the error handler and fails the emitter.
-   * 
-   * @throws PulsarClientException if an error occurs during event processing.
+   * The maximum number of products in a batch command, retrieved from the configuration.
+   * Default value is 10000 products if not specified.
    */
-  public void process() throws PulsarClientException {
-      while (!emitter.isCancelled()) {
-          try {
-              final var msg = Optional.ofNullable(consumer.receive(timeout, TimeUnit.MILLISECONDS));
-              if (msg.isEmpty()) {
-                  // Complete the emitter if no event is received within the timeout
-                  emitter.complete();
-                  return;
-              }
-
-              T event = msg.get().getValue();
-              if (onEvent != null) {
-                  onEvent.accept(event);
-              }
-
-              // Acknowledge the message
-              consumer.acknowledge(msg.get());
-          } catch (PulsarClientException e) {
-              if (onError != null) {
-                  onError.accept(e);
-              }
-              emitter.fail(e);
-              return;
-          }
-      }
-  }
-}
-
-@Path("/product/registry")
-public class ProductRegistryCommandResource {
+  @ConfigProperty(name = "product.registry.command.max-batch-size", defaultValue = "10000")
+  private int maxBatchSize;
 
   /**
-   * Pulsar client service for creating consumers and producers.
+   * Wire format of the result topics, must match the product registry.
    */
-  @Inject
-  PulsarClientService pulsarClients;
+  @ConfigProperty(name = "product.registry.messaging.result.format", defaultValue = "JSON")
+  private MessageFormat resultFormat;
 
   /**
-   * Static emitter for sending product registry commands.
+   * Send a command with its correlation id and span context, timing it until
+   * the broker acknowledges it.
+   * 
+   * @param cmd - the command to send
+   * @param correlationId - the correlation id of the command
    */
-  @Inject
-  @Channel("product-registry-command")
-  Emitter<ProductRegistryCommand> commandEmitter;
+  private void sendCommand(ProductRegistryCommand cmd, String correlationId) {
+    final String type = ProductRegistryGatewayMetrics.typeOf(cmd);
+    final Timer.Sample sending = metrics.start();
+    commandEmitter.send(
+        PulsarOutgoingMessage.from(Message.of(cmd,
+            () -> {
+              metrics.stop(sending, Stage.SEND, type);
+              return CompletableFuture.completedFuture(null);
+            },
+            e -> {
+              metrics.failure(Stage.SEND, type);
+              return CompletableFuture.completedFuture(null);
+            }))
+            .addMetadata(PulsarOutgoingMessageMetadata.builder()
+                .withProperties(Map.of("correlation-id", correlationId))
+                .build())
+            .addMetadata(tracing.propagate(correlationId)));
+  }
 
   /**
-   * The timeout value for processing events, retrieved from the configuration.
-   * Default value is 10000 milliseconds if not specified.
+   * Time and trace the wait for the first event of an event stream.
+   * 
+   * @param <T> - the type of the event DTOs
+   * @param type - the type of the awaited event
+   * @param correlationId - the correlation id of the command
+   * @param events - the event stream
+   * @return the event stream, timed and traced from its subscription
    */
-  @ConfigProperty(name = "product.registry.command.timeout", defaultValue = "10000")
-  private int timeout;
+  private <T> Multi<T> awaitFirstEvent(String type, String correlationId, Multi<T> events) {
+    return Multi.createFrom().deferred(() -> {
+      final Timer.Sample waiting = metrics.start();
+      final Span span = tracing.startEventWait(type, correlationId);
+      final AtomicBoolean first = new AtomicBoolean(true);
+      return events
+          .onItem().invoke(() -> {
+            if (first.compareAndSet(true, false)) {
+              metrics.stop(waiting, Stage.EVENT_WAIT, type);
+              ProductRegistryGatewayTracing.end(span, null);
+            }
+          })
+          .onFailure().invoke(() -> metrics.failure(Stage.EVENT_WAIT, type))
+          // End the span of a stream terminated before its first event
+          .onTermination().invoke((failure, cancelled) -> {
+            if (first.compareAndSet(true, false)) {
+              ProductRegistryGatewayTracing.end(span, failure);
+            }
+          });
+    });
+  }
 
   /**
    * Endpoint to register a product.
@@ -216,11 +179,7 @@ public class ProductRegistryCommandResource {
   public Response registerProduct(RegisterProductCommandDto cmdDto, @Context UriInfo uriInfo) {
     final RegisterProduct registerProduct = ProductRegistryCommandDtoMapper.INSTANCE.toCommand(cmdDto);
     final String correlationId = UUID.randomUUID().toString();
-    commandEmitter.send(
-        PulsarOutgoingMessage.from(Message.of(registerProduct))
-            .addMetadata(PulsarOutgoingMessageMetadata.builder()
-                .withProperties(Map.of("correlation-id", correlationId))
-                .build()));
+    sendCommand(registerProduct, correlationId);
     return Response
         .seeOther(
             uriInfo.getBaseUriBuilder()
@@ -242,9 +201,9 @@ public class ProductRegistryCommandResource {
   @RestStreamElementType(MediaType.APPLICATION_JSON)
   public Multi<ProductRegisteredEventDto> registeredEventStream(@QueryParam("correlationId") String correlationId) {
     // Create a stream of product registry events
-    return Multi.createFrom().emitter(em -> {
+    return awaitFirstEvent("ProductRegistered", correlationId, Multi.createFrom().emitter(em -> {
       // Create consumer for product registry events with the given correlation id
-      final PulsarConsumer<Message> consumer = getEventsConsumerByCorrelationId(correlationId);
+      final Consumer<ChannelMessage> consumer = getMessagesConsumerByCorrelationId(correlationId);
       // Close the consumer on termination
       em.onTermination(() -> {
         try {
@@ -256,7 +215,7 @@ public class ProductRegistryCommandResource {
       // Consume events and emit DTOs
       CompletableFuture.runAsync(() -> {
         try {
-          new ProductRegistryProcessor<ProductRegistryEvent>()
+          new ProductRegistryProcessor<ChannelMessage>()
               .from(consumer)
               .withEmitter(em)
               .timeout(timeout)
@@ -265,26 +224,14 @@ public class ProductRegistryCommandResource {
                   Log.error("Error processing event", e);
                   em.fail(e);
               })
-              .onEvent(event -> {
-                  if (event instanceof ProductRegistryError) {
-                    em.fail((ProductRegistryError) event);
+              .onEvent(message -> {
+                  if (message instanceof ProductRegistryError error) {
+                    em.fail(new ProductRegistryEventStreamException(error.toString()));
                   }
-                  else if (event instanceof ProductRegistryEvent){ // if message is event
-                    if (event.property.name instanceof ProductRegistered registered){ // if event is ProductRegistered
-                      Log.debug("Emitting DTO for registered event: " + registered);
-                      // Emit DTO for registered event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(registered));
-                    }
-                    else if (event.property.name instanceof ProductUpdated updated){ // if event is ProductUpdated
-                      Log.debug("Emitting DTO for updated event: " + updated);
-                      // Emit DTO for updated event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(updated));
-                    }
-                    else { // if event is ProductRemoved
-                      Log.debug("Emitting DTO for removed event: " + event.property.name);
-                      // Emit DTO for removed event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(event.property.name));
-                    }
+                  else if (message instanceof ProductRegistered registered) {
+                    Log.debug("Emitting DTO for registered event: " + registered);
+                    // Emit DTO for registered event
+                    em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(registered));
                   }
               })
               .process();
@@ -294,7 +241,7 @@ public class ProductRegistryCommandResource {
             em.fail(e);
         }
       });
-    });
+    }));
   }
 
   /**
@@ -310,11 +257,7 @@ public class ProductRegistryCommandResource {
   public Response updateProduct(UpdateProductCommandDto updateProduct, @Context UriInfo uriInfo) {
     final UpdateProduct updateProductCommand = ProductRegistryCommandDtoMapper.INSTANCE.toCommand(updateProduct);
     final String correlationId = UUID.randomUUID().toString();
-    commandEmitter.send(
-        PulsarOutgoingMessage.from(Message.of(updateProductCommand))
-            .addMetadata(PulsarOutgoingMessageMetadata.builder()
-                .withProperties(Map.of("correlation-id", correlationId))
-                .build()));
+    sendCommand(updateProductCommand, correlationId);
     return Response
         .seeOther(
             uriInfo.getBaseUriBuilder()
@@ -335,9 +278,9 @@ public class ProductRegistryCommandResource {
   @RestStreamElementType(MediaType.APPLICATION_JSON)
   public Multi<ProductUpdatedEventDto> updatedEventStream(@QueryParam("correlationId") String correlationId) {
     // Create a stream of product registry events
-    return Multi.createFrom().emitter(em -> {
+    return awaitFirstEvent("ProductUpdated", correlationId, Multi.createFrom().emitter(em -> {
       // Create consumer for product registry events with the given correlation id
-      final PulsarConsumer<ProductRegistryEvent> consumer = getEventsConsumerByCorrelationId(correlationId);
+      final Consumer<ChannelMessage> consumer = getMessagesConsumerByCorrelationId(correlationId);
       // Close the consumer on termination
       em.onTermination(() -> {
         try {
@@ -349,7 +292,7 @@ public class ProductRegistryCommandResource {
       // Consume events and emit DTOs
       CompletableFuture.runAsync(() -> {
         try {
-          new ProductRegistryProcessor<ProductRegistryEvent>()
+          new ProductRegistryProcessor<ChannelMessage>()
               .from(consumer)
               .withEmitter(em)
               .timeout(timeout)
@@ -358,26 +301,14 @@ public class ProductRegistryCommandResource {
                   Log.error("Error processing event", e);
                   em.fail(e);
               })
-              .onEvent(event -> {
-                  if (event instanceof ProductRegistryError) {
-                    em.fail((ProductRegistryError) event);
+              .onEvent(message -> {
+                  if (message instanceof ProductRegistryError error) {
+                    em.fail(new ProductRegistryEventStreamException(error.toString()));
                   }
-                  else if (event instanceof ProductRegistryEvent){ // if message is event
-                    if (event.property.name instanceof ProductRegistered registered){ // if event is ProductRegistered
-                      Log.debug("Emitting DTO for registered event: " + registered);
-                      // Emit DTO for registered event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(registered));
-                    }
-                    else if (event.property.name instanceof ProductUpdated updated){ // if event is ProductUpdated
-                      Log.debug("Emitting DTO for updated event: " + updated);
-                      // Emit DTO for updated event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(updated));
-                    }
-                    else { // if event is ProductRemoved
-                      Log.debug("Emitting DTO for removed event: " + event.property.name);
-                      // Emit DTO for removed event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(event.property.name));
-                    }
+                  else if (message instanceof ProductUpdated updated) {
+                    Log.debug("Emitting DTO for updated event: " + updated);
+                    // Emit DTO for updated event
+                    em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(updated));
                   }
               })
               .process();
@@ -387,7 +318,7 @@ public class ProductRegistryCommandResource {
             em.fail(e);
         }
       });
-    });
+    }));
   }
 
   /**
@@ -403,11 +334,7 @@ public class ProductRegistryCommandResource {
   public Response removeProduct(RemoveProductCommandDto removeProduct, @Context UriInfo uriInfo) {
     final RemoveProduct removeProductCommand = ProductRegistryCommandDtoMapper.INSTANCE.toCommand(removeProduct);
     final String correlationId = UUID.randomUUID().toString();
-    commandEmitter.send(
-        PulsarOutgoingMessage.from(Message.of(removeProductCommand))
-            .addMetadata(PulsarOutgoingMessageMetadata.builder()
-                .withProperties(Map.of("correlation-id", correlationId))
-                .build()));
+    sendCommand(removeProductCommand, correlationId);
     return Response
         .seeOther(
             uriInfo.getBaseUriBuilder()
@@ -422,9 +349,9 @@ public class ProductRegistryCommandResource {
   @RestStreamElementType(MediaType.APPLICATION_JSON)
   public Multi<ProductRemovedEventDto> removedEventStream(@QueryParam("correlationId") String correlationId) {
     // Create a stream of product registry events
-    return Multi.createFrom().emitter(em -> {
+    return awaitFirstEvent("ProductRemoved", correlationId, Multi.createFrom().emitter(em -> {
       // Create consumer for product registry events with the given correlation id
-      final PulsarConsumer<ProductRegistryEvent> consumer = getEventsConsumerByCorrelationId(correlationId);
+      final Consumer<ChannelMessage> consumer = getMessagesConsumerByCorrelationId(correlationId);
       // Close the consumer on termination
       em.onTermination(() -> {
         try {
@@ -436,7 +363,7 @@ public class ProductRegistryCommandResource {
       // Consume events and emit DTOs
       CompletableFuture.runAsync(() -> {
         try {
-          new ProductRegistryProcessor<ProductRegistryEvent>()
+          new ProductRegistryProcessor<ChannelMessage>()
               .from(consumer)
               .withEmitter(em)
               .timeout(timeout)
@@ -445,26 +372,14 @@ public class ProductRegistryCommandResource {
                   Log.error("Error processing event", e);
                   em.fail(e);
               })
-              .onEvent(event -> {
-                  if (event instanceof ProductRegistryError) {
-                    em.fail((ProductRegistryError) event);
+              .onEvent(message -> {
+                  if (message instanceof ProductRegistryError error) {
+                    em.fail(new ProductRegistryEventStreamException(error.toString()));
                   }
-                  else if (event instanceof ProductRegistryEvent){ // if message is event
-                    if (event.property.name instanceof ProductRegistered registered){ // if event is ProductRegistered
-                      Log.debug("Emitting DTO for registered event: " + registered);
-                      // Emit DTO for registered event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(registered));
-                    }
-                    else if (event.property.name instanceof ProductUpdated updated){ // if event is ProductUpdated
-                      Log.debug("Emitting DTO for updated event: " + updated);
-                      // Emit DTO for updated event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(updated));
-                    }
-                    else { // if event is ProductRemoved
-                      Log.debug("Emitting DTO for removed event: " + event.property.name);
-                      // Emit DTO for removed event
-                      em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(event.property.name));
-                    }
+                  else if (message instanceof ProductRemoved removed) {
+                    Log.debug("Emitting DTO for removed event: " + removed);
+                    // Emit DTO for removed event
+                    em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(removed));
                   }
               })
               .process();
@@ -474,32 +389,149 @@ public class ProductRegistryCommandResource {
             em.fail(e);
         }
       });
-    });
+    }));
+  }
+
+  /**
+   * Endpoint to register a batch of products.
+   * 
+   * The products are registered all together or not at all, the batch result
+   * reports the outcome of each product.
+   * 
+   * @param cmdDto  - DTO containing the details of the products
+   * @param uriInfo - URI info for building the response URI
+   * @return Response indicating the products registration was accepted
+   */
+  @POST
+  @Path("/registerProducts")
+  @Consumes(MediaType.APPLICATION_JSON)
+  public Response registerProducts(RegisterProductsCommandDto cmdDto, @Context UriInfo uriInfo) {
+    final RegisterProducts registerProducts = ProductRegistryCommandDtoMapper.INSTANCE.toCommand(cmdDto);
+    if (registerProducts.getProducts().size() > maxBatchSize) {
+      return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+          .entity("Batch larger than " + maxBatchSize + " products")
+          .build();
+    }
+    return sendBatch(registerProducts, uriInfo);
+  }
+
+  /**
+   * Endpoint to update a batch of products.
+   * 
+   * The products are updated all together or not at all, the batch result
+   * reports the outcome of each product.
+   * 
+   * @param cmdDto  - DTO containing the details of the products
+   * @param uriInfo - URI info for building the response URI
+   * @return Response indicating the products update was accepted
+   */
+  @POST
+  @Path("/updateProducts")
+  @Consumes(MediaType.APPLICATION_JSON)
+  public Response updateProducts(UpdateProductsCommandDto cmdDto, @Context UriInfo uriInfo) {
+    final UpdateProducts updateProducts = ProductRegistryCommandDtoMapper.INSTANCE.toCommand(cmdDto);
+    if (updateProducts.getProducts().size() > maxBatchSize) {
+      return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+          .entity("Batch larger than " + maxBatchSize + " products")
+          .build();
+    }
+    return sendBatch(updateProducts, uriInfo);
+  }
+
+  /**
+   * Send a batch command and redirect to its result.
+   * 
+   * @param batch   - the batch command
+   * @param uriInfo - URI info for building the response URI
+   * @return Response redirecting to the batch result stream
+   */
+  private Response sendBatch(ProductRegistryCommand batch, UriInfo uriInfo) {
+    final String correlationId = UUID.randomUUID().toString();
+    sendCommand(batch, correlationId);
+    return Response
+        .seeOther(
+            uriInfo.getBaseUriBuilder()
+                .path(this.getClass())
+                .path("/events/batchResult")
+                .queryParam("correlationId", correlationId)
+                .build())
+        .build();
   }
 
   /**
-   * Create a consumer for product registry events with the given correlation id.
+   * Endpoint to stream the result of a batch command.
    * 
-   * Useful for consuming events with a specific correlation id to avoid consuming
-   * events from other
-   * producers.
+   * @param correlationId - correlation id of the batch command
+   * @return Multi of the batch result, with the outcome of each item
+   */
+  @GET
+  @Path("/events/batchResult")
+  @RestStreamElementType(MediaType.APPLICATION_JSON)
+  public Multi<ProductRegistryBatchResultDto> batchResultStream(@QueryParam("correlationId") String correlationId) {
+    // Create a stream of batch results
+    return awaitFirstEvent("ProductRegistryBatchResult", correlationId, Multi.createFrom().emitter(em -> {
+      // Create consumer for channel messages with the given correlation id
+      final Consumer<ChannelMessage> consumer = getMessagesConsumerByCorrelationId(correlationId);
+      // Close the consumer on termination
+      em.onTermination(() -> {
+        try {
+          consumer.unsubscribe();
+        } catch (PulsarClientException e) {
+          Log.error("Failed to close consumer for product registry batch results.", e);
+        }
+      });
+      // Consume the result and emit its DTO
+      CompletableFuture.runAsync(() -> {
+        try {
+          new ProductRegistryProcessor<ChannelMessage>()
+              .from(consumer)
+              .withEmitter(em)
+              .timeout(timeout)
+              .onTermination(() -> Log.debug("Processing terminated"))
+              .onError(e -> {
+                  Log.error("Error processing batch result", e);
+                  em.fail(e);
+              })
+              .onEvent(message -> {
+                  if (message instanceof ProductRegistryError error) {
+                    em.fail(new ProductRegistryEventStreamException(error.toString()));
+                  }
+                  else if (message instanceof ProductRegistryBatchResult result) {
+                    Log.debug("Emitting DTO for batch result: " + result);
+                    // Emit DTO for batch result
+                    em.emit(ProductRegistryEventDtoMapper.INSTANCE.toDto(result));
+                  }
+              })
+              .process();
+        }
+        catch (PulsarClientException e) {
+            Log.error("Failed to process product registry batch results.", e);
+            em.fail(e);
+        }
+      });
+    }));
+  }
+
+  /**
+   * Create a consumer for product registry messages (events, errors and batch
+   * results) with the given correlation id.
    * 
    * @param correlationId - correlation id to use for the consumer
-   * @return Consumer for product registry events
+   * @return Consumer for product registry messages
    */
-  private PulsarConsumer<Message> getEventsConsumerByCorrelationId(String correlationId) {
+  private Consumer<ChannelMessage> getMessagesConsumerByCorrelationId(String correlationId) {
     try {
       // Define the channel name, topic and schema for the consumer
       final String channelName = ProductRegistryQueryChannelName.PRODUCT_REGISTRY_READ_RESULT.toString();
       final String topic = channelName + "-" + correlationId;
       // Create and return the subscription (consumer)
       return pulsarClients.getClient(channelName)
-          .newConsumer(Schema.JSON(ProductRegistryEvent.class))
+          .newConsumer(ProductRegistrySchemas.messages(resultFormat))
           .subscriptionName(topic)
           .topic(topic)
           .subscribe();
     } catch (PulsarClientException e) {
-      throw new ConsumerCreationException("Failed to create consumer for product registry events.", e);
+      throw new ConsumerCreationException("Failed to create consumer for product registry messages.", e);
     }
   }
 }
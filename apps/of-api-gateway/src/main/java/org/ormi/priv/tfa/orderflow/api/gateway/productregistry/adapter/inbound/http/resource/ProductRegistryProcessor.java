@@ -0,0 +1,138 @@
+package org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.resource;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.PulsarClientException;
+
+import io.smallrye.mutiny.subscription.MultiEmitter;
+
+/**
+ * A processor that receives, processes, and emits events from a Pulsar consumer.
+ * 
+ * @param <T> The event type.
+ * 
+ * <p>This class allows configuration of event source, emitter, timeout, and handlers
+ * for termination, errors, and events.</p>
+ */
+public class ProductRegistryProcessor<T> {
+
+  /** The Pulsar consumer used to receive events. */
+  private Consumer<T> consumer;
+
+  /** The emitter where processed events are sent. */
+  private MultiEmitter<?> emitter;
+
+  /** Timeout in milliseconds for receiving events. */
+  private int timeout;
+
+  /** Callback executed on termination. */
+  private Runnable onTermination;
+
+  /** Callback executed on error. */
+  private java.util.function.Consumer<Throwable> onError;
+
+  /** Callback executed when an event is received. */
+  private java.util.function.Consumer<T> onEvent;
+
+  /**
+   * Sets the Pulsar consumer.
+   * 
+   * @param consumer The Pulsar consumer.
+   * @return The current ProductRegistryProcessor instance.
+   */
+  public ProductRegistryProcessor<T> from(Consumer<T> consumer) {
+      this.consumer = consumer;
+      return this;
+  }
+
+  /**
+   * Sets the emitter.
+   * 
+   * @param emitter The emitter.
+   * @return The current ProductRegistryProcessor instance.
+   */
+  public ProductRegistryProcessor<T> withEmitter(MultiEmitter<?> emitter) {
+      this.emitter = emitter;
+      return this;
+  }
+
+  /**
+   * Sets the timeout for receiving events.
+   * 
+   * @param timeout The timeout in milliseconds.
+   * @return The current ProductRegistryProcessor instance.
+   */
+  public ProductRegistryProcessor<T> timeout(int timeout) {
+      this.timeout = timeout;
+      return this;
+  }
+
+  /**
+   * Sets the termination callback.
+   * 
+   * @param onTermination The termination callback.
+   * @return The current ProductRegistryProcessor instance.
+   */
+  public ProductRegistryProcessor<T> onTermination(Runnable onTermination) {
+      this.onTermination = onTermination;
+      return this;
+  }
+
+  /**
+   * Sets the error callback.
+   * 
+   * @param onError The error callback.
+   * @return The current ProductRegistryProcessor instance.
+   */
+  public ProductRegistryProcessor<T> onError(java.util.function.Consumer<Throwable> onError) {
+      this.onError = onError;
+      return this;
+  }
+
+  /**
+   * Sets the event callback.
+   * 
+   * @param onEvent The event callback.
+   * @return The current ProductRegistryProcessor instance.
+   */
+  public ProductRegistryProcessor<T> onEvent(java.util.function.Consumer<T> onEvent) {
+      this.onEvent = onEvent;
+      return this;
+  }
+
+  /**
+   * Processes events from the Pulsar consumer and emits results.
+   * If an event is not received within the timeout, completes the emitter.
+   * If an error occurs, calls the error handler and fails the emitter.
+   * 
+   * @throws PulsarClientException if an error occurs during event processing.
+   */
+  public void process() throws PulsarClientException {
+      while (!emitter.isCancelled()) {
+          try {
+              final var msg = Optional.ofNullable(consumer.receive(timeout, TimeUnit.MILLISECONDS));
+              if (msg.isEmpty()) {
+                  // Complete the emitter if no event is received within the timeout
+                  emitter.complete();
+                  return;
+              }
+
+              T event = msg.get().getValue();
+              if (onEvent != null) {
+                  onEvent.accept(event);
+              }
+
+              // Acknowledge the message
+              consumer.acknowledge(msg.get());
+          } catch (PulsarClientException e) {
+              if (onError != null) {
+                  onError.accept(e);
+              }
+              emitter.fail(e);
+              return;
+          }
+      }
+  }
+}
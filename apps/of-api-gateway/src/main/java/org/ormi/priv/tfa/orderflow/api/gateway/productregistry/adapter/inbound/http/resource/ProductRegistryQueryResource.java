@@ -6,21 +6,23 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.PulsarClientException;
-import org.apache.pulsar.client.api.Schema;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.resource.exception.ConsumerCreationException;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.tracing.ProductRegistryGatewayTracing;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.GetProductById;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.GetProducts;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery;
-import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.GetProductById.GetProductByIdResult;
-import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.GetProducts.GetProductsResult;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery.ProductRegistryQueryResult;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.config.ProductRegistryQueryChannelName;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.NotFound;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDto;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDtoCollection;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.lib.shared.schema.ProductRegistrySchemas;
 
 import io.smallrye.reactive.messaging.pulsar.PulsarClientService;
 import io.smallrye.reactive.messaging.pulsar.PulsarOutgoingMessage;
@@ -52,6 +54,18 @@ public class ProductRegistryQueryResource {
   @Channel("product-registry-query")
   Emitter<ProductRegistryQuery> queryEmitter;
 
+  /**
+   * Tracing of the queries.
+   */
+  @Inject
+  ProductRegistryGatewayTracing tracing;
+
+  /**
+   * Wire format of the result topics, must match the product registry read side.
+   */
+  @ConfigProperty(name = "product.registry.messaging.result.format", defaultValue = "JSON")
+  MessageFormat resultFormat;
+
   /**
    * Get the product by id.
    * 
@@ -70,10 +84,10 @@ public class ProductRegistryQueryResource {
         PulsarOutgoingMessage.from(Message.of(getProductById))
             .addMetadata(PulsarOutgoingMessageMetadata.builder()
                 .withProperties(Map.of("correlation-id", correlationId))
-                .build()));
+                .build())
+            .addMetadata(tracing.propagate(correlationId)));
     // Get the consumer for the result
-    final Consumer<GetProductByIdResult> consumer = getResultsConsumerByCorrelationId(correlationId,
-    GetProductByIdResult.class);
+    final Consumer<ProductRegistryQueryResult> consumer = getResultsConsumerByCorrelationId(correlationId);
     try {
       // Wait for the result
       final var resultMsg = Optional.ofNullable(consumer.receive(timeout, TimeUnit.MILLISECONDS));
@@ -123,10 +137,10 @@ public class ProductRegistryQueryResource {
         PulsarOutgoingMessage.from(Message.of(getProducts))
             .addMetadata(PulsarOutgoingMessageMetadata.builder()
                 .withProperties(Map.of("correlation-id", correlationId))
-                .build()));
+                .build())
+            .addMetadata(tracing.propagate(correlationId)));
     // Get the consumer for the result
-    final Consumer<GetProductsResult> consumer = getResultsConsumerByCorrelationId(correlationId,
-    GetProductsResult.class);
+    final Consumer<ProductRegistryQueryResult> consumer = getResultsConsumerByCorrelationId(correlationId);
     try {
       // Wait for the result
       final var resultMsg = Optional.ofNullable(consumer.receive(timeout, TimeUnit.MILLISECONDS));
@@ -155,19 +169,17 @@ public class ProductRegistryQueryResource {
   /**
    * Get the results consumer by correlation id.
    * 
-   * @param <T> - the type of the result
    * @param correlationId - the correlation id
-   * @param resultType - the return type
    * @return the consumer
    */
-  private <T> Consumer<T> getResultsConsumerByCorrelationId(String correlationId, Class<T> resultType) {
+  private Consumer<ProductRegistryQueryResult> getResultsConsumerByCorrelationId(String correlationId) {
     try {
       // Define the channel name, topic and schema for the consumer
       final String channelName = ProductRegistryQueryChannelName.PRODUCT_REGISTRY_READ_RESULT.toString();
       final String topic = channelName + "-" + correlationId;
       // Create and return the subscription (consumer)
       return pulsarClients.getClient(channelName)
-          .newConsumer(Schema.JSON(resultType))
+          .newConsumer(ProductRegistrySchemas.queryResults(resultFormat))
           .topic(topic)
           .subscriptionName(topic)
           .subscribe();
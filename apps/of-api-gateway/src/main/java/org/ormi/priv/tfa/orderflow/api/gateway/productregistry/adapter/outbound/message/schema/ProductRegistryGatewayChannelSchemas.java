@@ -0,0 +1,55 @@
+package org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.outbound.message.schema;
+
+import org.apache.pulsar.client.api.Schema;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery;
+import org.ormi.priv.tfa.orderflow.lib.shared.schema.ProductRegistrySchemas;
+
+import io.smallrye.common.annotation.Identifier;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+
+/**
+ * Pulsar schemas of the product registry channels fed by the gateway, selected
+ * per channel. The Pulsar connector picks the schema bean identified by the
+ * channel name.
+ */
+@ApplicationScoped
+public class ProductRegistryGatewayChannelSchemas {
+
+  /**
+   * Wire format of the command channel, must match the product registry.
+   */
+  @ConfigProperty(name = "product.registry.messaging.command.format", defaultValue = "JSON")
+  private MessageFormat commandFormat;
+
+  /**
+   * Wire format of the query channel, must match the product registry read side.
+   */
+  @ConfigProperty(name = "product.registry.messaging.query.format", defaultValue = "JSON")
+  private MessageFormat queryFormat;
+
+  /**
+   * Schema of the outgoing commands.
+   *
+   * @return the command schema
+   */
+  @Produces
+  @Identifier("product-registry-command")
+  Schema<ProductRegistryCommand> commandSchema() {
+    return ProductRegistrySchemas.commands(commandFormat);
+  }
+
+  /**
+   * Schema of the outgoing queries.
+   *
+   * @return the query schema
+   */
+  @Produces
+  @Identifier("product-registry-query")
+  Schema<ProductRegistryQuery> querySchema() {
+    return ProductRegistrySchemas.queries(queryFormat);
+  }
+}
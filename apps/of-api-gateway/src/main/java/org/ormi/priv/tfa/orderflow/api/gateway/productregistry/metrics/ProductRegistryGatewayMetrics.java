@@ -0,0 +1,125 @@
+package org.ormi.priv.tfa.orderflow.api.gateway.productregistry.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Latency metrics of the product registry commands seen from the api gateway.
+ *
+ * Each stage is timed by command or event type in the
+ * {@value #STAGE_TIMER} histogram, failed stages are counted in
+ * {@value #FAILURE_COUNTER}.
+ *
+ * @implNote Timers are cached by stage and type, the set of types is bounded
+ *           by the published language.
+ */
+@ApplicationScoped
+public class ProductRegistryGatewayMetrics {
+
+  /**
+   * Name of the stage latency histograms.
+   */
+  public static final String STAGE_TIMER = "orderflow.gateway.stage";
+
+  /**
+   * Name of the failed stage counters.
+   */
+  public static final String FAILURE_COUNTER = "orderflow.gateway.failures";
+
+  /**
+   * Stage of a command seen from the gateway.
+   */
+  public enum Stage {
+    /**
+     * Sending a command until the broker acknowledges it.
+     */
+    SEND,
+    /**
+     * From the subscription to the event stream of a command to its first
+     * event, the handling of the command by the product registry included.
+     */
+    EVENT_WAIT;
+
+    private final String tag = name().toLowerCase();
+  }
+
+  /**
+   * Registry of the meters.
+   */
+  @Inject
+  private MeterRegistry meterRegistry;
+
+  /**
+   * Stage latency timers, by stage and type.
+   */
+  private final Map<Stage, Map<String, Timer>> timers = new EnumMap<>(Stage.class);
+
+  /**
+   * Constructor.
+   */
+  public ProductRegistryGatewayMetrics() {
+    for (Stage stage : Stage.values()) {
+      timers.put(stage, new ConcurrentHashMap<>());
+    }
+  }
+
+  /**
+   * Get the type of a command or event, as tagged in the metrics.
+   *
+   * @param message - the command or event
+   * @return the type of the message
+   */
+  public static String typeOf(Object message) {
+    return message.getClass().getSimpleName();
+  }
+
+  /**
+   * Start timing a stage.
+   *
+   * @return the sample to stop at the end of the stage
+   */
+  public Timer.Sample start() {
+    return Timer.start(meterRegistry);
+  }
+
+  /**
+   * Stop timing a stage.
+   *
+   * @param sample - the sample started at the beginning of the stage
+   * @param stage - the stage
+   * @param type - the command or event type
+   */
+  public void stop(Timer.Sample sample, Stage stage, String type) {
+    sample.stop(timer(stage, type));
+  }
+
+  /**
+   * Count a failed stage.
+   *
+   * @param stage - the stage
+   * @param type - the command or event type
+   */
+  public void failure(Stage stage, String type) {
+    Counter.builder(FAILURE_COUNTER)
+        .tag("stage", stage.tag)
+        .tag("type", type)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  private Timer timer(Stage stage, String type) {
+    return timers.get(stage).computeIfAbsent(type, key -> Timer.builder(STAGE_TIMER)
+        .description("Latency of a product registry command stage seen from the gateway")
+        .tag("stage", stage.tag)
+        .tag("type", key)
+        .publishPercentileHistogram()
+        .register(meterRegistry));
+  }
+}
@@ -0,0 +1,100 @@
+package org.ormi.priv.tfa.orderflow.api.gateway.productregistry.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.smallrye.reactive.messaging.TracingMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * Tracing of the product registry requests of the api gateway.
+ *
+ * Commands and queries are sent in the span of their HTTP request, the Pulsar
+ * connector writes its context in the message properties next to the
+ * correlation id. A command and the wait for its events are two HTTP
+ * requests, their spans are tagged with the correlation id to be joined.
+ *
+ * @implNote Spans are exported as OTLP JSON lines to the log category of the
+ *           exporter, routed to a file by the configuration, without a
+ *           collector.
+ */
+@ApplicationScoped
+public class ProductRegistryGatewayTracing {
+
+  /**
+   * Correlation id of the traced command or query.
+   */
+  public static final AttributeKey<String> CORRELATION_ID = AttributeKey.stringKey("orderflow.correlation_id");
+
+  /**
+   * Type of the awaited event.
+   */
+  public static final AttributeKey<String> TYPE = AttributeKey.stringKey("orderflow.type");
+
+  /**
+   * Tracer of the service.
+   */
+  @Inject
+  private Tracer tracer;
+
+  /**
+   * Exporter of the finished spans.
+   *
+   * @implNote Static so that the tracer, which depends on the exporters, is not
+   *           needed to produce it.
+   *
+   * @return the OTLP JSON logging exporter
+   */
+  @Produces
+  @Singleton
+  static SpanExporter spanExporter() {
+    return OtlpJsonLoggingSpanExporter.create();
+  }
+
+  /**
+   * Tag the current span with the correlation id of a message sent in it.
+   *
+   * @param correlationId - the correlation id of the message
+   * @return the tracing metadata of the message, for the connector to
+   *         propagate the current span
+   */
+  public TracingMetadata propagate(String correlationId) {
+    Span.current().setAttribute(CORRELATION_ID, correlationId);
+    return TracingMetadata.withCurrent(Context.current());
+  }
+
+  /**
+   * Start the span of the wait for the first event of a command.
+   *
+   * @param type - the type of the awaited event
+   * @param correlationId - the correlation id of the command
+   * @return the started span
+   */
+  public Span startEventWait(String type, String correlationId) {
+    return tracer.spanBuilder("await " + type)
+        .setAttribute(TYPE, type)
+        .setAttribute(CORRELATION_ID, correlationId)
+        .startSpan();
+  }
+
+  /**
+   * End a span.
+   *
+   * @param span - the span
+   * @param failure - the failure of the traced work, null on success
+   */
+  public static void end(Span span, Throwable failure) {
+    if (failure != null) {
+      span.recordException(failure);
+      span.setStatus(StatusCode.ERROR);
+    }
+    span.end();
+  }
+}
@@ -2,13 +2,19 @@ package org.ormi.priv.tfa.orderflow.product.registry.read.projection;
 
 import java.util.Optional;
 
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.Event;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch.EventDispatcher;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEventTypes;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
 import org.ormi.priv.tfa.orderflow.product.registry.read.projection.repository.model.ProductEntity;
 import org.ormi.priv.tfa.orderflow.product.registry.read.service.ProductService;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.metrics.ProductRegistryReadMetrics;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.metrics.ProductRegistryReadMetrics.Stage;
 
+import io.micrometer.core.instrument.Timer;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
@@ -25,25 +31,56 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class ProductRegistryProjector {
 
+  /**
+   * Projections of the events, by event type.
+   */
+  private static final EventDispatcher<ProductRegistryProjector, ProductRegistryEvent, Void> PROJECTIONS = ProductRegistryEventTypes.REGISTRY
+      .<ProductRegistryProjector, ProductRegistryEvent, Void>dispatcher()
+      .on(ProductRegistered.class, (projector, registered) -> {
+        projector.projectRegisteredProduct(registered);
+        return null;
+      })
+      .on(ProductUpdated.class, (projector, updated) -> {
+        projector.projectUpdatedProduct(updated);
+        return null;
+      })
+      .on(ProductRemoved.class, (projector, removed) -> {
+        projector.projectRemovedProduct(removed);
+        return null;
+      })
+      .build();
+
   /**
    * The product service.
    */
   @Inject
   private ProductService productService;
 
+  /**
+   * Latency metrics of the read side stages.
+   */
+  @Inject
+  private ProductRegistryReadMetrics metrics;
+
   /**
    * Handle the event.
    * 
    * @param event - the event to handle
    */
   public void handleEvent(ProductRegistryEvent event) {
-    if (event instanceof ProductRegistered) {
-      projectRegisteredProduct((ProductRegistered) event);
-    } else if (event instanceof ProductUpdated) {
-      projectUpdatedProduct((ProductUpdated) event);
-    } else if (event instanceof ProductRemoved) {
-      projectRemovedProduct((ProductRemoved) event);
+    final String type = ProductRegistryReadMetrics.typeOf(event);
+    // Time since the write side created the event, across the service clocks
+    if (event instanceof Event created) {
+      metrics.record(Stage.TRANSIT, type, System.currentTimeMillis() - created.timestamp);
+    }
+    final Timer.Sample projecting = metrics.start();
+    try {
+      PROJECTIONS.dispatch(this, event);
+    } catch (RuntimeException e) {
+      metrics.failure(Stage.PROJECTION, type);
+      throw e;
     }
+    metrics.stop(projecting, Stage.PROJECTION, type);
   }
 
   /**
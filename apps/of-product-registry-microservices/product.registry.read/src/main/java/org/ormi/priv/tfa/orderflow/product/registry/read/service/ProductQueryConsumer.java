@@ -1,6 +1,5 @@
 package org.ormi.priv.tfa.orderflow.product.registry.read.service;
 
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
@@ -16,10 +15,16 @@ import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.ProductNotF
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDtoCollection;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
 import org.ormi.priv.tfa.orderflow.product.registry.read.adapter.outbound.message.dto.mapper.RegistryProductDtoMapper;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.metrics.ProductRegistryReadMetrics;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.metrics.ProductRegistryReadMetrics.Stage;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.tracing.ProductRegistryReadTracing;
 
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
 import io.quarkus.logging.Log;
 import io.smallrye.common.annotation.Blocking;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.TracingMetadata;
 import io.smallrye.reactive.messaging.pulsar.PulsarIncomingMessageMetadata;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -30,6 +35,15 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class ProductQueryConsumer {
 
+  /**
+   * Metadata of a query, or of its result, sent through an in-VM channel,
+   * which carries no Pulsar metadata.
+   * 
+   * @param correlationId - the correlation id of the query
+   */
+  public record QueryMetadata(String correlationId) {
+  }
+
   /**
    * The product service.
    */
@@ -42,6 +56,18 @@ public class ProductQueryConsumer {
   @Inject
   private ProductQueryResultEmitter resultEmitter;
 
+  /**
+   * Latency metrics of the read side stages.
+   */
+  @Inject
+  private ProductRegistryReadMetrics metrics;
+
+  /**
+   * Tracing of the read side.
+   */
+  @Inject
+  private ProductRegistryReadTracing tracing;
+
   /**
    * Handle product queries.
    * 
@@ -51,11 +77,23 @@ public class ProductQueryConsumer {
   @Blocking
   public CompletionStage<Void> handleQuery(Message<ProductRegistryQuery> msg) {
     // Get the correlation id from the message metadata
-    final var metadata = msg.getMetadata(PulsarIncomingMessageMetadata.class).orElseThrow();
-    final String correlationId = Optional.ofNullable(metadata.getProperty("correlation-id")).orElseThrow();
+    final var metadata = msg.getMetadata(PulsarIncomingMessageMetadata.class);
+    final String correlationId = metadata
+        .map(pulsarMetadata -> pulsarMetadata.getProperty("correlation-id"))
+        .or(() -> msg.getMetadata(QueryMetadata.class).map(QueryMetadata::correlationId))
+        .orElseThrow();
     // Get the message and its payload
     final ProductRegistryQuery qry = msg.getPayload();
+    final String type = ProductRegistryReadMetrics.typeOf(qry);
+    // Time since the gateway published the query, across producer and broker clocks
+    metadata.ifPresent(pulsarMetadata -> metrics.record(Stage.TRANSIT, type,
+        System.currentTimeMillis() - pulsarMetadata.getPublishTime()));
+
+    // Trace the query and its result as a child of the span that published the query
+    final Span span = tracing.start("query", TracingMetadata.fromMessage(msg), type)
+        .setAttribute(ProductRegistryReadTracing.CORRELATION_ID, correlationId);
 
+    final Timer.Sample querying = metrics.start();
     return Uni.createFrom().deferred(() -> {
       if (qry instanceof GetProductById) {
         GetProductById getProductById = (GetProductById) qry;
@@ -67,12 +105,25 @@ public class ProductQueryConsumer {
     })
     .subscribeAsCompletionStage()
     .thenAccept(result -> {
+      metrics.stop(querying, Stage.QUERY, type);
       // Sink the result on correlated bus
-      resultEmitter.sink(correlationId, result);
+      final Timer.Sample sinking = metrics.start();
+      resultEmitter.sink(correlationId, result, tracing.properties(span, correlationId))
+          .whenComplete((sent, e) -> {
+            if (e != null) {
+              metrics.failure(Stage.SINK, type);
+            } else {
+              metrics.stop(sinking, Stage.SINK, type);
+            }
+            ProductRegistryReadTracing.end(span, e);
+          });
       msg.ack();
     }).exceptionallyCompose(e -> {
       // Log error and nack message
       Log.error("Failed to handle query", e);
+      metrics.failure(Stage.QUERY, type);
+      metrics.nack(type);
+      ProductRegistryReadTracing.end(span, e);
       msg.nack(e);
       return CompletableFuture.failedFuture(e);
     });
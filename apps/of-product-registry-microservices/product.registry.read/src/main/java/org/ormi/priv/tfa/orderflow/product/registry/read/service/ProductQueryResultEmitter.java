@@ -1,15 +1,24 @@
 package org.ormi.priv.tfa.orderflow.product.registry.read.service;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.PulsarClientException;
-import org.apache.pulsar.client.api.Schema;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery.ProductRegistryQueryResult;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.config.ProductRegistryQueryChannelName;
+import org.ormi.priv.tfa.orderflow.lib.shared.schema.ProductRegistrySchemas;
 import org.ormi.priv.tfa.orderflow.product.registry.read.exception.MessageSendingException;
 import org.ormi.priv.tfa.orderflow.product.registry.read.exception.ProducerCloseException;
 import org.ormi.priv.tfa.orderflow.product.registry.read.exception.ProducerCreationException;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.ProductQueryConsumer.QueryMetadata;
 
 import io.quarkus.logging.Log;
 import io.smallrye.reactive.messaging.pulsar.PulsarClientService;
@@ -19,17 +28,66 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class ProductQueryResultEmitter {
 
+  /**
+   * Name of the Pulsar connector.
+   */
+  private static final String PULSAR_CONNECTOR = "smallrye-pulsar";
+
   @Inject
   private PulsarClientService pulsarClients;
 
-  public void sink(String correlationId, ProductRegistryQueryResult result) {
+  /**
+   * Result channel, only used when it is not a Pulsar channel (in-VM).
+   */
+  @Inject
+  @Channel("product-registry-read-result")
+  private Emitter<ProductRegistryQueryResult> resultChannel;
+
+  /**
+   * Connector of the result channel, the results are sent on a topic per
+   * correlation id with Pulsar and on the channel itself otherwise.
+   */
+  @ConfigProperty(name = "mp.messaging.outgoing.product-registry-read-result.connector", defaultValue = "smallrye-pulsar")
+  private String resultConnector;
+
+  /**
+   * Wire format of the result topics, must match the api gateway.
+   */
+  @ConfigProperty(name = "product.registry.messaging.result.format", defaultValue = "JSON")
+  private MessageFormat resultFormat;
+
+  /**
+   * Send a query result on the result topic of its correlation id, or on the
+   * result channel when it is in the JVM.
+   * 
+   * @param correlationId - the correlation id of the query
+   * @param result        - the result
+   * @param properties    - the properties of the result message
+   * @return a completion stage completed once the broker acknowledges the result
+   */
+  public CompletionStage<Void> sink(String correlationId, ProductRegistryQueryResult result,
+      Map<String, String> properties) {
+    // Send the result in the JVM, with its correlation id in the metadata
+    if (!PULSAR_CONNECTOR.equals(resultConnector)) {
+      final CompletableFuture<Void> sent = new CompletableFuture<>();
+      resultChannel.send(Message.of(result, Metadata.of(new QueryMetadata(correlationId)),
+          () -> {
+            sent.complete(null);
+            return CompletableFuture.completedFuture(null);
+          },
+          e -> {
+            sent.completeExceptionally(e);
+            return CompletableFuture.completedFuture(null);
+          }));
+      return sent;
+    }
     // Get the producer for the correlation id
-    getResultProducerByCorrelationId(correlationId,
-        ProductRegistryQueryResult.class)
-        .thenAccept((producer) -> {
+    return getResultProducerByCorrelationId(correlationId)
+        .thenCompose((producer) -> {
           // Sink the result
-          producer
+          return producer
               .newMessage()
+              .properties(properties)
               .value(result)
               .sendAsync()
               .whenComplete((msgId, ex) -> {
@@ -44,24 +102,23 @@ public class ProductQueryResultEmitter {
                   throw new ProducerCloseException("Failed to close producer", e);
                 }
               });
-        });
+        })
+        .thenApply(msgId -> null);
   }
 
   /**
    * Get the producer for the correlation id.
    * 
-   * @param <T>           - the type of the result
    * @param correlationId - the correlation id
-   * @param resultType    - the type of the result
    * @return the producer
    */
-  private <T> CompletionStage<Producer<T>> getResultProducerByCorrelationId(String correlationId, Class<T> resultType) {
+  private CompletionStage<Producer<ProductRegistryQueryResult>> getResultProducerByCorrelationId(String correlationId) {
     // Define the channel name, topic and schema definition
     final String channelName = ProductRegistryQueryChannelName.PRODUCT_REGISTRY_READ_RESULT.toString();
     final String topic = channelName + "-" + correlationId;
     // Create and return the producer
     return pulsarClients.getClient(channelName)
-        .newProducer(Schema.JSON(resultType))
+        .newProducer(ProductRegistrySchemas.queryResults(resultFormat))
         .producerName(topic)
         .topic(topic)
         .createAsync()
@@ -1,8 +1,16 @@
 package org.ormi.priv.tfa.orderflow.product.registry.read.service;
 
+import java.util.Optional;
+
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
 import org.ormi.priv.tfa.orderflow.product.registry.read.projection.ProductRegistryProjector;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.metrics.ProductRegistryReadMetrics;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.tracing.ProductRegistryReadTracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import io.smallrye.reactive.messaging.TracingMetadata;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -14,31 +22,24 @@ public class ProductRegistryEventConsumer {
   @Inject
   private ProductRegistryProjector projector;
 
+  @Inject
+  private ProductRegistryReadTracing tracing;
+
   @Incoming("product-registry-event")
   @Transactional(Transactional.TxType.REQUIRED)
-  public void handleEvent(ProductRegistryEvent event) {
-    // Project the event
-    projector.handleEvent(event);
-
-    // Get the producer for the correlation id
-    getEventSinkByCorrelationId(correlationId)
-      .thenAccept((producer) -> {
-        // Sink the event
-        producer
-            .newMessage()
-            .value(event)
-            .sendAsync()
-            .whenComplete((msgId, ex) -> {
-              if (ex != null) {
-                throw new RuntimeException("Failed to produce event for correlation id: " + correlationId, ex);
-              }
-              Log.debug(String.format("Sinked event with correlation id{%s} in msg{%s}", correlationId, msgId));
-              try {
-                producer.close();
-              } catch (PulsarClientException e) {
-                throw new RuntimeException("Failed to close producer", e);
-              }
-            });
-      });
+  @SuppressWarnings("try")
+  public void handleEvent(ProductRegistryEvent event, Optional<TracingMetadata> eventTracing) {
+    // Project the event, in a span child of the command that emitted it
+    final Span span = tracing.start("project", eventTracing, ProductRegistryReadMetrics.typeOf(event));
+    RuntimeException failure = null;
+    try (Scope ignored = span.makeCurrent()) {
+      projector.handleEvent(event);
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      ProductRegistryReadTracing.end(span, failure);
+    }
+
   }
 }
@@ -1,39 +1,86 @@
 package org.ormi.priv.tfa.orderflow.product.registry.read.service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
 import org.ormi.priv.tfa.orderflow.product.registry.read.projection.repository.ProductRepository;
 import org.ormi.priv.tfa.orderflow.product.registry.read.projection.repository.model.ProductEntity;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 /**
  * Service to get product informations.
  * 
- * Access the product informations from the database through the repository.
+ * Access the product informations from the database through the repository,
+ * or from memory when selected.
  */
 @ApplicationScoped
 public class ProductService {
 
+  /**
+   * Storage of the read model.
+   */
+  public enum Type {
+    /**
+     * Products are stored in the products collection.
+     */
+    MONGO,
+    /**
+     * Products are kept in memory and lost on shutdown, for tests and
+     * measurements without a database.
+     */
+    IN_MEMORY
+  }
+
   /**
    * The product repository.
    */
   @Inject
   private ProductRepository productRepository;
 
+  /**
+   * Storage of the read model.
+   */
+  @ConfigProperty(name = "product.registry.read-model.type", defaultValue = "MONGO")
+  private Type type;
+
+  /**
+   * Products kept in memory by product id, null when the collection is selected.
+   */
+  private Map<String, ProductEntity> products;
+
+  /**
+   * Create the in memory read model if selected.
+   */
+  @PostConstruct
+  void init() {
+    products = type == Type.IN_MEMORY ? new ConcurrentHashMap<>() : null;
+  }
+
   /**
    * Persist a new product.
    * 
    * @param product the product to create
    */
   public void createProduct(ProductEntity product) {
+    if (products != null) {
+      products.put(product.productId, product);
+      return;
+    }
     productRepository.persist(product);
   }
 
   public void updateProduct(ProductEntity product) {
+    if (products != null) {
+      products.put(product.productId, product);
+      return;
+    }
     productRepository.update(product);
   }
 
@@ -44,6 +91,9 @@ public class ProductService {
    * @return the product
    */
   public Optional<ProductEntity> getProductById(ProductId productId) {
+    if (products != null) {
+      return Optional.ofNullable(products.get(productId.getId()));
+    }
     return productRepository.findByProductId(productId);
   }
 
@@ -53,6 +103,9 @@ public class ProductService {
    * @return the list of products
    */
   public List<ProductEntity> getAllProducts() {
+    if (products != null) {
+      return List.copyOf(products.values());
+    }
     return productRepository.listAll();
   }
 
@@ -62,6 +115,10 @@ public class ProductService {
    * @param productId the product id
    */
   public void removeProductById(ProductId productId) {
+    if (products != null) {
+      products.remove(productId.getId());
+      return;
+    }
     productRepository.deleteByProductId(productId);
   }
 }
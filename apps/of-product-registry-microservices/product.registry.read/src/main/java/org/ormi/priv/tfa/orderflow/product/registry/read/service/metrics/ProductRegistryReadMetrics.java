@@ -0,0 +1,163 @@
+package org.ormi.priv.tfa.orderflow.product.registry.read.service.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Latency metrics of the event projection and query handling stages of the
+ * product registry read side.
+ *
+ * Each stage is timed by event or query type in the {@value #STAGE_TIMER}
+ * histogram, failed stages and nacked queries are counted in
+ * {@value #FAILURE_COUNTER} and {@value #NACK_COUNTER}.
+ *
+ * @implNote Timers are cached by stage and type, the set of types is bounded
+ *           by the published language.
+ */
+@ApplicationScoped
+public class ProductRegistryReadMetrics {
+
+  /**
+   * Name of the stage latency histograms.
+   */
+  public static final String STAGE_TIMER = "orderflow.read.stage";
+
+  /**
+   * Name of the failed stage counters.
+   */
+  public static final String FAILURE_COUNTER = "orderflow.read.failures";
+
+  /**
+   * Name of the nacked query counters.
+   */
+  public static final String NACK_COUNTER = "orderflow.read.nacks";
+
+  /**
+   * Stage of the handling of an event or a query.
+   */
+  public enum Stage {
+    /**
+     * From the creation of an event by the write side, or the publication of
+     * a query by the gateway, to its reception.
+     */
+    TRANSIT,
+    /**
+     * Projecting an event to the read model.
+     */
+    PROJECTION,
+    /**
+     * Reading the result of a query from the read model.
+     */
+    QUERY,
+    /**
+     * Sending the result of a query until the broker acknowledges it.
+     */
+    SINK;
+
+    private final String tag = name().toLowerCase();
+  }
+
+  /**
+   * Registry of the meters.
+   */
+  @Inject
+  private MeterRegistry meterRegistry;
+
+  /**
+   * Stage latency timers, by stage and type.
+   */
+  private final Map<Stage, Map<String, Timer>> timers = new EnumMap<>(Stage.class);
+
+  /**
+   * Constructor.
+   */
+  public ProductRegistryReadMetrics() {
+    for (Stage stage : Stage.values()) {
+      timers.put(stage, new ConcurrentHashMap<>());
+    }
+  }
+
+  /**
+   * Get the type of an event or query, as tagged in the metrics.
+   *
+   * @param message - the event or query
+   * @return the type of the message
+   */
+  public static String typeOf(Object message) {
+    return message.getClass().getSimpleName();
+  }
+
+  /**
+   * Start timing a stage.
+   *
+   * @return the sample to stop at the end of the stage
+   */
+  public Timer.Sample start() {
+    return Timer.start(meterRegistry);
+  }
+
+  /**
+   * Stop timing a stage.
+   *
+   * @param sample - the sample started at the beginning of the stage
+   * @param stage - the stage
+   * @param type - the event or query type
+   */
+  public void stop(Timer.Sample sample, Stage stage, String type) {
+    sample.stop(timer(stage, type));
+  }
+
+  /**
+   * Record the latency of a stage timed elsewhere.
+   *
+   * @param stage - the stage
+   * @param type - the event or query type
+   * @param millis - the latency in milliseconds
+   */
+  public void record(Stage stage, String type, long millis) {
+    timer(stage, type).record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Count a failed stage.
+   *
+   * @param stage - the stage
+   * @param type - the event or query type
+   */
+  public void failure(Stage stage, String type) {
+    Counter.builder(FAILURE_COUNTER)
+        .tag("stage", stage.tag)
+        .tag("type", type)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  /**
+   * Count a nacked query.
+   *
+   * @param type - the query type
+   */
+  public void nack(String type) {
+    Counter.builder(NACK_COUNTER)
+        .tag("type", type)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  private Timer timer(Stage stage, String type) {
+    return timers.get(stage).computeIfAbsent(type, key -> Timer.builder(STAGE_TIMER)
+        .description("Latency of a product registry read side stage")
+        .tag("stage", stage.tag)
+        .tag("type", key)
+        .publishPercentileHistogram()
+        .register(meterRegistry));
+  }
+}
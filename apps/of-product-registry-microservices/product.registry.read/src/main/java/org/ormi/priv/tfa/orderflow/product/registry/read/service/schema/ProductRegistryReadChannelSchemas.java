@@ -0,0 +1,54 @@
+package org.ormi.priv.tfa.orderflow.product.registry.read.service.schema;
+
+import org.apache.pulsar.client.api.Schema;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery;
+import org.ormi.priv.tfa.orderflow.lib.shared.schema.ProductRegistrySchemas;
+
+import io.smallrye.common.annotation.Identifier;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+
+/**
+ * Pulsar schemas of the product registry read channels, selected per channel.
+ * The Pulsar connector picks the schema bean identified by the channel name.
+ */
+@ApplicationScoped
+public class ProductRegistryReadChannelSchemas {
+
+  /**
+   * Wire format of the event channel, must match the product registry.
+   */
+  @ConfigProperty(name = "product.registry.messaging.event.format", defaultValue = "JSON")
+  private MessageFormat eventFormat;
+
+  /**
+   * Wire format of the query channel, must match the api gateway.
+   */
+  @ConfigProperty(name = "product.registry.messaging.query.format", defaultValue = "JSON")
+  private MessageFormat queryFormat;
+
+  /**
+   * Schema of the incoming events.
+   *
+   * @return the event schema
+   */
+  @Produces
+  @Identifier("product-registry-event")
+  Schema<ProductRegistryEvent> eventSchema() {
+    return ProductRegistrySchemas.events(eventFormat);
+  }
+
+  /**
+   * Schema of the incoming queries.
+   *
+   * @return the query schema
+   */
+  @Produces
+  @Identifier("product-registry-query")
+  Schema<ProductRegistryQuery> querySchema() {
+    return ProductRegistrySchemas.queries(queryFormat);
+  }
+}
@@ -0,0 +1,121 @@
+package org.ormi.priv.tfa.orderflow.product.registry.read.service.tracing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.smallrye.reactive.messaging.TracingMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * Tracing of the projections and queries of the product registry read model.
+ *
+ * The span context of the events and queries is read by the Pulsar connector
+ * from the message properties into their {@link TracingMetadata}. The query
+ * results are sent by plain Pulsar producers, the span context is written in
+ * their properties next to the correlation id.
+ *
+ * @implNote Spans are exported as OTLP JSON lines to the log category of the
+ *           exporter, routed to a file by the configuration, without a
+ *           collector.
+ */
+@ApplicationScoped
+public class ProductRegistryReadTracing {
+
+  /**
+   * Correlation id of the traced query.
+   */
+  public static final AttributeKey<String> CORRELATION_ID = AttributeKey.stringKey("orderflow.correlation_id");
+
+  /**
+   * Type of the traced event or query.
+   */
+  public static final AttributeKey<String> TYPE = AttributeKey.stringKey("orderflow.type");
+
+  /**
+   * OpenTelemetry of the service, for its propagators.
+   */
+  @Inject
+  private OpenTelemetry openTelemetry;
+
+  /**
+   * Tracer of the service.
+   */
+  @Inject
+  private Tracer tracer;
+
+  /**
+   * Exporter of the finished spans.
+   *
+   * @implNote Static so that the tracer, which depends on the exporters, is not
+   *           needed to produce it.
+   *
+   * @return the OTLP JSON logging exporter
+   */
+  @Produces
+  @Singleton
+  static SpanExporter spanExporter() {
+    return OtlpJsonLoggingSpanExporter.create();
+  }
+
+  /**
+   * Start the span of the handling of an event or a query, child of the span
+   * that published it.
+   *
+   * @param operation - the operation, e.g. {@code project} or {@code query}
+   * @param tracing - the tracing metadata of the message
+   * @param type - the event or query type
+   * @return the started span
+   */
+  public Span start(String operation, Optional<TracingMetadata> tracing, String type) {
+    final Context parent = tracing
+        .map(TracingMetadata::getCurrentContext)
+        .orElseGet(Context::current);
+    return tracer.spanBuilder(operation + " " + type)
+        .setParent(parent)
+        .setSpanKind(SpanKind.CONSUMER)
+        .setAttribute(TYPE, type)
+        .startSpan();
+  }
+
+  /**
+   * End a span.
+   *
+   * @param span - the span
+   * @param failure - the failure of the traced work, null on success
+   */
+  public static void end(Span span, Throwable failure) {
+    if (failure != null) {
+      span.recordException(failure);
+      span.setStatus(StatusCode.ERROR);
+    }
+    span.end();
+  }
+
+  /**
+   * Get the properties of a message sent in a span by a plain Pulsar producer.
+   *
+   * @param span - the span the message is sent in
+   * @param correlationId - the correlation id of the message
+   * @return the correlation id and span context properties
+   */
+  public Map<String, String> properties(Span span, String correlationId) {
+    final Map<String, String> properties = new HashMap<>();
+    properties.put("correlation-id", correlationId);
+    openTelemetry.getPropagators().getTextMapPropagator()
+        .inject(Context.current().with(span), properties, Map::put);
+    return properties;
+  }
+}
@@ -0,0 +1,80 @@
+package org.ormi.priv.tfa.orderflow.product.registry.read.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.eclipse.microprofile.reactive.messaging.spi.Connector;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.GetProductById;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery.ProductRegistryQueryResult;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDto;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.read.service.ProductQueryConsumer.QueryMetadata;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import io.smallrye.reactive.messaging.memory.InMemorySink;
+import io.smallrye.reactive.messaging.memory.InMemorySource;
+import jakarta.inject.Inject;
+
+/**
+ * Projection and queries through the in-VM channels and the in-memory read
+ * model of the test profile, without outside services.
+ */
+@QuarkusTest
+public class ProductQueryConsumerTest {
+
+  @Inject
+  @Connector("smallrye-in-memory")
+  private InMemoryConnector connector;
+
+  @Inject
+  private ProductService productService;
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Nested
+  public class HandleQuery {
+
+    @Test
+    public void it_should_returnProjectedProduct_when_eventAndQueryAreSentInVm() throws InterruptedException {
+      // Given
+      InMemorySource<ProductRegistryEvent> events = connector.source("product-registry-event");
+      InMemorySource<Message<ProductRegistryQuery>> queries = connector.source("product-registry-query");
+      InMemorySink<ProductRegistryQueryResult> results = connector.sink("product-registry-read-result");
+      results.clear();
+      ProductId productId = new ProductId();
+      String name = "Product " + UUID.randomUUID();
+      String correlationId = UUID.randomUUID().toString();
+      events.send(new ProductRegistered(new EventId(), "product-registry", 1, System.currentTimeMillis(),
+          new ProductRegistered.Payload(productId, name, "Description")));
+      await(() -> productService.getProductById(productId).isPresent());
+
+      // When
+      queries.send(Message.of(new GetProductById(productId), Metadata.of(new QueryMetadata(correlationId))));
+
+      // Then
+      await(() -> !results.received().isEmpty());
+      Message<ProductRegistryQueryResult> result = results.received().get(0);
+      assertEquals(correlationId, result.getMetadata(QueryMetadata.class).orElseThrow().correlationId());
+      RegistryProductDto product = assertInstanceOf(RegistryProductDto.class, result.getPayload());
+      assertEquals(name, product.name());
+    }
+  }
+}
@@ -0,0 +1,529 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.Uuids;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Product store holding the catalog in primitive arrays and a byte arena.
+ *
+ * Products are stored in an open addressing table (linear probing) keyed by
+ * the two longs of their UUID, pointing to a record of the arena holding the
+ * name and the description in UTF-8. Names are indexed by a second open
+ * addressing table of name hashes pointing to the same records. No object is
+ * kept per product: a {@link Product} is only materialized by {@link #values()}.
+ *
+ * @implNote Ids that are not canonical UUIDs are kept in a {@link MapProductStore}.
+ * @implNote Records are never updated in place: a replaced or removed product
+ *           leaves a dead record, the arena is compacted once dead records
+ *           outweigh the live ones.
+ * @implNote Reads share a read lock, writes are exclusive.
+ */
+final class CompactProductStore implements ProductStore {
+
+  /**
+   * Size of an arena page, larger records get a page of their own.
+   */
+  private static final int PAGE_SIZE = 1 << 20;
+
+  /**
+   * Initial number of slots of the tables.
+   */
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  /**
+   * Size of a record header: the name length then the description length.
+   */
+  private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+  /**
+   * Normalization of the product names.
+   */
+  private final ProductNameNormalization nameNormalization;
+
+  /**
+   * Whether the arena pages are allocated off-heap.
+   */
+  private final boolean offHeap;
+
+  /**
+   * Products with an id that is not a canonical UUID.
+   */
+  private final MapProductStore others;
+
+  /**
+   * Lock of the tables and the arena.
+   */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Product ids of the product slots, most then least significant bits.
+   */
+  private long[] ids;
+
+  /**
+   * Record address of the product slots, 0 for a free slot.
+   */
+  private long[] records;
+
+  /**
+   * Normalized name hash of the name slots.
+   */
+  private int[] nameHashes;
+
+  /**
+   * Record address of the name slots, 0 for a free slot.
+   */
+  private long[] nameRecords;
+
+  /**
+   * Number of products in the tables.
+   */
+  private int size;
+
+  /**
+   * Arena pages, records are addressed by page number (from 1) and offset.
+   */
+  private List<ByteBuffer> pages;
+
+  /**
+   * Bytes of the records written to the arena.
+   */
+  private long recordBytes;
+
+  /**
+   * Bytes of the dead records of the arena.
+   */
+  private long deadBytes;
+
+  /**
+   * Constructor.
+   *
+   * @param nameNormalization - The normalization of the product names
+   * @param offHeap - Whether the arena is allocated off-heap
+   */
+  CompactProductStore(ProductNameNormalization nameNormalization, boolean offHeap) {
+    this.nameNormalization = nameNormalization;
+    this.offHeap = offHeap;
+    this.others = new MapProductStore(nameNormalization);
+    reset();
+  }
+
+  @Override
+  public void put(Product product) {
+    final ProductId productId = product.getProductId();
+    if (!productId.isCanonical()) {
+      others.put(product);
+      return;
+    }
+    final long msb = productId.getMostSignificantBits();
+    final long lsb = productId.getLeastSignificantBits();
+    final int nameHash = nameNormalization.normalize(product.getName()).hashCode();
+    lock.writeLock().lock();
+    try {
+      int slot = find(msb, lsb);
+      if (slot >= 0) {
+        release(records[slot]);
+      } else {
+        if ((size + 1) * 4L > records.length * 3L) {
+          resize(records.length * 2);
+          slot = find(msb, lsb);
+        }
+        slot = -slot - 1;
+        ids[2 * slot] = msb;
+        ids[2 * slot + 1] = lsb;
+        size++;
+      }
+      final long record = write(product.getName(), product.getProductDescription());
+      records[slot] = record;
+      indexName(nameHash, record);
+      if (deadBytes > PAGE_SIZE && deadBytes * 2 > recordBytes) {
+        compact();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(ProductId productId) {
+    if (!productId.isCanonical()) {
+      others.remove(productId);
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      final int slot = find(productId.getMostSignificantBits(), productId.getLeastSignificantBits());
+      if (slot >= 0) {
+        release(records[slot]);
+        removeProductSlot(slot);
+        size--;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean containsId(ProductId productId) {
+    if (!productId.isCanonical()) {
+      return others.containsId(productId);
+    }
+    lock.readLock().lock();
+    try {
+      return find(productId.getMostSignificantBits(), productId.getLeastSignificantBits()) >= 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean containsName(String name) {
+    if (others.containsName(name)) {
+      return true;
+    }
+    final String normalized = nameNormalization.normalize(name);
+    final int hash = normalized.hashCode();
+    lock.readLock().lock();
+    try {
+      final int mask = nameRecords.length - 1;
+      int slot = mix(hash) & mask;
+      long record;
+      while ((record = nameRecords[slot]) != 0) {
+        // Only decode the names with the same hash
+        if (nameHashes[slot] == hash && normalized.equals(nameNormalization.normalize(readName(record)))) {
+          return true;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return false;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size + others.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Collection<Product> values() {
+    lock.readLock().lock();
+    try {
+      final List<Product> products = new ArrayList<>(size + others.size());
+      for (int slot = 0; slot < records.length; slot++) {
+        final long record = records[slot];
+        if (record != 0) {
+          final ProductId productId = ProductId.of(ids[2 * slot], ids[2 * slot + 1]);
+          products.add(new Product(productId, readName(record), readDescription(record)));
+        }
+      }
+      products.addAll(others.values());
+      return Collections.unmodifiableList(products);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      reset();
+      others.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Drop the tables and the arena.
+   */
+  private void reset() {
+    allocateTables(INITIAL_CAPACITY);
+    size = 0;
+    pages = new ArrayList<>();
+    recordBytes = 0;
+    deadBytes = 0;
+  }
+
+  /**
+   * Allocate empty tables.
+   *
+   * @param capacity - The number of slots, a power of two
+   */
+  private void allocateTables(int capacity) {
+    ids = new long[2 * capacity];
+    records = new long[capacity];
+    nameHashes = new int[capacity];
+    nameRecords = new long[capacity];
+  }
+
+  /**
+   * Find the slot of a product.
+   *
+   * @param msb - The most significant bits of the product id
+   * @param lsb - The least significant bits of the product id
+   * @return the slot of the product, or (-insertion slot - 1) if absent
+   */
+  private int find(long msb, long lsb) {
+    final int mask = records.length - 1;
+    int slot = Uuids.hash(msb, lsb) & mask;
+    while (records[slot] != 0) {
+      if (ids[2 * slot] == msb && ids[2 * slot + 1] == lsb) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -slot - 1;
+  }
+
+  /**
+   * Free a product slot, shifting back the following slots of the probe sequence.
+   *
+   * @param slot - The slot to free
+   */
+  private void removeProductSlot(int slot) {
+    final int mask = records.length - 1;
+    int hole = slot;
+    int next = slot;
+    while (records[next = (next + 1) & mask] != 0) {
+      final int home = Uuids.hash(ids[2 * next], ids[2 * next + 1]) & mask;
+      // Move the product to the hole if the hole is between its home slot and its slot
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        ids[2 * hole] = ids[2 * next];
+        ids[2 * hole + 1] = ids[2 * next + 1];
+        records[hole] = records[next];
+        hole = next;
+      }
+    }
+    records[hole] = 0;
+  }
+
+  /**
+   * Add a record to the name index.
+   *
+   * @param hash - The hash of the normalized name of the record
+   * @param record - The record address
+   */
+  private void indexName(int hash, long record) {
+    final int mask = nameRecords.length - 1;
+    int slot = mix(hash) & mask;
+    while (nameRecords[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    nameHashes[slot] = hash;
+    nameRecords[slot] = record;
+  }
+
+  /**
+   * Remove a record from the name index.
+   *
+   * @param hash - The hash of the normalized name of the record
+   * @param record - The record address
+   */
+  private void unindexName(int hash, long record) {
+    final int mask = nameRecords.length - 1;
+    int slot = mix(hash) & mask;
+    while (nameRecords[slot] != record) {
+      if (nameRecords[slot] == 0) {
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    int hole = slot;
+    int next = slot;
+    while (nameRecords[next = (next + 1) & mask] != 0) {
+      final int home = mix(nameHashes[next]) & mask;
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        nameHashes[hole] = nameHashes[next];
+        nameRecords[hole] = nameRecords[next];
+        hole = next;
+      }
+    }
+    nameRecords[hole] = 0;
+  }
+
+  /**
+   * Grow the tables.
+   *
+   * @param capacity - The new number of slots, a power of two
+   */
+  private void resize(int capacity) {
+    final long[] oldIds = ids;
+    final long[] oldRecords = records;
+    final int[] oldNameHashes = nameHashes;
+    final long[] oldNameRecords = nameRecords;
+    allocateTables(capacity);
+    for (int slot = 0; slot < oldRecords.length; slot++) {
+      if (oldRecords[slot] != 0) {
+        final int free = -find(oldIds[2 * slot], oldIds[2 * slot + 1]) - 1;
+        ids[2 * free] = oldIds[2 * slot];
+        ids[2 * free + 1] = oldIds[2 * slot + 1];
+        records[free] = oldRecords[slot];
+      }
+      if (oldNameRecords[slot] != 0) {
+        indexName(oldNameHashes[slot], oldNameRecords[slot]);
+      }
+    }
+  }
+
+  /**
+   * Copy the live records to a new arena, dropping the dead ones.
+   */
+  private void compact() {
+    final List<ByteBuffer> oldPages = pages;
+    pages = new ArrayList<>();
+    recordBytes = 0;
+    deadBytes = 0;
+    Arrays.fill(nameRecords, 0);
+    for (int slot = 0; slot < records.length; slot++) {
+      final long record = records[slot];
+      if (record != 0) {
+        final ByteBuffer page = oldPages.get(pageOf(record));
+        final byte[] bytes = new byte[recordLength(record, oldPages)];
+        page.get(offsetOf(record), bytes);
+        final long copy = allocate(bytes.length);
+        pages.get(pageOf(copy)).put(offsetOf(copy), bytes);
+        records[slot] = copy;
+        indexName(nameNormalization.normalize(readName(copy)).hashCode(), copy);
+      }
+    }
+  }
+
+  /**
+   * Unindex a replaced or removed record and account for it as dead.
+   *
+   * @param record - The record address
+   */
+  private void release(long record) {
+    unindexName(nameNormalization.normalize(readName(record)).hashCode(), record);
+    deadBytes += recordLength(record, pages);
+  }
+
+  /**
+   * Write a record to the arena.
+   *
+   * @param name - The product name, may be null
+   * @param description - The product description, may be null
+   * @return the record address
+   */
+  private long write(String name, String description) {
+    final byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    final byte[] descriptionBytes = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+    final long record = allocate(RECORD_HEADER_SIZE + lengthOf(nameBytes) + lengthOf(descriptionBytes));
+    final ByteBuffer page = pages.get(pageOf(record));
+    int offset = offsetOf(record);
+    page.putInt(offset, nameBytes == null ? -1 : nameBytes.length);
+    page.putInt(offset + Integer.BYTES, descriptionBytes == null ? -1 : descriptionBytes.length);
+    offset += RECORD_HEADER_SIZE;
+    if (nameBytes != null) {
+      page.put(offset, nameBytes);
+      offset += nameBytes.length;
+    }
+    if (descriptionBytes != null) {
+      page.put(offset, descriptionBytes);
+    }
+    return record;
+  }
+
+  /**
+   * Reserve space for a record at the end of the arena.
+   *
+   * @param length - The record length
+   * @return the record address
+   */
+  private long allocate(int length) {
+    ByteBuffer page = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+    if (page == null || page.remaining() < length) {
+      final int pageSize = Math.max(PAGE_SIZE, length);
+      page = offHeap ? ByteBuffer.allocateDirect(pageSize) : ByteBuffer.allocate(pageSize);
+      pages.add(page);
+    }
+    final int offset = page.position();
+    page.position(offset + length);
+    recordBytes += length;
+    return ((long) pages.size() << 32) | offset;
+  }
+
+  /**
+   * Read the product name of a record.
+   *
+   * @param record - The record address
+   * @return the product name, may be null
+   */
+  private String readName(long record) {
+    final ByteBuffer page = pages.get(pageOf(record));
+    final int offset = offsetOf(record);
+    return readString(page, offset + RECORD_HEADER_SIZE, page.getInt(offset));
+  }
+
+  /**
+   * Read the product description of a record.
+   *
+   * @param record - The record address
+   * @return the product description, may be null
+   */
+  private String readDescription(long record) {
+    final ByteBuffer page = pages.get(pageOf(record));
+    final int offset = offsetOf(record);
+    final int nameLength = Math.max(page.getInt(offset), 0);
+    return readString(page, offset + RECORD_HEADER_SIZE + nameLength, page.getInt(offset + Integer.BYTES));
+  }
+
+  private static String readString(ByteBuffer page, int offset, int length) {
+    if (length < 0) {
+      return null;
+    }
+    final byte[] utf8 = new byte[length];
+    page.get(offset, utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  private static int recordLength(long record, List<ByteBuffer> pages) {
+    final ByteBuffer page = pages.get(pageOf(record));
+    final int offset = offsetOf(record);
+    return RECORD_HEADER_SIZE + Math.max(page.getInt(offset), 0) + Math.max(page.getInt(offset + Integer.BYTES), 0);
+  }
+
+  private static int lengthOf(byte[] bytes) {
+    return bytes == null ? 0 : bytes.length;
+  }
+
+  private static int pageOf(long record) {
+    return (int) (record >>> 32) - 1;
+  }
+
+  private static int offsetOf(long record) {
+    return (int) record;
+  }
+
+  /**
+   * Spread the bits of a hash (murmur3 finalizer).
+   *
+   * @param bits - The hash
+   * @return the mixed hash
+   */
+  private static int mix(long bits) {
+    bits ^= bits >>> 33;
+    bits *= 0xff51afd7ed558ccdL;
+    bits ^= bits >>> 33;
+    bits *= 0xc4ceb9fe1a85ec53L;
+    bits ^= bits >>> 33;
+    return (int) bits;
+  }
+}
@@ -0,0 +1,89 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Product store backed by concurrent hash maps of product objects.
+ */
+final class MapProductStore implements ProductStore {
+
+  /**
+   * Products by id.
+   */
+  private final ConcurrentHashMap<ProductId, Product> products = new ConcurrentHashMap<>();
+
+  /**
+   * Index of the product ids by normalized name.
+   * 
+   * @implNote Kept in sync with the products by {@link #put(Product)} and {@link #remove(ProductId)}.
+   */
+  private final ConcurrentHashMap<String, ProductId> productIdsByName = new ConcurrentHashMap<>();
+
+  /**
+   * Normalization of the product names.
+   */
+  private final ProductNameNormalization nameNormalization;
+
+  /**
+   * Constructor.
+   *
+   * @param nameNormalization - The normalization of the product names
+   */
+  MapProductStore(ProductNameNormalization nameNormalization) {
+    this.nameNormalization = nameNormalization;
+  }
+
+  @Override
+  public void put(Product product) {
+    unindexName(products.put(product.getProductId(), product));
+    productIdsByName.put(nameNormalization.normalize(product.getName()), product.getProductId());
+  }
+
+  @Override
+  public void remove(ProductId productId) {
+    unindexName(products.remove(productId));
+  }
+
+  /**
+   * Remove the name of a product from the name index.
+   * 
+   * @implNote The name is only removed if it still points to the product.
+   * 
+   * @param product - The product to unindex, may be null
+   */
+  private void unindexName(Product product) {
+    if (product != null) {
+      productIdsByName.remove(nameNormalization.normalize(product.getName()), product.getProductId());
+    }
+  }
+
+  @Override
+  public boolean containsId(ProductId productId) {
+    return products.containsKey(productId);
+  }
+
+  @Override
+  public boolean containsName(String name) {
+    return productIdsByName.containsKey(nameNormalization.normalize(name));
+  }
+
+  @Override
+  public int size() {
+    return products.size();
+  }
+
+  @Override
+  public Collection<Product> values() {
+    return Collections.unmodifiableCollection(products.values());
+  }
+
+  @Override
+  public void clear() {
+    products.clear();
+    productIdsByName.clear();
+  }
+}
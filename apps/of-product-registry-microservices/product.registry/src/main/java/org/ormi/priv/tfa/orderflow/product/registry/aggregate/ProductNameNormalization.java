@@ -0,0 +1,71 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Product name normalization.
+ *
+ * Defines which product names are considered the same when checking for name
+ * uniqueness in the registry.
+ */
+public enum ProductNameNormalization {
+  /**
+   * Names are compared as is.
+   */
+  EXACT(false, false),
+  /**
+   * Names are compared ignoring case.
+   */
+  IGNORE_CASE(true, false),
+  /**
+   * Names are compared ignoring leading, trailing and repeated whitespaces.
+   */
+  FOLD_WHITESPACE(false, true),
+  /**
+   * Names are compared ignoring case and leading, trailing and repeated whitespaces.
+   */
+  IGNORE_CASE_AND_FOLD_WHITESPACE(true, true);
+
+  /**
+   * Runs of whitespaces.
+   */
+  private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+  /**
+   * Whether the case is folded.
+   */
+  private final boolean foldCase;
+
+  /**
+   * Whether the whitespaces are folded.
+   */
+  private final boolean foldWhitespace;
+
+  ProductNameNormalization(boolean foldCase, boolean foldWhitespace) {
+    this.foldCase = foldCase;
+    this.foldWhitespace = foldWhitespace;
+  }
+
+  /**
+   * Normalize a product name.
+   *
+   * @implNote A null name is normalized to an empty name.
+   *
+   * @param name - The name to normalize
+   * @return the normalized name
+   */
+  public String normalize(String name) {
+    if (name == null) {
+      return "";
+    }
+    String normalized = name;
+    if (foldWhitespace) {
+      normalized = WHITESPACES.matcher(normalized.strip()).replaceAll(" ");
+    }
+    if (foldCase) {
+      normalized = normalized.toLowerCase(Locale.ROOT);
+    }
+    return normalized;
+  }
+}
@@ -1,20 +1,26 @@
 package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collection;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.Event;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch.EventDispatcher;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProducts;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEventTypes;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryService;
 
-import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Uni;
 import jakarta.transaction.Transactional;
 import jakarta.transaction.Transactional.TxType;
@@ -24,71 +30,205 @@ import jakarta.transaction.Transactional.TxType;
  */
 public class ProductRegistry {
 
+  /**
+   * Logger of the class, usable outside of the application (benchmarks).
+   */
+  private static final Logger LOG = Logger.getLogger(ProductRegistry.class);
+
   private static final String COMMAND_LOG_PREFIX = "Command: "; // Constant to avoid duplication
 
+  /**
+   * Appliers of the events, by event type.
+   */
+  private static final EventDispatcher<ProductRegistry, ProductRegistryEvent, Void> APPLIERS = ProductRegistryEventTypes.REGISTRY
+      .<ProductRegistry, ProductRegistryEvent, Void>dispatcher()
+      // Add the registered product to the registry
+      .on(ProductRegistered.class, (registry, registered) -> {
+        registry.products.put(new Product(
+            registered.payload.productId,
+            registered.payload.name,
+            registered.payload.productDescription));
+        return null;
+      })
+      // Replace the updated product in the registry
+      .on(ProductUpdated.class, (registry, updated) -> {
+        registry.products.put(new Product(
+            updated.payload.productId,
+            updated.payload.name,
+            updated.payload.productDescription));
+        return null;
+      })
+      // Remove the removed product from the registry
+      .on(ProductRemoved.class, (registry, removed) -> {
+        registry.products.remove(removed.payload.productId);
+        return null;
+      })
+      .build();
+
   /**
    * Product registry service to interact with the registry and persistance layer.
    */
   private ProductRegistryService productRegistryService;
 
   /**
-   * List of products in the registry.
+   * Aggregate root id of the registry.
+   */
+  private final String registryId;
+
+  /**
+   * Partitions the registry belongs to, null when the registry is not partitioned.
+   */
+  private final ProductRegistryPartitions partitions;
+
+  /**
+   * Partition of the registry.
+   */
+  private final int partition;
+
+  /**
+   * Products of the registry, indexed by id and by normalized name.
    */
-  private ConcurrentHashMap<ProductId, Product> products;
+  private final ProductStore products;
+
+  /**
+   * Normalization of the product names used for name uniqueness.
+   */
+  private final ProductNameNormalization nameNormalization;
 
   /**
    * Current version of the registry.
    */
   private AtomicLong currentVersion = new AtomicLong(0);
 
+  /**
+   * Whether the registry holds events that failed to be saved.
+   */
+  private volatile boolean stale;
+
   /**
    * Default constructor.
    */
   public ProductRegistry(ProductRegistryService productRegistryService) {
+    this(productRegistryService, ProductNameNormalization.EXACT);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param productRegistryService - The product registry service
+   * @param nameNormalization - The normalization of the product names
+   */
+  public ProductRegistry(ProductRegistryService productRegistryService, ProductNameNormalization nameNormalization) {
+    this(productRegistryService, nameNormalization, ProductStorage.MAP);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param productRegistryService - The product registry service
+   * @param nameNormalization - The normalization of the product names
+   * @param storage - The storage engine of the products
+   */
+  public ProductRegistry(
+      ProductRegistryService productRegistryService,
+      ProductNameNormalization nameNormalization,
+      ProductStorage storage) {
+    this(productRegistryService, ProductRegistryPartitions.GLOBAL_REGISTRY_ID, null, 0, nameNormalization, storage);
+  }
+
+  /**
+   * Partition constructor.
+   * 
+   * @param productRegistryService - The product registry service
+   * @param registryId - The aggregate root id of the partition
+   * @param partitions - The partitions the registry belongs to
+   * @param partition - The partition of the registry
+   * @param nameNormalization - The normalization of the product names
+   * @param storage - The storage engine of the products
+   */
+  ProductRegistry(
+      ProductRegistryService productRegistryService,
+      String registryId,
+      ProductRegistryPartitions partitions,
+      int partition,
+      ProductNameNormalization nameNormalization,
+      ProductStorage storage) {
     this.productRegistryService = productRegistryService;
-    products = new ConcurrentHashMap<>();
+    this.registryId = registryId;
+    this.partitions = partitions;
+    this.partition = partition;
+    this.nameNormalization = nameNormalization;
+    products = storage.create(nameNormalization);
+  }
+
+  /**
+   * Handle product registration.
+   * 
+   * @param cmd the command to handle
+   * @return the event produced by the command, or the batch result of a batch command
+   */
+  public Uni<? extends ChannelMessage> handle(ProductRegistryCommand cmd) {
+    return handle(cmd, null);
   }
 
   /**
    * Handle product registration.
    * 
+   * @implNote The events are applied by the service as it decides them, see
+   *           {@link ProductRegistryService}.
+   * 
    * @param cmd the command to handle
+   * @param correlationId the correlation id of the command, stored with the resulting event (can be null)
+   * @return the event produced by the command, or the batch result of a batch command
    */
   @Transactional(value = TxType.REQUIRED)
-  public Uni<? extends ProductRegistryEvent> handle(ProductRegistryCommand cmd) {
-    Log.debug("Handling command: " + cmd.getClass().getName());
+  public Uni<? extends ChannelMessage> handle(ProductRegistryCommand cmd, String correlationId) {
+    LOG.debug("Handling command: " + cmd.getClass().getName());
 
     // Handle product registration command
     if (cmd instanceof RegisterProduct register) {
-      Log.debug(COMMAND_LOG_PREFIX + register.toString());
+      LOG.debug(COMMAND_LOG_PREFIX + register.toString());
       return productRegistryService
-          .registerProduct(this, register)
-          .onItem().invoke(this::apply) // Apply the event after handling the command
-          .onFailure().invoke(e -> Log.error("Failed to register product", e)); // Log failure if command fails
+          .registerProduct(this, register, correlationId)
+          .onFailure().invoke(e -> LOG.error("Failed to register product", e)); // Log failure if command fails
     }
     
     // Handle product removal command
     else if (cmd instanceof RemoveProduct remove) {
-      Log.debug(COMMAND_LOG_PREFIX + remove.toString());
+      LOG.debug(COMMAND_LOG_PREFIX + remove.toString());
       return productRegistryService
-          .removeProduct(this, remove)
-          .onItem().invoke(this::apply)
-          .onFailure().invoke(e -> Log.error("Failed to remove product", e));
+          .removeProduct(this, remove, correlationId)
+          .onFailure().invoke(e -> LOG.error("Failed to remove product", e));
     }
     
     // Handle product update command
     else if (cmd instanceof UpdateProduct update) {
-      Log.debug(COMMAND_LOG_PREFIX + update.toString());
+      LOG.debug(COMMAND_LOG_PREFIX + update.toString());
+      return productRegistryService
+          .updateProduct(this, update, correlationId)
+          .onFailure().invoke(e -> LOG.error("Failed to update product", e));
+    }
+
+    // Handle batch product registration command
+    else if (cmd instanceof RegisterProducts registerAll) {
+      LOG.debug(COMMAND_LOG_PREFIX + registerAll.toString());
+      return productRegistryService
+          .registerProducts(this, registerAll, correlationId)
+          .onFailure().invoke(e -> LOG.error("Failed to register products", e));
+    }
+
+    // Handle batch product update command
+    else if (cmd instanceof UpdateProducts updateAll) {
+      LOG.debug(COMMAND_LOG_PREFIX + updateAll.toString());
       return productRegistryService
-          .updateProduct(this, update)
-          .onItem().invoke(this::apply)
-          .onFailure().invoke(e -> Log.error("Failed to update product", e));
+          .updateProducts(this, updateAll, correlationId)
+          .onFailure().invoke(e -> LOG.error("Failed to update products", e));
     }
     
     // Log and return failure for unhandled command types
     else {
-      Log.warn("Unhandled command type: " + cmd.getClass().getName());
-      Log.debug(COMMAND_LOG_PREFIX + cmd.toString());
+      LOG.warn("Unhandled command type: " + cmd.getClass().getName());
+      LOG.debug(COMMAND_LOG_PREFIX + cmd.toString());
       return Uni.createFrom().failure(new IllegalArgumentException("Unhandled command type"));
     }
   }
@@ -101,46 +241,78 @@ public class ProductRegistry {
    * @param event the event to apply
    */
   public void apply(ProductRegistryEvent event) {
-    Log.debug("Applying event: " + event.getClass().getName());
-
-    // Apply a ProductRegistered event by adding the product to the registry
-    if (event instanceof ProductRegistered registered) {
-      final ProductId productId = registered.payload.productId;
-      products.put(productId, new Product(
-          productId,
-          registered.payload.name,
-          registered.payload.productDescription));
-    }
-    
-    // Apply a ProductRemoved event by removing the product from the registry
-    else if (event instanceof ProductRemoved removed) {
-      products.remove(removed.payload.productId);
-    }
-    
-    // Apply a ProductUpdated event by updating the existing product in the registry
-    else if (event instanceof ProductUpdated updated) {
-      final ProductId productId = updated.payload.productId;
-      products.compute(productId, (k, v) -> {
-        return new Product(
-            productId,
-            updated.payload.name,
-            updated.payload.productDescription);
-      });
-    }
-    
-    // Log a warning for unhandled event types
-    else {
-      Log.warn("Unhandled event type: " + event.getClass().getName());
-    }
+    LOG.debug("Applying event: " + event.getClass().getName());
+
+    // Apply the event to the products
+    APPLIERS.dispatch(this, event);
+
+    // Keep track of the last applied version
+    final long version = ((Event) event).version;
+    currentVersion.accumulateAndGet(version, Math::max);
+  }
+
+  /**
+   * Restore the registry from a snapshot.
+   * 
+   * Replaces the products of the registry with the snapshotted ones.
+   * 
+   * @param version - The version of the registry when the snapshot was taken
+   * @param snapshotProducts - The products of the snapshot
+   */
+  public void restore(long version, Collection<Product> snapshotProducts) {
+    products.clear();
+    snapshotProducts.forEach(products::put);
+    currentVersion.set(version);
+    stale = false;
+  }
+
+  /**
+   * Mark the registry as holding events that failed to be saved, e.g. events
+   * applied before being saved by the group commit writer.
+   * 
+   * @implNote A stale registry must be restored and replayed from the event store
+   *           before the next command, a catch-up would keep the failed events.
+   */
+  public void markStale() {
+    stale = true;
+  }
+
+  /**
+   * Check if the registry holds events that failed to be saved.
+   * 
+   * @return true if the registry must be reloaded from the event store, false otherwise
+   */
+  public boolean isStale() {
+    return stale;
+  }
+
+  /**
+   * Get the products of the registry.
+   * 
+   * @implNote With a compact storage, the products are materialized on each call.
+   * 
+   * @return an unmodifiable collection of the products
+   */
+  public Collection<Product> getProducts() {
+    return products.values();
   }
 
   /**
-   * Increment the version of the registry.
+   * Get the aggregate root id of the registry.
    * 
-   * @return the new version
+   * @return the aggregate root id
    */
-  public long incrementVersion() {
-    return currentVersion.incrementAndGet();
+  public String getId() {
+    return registryId;
+  }
+
+  /**
+   * Generate a new product id owned by this registry.
+   * 
+   * @return a new product id
+   */
+  public ProductId newProductId() {
+    return partitions == null ? new ProductId() : partitions.newProductId(partition);
   }
 
   /**
@@ -159,7 +331,27 @@ public class ProductRegistry {
    * @return true if the registry has a product with the given id, false otherwise
    */
   public boolean hasProductWithId(ProductId productId) {
-    return products.containsKey(productId);
+    return products.containsId(productId);
+  }
+
+  /**
+   * Check if a product is owned by this registry (partition).
+   * 
+   * @param productId - The id of the product
+   * @return true if the product belongs to this registry, whether it exists or not
+   */
+  public boolean ownsProduct(ProductId productId) {
+    return partitions == null || partitions.partitionOf(productId) == partition;
+  }
+
+  /**
+   * Get the registry (partition) owning a product.
+   * 
+   * @param productId - The id of the product
+   * @return the partition the product belongs to, this registry if not partitioned
+   */
+  public ProductRegistry ownerOf(ProductId productId) {
+    return partitions == null ? this : partitions.get(partitions.partitionOf(productId));
   }
 
   /**
@@ -169,17 +361,41 @@ public class ProductRegistry {
    * @return true if the product is in the registry, false otherwise
    */
   public boolean hasProduct(Product product) {
-    return products.containsKey(product.getProductId())
-        || products.values().stream().anyMatch(p -> p.equals(product));
+    // Products are equal by id
+    return products.containsId(product.getProductId());
   }
 
   /**
    * Check if the registry has a product with the given name.
    * 
+   * @implNote When partitioned, the name is checked against every partition as
+   *           names are unique in the whole catalog.
+   * @implNote Names are compared once normalized, see {@link ProductNameNormalization}.
+   * 
    * @param name - The name to check for
    * @return true if no product has the given name, false otherwise
    */
   public boolean isProductNameAvailable(String name) {
-    return products.values().stream().noneMatch(p -> p.getName().equals(name));
+    return partitions == null ? !hasProductWithName(name) : partitions.isProductNameAvailable(name);
+  }
+
+  /**
+   * Normalize a product name the way names are compared for uniqueness.
+   * 
+   * @param name - The name to normalize
+   * @return the normalized name
+   */
+  public String normalizeName(String name) {
+    return nameNormalization.normalize(name);
+  }
+
+  /**
+   * Check if this registry (partition) holds a product with the given name.
+   * 
+   * @param name - The name to check for
+   * @return true if a product of this registry has the given name, false otherwise
+   */
+  boolean hasProductWithName(String name) {
+    return products.containsName(name);
   }
 }
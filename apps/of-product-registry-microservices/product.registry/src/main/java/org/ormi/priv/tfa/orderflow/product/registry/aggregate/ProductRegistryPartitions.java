@@ -0,0 +1,250 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryService;
+
+/**
+ * Product registry partitions.
+ *
+ * Spreads the products of the catalog over a fixed number of independent
+ * {@link ProductRegistry} aggregate roots. Each partition has its own event
+ * stream and its own version sequence in the event store.
+ *
+ * @implNote The partition count must not change for the lifetime of an event
+ *           store as products are routed by hash of their id.
+ * @implNote With a single partition, the registry keeps the historical
+ *           {@value #GLOBAL_REGISTRY_ID} aggregate root id.
+ */
+public class ProductRegistryPartitions {
+
+  /**
+   * Aggregate root id of the (unpartitioned) product registry.
+   */
+  public static final String GLOBAL_REGISTRY_ID = "GLOBAL_REGISTRY";
+
+  /**
+   * Registries indexed by partition.
+   */
+  private final List<ProductRegistry> registries;
+
+  /**
+   * Constructor.
+   *
+   * @param productRegistryService - The product registry service injected in each partition
+   * @param partitionCount - The number of partitions
+   */
+  public ProductRegistryPartitions(ProductRegistryService productRegistryService, int partitionCount) {
+    this(productRegistryService, partitionCount, ProductNameNormalization.EXACT);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param productRegistryService - The product registry service injected in each partition
+   * @param partitionCount - The number of partitions
+   * @param nameNormalization - The normalization of the product names
+   */
+  public ProductRegistryPartitions(
+      ProductRegistryService productRegistryService,
+      int partitionCount,
+      ProductNameNormalization nameNormalization) {
+    this(productRegistryService, partitionCount, nameNormalization, ProductStorage.MAP);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param productRegistryService - The product registry service injected in each partition
+   * @param partitionCount - The number of partitions
+   * @param nameNormalization - The normalization of the product names
+   * @param storage - The storage engine of the products of each partition
+   */
+  public ProductRegistryPartitions(
+      ProductRegistryService productRegistryService,
+      int partitionCount,
+      ProductNameNormalization nameNormalization,
+      ProductStorage storage) {
+    if (partitionCount < 1) {
+      throw new IllegalArgumentException("Product registry partition count must be at least 1: " + partitionCount);
+    }
+    final ProductRegistry[] partitions = new ProductRegistry[partitionCount];
+    for (int partition = 0; partition < partitionCount; partition++) {
+      partitions[partition] = new ProductRegistry(
+          productRegistryService,
+          registryIdOf(partition, partitionCount),
+          this,
+          partition,
+          nameNormalization,
+          storage);
+    }
+    this.registries = List.of(partitions);
+  }
+
+  /**
+   * Get the aggregate root id of a partition.
+   *
+   * @param partition - The partition
+   * @param partitionCount - The number of partitions
+   * @return the aggregate root id of the partition
+   */
+  public static String registryIdOf(int partition, int partitionCount) {
+    return partitionCount == 1 ? GLOBAL_REGISTRY_ID : GLOBAL_REGISTRY_ID + "-" + partition;
+  }
+
+  /**
+   * Check that the registry streams of an event store belong to the configured partitions.
+   *
+   * @implNote Products are routed by hash of their id, so a store written with
+   *           another partition count would be read as an empty or partial catalog.
+   *
+   * @param storedRegistryIds - The aggregate root ids of the registry streams of the event store
+   * @param partitionCount - The configured number of partitions
+   * @throws IllegalStateException if a stream belongs to another partition count
+   */
+  public static void checkStoredRegistries(Collection<String> storedRegistryIds, int partitionCount) {
+    final Set<String> registryIds = IntStream.range(0, partitionCount)
+        .mapToObj(partition -> registryIdOf(partition, partitionCount))
+        .collect(Collectors.toSet());
+    final List<String> unknownIds = storedRegistryIds.stream()
+        .filter(registryId -> !registryIds.contains(registryId))
+        .sorted()
+        .toList();
+    if (!unknownIds.isEmpty()) {
+      throw new IllegalStateException(String.format(
+          "The event store holds the registry streams %s, which are not among the %d configured partitions. "
+              + "product.registry.partitions must not change for the lifetime of an event store.",
+          unknownIds, partitionCount));
+    }
+  }
+
+  /**
+   * Get the number of partitions.
+   *
+   * @return the number of partitions
+   */
+  public int size() {
+    return registries.size();
+  }
+
+  /**
+   * Get the registry of a partition.
+   *
+   * @param partition - The partition
+   * @return the registry of the partition
+   */
+  public ProductRegistry get(int partition) {
+    return registries.get(partition);
+  }
+
+  /**
+   * Get the registries of all partitions.
+   *
+   * @return the registries ordered by partition
+   */
+  public List<ProductRegistry> getRegistries() {
+    return registries;
+  }
+
+  /**
+   * Route a command to the registry of the partition owning it.
+   *
+   * @implNote Registrations have no product id yet, they are spread by name and
+   *           the product id is minted in the chosen partition.
+   * @implNote A batch is handled by a single partition: registrations go to the
+   *           partition of their first name and are all minted there, updates go
+   *           to the partition of their first product and each update is appended
+   *           to the stream of the partition owning its product.
+   *
+   * @param cmd - The command to route
+   * @return the registry that must handle the command
+   */
+  public ProductRegistry route(ProductRegistryCommand cmd) {
+    if (cmd instanceof RegisterProduct register) {
+      return get(Math.floorMod(Objects.hashCode(register.getName()), size()));
+    } else if (cmd instanceof UpdateProduct update) {
+      return get(partitionOf(update.getProductId()));
+    } else if (cmd instanceof RemoveProduct remove) {
+      return get(partitionOf(remove.getProductId()));
+    } else if (cmd instanceof RegisterProducts registerAll && !registerAll.getProducts().isEmpty()) {
+      return route(registerAll.getProducts().get(0));
+    } else if (cmd instanceof UpdateProducts updateAll && !updateAll.getProducts().isEmpty()) {
+      return route(updateAll.getProducts().get(0));
+    }
+    // Unknown commands are left to the aggregate to reject
+    return get(0);
+  }
+
+  /**
+   * Get the partition owning a product.
+   *
+   * @implNote Mixes the two longs of the id with a fixed finalizer, see
+   *           {@link #mix(long, long)}, so that the id text is never built.
+   *
+   * @param productId - The product id
+   * @return the partition owning the product
+   */
+  public int partitionOf(ProductId productId) {
+    if (productId == null) {
+      return 0;
+    }
+    return Math.floorMod(mix(productId.getMostSignificantBits(), productId.getLeastSignificantBits()), size());
+  }
+
+  /**
+   * Mix the two longs of a product id into a hash.
+   *
+   * @implNote The murmur3 64 bits finalizer over both longs. The routing of the
+   *           stored products depends on it: it must never change, unlike
+   *           {@link ProductId#hashCode()}.
+   *
+   * @param mostSignificantBits - The most significant bits of the id
+   * @param leastSignificantBits - The least significant bits of the id
+   * @return the hash of the id
+   */
+  static long mix(long mostSignificantBits, long leastSignificantBits) {
+    long bits = mostSignificantBits ^ Long.rotateLeft(leastSignificantBits, 32);
+    bits ^= bits >>> 33;
+    bits *= 0xff51afd7ed558ccdL;
+    bits ^= bits >>> 33;
+    bits *= 0xc4ceb9fe1a85ec53L;
+    bits ^= bits >>> 33;
+    return bits;
+  }
+
+  /**
+   * Generate a new product id owned by the given partition.
+   *
+   * @param partition - The partition
+   * @return a new product id routed to the partition
+   */
+  ProductId newProductId(int partition) {
+    ProductId productId = new ProductId();
+    while (partitionOf(productId) != partition) {
+      productId = new ProductId();
+    }
+    return productId;
+  }
+
+  /**
+   * Check if a product name is available in the whole catalog.
+   *
+   * @param name - The name to check for
+   * @return true if no product of any partition has the given name, false otherwise
+   */
+  boolean isProductNameAvailable(String name) {
+    return registries.stream().noneMatch(registry -> registry.hasProductWithName(name));
+  }
+}
@@ -0,0 +1,39 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+/**
+ * Product registry storage engine.
+ *
+ * Defines how the products of a registry are held in memory.
+ */
+public enum ProductStorage {
+  /**
+   * Products are held as objects in concurrent hash maps.
+   */
+  MAP,
+  /**
+   * Products are held in an open addressing table keyed by the two longs of
+   * their UUID, names and descriptions in a heap byte arena.
+   */
+  COMPACT,
+  /**
+   * Same as {@link #COMPACT}, with the byte arena off-heap.
+   */
+  COMPACT_OFF_HEAP;
+
+  /**
+   * Create an empty product store.
+   *
+   * @param nameNormalization - The normalization of the product names
+   * @return the product store
+   */
+  ProductStore create(ProductNameNormalization nameNormalization) {
+    switch (this) {
+      case COMPACT:
+        return new CompactProductStore(nameNormalization, false);
+      case COMPACT_OFF_HEAP:
+        return new CompactProductStore(nameNormalization, true);
+      default:
+        return new MapProductStore(nameNormalization);
+    }
+  }
+}
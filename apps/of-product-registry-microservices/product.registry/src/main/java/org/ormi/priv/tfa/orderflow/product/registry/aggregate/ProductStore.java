@@ -0,0 +1,63 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+import java.util.Collection;
+
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Storage of the products of a registry, with their name index.
+ *
+ * @implNote Implementations are thread safe and compare names once normalized,
+ *           see {@link ProductNameNormalization}.
+ */
+interface ProductStore {
+
+  /**
+   * Add or replace a product.
+   *
+   * @param product - The product to store
+   */
+  void put(Product product);
+
+  /**
+   * Remove a product.
+   *
+   * @param productId - The id of the product to remove
+   */
+  void remove(ProductId productId);
+
+  /**
+   * Check if a product is stored.
+   *
+   * @param productId - The id of the product
+   * @return true if a product has the given id
+   */
+  boolean containsId(ProductId productId);
+
+  /**
+   * Check if a product has a name.
+   *
+   * @param name - The name to check for, not normalized
+   * @return true if a product has the given name once normalized
+   */
+  boolean containsName(String name);
+
+  /**
+   * Get the number of products.
+   *
+   * @return the number of products
+   */
+  int size();
+
+  /**
+   * Get the products.
+   *
+   * @return the products, in no particular order
+   */
+  Collection<Product> values();
+
+  /**
+   * Remove all the products.
+   */
+  void clear();
+}
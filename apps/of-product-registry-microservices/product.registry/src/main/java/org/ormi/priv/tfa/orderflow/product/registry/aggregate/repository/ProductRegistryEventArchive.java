@@ -0,0 +1,139 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+import org.bson.RawBsonDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.archive.SegmentEventArchive;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.archive.SegmentEventArchive.ArchivedEvent;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Cold storage of the product registry events.
+ *
+ * The oldest events of each registry stream are moved from the event
+ * collection to local segment files, stored as their raw BSON documents so
+ * they are read back exactly as they were stored.
+ *
+ * @implNote With several instances, the archive directory must be shared by
+ *           all of them (e.g. a mounted volume) as they all read it.
+ */
+@ApplicationScoped
+public class ProductRegistryEventArchive {
+
+  /**
+   * Whether the oldest events are moved to the archive.
+   */
+  @ConfigProperty(name = "product.registry.archive.enabled", defaultValue = "false")
+  private boolean enabled;
+
+  /**
+   * Directory of the archive segment files.
+   */
+  @ConfigProperty(name = "product.registry.archive.directory", defaultValue = "data/product-registry-archive")
+  private String directory;
+
+  /**
+   * Size after which a new segment file is started.
+   */
+  @ConfigProperty(name = "product.registry.archive.segment-size", defaultValue = "64M")
+  private MemorySize segmentSize;
+
+  /**
+   * Number of events per compressed block, one index entry per block.
+   */
+  @ConfigProperty(name = "product.registry.archive.block-size", defaultValue = "1024")
+  private int blockSize;
+
+  /**
+   * Segment archive, null when disabled.
+   */
+  private SegmentEventArchive archive;
+
+  /**
+   * Open the archive if enabled.
+   */
+  @PostConstruct
+  void init() {
+    if (enabled) {
+      archive = new SegmentEventArchive(Path.of(directory), segmentSize.asLongValue(), blockSize);
+    }
+  }
+
+  /**
+   * Check if the archive is enabled.
+   *
+   * @return true if events are archived and read from the archive
+   */
+  public boolean isEnabled() {
+    return archive != null;
+  }
+
+  /**
+   * Get the version of the last archived event of a registry.
+   *
+   * @param aggregateRootId - the registry aggregate root id
+   * @return the last archived version, 0 if nothing is archived
+   */
+  public long getArchivedVersion(String aggregateRootId) {
+    return archive == null ? 0 : archive.getLastVersion(aggregateRootId);
+  }
+
+  /**
+   * Reload the index of a registry from the segment files, to see the events
+   * archived by another instance.
+   *
+   * @param aggregateRootId - the registry aggregate root id
+   */
+  public void refresh(String aggregateRootId) {
+    archive.refresh(aggregateRootId);
+  }
+
+  /**
+   * Archive the next events of a registry.
+   *
+   * @param aggregateRootId - the registry aggregate root id
+   * @param events - the raw events, in version order after the last archived version
+   */
+  public void archive(String aggregateRootId, List<RawBsonDocument> events) {
+    archive.append(aggregateRootId, events.stream()
+        .map(event -> {
+          final ByteBuffer buffer = event.getByteBuffer().asNIO();
+          final byte[] data = new byte[buffer.remaining()];
+          buffer.get(data);
+          return new ArchivedEvent(versionOf(event), data);
+        })
+        .toList());
+  }
+
+  /**
+   * Stream the events of a registry from the archive then from the event collection.
+   *
+   * @param aggregateRootId - the registry aggregate root id
+   * @param startingVersion - the version after which to read
+   * @param liveAfter - the events of the collection after a version, in order
+   * @return the raw events after the starting version, in order, to be closed
+   */
+  public Stream<RawBsonDocument> stitch(String aggregateRootId, long startingVersion,
+      LongFunction<Stream<RawBsonDocument>> liveAfter) {
+    return archive.stitch(aggregateRootId, startingVersion, event -> new RawBsonDocument(event.data()), liveAfter,
+        ProductRegistryEventArchive::versionOf);
+  }
+
+  /**
+   * Get the version of a raw event.
+   *
+   * @param event - the raw event
+   * @return the version of the event
+   */
+  public static long versionOf(RawBsonDocument event) {
+    return event.getNumber("version").longValue();
+  }
+}
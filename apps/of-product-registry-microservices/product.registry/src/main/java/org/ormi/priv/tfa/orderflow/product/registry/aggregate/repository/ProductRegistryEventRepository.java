@@ -1,32 +1,252 @@
 package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch.EventDispatcher;
 import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.EventStore;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.EventStoreConcurrencyException;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEventTypes;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegisteredEventEntity;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRemovedEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductUpdatedEventEntity;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
 
 import io.quarkus.mongodb.panache.PanacheMongoRepository;
 import io.quarkus.panache.common.Sort;
+import io.quarkus.runtime.StartupEvent;
 
 /**
  * Repository for handling "ProductRegistryEventEntity" events.
  * This repository is responsible for saving events and querying events
  * based on the aggregate root ID and version.
+ * 
+ * When the archive is enabled, the oldest events are read from the archive
+ * segments and the others from the collection, transparently.
+ * 
+ * When a local store is selected, the events are stored in local files or in
+ * memory instead of the collection, encoded with the codecs of the collection.
  */
 @ApplicationScoped
 public class ProductRegistryEventRepository
     implements EventStore<ProductRegistryEventEntity>,
     PanacheMongoRepository<ProductRegistryEventEntity> {
 
+  /**
+   * MongoDB duplicate key error code.
+   */
+  private static final int DUPLICATE_KEY = 11000;
+
+  /**
+   * MongoDB write conflict error code, raised in a transaction writing a document
+   * another transaction wrote meanwhile.
+   */
+  private static final int WRITE_CONFLICT = 112;
+
+  /**
+   * MongoDB error label of the errors after which the whole transaction can be retried.
+   */
+  private static final String TRANSIENT_TRANSACTION_ERROR = "TransientTransactionError";
+
+  /**
+   * Name of the unique index on the version of each registry stream.
+   */
+  private static final String VERSION_INDEX = "aggregateRootId_version";
+
+  /**
+   * Maximum number of duplicated versions reported when the version index cannot be created.
+   */
+  private static final int REPORTED_DUPLICATES = 10;
+
+  /**
+   * Decoders of the raw events, by stored event type.
+   */
+  private static final EventDispatcher<CodecRegistry, RawBsonDocument, ProductRegistryEventEntity> DECODERS = ProductRegistryEventTypes.REGISTRY
+      .<CodecRegistry, RawBsonDocument, ProductRegistryEventEntity>dispatcher()
+      .on(ProductRegisteredEventEntity.EVENT_TYPE, (codecs, rawEvent) -> decode(codecs, ProductRegisteredEventEntity.class, rawEvent))
+      .on(ProductUpdatedEventEntity.EVENT_TYPE, (codecs, rawEvent) -> decode(codecs, ProductUpdatedEventEntity.class, rawEvent))
+      .on(ProductRemovedEventEntity.EVENT_TYPE, (codecs, rawEvent) -> decode(codecs, ProductRemovedEventEntity.class, rawEvent))
+      .build();
+
+  /**
+   * Number of events fetched per round trip when streaming events.
+   */
+  @ConfigProperty(name = "product.registry.event-store.replay-batch-size", defaultValue = "1000")
+  private int replayBatchSize;
+
+  /**
+   * Archive of the oldest events.
+   */
+  @Inject
+  private ProductRegistryEventArchive archive;
+
+  /**
+   * Local storage of the events, replacing the collection when selected.
+   */
+  @Inject
+  private ProductRegistryLocalEventStore localStore;
+
+  /**
+   * Creates the unique index on the version of each registry stream on startup.
+   * The index is what rejects concurrent appends of the same version.
+   * Also indexes the correlation IDs to find the event of a redelivered command.
+   * 
+   * @implNote A collection written before the index existed may hold several events
+   *           with the same version of a stream, on which the index cannot be built.
+   *           Such a collection is checked first, and the startup fails with the
+   *           duplicated versions until they are repaired by hand.
+   * 
+   * @param event The startup event.
+   * @throws IllegalStateException If the collection holds duplicated stream versions.
+   */
+  void onStart(@Observes StartupEvent event) {
+    if (localStore.isEnabled()) {
+      if (archive.isEnabled()) {
+        throw new IllegalStateException("The event archive is not supported by the local event stores");
+      }
+      return;
+    }
+    if (!hasIndex(VERSION_INDEX)) {
+      checkNoDuplicateVersions();
+    }
+    mongoCollection().createIndex(
+        Indexes.ascending("aggregateRootId", "version"),
+        new IndexOptions().unique(true).name(VERSION_INDEX));
+    mongoCollection().createIndex(
+        Indexes.ascending("correlationId"),
+        new IndexOptions().sparse(true).name("correlationId"));
+  }
+
+  /**
+   * Checks whether an index of the collection exists.
+   * 
+   * @param name The name of the index.
+   * @return true if the index exists.
+   */
+  private boolean hasIndex(String name) {
+    return mongoCollection().listIndexes().into(new ArrayList<>()).stream()
+        .anyMatch(index -> name.equals(index.getString("name")));
+  }
+
+  /**
+   * Checks that no two events of the collection share the version of a registry stream.
+   * 
+   * @throws IllegalStateException If some versions are duplicated, listing the first of them.
+   */
+  private void checkNoDuplicateVersions() {
+    final List<Document> duplicates = mongoCollection()
+        .aggregate(List.of(
+            Aggregates.group(new Document("aggregateRootId", "$aggregateRootId").append("version", "$version"),
+                Accumulators.sum("count", 1)),
+            Aggregates.match(Filters.gt("count", 1)),
+            Aggregates.limit(REPORTED_DUPLICATES)), Document.class)
+        .allowDiskUse(true)
+        .into(new ArrayList<>());
+    if (!duplicates.isEmpty()) {
+      throw new IllegalStateException(String.format(
+          "Cannot create the unique index %s, the event collection holds duplicated registry versions "
+              + "(first %d: %s). Remove or renumber the duplicated events, then restart.",
+          VERSION_INDEX, REPORTED_DUPLICATES, duplicates.stream().map(duplicate -> duplicate.get("_id")).toList()));
+    }
+  }
+
   /**
    * Saves an event in the repository.
    * @param event The event to be saved.
+   * @throws EventStoreConcurrencyException If the version of the event is already used.
    */
   @Override
   public void saveEvent(ProductRegistryEventEntity event) {
-    persist(event);
+    if (localStore.isEnabled()) {
+      localStore.saveEvents(List.of(encode(event)));
+      return;
+    }
+    try {
+      persist(event);
+    } catch (MongoException e) {
+      throw toConcurrencyException(e, List.of(event));
+    }
+  }
+
+  /**
+   * Saves a batch of events in the repository with a single insert.
+   * @param events The events to be saved, in order.
+   * @throws EventStoreConcurrencyException If the version of an event is already used.
+   */
+  @Override
+  public void saveEvents(List<ProductRegistryEventEntity> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    if (localStore.isEnabled()) {
+      localStore.saveEvents(events.stream().map(this::encode).toList());
+      return;
+    }
+    try {
+      persist(events);
+    } catch (MongoException e) {
+      throw toConcurrencyException(e, events);
+    }
+  }
+
+  /**
+   * Appends events to the stream of a registry if the stream is still at the expected version.
+   * 
+   * @implNote The events are inserted in order, the unique index on the stream versions
+   *           rejects the first event already written by a concurrent writer.
+   * @implNote Inside a transaction, Panache binds the insert to the session of the
+   *           transaction, so that a batch command is stored as a whole or not at all.
+   *           Outside of a transaction, e.g. from the group commit writer, the events
+   *           before the rejected one are stored.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @param expectedVersion The version of the last event known by the writer.
+   * @param events The events to append, numbered from expectedVersion + 1.
+   * @throws EventStoreConcurrencyException If the stream moved past the expected version.
+   */
+  @Override
+  public void append(String aggregateRootId, long expectedVersion, List<ProductRegistryEventEntity> events) {
+    long version = expectedVersion;
+    for (ProductRegistryEventEntity event : events) {
+      if (!aggregateRootId.equals(event.aggregateRootId) || event.version != ++version) {
+        throw new IllegalArgumentException(String.format(
+            "Event %s does not follow version %d of aggregate %s", event.eventId, version - 1, aggregateRootId));
+      }
+    }
+    if (localStore.isEnabled()) {
+      localStore.append(aggregateRootId, expectedVersion, events.stream().map(this::encode).toList());
+      return;
+    }
+    saveEvents(events);
   }
 
   /**
@@ -41,12 +261,283 @@ public class ProductRegistryEventRepository
   @Override
   public List<ProductRegistryEventEntity> findEventsByAggregateRootIdAndStartingVersion(String aggregateRootId,
       long startingVersion) {
+    if (archive.isEnabled() || localStore.isEnabled()) {
+      try (Stream<ProductRegistryEventEntity> events = streamEventsByAggregateRootIdAndStartingVersion(
+          aggregateRootId, startingVersion)) {
+        return events.toList();
+      }
+    }
     return find(
         "aggregateRootId = ?1 and version > ?2",
+        Sort.by("version"),
         aggregateRootId,
-        startingVersion,
-        Sort.by("version"))
+        startingVersion)
         .list();
   }
 
+  /**
+   * Finds the events produced by a command from its correlation ID.
+   * Archived events are not searched.
+   * 
+   * @param correlationId The correlation ID of the command.
+   * @return The events produced by the command in version order, several for a batch command.
+   */
+  public List<ProductRegistryEventEntity> findEventsByCorrelationId(String correlationId) {
+    if (localStore.isEnabled()) {
+      return localStore.findRawEventsByCorrelationId(correlationId).stream().map(this::decode).toList();
+    }
+    return find("correlationId", Sort.by("version"), correlationId).list();
+  }
+
+  /**
+   * Finds the aggregate root ids of the registry streams of the store.
+   * 
+   * @implNote A stream whose events were all moved to the archive is not listed.
+   * 
+   * @return The aggregate root IDs of the streams holding events.
+   */
+  public Set<String> findAggregateRootIds() {
+    if (localStore.isEnabled()) {
+      return localStore.getAggregateRootIds();
+    }
+    return mongoCollection().distinct("aggregateRootId", String.class).into(new HashSet<>());
+  }
+
+  /**
+   * Finds the version of the last event of a registry stream, archived or not.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @return The version of the last event, 0 if the stream is empty.
+   */
+  public long findLastVersion(String aggregateRootId) {
+    if (localStore.isEnabled()) {
+      try (Stream<RawBsonDocument> events = localStore.streamRawEvents(aggregateRootId, 0)) {
+        return events.mapToLong(ProductRegistryEventArchive::versionOf).max().orElse(0);
+      }
+    }
+    final RawBsonDocument last = mongoCollection()
+        .withDocumentClass(RawBsonDocument.class)
+        .find(Filters.eq("aggregateRootId", aggregateRootId))
+        .sort(Sorts.descending("version"))
+        .limit(1)
+        .first();
+    final long liveVersion = last == null ? 0 : ProductRegistryEventArchive.versionOf(last);
+    return archive.isEnabled() ? Math.max(liveVersion, archive.getArchivedVersion(aggregateRootId)) : liveVersion;
+  }
+
+  /**
+   * Streams events by the aggregate root ID and starting version.
+   * The events are fetched from a cursor by batches of the configured size as the
+   * stream is consumed.
+   * 
+   * @param aggregateRootId The ID of the aggregate root for the events.
+   * @param startingVersion The version to start the search from.
+   * @return A stream of "ProductRegistryEventEntity" events that match the query, to be closed.
+   */
+  @Override
+  public Stream<ProductRegistryEventEntity> streamEventsByAggregateRootIdAndStartingVersion(String aggregateRootId,
+      long startingVersion) {
+    if (archive.isEnabled() || localStore.isEnabled()) {
+      return streamRawEventsByAggregateRootIdAndStartingVersion(aggregateRootId, startingVersion).map(this::decode);
+    }
+    return find(
+        "aggregateRootId = ?1 and version > ?2",
+        Sort.by("version"),
+        aggregateRootId,
+        startingVersion)
+        .withBatchSize(replayBatchSize)
+        .stream();
+  }
+
+  /**
+   * Streams the raw BSON documents of the events by the aggregate root ID and starting version.
+   * The documents are fetched from a cursor by batches of the configured size, and left
+   * undecoded so that decoding can be spread over several threads with {@link #decode(RawBsonDocument)}.
+   * 
+   * @param aggregateRootId The ID of the aggregate root for the events.
+   * @param startingVersion The version to start the search from.
+   * @return An ordered stream of raw events, to be closed.
+   */
+  public Stream<RawBsonDocument> streamRawEventsByAggregateRootIdAndStartingVersion(String aggregateRootId,
+      long startingVersion) {
+    if (localStore.isEnabled()) {
+      return localStore.streamRawEvents(aggregateRootId, startingVersion);
+    }
+    if (archive.isEnabled()) {
+      return archive.stitch(aggregateRootId, startingVersion,
+          afterVersion -> streamLiveRawEvents(aggregateRootId, afterVersion));
+    }
+    return streamLiveRawEvents(aggregateRootId, startingVersion);
+  }
+
+  /**
+   * Streams the raw BSON documents of the events of the collection by the aggregate root ID and starting version.
+   * 
+   * @param aggregateRootId The ID of the aggregate root for the events.
+   * @param startingVersion The version to start the search from.
+   * @return An ordered stream of raw events, to be closed.
+   */
+  private Stream<RawBsonDocument> streamLiveRawEvents(String aggregateRootId, long startingVersion) {
+    final MongoCursor<RawBsonDocument> cursor = mongoCollection()
+        .withDocumentClass(RawBsonDocument.class)
+        .find(Filters.and(
+            Filters.eq("aggregateRootId", aggregateRootId),
+            Filters.gt("version", startingVersion)))
+        .sort(Sorts.ascending("version"))
+        .batchSize(replayBatchSize)
+        .iterator();
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+        .onClose(cursor::close);
+  }
+
+  /**
+   * Finds the next raw events of the collection to archive.
+   * 
+   * @param aggregateRootId The ID of the aggregate root for the events.
+   * @param archivedVersion The version of the last archived event.
+   * @param maxVersion The highest version that may be archived.
+   * @param maxTimestamp The timestamp (exclusive) events must be older than to be archived.
+   * @param limit The maximum number of events.
+   * @return The raw events in version order.
+   */
+  public List<RawBsonDocument> findRawEventsToArchive(String aggregateRootId, long archivedVersion, long maxVersion,
+      long maxTimestamp, int limit) {
+    return mongoCollection()
+        .withDocumentClass(RawBsonDocument.class)
+        .find(Filters.and(
+            Filters.eq("aggregateRootId", aggregateRootId),
+            Filters.gt("version", archivedVersion),
+            Filters.lte("version", maxVersion),
+            Filters.lt("timestamp", maxTimestamp)))
+        .sort(Sorts.ascending("version"))
+        .limit(limit)
+        .into(new ArrayList<>(limit));
+  }
+
+  /**
+   * Deletes the events of the collection up to a version, once archived.
+   * 
+   * @param aggregateRootId The ID of the aggregate root for the events.
+   * @param version The version of the last event to delete.
+   * @return The number of deleted events.
+   */
+  public long deleteEventsUpToVersion(String aggregateRootId, long version) {
+    return delete("aggregateRootId = ?1 and version <= ?2", aggregateRootId, version);
+  }
+
+  /**
+   * Decodes a raw event to its entity.
+   * 
+   * @implNote Thread safe.
+   * 
+   * @param rawEvent The raw BSON document of the event.
+   * @return The event entity.
+   */
+  public ProductRegistryEventEntity decode(RawBsonDocument rawEvent) {
+    return decode(mongoCollection().getCodecRegistry(), rawEvent);
+  }
+
+  /**
+   * Decodes a raw event to its entity with the given codecs, e.g. to replay
+   * events outside of the application.
+   * 
+   * @implNote Thread safe.
+   * 
+   * @param codecs The codecs of the event entities.
+   * @param rawEvent The raw BSON document of the event.
+   * @return The event entity.
+   */
+  public static ProductRegistryEventEntity decode(CodecRegistry codecs, RawBsonDocument rawEvent) {
+    return DECODERS.dispatch(codecs, rawEvent.getString("eventType").getValue(), rawEvent);
+  }
+
+  /**
+   * Encodes an event entity to its raw BSON document, as stored in the collection.
+   * 
+   * @param event The event entity.
+   * @return The raw BSON document of the event.
+   */
+  @SuppressWarnings("unchecked")
+  private RawBsonDocument encode(ProductRegistryEventEntity event) {
+    final Codec<ProductRegistryEventEntity> codec = (Codec<ProductRegistryEventEntity>) mongoCollection()
+        .getCodecRegistry().get(event.getClass());
+    return new RawBsonDocument(event, codec);
+  }
+
+  /**
+   * Decode a raw event with the codec of its entity class.
+   *
+   * @param codecs - the codecs of the event collection
+   * @param entityClass - the entity class of the event type
+   * @param rawEvent - the raw BSON document of the event
+   * @return the event entity
+   */
+  private static <T extends ProductRegistryEventEntity> T decode(CodecRegistry codecs, Class<T> entityClass,
+      RawBsonDocument rawEvent) {
+    return codecs.get(entityClass)
+        .decode(new BsonBinaryReader(rawEvent.getByteBuffer().asNIO()), DecoderContext.builder().build());
+  }
+
+  /**
+   * Maps a duplicate key error on the stream versions, or a write conflict of the
+   * transaction, to a concurrency exception.
+   * 
+   * @implNote The events are inserted in order, so the insert stops at the first
+   *           rejected event: the events before it are written, outside of a
+   *           transaction, and the stream of the rejected event is the one
+   *           another writer appended to.
+   * @implNote Inside a transaction, a concurrent insert may be reported as a write
+   *           conflict instead, which aborts the whole transaction: nothing is written.
+   * 
+   * @param e The MongoDB exception.
+   * @param events The events written, in order.
+   * @return The concurrency exception on duplicate key or write conflict, the original exception otherwise.
+   */
+  private static RuntimeException toConcurrencyException(MongoException e, List<ProductRegistryEventEntity> events) {
+    if (isWriteConflict(e)) {
+      final ProductRegistryEventEntity first = events.get(0);
+      return new EventStoreConcurrencyException(first.aggregateRootId, first.version - 1, e);
+    }
+    final int rejected;
+    if (e instanceof MongoBulkWriteException bulk) {
+      rejected = bulk.getWriteErrors().stream()
+          .filter(error -> error.getCode() == DUPLICATE_KEY)
+          .mapToInt(BulkWriteError::getIndex)
+          .min()
+          .orElse(-1);
+    } else {
+      rejected = e.getCode() == DUPLICATE_KEY ? 0 : -1;
+    }
+    if (rejected < 0) {
+      return e;
+    }
+    final ProductRegistryEventEntity conflicting = events.get(rejected);
+    return new EventStoreConcurrencyException(conflicting.aggregateRootId, conflicting.version - 1, rejected, e);
+  }
+
+  /**
+   * Check if a failure is caused by a write conflict between MongoDB transactions.
+   * 
+   * @implNote The transactions are committed by the transaction manager, which
+   *           reports a failed commit wrapped in its own exceptions: the whole
+   *           chain of causes is searched.
+   * 
+   * @param failure The failure, of a write or of the commit of a transaction.
+   * @return true if the transaction can be retried from the start, false otherwise.
+   */
+  public static boolean isWriteConflict(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof MongoException mongo
+          && (mongo.getCode() == WRITE_CONFLICT || mongo.hasErrorLabel(TRANSIENT_TRANSACTION_ERROR))) {
+        return true;
+      }
+      if (cause instanceof MongoBulkWriteException bulk
+          && bulk.getWriteErrors().stream().anyMatch(error -> error.getCode() == WRITE_CONFLICT)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
 }
@@ -0,0 +1,75 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.lease.LeaseStore;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryLeaseEntity;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+
+import io.quarkus.mongodb.panache.PanacheMongoRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Repository for handling "ProductRegistryLeaseEntity" leases.
+ */
+@ApplicationScoped
+public class ProductRegistryLeaseRepository
+    implements LeaseStore,
+    PanacheMongoRepositoryBase<ProductRegistryLeaseEntity, String> {
+
+  /**
+   * MongoDB duplicate key error code.
+   */
+  private static final int DUPLICATE_KEY = 11000;
+
+  /**
+   * Acquires or renews the lease of a registry in a single atomic upsert.
+   * 
+   * @implNote When the lease is held by another owner, the filter does not match
+   *           and the upsert fails on the lease id unique key.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @param ownerId The ID of the candidate owner.
+   * @param duration The duration of the lease.
+   * @return true if the owner holds the lease, false otherwise.
+   */
+  @Override
+  public boolean tryAcquire(String aggregateRootId, String ownerId, Duration duration) {
+    final long now = Instant.now().toEpochMilli();
+    try {
+      final ProductRegistryLeaseEntity lease = mongoCollection().findOneAndUpdate(
+          Filters.and(
+              Filters.eq("_id", aggregateRootId),
+              Filters.or(Filters.eq("owner", ownerId), Filters.lt("expiresAt", now))),
+          Updates.combine(
+              Updates.set("owner", ownerId),
+              Updates.set("expiresAt", now + duration.toMillis())),
+          new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+      return lease != null && ownerId.equals(lease.owner);
+    } catch (MongoException e) {
+      if (e.getCode() == DUPLICATE_KEY) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Releases the lease of a registry if it is held by the given owner.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @param ownerId The ID of the owner.
+   */
+  @Override
+  public void release(String aggregateRootId, String ownerId) {
+    mongoCollection().deleteOne(Filters.and(
+        Filters.eq("_id", aggregateRootId),
+        Filters.eq("owner", ownerId)));
+  }
+}
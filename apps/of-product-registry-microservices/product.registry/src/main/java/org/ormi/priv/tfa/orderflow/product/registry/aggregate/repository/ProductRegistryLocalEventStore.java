@@ -0,0 +1,261 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.EventStore;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.EventStoreConcurrencyException;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.InMemoryEventStore;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.MappedFileEventStore;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.MappedFileEventStore.FsyncPolicy;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Local storage of the product registry events.
+ *
+ * When selected, the events are appended to memory-mapped segment files of
+ * the instance, or kept in memory, instead of the event collection. They are
+ * stored as their raw BSON documents so that they are decoded as if read from
+ * the collection.
+ *
+ * @implNote The correlation ids of the commands are indexed in memory, one
+ *           entry per command, and the index is rebuilt from the segments on
+ *           startup.
+ * @implNote The events must only be stored by a single instance, which must
+ *           own all the registries, and the archive is not supported.
+ */
+@ApplicationScoped
+public class ProductRegistryLocalEventStore {
+
+  /**
+   * Storage of the events.
+   */
+  public enum Type {
+    /**
+     * Events are stored in the event collection.
+     */
+    MONGO,
+    /**
+     * Events are stored in local memory-mapped files.
+     */
+    MAPPED_FILE,
+    /**
+     * Events are kept in memory and lost on shutdown, for tests and
+     * measurements without a database.
+     */
+    IN_MEMORY
+  }
+
+  /**
+   * Events of a command in a stream.
+   *
+   * @param aggregateRootId - the registry aggregate root id
+   * @param fromVersion - the version of the first event of the command
+   * @param toVersion - the version of the last event of the command
+   */
+  private record CommandEvents(String aggregateRootId, long fromVersion, long toVersion) {
+  }
+
+  /**
+   * Storage of the events.
+   */
+  @ConfigProperty(name = "product.registry.event-store.type", defaultValue = "MONGO")
+  private Type type;
+
+  /**
+   * Directory of the segment files.
+   */
+  @ConfigProperty(name = "product.registry.event-store.mapped-file.directory", defaultValue = "data/product-registry-events")
+  private String directory;
+
+  /**
+   * Size of a segment file, the maximum size of an event.
+   */
+  @ConfigProperty(name = "product.registry.event-store.mapped-file.segment-size", defaultValue = "64M")
+  private MemorySize segmentSize;
+
+  /**
+   * When the appended events are forced to the storage device.
+   */
+  @ConfigProperty(name = "product.registry.event-store.mapped-file.fsync", defaultValue = "GROUP")
+  private FsyncPolicy fsyncPolicy;
+
+  /**
+   * Time between two forces with the periodic fsync policy.
+   */
+  @ConfigProperty(name = "product.registry.event-store.mapped-file.fsync-interval", defaultValue = "100ms")
+  private Duration fsyncInterval;
+
+  /**
+   * Events of the handled commands by correlation id.
+   */
+  private final Map<String, CommandEvents> commands = new ConcurrentHashMap<>();
+
+  /**
+   * Local store, null when the collection is selected.
+   */
+  private EventStore<RawBsonDocument> store;
+
+  /**
+   * Open the store if selected and index the correlation ids of its events.
+   */
+  @PostConstruct
+  void init() {
+    switch (type) {
+      case MAPPED_FILE -> openMappedFileStore();
+      case IN_MEMORY -> store = new InMemoryEventStore<>(
+          event -> event.getString("aggregateRootId").getValue(), ProductRegistryEventArchive::versionOf);
+      case MONGO -> store = null;
+    }
+  }
+
+  /**
+   * Open the mapped file store and index the correlation ids of its events.
+   */
+  private void openMappedFileStore() {
+    final MappedFileEventStore<RawBsonDocument> mappedStore = new MappedFileEventStore<>(Path.of(directory), (int) segmentSize.asLongValue(), fsyncPolicy,
+        fsyncInterval, new MappedFileEventStore.EventCodec<>() {
+          @Override
+          public String aggregateRootIdOf(RawBsonDocument event) {
+            return event.getString("aggregateRootId").getValue();
+          }
+
+          @Override
+          public long versionOf(RawBsonDocument event) {
+            return ProductRegistryEventArchive.versionOf(event);
+          }
+
+          @Override
+          public byte[] encode(RawBsonDocument event) {
+            final ByteBuffer buffer = event.getByteBuffer().asNIO();
+            final byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            return data;
+          }
+
+          @Override
+          public RawBsonDocument decode(byte[] data) {
+            return new RawBsonDocument(data);
+          }
+        });
+    for (String aggregateRootId : mappedStore.getAggregateRootIds()) {
+      try (Stream<RawBsonDocument> events = mappedStore.streamEventsByAggregateRootIdAndStartingVersion(
+          aggregateRootId, 0)) {
+        events.forEach(this::indexCorrelationId);
+      }
+    }
+    store = mappedStore;
+  }
+
+  /**
+   * Force the appended events on shutdown.
+   */
+  @PreDestroy
+  void close() {
+    if (store instanceof MappedFileEventStore<RawBsonDocument> mappedStore) {
+      mappedStore.close();
+    }
+  }
+
+  /**
+   * Check if the events are stored locally instead of the collection.
+   *
+   * @return true if the mapped file or in-memory store is selected
+   */
+  public boolean isEnabled() {
+    return store != null;
+  }
+
+  /**
+   * Get the aggregate root ids of the registry streams of the store.
+   *
+   * @return the aggregate root ids
+   */
+  public Set<String> getAggregateRootIds() {
+    if (store instanceof MappedFileEventStore<RawBsonDocument> mappedStore) {
+      return mappedStore.getAggregateRootIds();
+    }
+    return ((InMemoryEventStore<RawBsonDocument>) store).getAggregateRootIds();
+  }
+
+  /**
+   * Save a batch of events of any registries with a single force.
+   *
+   * @param events - the raw events, each following the last event of its registry
+   * @throws EventStoreConcurrencyException if an event does not follow the last event of its registry
+   */
+  public void saveEvents(List<RawBsonDocument> events) {
+    store.saveEvents(events);
+    events.forEach(this::indexCorrelationId);
+  }
+
+  /**
+   * Append events to the stream of a registry if it is still at the expected version.
+   *
+   * @param aggregateRootId - the registry aggregate root id
+   * @param expectedVersion - the version of the last event known by the writer
+   * @param events - the raw events, numbered from expectedVersion + 1
+   * @throws EventStoreConcurrencyException if the stream moved past the expected version
+   */
+  public void append(String aggregateRootId, long expectedVersion, List<RawBsonDocument> events) {
+    store.append(aggregateRootId, expectedVersion, events);
+    events.forEach(this::indexCorrelationId);
+  }
+
+  /**
+   * Stream the events of a registry.
+   *
+   * @param aggregateRootId - the registry aggregate root id
+   * @param startingVersion - the version after which to read
+   * @return the raw events after the starting version, in order
+   */
+  public Stream<RawBsonDocument> streamRawEvents(String aggregateRootId, long startingVersion) {
+    return store.streamEventsByAggregateRootIdAndStartingVersion(aggregateRootId, startingVersion);
+  }
+
+  /**
+   * Find the events produced by a command from its correlation id.
+   *
+   * @param correlationId - the correlation id of the command
+   * @return the raw events of the command in version order, empty if none
+   */
+  public List<RawBsonDocument> findRawEventsByCorrelationId(String correlationId) {
+    final CommandEvents command = commands.get(correlationId);
+    if (command == null) {
+      return List.of();
+    }
+    try (Stream<RawBsonDocument> events = store.streamEventsByAggregateRootIdAndStartingVersion(
+        command.aggregateRootId(), command.fromVersion() - 1)) {
+      return events.limit(command.toVersion() - command.fromVersion() + 1).toList();
+    }
+  }
+
+  /**
+   * Index the correlation id of an event, extending the events of its command.
+   *
+   * @param event - the raw event
+   */
+  private void indexCorrelationId(RawBsonDocument event) {
+    final BsonValue correlationId = event.get("correlationId");
+    if (correlationId == null || !correlationId.isString()) {
+      return;
+    }
+    final String aggregateRootId = event.getString("aggregateRootId").getValue();
+    final long version = ProductRegistryEventArchive.versionOf(event);
+    commands.merge(correlationId.asString().getValue(), new CommandEvents(aggregateRootId, version, version),
+        (first, next) -> new CommandEvents(first.aggregateRootId(), first.fromVersion(), next.toVersion()));
+  }
+}
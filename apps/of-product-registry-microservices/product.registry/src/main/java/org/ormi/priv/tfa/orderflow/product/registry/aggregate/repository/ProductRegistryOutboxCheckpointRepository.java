@@ -0,0 +1,66 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository;
+
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryOutboxCheckpointEntity;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+
+import io.quarkus.mongodb.panache.PanacheMongoRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Repository for handling "ProductRegistryOutboxCheckpointEntity" checkpoints.
+ */
+@ApplicationScoped
+public class ProductRegistryOutboxCheckpointRepository
+    implements PanacheMongoRepositoryBase<ProductRegistryOutboxCheckpointEntity, String> {
+
+  /**
+   * Checks whether the publication progress of a registry is tracked.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @return true if the registry has a checkpoint.
+   */
+  public boolean hasCheckpoint(String aggregateRootId) {
+    return findByIdOptional(aggregateRootId).isPresent();
+  }
+
+  /**
+   * Finds the version of the last published event of a registry.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @return The last published version, 0 if nothing was published yet.
+   */
+  public long findPublishedVersion(String aggregateRootId) {
+    return findByIdOptional(aggregateRootId)
+        .map(checkpoint -> checkpoint.publishedVersion)
+        .orElse(0L);
+  }
+
+  /**
+   * Creates the checkpoint of a registry, unless another instance already did.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @param publishedVersion The version of the last event already published.
+   */
+  public void initPublishedVersion(String aggregateRootId, long publishedVersion) {
+    mongoCollection().updateOne(
+        Filters.eq("_id", aggregateRootId),
+        Updates.setOnInsert("publishedVersion", publishedVersion),
+        new UpdateOptions().upsert(true));
+  }
+
+  /**
+   * Saves the version of the last published event of a registry.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @param publishedVersion The last published version.
+   */
+  public void savePublishedVersion(String aggregateRootId, long publishedVersion) {
+    final ProductRegistryOutboxCheckpointEntity checkpoint = new ProductRegistryOutboxCheckpointEntity();
+    checkpoint.id = aggregateRootId;
+    checkpoint.publishedVersion = publishedVersion;
+    persistOrUpdate(checkpoint);
+  }
+}
@@ -0,0 +1,139 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.snapshot.SnapshotStore;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistrySnapshotEntity;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import io.quarkus.panache.common.Sort;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Repository for handling "ProductRegistrySnapshotEntity" snapshots.
+ * Only the latest snapshot of each registry is kept.
+ * 
+ * @implNote The state of a snapshot is split over chunk documents of at most
+ *           {@value #CHUNK_SIZE} bytes, below the 16 MB limit of a MongoDB
+ *           document. The first chunk is written last: a snapshot is complete
+ *           once its first chunk is stored.
+ */
+@ApplicationScoped
+public class ProductRegistrySnapshotRepository
+    implements SnapshotStore<ProductRegistrySnapshotEntity>,
+    PanacheMongoRepository<ProductRegistrySnapshotEntity> {
+
+  /**
+   * Maximum size of the state held by a chunk document.
+   */
+  static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+  /**
+   * Saves a snapshot and discards the older snapshots of the same registry.
+   * 
+   * @implNote The chunks of a snapshot that failed to be saved are discarded
+   *           with the older snapshots by the next one.
+   * 
+   * @param snapshot The snapshot to be saved.
+   */
+  @Override
+  public void saveSnapshot(ProductRegistrySnapshotEntity snapshot) {
+    final int chunkCount = Math.max(1, (snapshot.state.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+    for (int chunk = chunkCount - 1; chunk >= 0; chunk--) {
+      persist(chunkOf(snapshot, chunk, chunkCount));
+    }
+    delete("aggregateRootId = ?1 and version < ?2", snapshot.aggregateRootId, snapshot.version);
+  }
+
+  /**
+   * Finds the latest snapshot of a registry.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @return The complete snapshot with the highest version, its chunks joined, if any.
+   * @throws IllegalStateException If chunks of the snapshot are missing.
+   */
+  @Override
+  public Optional<ProductRegistrySnapshotEntity> findLatestSnapshotByAggregateRootId(String aggregateRootId) {
+    return find(
+        "aggregateRootId = ?1 and chunk = 0",
+        Sort.by("version", Sort.Direction.Descending),
+        aggregateRootId)
+        .firstResultOptional()
+        .map(this::joinChunks);
+  }
+
+  /**
+   * Finds the version of the latest snapshot of a registry, without reading its state.
+   * 
+   * @param aggregateRootId The ID of the aggregate root of the registry.
+   * @return The version of the complete snapshot with the highest version, 0 if none.
+   */
+  public long findLatestSnapshotVersion(String aggregateRootId) {
+    final ProductRegistrySnapshotEntity latest = mongoCollection()
+        .find(Filters.and(Filters.eq("aggregateRootId", aggregateRootId), Filters.eq("chunk", 0)))
+        .projection(Projections.include("version"))
+        .sort(Sorts.descending("version"))
+        .first();
+    return latest == null ? 0 : latest.version;
+  }
+
+  /**
+   * Creates the chunk document of a snapshot.
+   * 
+   * @param snapshot The snapshot.
+   * @param chunk The index of the chunk.
+   * @param chunkCount The number of chunks of the snapshot.
+   * @return The chunk document, holding its part of the state.
+   */
+  private static ProductRegistrySnapshotEntity chunkOf(ProductRegistrySnapshotEntity snapshot, int chunk,
+      int chunkCount) {
+    final ProductRegistrySnapshotEntity entity = new ProductRegistrySnapshotEntity();
+    entity.aggregateRootId = snapshot.aggregateRootId;
+    entity.version = snapshot.version;
+    entity.timestamp = snapshot.timestamp;
+    entity.productCount = snapshot.productCount;
+    entity.format = snapshot.format;
+    entity.chunk = chunk;
+    entity.chunkCount = chunkCount;
+    entity.state = chunkCount == 1 ? snapshot.state
+        : Arrays.copyOfRange(snapshot.state, chunk * CHUNK_SIZE,
+            Math.min(snapshot.state.length, (chunk + 1) * CHUNK_SIZE));
+    return entity;
+  }
+
+  /**
+   * Joins the state of the chunks of a snapshot into its first chunk.
+   * 
+   * @param first The first chunk of the snapshot.
+   * @return The snapshot with its whole state.
+   * @throws IllegalStateException If chunks of the snapshot are missing.
+   */
+  private ProductRegistrySnapshotEntity joinChunks(ProductRegistrySnapshotEntity first) {
+    if (first.chunkCount <= 1) {
+      return first;
+    }
+    final List<ProductRegistrySnapshotEntity> others = find(
+        "aggregateRootId = ?1 and version = ?2 and chunk > 0",
+        Sort.by("chunk"),
+        first.aggregateRootId, first.version)
+        .list();
+    if (others.size() != first.chunkCount - 1) {
+      throw new IllegalStateException(String.format("Snapshot of registry %s at version %d has %d of %d chunks",
+          first.aggregateRootId, first.version, others.size() + 1, first.chunkCount));
+    }
+    final ByteArrayOutputStream state = new ByteArrayOutputStream(first.chunkCount * CHUNK_SIZE);
+    state.writeBytes(first.state);
+    others.forEach(chunk -> state.writeBytes(chunk.state));
+    first.state = state.toByteArray();
+    first.chunk = 0;
+    first.chunkCount = 1;
+    return first;
+  }
+}
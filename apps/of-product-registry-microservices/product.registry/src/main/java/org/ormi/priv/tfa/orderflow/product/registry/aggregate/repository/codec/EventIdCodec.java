@@ -0,0 +1,37 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+
+/**
+ * Codec of the event ids.
+ *
+ * @implNote Canonical ids are stored as BSON binary subtype 4, the others as
+ *           their string. Both forms are read, including the string form of
+ *           canonical ids stored before.
+ */
+public class EventIdCodec implements Codec<EventId> {
+
+  @Override
+  public void encode(BsonWriter writer, EventId eventId, EncoderContext encoderContext) {
+    if (eventId.isCanonical()) {
+      UuidBinaries.write(writer, eventId.getMostSignificantBits(), eventId.getLeastSignificantBits());
+    } else {
+      writer.writeString(eventId.getId());
+    }
+  }
+
+  @Override
+  public EventId decode(BsonReader reader, DecoderContext decoderContext) {
+    return UuidBinaries.read(reader, EventId::of, EventId::of);
+  }
+
+  @Override
+  public Class<EventId> getEncoderClass() {
+    return EventId.class;
+  }
+}
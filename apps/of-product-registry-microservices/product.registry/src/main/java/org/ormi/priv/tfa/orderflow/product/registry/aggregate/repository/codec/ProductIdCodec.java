@@ -0,0 +1,37 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Codec of the product ids.
+ *
+ * @implNote Canonical ids are stored as BSON binary subtype 4, the others as
+ *           their string. Both forms are read, including the string form of
+ *           canonical ids stored before.
+ */
+public class ProductIdCodec implements Codec<ProductId> {
+
+  @Override
+  public void encode(BsonWriter writer, ProductId productId, EncoderContext encoderContext) {
+    if (productId.isCanonical()) {
+      UuidBinaries.write(writer, productId.getMostSignificantBits(), productId.getLeastSignificantBits());
+    } else {
+      writer.writeString(productId.getId());
+    }
+  }
+
+  @Override
+  public ProductId decode(BsonReader reader, DecoderContext decoderContext) {
+    return UuidBinaries.read(reader, ProductId::of, ProductId::of);
+  }
+
+  @Override
+  public Class<ProductId> getEncoderClass() {
+    return ProductId.class;
+  }
+}
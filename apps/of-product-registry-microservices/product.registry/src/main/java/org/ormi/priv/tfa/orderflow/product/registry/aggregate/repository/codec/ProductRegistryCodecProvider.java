@@ -0,0 +1,31 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.codec;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Provider of the codecs of the product registry value objects.
+ *
+ * @implNote Registered automatically in the MongoDB client codec registry.
+ */
+public class ProductRegistryCodecProvider implements CodecProvider {
+
+  private static final ProductIdCodec PRODUCT_ID_CODEC = new ProductIdCodec();
+
+  private static final EventIdCodec EVENT_ID_CODEC = new EventIdCodec();
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+    if (clazz == ProductId.class) {
+      return (Codec<T>) PRODUCT_ID_CODEC;
+    }
+    if (clazz == EventId.class) {
+      return (Codec<T>) EVENT_ID_CODEC;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,66 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.codec;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+
+/**
+ * Encoding of the UUID ids as BSON binary subtype 4.
+ */
+final class UuidBinaries {
+
+  private UuidBinaries() {
+  }
+
+  /**
+   * Write the two longs of a UUID as a binary subtype 4 value.
+   *
+   * @param writer - The BSON writer
+   * @param mostSignificantBits - The most significant bits of the UUID
+   * @param leastSignificantBits - The least significant bits of the UUID
+   */
+  static void write(BsonWriter writer, long mostSignificantBits, long leastSignificantBits) {
+    final byte[] bytes = ByteBuffer.allocate(16)
+        .putLong(mostSignificantBits)
+        .putLong(leastSignificantBits)
+        .array();
+    writer.writeBinaryData(new BsonBinary(BsonBinarySubType.UUID_STANDARD, bytes));
+  }
+
+  /**
+   * Read a UUID id stored either as a binary subtype 4 value or as a string.
+   *
+   * @param <T> - The id type
+   * @param reader - The BSON reader
+   * @param fromBits - Creates the id from the two longs of the UUID
+   * @param fromString - Creates the id from its string form
+   * @return the id
+   */
+  static <T> T read(BsonReader reader, BitsFactory<T> fromBits, Function<String, T> fromString) {
+    if (reader.getCurrentBsonType() == BsonType.STRING) {
+      return fromString.apply(reader.readString());
+    }
+    final BsonBinary binary = reader.readBinaryData();
+    if (binary.getType() != BsonBinarySubType.UUID_STANDARD.getValue() || binary.getData().length != 16) {
+      throw new BsonInvalidOperationException("Expected a UUID binary (subtype 4), got subtype " + binary.getType());
+    }
+    final ByteBuffer bytes = ByteBuffer.wrap(binary.getData());
+    return fromBits.create(bytes.getLong(), bytes.getLong());
+  }
+
+  /**
+   * Creates an id from the two longs of its UUID.
+   *
+   * @param <T> - The id type
+   */
+  @FunctionalInterface
+  interface BitsFactory<T> {
+    T create(long mostSignificantBits, long leastSignificantBits);
+  }
+}
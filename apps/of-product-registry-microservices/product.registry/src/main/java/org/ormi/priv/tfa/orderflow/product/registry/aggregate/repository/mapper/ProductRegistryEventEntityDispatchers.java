@@ -0,0 +1,41 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch.EventDispatcher;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEventTypes;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegisteredEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRemovedEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductUpdatedEventEntity;
+
+/**
+ * Per event type mappings of the {@link ProductRegistryEventEntityMapper}.
+ */
+final class ProductRegistryEventEntityDispatchers {
+
+  /**
+   * Mapping of the events to their entities, by event class.
+   */
+  static final EventDispatcher<ProductRegistryEventEntityMapper, ProductRegistryEvent, ProductRegistryEventEntity> TO_ENTITY = ProductRegistryEventTypes.REGISTRY
+      .<ProductRegistryEventEntityMapper, ProductRegistryEvent, ProductRegistryEventEntity>dispatcher()
+      .on(ProductRegistered.class, (mapper, evt) -> mapper.toEntity(evt))
+      .on(ProductUpdated.class, (mapper, evt) -> mapper.toEntity(evt))
+      .on(ProductRemoved.class, (mapper, evt) -> mapper.toEntity(evt))
+      .build();
+
+  /**
+   * Mapping of the entities to their events, by stored event type.
+   */
+  static final EventDispatcher<ProductRegistryEventEntityMapper, ProductRegistryEventEntity, ProductRegistryEvent> TO_EVENT = ProductRegistryEventTypes.REGISTRY
+      .<ProductRegistryEventEntityMapper, ProductRegistryEventEntity, ProductRegistryEvent>dispatcher()
+      .<ProductRegisteredEventEntity>on(ProductRegisteredEventEntity.EVENT_TYPE, (mapper, entity) -> mapper.toEvent(entity))
+      .<ProductUpdatedEventEntity>on(ProductUpdatedEventEntity.EVENT_TYPE, (mapper, entity) -> mapper.toEvent(entity))
+      .<ProductRemovedEventEntity>on(ProductRemovedEventEntity.EVENT_TYPE, (mapper, entity) -> mapper.toEvent(entity))
+      .build();
+
+  private ProductRegistryEventEntityDispatchers() {
+  }
+}
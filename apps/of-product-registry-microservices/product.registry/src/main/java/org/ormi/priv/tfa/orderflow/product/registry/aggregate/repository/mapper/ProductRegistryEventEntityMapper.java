@@ -3,11 +3,12 @@ package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
-import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.mapper.EventIdMapper;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegisteredEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryEventEntity;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRemovedEventEntity;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductUpdatedEventEntity;
 
@@ -17,7 +18,7 @@ import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.P
  * database entities (ProductRegisteredEventEntity, ProductUpdatedEventEntity, 
  * ProductRemovedEventEntity)
  */
-@Mapper(uses = {EventIdMapper.class, ProductRegistryEventPayloadMapper.class})
+@Mapper(uses = {ProductRegistryEventPayloadMapper.class})
 public interface ProductRegistryEventEntityMapper {
     /**
      * Singleton instance of the mapper, automatically generated by MapStruct
@@ -31,7 +32,8 @@ public interface ProductRegistryEventEntityMapper {
      * @return a ProductRegisteredEventEntity for database storage
      */
     @Mapping(target = "id", ignore = true) // id is generated by the database
-    @Mapping(target = "eventId", source = "id", qualifiedByName = "eventIdToString")
+    @Mapping(target = "correlationId", ignore = true) // set by the command handler
+    @Mapping(target = "eventId", source = "id")
     @Mapping(target = "eventType", source = "eventType")
     @Mapping(target = "aggregateRootId", source = "aggregateId")
     @Mapping(target = "version", source = "version")
@@ -45,7 +47,7 @@ public interface ProductRegistryEventEntityMapper {
      * @param entity the ProductRegisteredEventEntity to be converted
      * @return a ProductRegistered business event object
      */
-    @Mapping(target = "id", source = "eventId", qualifiedByName = "toEventId")
+    @Mapping(target = "id", source = "eventId")
     @Mapping(target = "eventType", ignore = true)
     @Mapping(target = "aggregateId", source = "aggregateRootId")
     @Mapping(target = "version", source = "version")
@@ -60,7 +62,8 @@ public interface ProductRegistryEventEntityMapper {
      * @return a ProductUpdatedEventEntity for database storage
      */
     @Mapping(target = "id", ignore = true)
-    @Mapping(target = "eventId", source = "id", qualifiedByName = "eventIdToString")
+    @Mapping(target = "correlationId", ignore = true)
+    @Mapping(target = "eventId", source = "id")
     @Mapping(target = "eventType", source = "eventType")
     @Mapping(target = "aggregateRootId", source = "aggregateId")
     @Mapping(target = "version", source = "version")
@@ -74,7 +77,7 @@ public interface ProductRegistryEventEntityMapper {
      * @param entity the ProductUpdatedEventEntity to be converted
      * @return a ProductUpdated business event object
      */
-    @Mapping(target = "id", source = "eventId", qualifiedByName = "toEventId")
+    @Mapping(target = "id", source = "eventId")
     @Mapping(target = "eventType", ignore = true)
     @Mapping(target = "aggregateId", source = "aggregateRootId")
     @Mapping(target = "version", source = "version")
@@ -89,7 +92,8 @@ public interface ProductRegistryEventEntityMapper {
      * @return a ProductRemovedEventEntity for database storage
      */
     @Mapping(target = "id", ignore = true)
-    @Mapping(target = "eventId", source = "id", qualifiedByName = "eventIdToString")
+    @Mapping(target = "correlationId", ignore = true)
+    @Mapping(target = "eventId", source = "id")
     @Mapping(target = "eventType", source = "eventType")
     @Mapping(target = "aggregateRootId", source = "aggregateId")
     @Mapping(target = "version", source = "version")
@@ -103,11 +107,33 @@ public interface ProductRegistryEventEntityMapper {
      * @param entity the ProductRemovedEventEntity to be converted
      * @return a ProductRemoved business event object
      */
-    @Mapping(target = "id", source = "eventId", qualifiedByName = "toEventId")
+    @Mapping(target = "id", source = "eventId")
     @Mapping(target = "eventType", ignore = true)
     @Mapping(target = "aggregateId", source = "aggregateRootId")
     @Mapping(target = "version", source = "version")
     @Mapping(target = "timestamp", source = "timestamp")
     @Mapping(target = "payload", source = "payload", qualifiedByName = "productRemovedEventPayloadToEvent")
     ProductRemoved toEvent(ProductRemovedEventEntity entity);
+
+    /**
+     * Maps any product registry event entity from the database to its business event
+     *
+     * @param entity the event entity to be converted
+     * @return the business event object
+     * @throws IllegalArgumentException if the entity type is unknown
+     */
+    default ProductRegistryEvent toRegistryEvent(ProductRegistryEventEntity entity) {
+        return ProductRegistryEventEntityDispatchers.TO_EVENT.dispatch(this, entity.eventType, entity);
+    }
+
+    /**
+     * Maps any product registry business event to its database entity
+     *
+     * @param evt the event to be converted
+     * @return the event entity for database storage
+     * @throws IllegalArgumentException if the event type is unknown
+     */
+    default ProductRegistryEventEntity toRegistryEventEntity(ProductRegistryEvent evt) {
+        return ProductRegistryEventEntityDispatchers.TO_ENTITY.dispatch(this, evt);
+    }
 }
@@ -6,7 +6,6 @@ import org.mapstruct.Named;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
-import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.mapper.ProductIdMapper;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegisteredEventEntity;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRemovedEventEntity;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductUpdatedEventEntity;
@@ -16,7 +15,7 @@ import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.P
  * ProductUpdated.Payload, ProductRemoved.Payload) and their corresponding database entity payloads 
  * (ProductRegisteredEventEntity.Payload, ProductUpdatedEventEntity.Payload, ProductRemovedEventEntity.Payload)
  */
-@Mapper(uses = {ProductIdMapper.class})
+@Mapper
 public interface ProductRegistryEventPayloadMapper {
     /**
      * Maps the payload of a ProductRegistered business event to the corresponding database entity payload
@@ -25,7 +24,7 @@ public interface ProductRegistryEventPayloadMapper {
      * @return the corresponding ProductRegisteredEventEntity.Payload for database storage
      */
     @Named("productRegisteredEventPayloadToEntity")
-    @Mapping(target = "productId", source = "productId", qualifiedByName = "productIdToString")
+    @Mapping(target = "productId", source = "productId")
     @Mapping(target = "name", source = "name")
     @Mapping(target = "productDescription", source = "productDescription")
     public ProductRegisteredEventEntity.Payload toEntity(ProductRegistered.Payload eventPayload);
@@ -37,7 +36,7 @@ public interface ProductRegistryEventPayloadMapper {
      * @return the corresponding ProductRegistered.Payload event payload
      */
     @Named("productRegisteredEventPayloadToEvent")
-    @Mapping(target = "productId", source = "productId", qualifiedByName = "toProductId")
+    @Mapping(target = "productId", source = "productId")
     @Mapping(target = "name", source = "name")
     @Mapping(target = "productDescription", source = "productDescription")
     public ProductRegistered.Payload toEvent(ProductRegisteredEventEntity.Payload entityPayload);
@@ -49,7 +48,7 @@ public interface ProductRegistryEventPayloadMapper {
      * @return the corresponding ProductUpdatedEventEntity.Payload for database storage
      */
     @Named("productUpdatedEventEntityToEntity")
-    @Mapping(target = "productId", source = "productId", qualifiedByName = "productIdToString")
+    @Mapping(target = "productId", source = "productId")
     @Mapping(target = "name", source = "name")
     @Mapping(target = "productDescription", source = "productDescription")
     public ProductUpdatedEventEntity.Payload toDto(ProductUpdated.Payload eventPayload);
@@ -61,7 +60,7 @@ public interface ProductRegistryEventPayloadMapper {
      * @return the corresponding ProductUpdated.Payload event payload
      */
     @Named("productUpdatedEventPayloadToEvent")
-    @Mapping(target = "productId", source = "productId", qualifiedByName = "toProductId")
+    @Mapping(target = "productId", source = "productId")
     @Mapping(target = "name", source = "name")
     @Mapping(target = "productDescription", source = "productDescription")
     public ProductUpdated.Payload toEntity(ProductUpdatedEventEntity.Payload entityPayload);
@@ -73,7 +72,7 @@ public interface ProductRegistryEventPayloadMapper {
      * @return the corresponding ProductRemovedEventEntity.Payload for database storage
      */
     @Named("productRemovedEventPayloadToEntity")
-    @Mapping(target = "productId", source = "productId", qualifiedByName = "productIdToString")
+    @Mapping(target = "productId", source = "productId")
     public ProductRemovedEventEntity.Payload toEntity(ProductRemoved.Payload eventPayload);
 
     /**
@@ -83,6 +82,6 @@ public interface ProductRegistryEventPayloadMapper {
      * @return the corresponding ProductRemoved.Payload event payload
      */
     @Named("productRemovedEventPayloadToEvent")
-    @Mapping(target = "productId", source = "productId", qualifiedByName = "toProductId")
+    @Mapping(target = "productId", source = "productId")
     public ProductRemoved.Payload toEvent(ProductRemovedEventEntity.Payload entityPayload);
 }
@@ -0,0 +1,169 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.Product;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistrySnapshotEntity;
+
+/**
+ * Mapper between a product registry and its snapshot entity.
+ * 
+ * The products are stored in a compact binary format compressed with deflate:
+ * the product count, then for each product its id as two longs, its name and
+ * its description.
+ */
+public final class ProductRegistrySnapshotMapper {
+  /**
+   * Singleton instance of the mapper
+   */
+  public static final ProductRegistrySnapshotMapper INSTANCE = new ProductRegistrySnapshotMapper();
+
+  /**
+   * Current format of the snapshot state.
+   */
+  static final int FORMAT = 1;
+
+  /**
+   * Product id stored as the two longs of a canonical UUID.
+   */
+  private static final byte UUID_PRODUCT_ID = 0;
+
+  /**
+   * Product id stored as is, when it is not in canonical UUID form.
+   */
+  private static final byte STRING_PRODUCT_ID = 1;
+
+  private ProductRegistrySnapshotMapper() {
+  }
+
+  /**
+   * Maps the current state of a product registry to a snapshot entity
+   *
+   * @param registry the registry to snapshot
+   * @return a ProductRegistrySnapshotEntity for database storage
+   */
+  public ProductRegistrySnapshotEntity toEntity(ProductRegistry registry) {
+    return toEntity(registry.getId(), registry.getVersion(), List.copyOf(registry.getProducts()));
+  }
+
+  /**
+   * Maps a copy of the state of a product registry to a snapshot entity
+   *
+   * @implNote The products are encoded here, the copy can be taken by the writer
+   *           of the registry and encoded by another thread.
+   *
+   * @param registryId the aggregate root id of the registry
+   * @param version the version of the registry the products were copied at
+   * @param products the products of the registry at that version
+   * @return a ProductRegistrySnapshotEntity for database storage
+   */
+  public ProductRegistrySnapshotEntity toEntity(String registryId, long version, Collection<Product> products) {
+    final ProductRegistrySnapshotEntity entity = new ProductRegistrySnapshotEntity();
+    entity.aggregateRootId = registryId;
+    entity.version = version;
+    entity.timestamp = Instant.now().toEpochMilli();
+    entity.productCount = products.size();
+    entity.format = FORMAT;
+    entity.state = encode(products);
+    return entity;
+  }
+
+  /**
+   * Restores a product registry from a snapshot entity
+   *
+   * @param entity the snapshot to restore
+   * @param registry the registry to restore
+   */
+  public void restore(ProductRegistrySnapshotEntity entity, ProductRegistry registry) {
+    if (entity.format != FORMAT) {
+      throw new IllegalArgumentException("Unsupported product registry snapshot format: " + entity.format);
+    }
+    registry.restore(entity.version, decode(entity.state, entity.productCount));
+  }
+
+  private static byte[] encode(Collection<Product> products) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+      out.writeInt(products.size());
+      for (Product product : products) {
+        writeProductId(out, product.getProductId());
+        writeString(out, product.getName());
+        writeString(out, product.getProductDescription());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to encode product registry snapshot", e);
+    } finally {
+      deflater.end();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<Product> decode(byte[] state, int productCount) {
+    final List<Product> products = new ArrayList<>(productCount);
+    try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(state)))) {
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        final ProductId productId = readProductId(in);
+        products.add(new Product(productId, readString(in), readString(in)));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to decode product registry snapshot", e);
+    }
+    return products;
+  }
+
+  private static void writeProductId(DataOutputStream out, ProductId productId) throws IOException {
+    if (productId.isCanonical()) {
+      out.writeByte(UUID_PRODUCT_ID);
+      out.writeLong(productId.getMostSignificantBits());
+      out.writeLong(productId.getLeastSignificantBits());
+    } else {
+      out.writeByte(STRING_PRODUCT_ID);
+      writeString(out, productId.getId());
+    }
+  }
+
+  private static ProductId readProductId(DataInputStream in) throws IOException {
+    final byte kind = in.readByte();
+    if (kind == UUID_PRODUCT_ID) {
+      return ProductId.of(in.readLong(), in.readLong());
+    }
+    return ProductId.of(readString(in));
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(utf8.length);
+    out.write(utf8);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] utf8 = new byte[length];
+    in.readFully(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+}
@@ -1,5 +1,7 @@
 package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model;
 
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
 /**
  * Represents an entity for the "ProductRegistered" event.
  * This event is used to register a product in the product registry.
@@ -9,14 +11,14 @@ public class ProductRegisteredEventEntity extends ProductRegistryEventEntity {
     /**
      * The event type, used to identify that this is a "ProductRegistered" event.
      */
-    static final String EVENT_TYPE = "ProductRegistered";
+    public static final String EVENT_TYPE = "ProductRegistered";
 
     /**
      * Represents the payload of the "ProductRegistered" event.
      * Contains the specific details of the product being registered.
      */
     public record Payload(
-        String productId,
+        ProductId productId,
         String name,
         String productDescription
     ) {}
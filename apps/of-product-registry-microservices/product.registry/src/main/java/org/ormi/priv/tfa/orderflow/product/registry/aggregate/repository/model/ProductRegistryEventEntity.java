@@ -1,6 +1,7 @@
 package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model;
 
 import org.bson.types.ObjectId;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
 
 import io.quarkus.mongodb.panache.common.MongoEntity;
 
@@ -27,8 +28,9 @@ public abstract class ProductRegistryEventEntity {
     /**
      * The event ID, which is typically used to uniquely identify the event 
      * across different systems.
+     * Stored as a BSON UUID binary, see ProductRegistryCodecProvider.
      */
-    public String eventId;
+    public EventId eventId;
 
     /**
      * The event type, representing the kind of event this entity is related to.
@@ -54,6 +56,12 @@ public abstract class ProductRegistryEventEntity {
      */
     public long timestamp;
 
+    /**
+     * The correlation ID of the command that produced the event, used to
+     * recognize a redelivered command (null for events stored without one).
+     */
+    public String correlationId;
+
     /**
      * This abstract method is meant to be implemented by subclasses to define 
      * the specific event type.
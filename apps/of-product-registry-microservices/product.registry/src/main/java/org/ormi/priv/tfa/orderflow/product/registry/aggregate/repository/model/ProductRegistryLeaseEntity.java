@@ -0,0 +1,29 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model;
+
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+
+/**
+ * Represents the write lease of a product registry (partition).
+ * Leases are stored in a MongoDB collection named "product_registry_leases".
+ */
+@MongoEntity(collection = "product_registry_leases")
+public class ProductRegistryLeaseEntity {
+
+    /**
+     * The aggregate root ID of the leased registry.
+     */
+    @BsonId
+    public String id;
+
+    /**
+     * The ID of the instance holding the lease.
+     */
+    public String owner;
+
+    /**
+     * The timestamp after which the lease is expired and can be taken over.
+     */
+    public long expiresAt;
+}
@@ -0,0 +1,24 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model;
+
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+
+/**
+ * Represents the publication progress of the event stream of a product registry (partition).
+ * Checkpoints are stored in a MongoDB collection named "product_registry_outbox_checkpoints".
+ */
+@MongoEntity(collection = "product_registry_outbox_checkpoints")
+public class ProductRegistryOutboxCheckpointEntity {
+
+    /**
+     * The aggregate root ID of the registry.
+     */
+    @BsonId
+    public String id;
+
+    /**
+     * The version of the last event of the registry published to the event channel.
+     */
+    public long publishedVersion;
+}
@@ -0,0 +1,65 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model;
+
+import org.bson.types.ObjectId;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+
+/**
+ * Represents a snapshot of a product registry (partition) at a given version.
+ * Snapshots are stored in a MongoDB collection named "product_registry_snapshots".
+ * 
+ * @implNote The state of a large registry does not fit in a single document, it
+ *           is stored over several chunk documents of the same version, see
+ *           {@link org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistrySnapshotRepository}.
+ */
+@MongoEntity(collection = "product_registry_snapshots")
+public class ProductRegistrySnapshotEntity {
+
+    /**
+     * The unique identifier for this snapshot in the MongoDB collection.
+     * This ID is automatically generated by MongoDB when the entity is stored.
+     */
+    public ObjectId id;
+
+    /**
+     * The aggregate root ID of the snapshotted registry.
+     */
+    public String aggregateRootId;
+
+    /**
+     * The version of the registry when the snapshot was taken, i.e. the version
+     * of the last event applied to the registry.
+     */
+    public long version;
+
+    /**
+     * The timestamp indicating when the snapshot was taken.
+     */
+    public long timestamp;
+
+    /**
+     * The number of products in the snapshot.
+     */
+    public int productCount;
+
+    /**
+     * The format version of the state.
+     */
+    public int format;
+
+    /**
+     * The index of the chunk of the state held by this document.
+     */
+    public int chunk;
+
+    /**
+     * The number of chunk documents the state is stored over.
+     */
+    public int chunkCount;
+
+    /**
+     * The products of the registry in a compact, compressed binary format, or
+     * the chunk of them held by this document.
+     */
+    public byte[] state;
+}
@@ -1,5 +1,7 @@
 package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model;
 
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
 /**
  * Represents an entity for the "ProductRemoved" event.
  * This event is used to remove a product from the product registry.
@@ -9,14 +11,14 @@ public class ProductRemovedEventEntity extends ProductRegistryEventEntity {
   /**
    * The event type, used to identify that this is a "ProductRemoved" event.
    */
-  static final String EVENT_TYPE = "ProductRemoved";
+  public static final String EVENT_TYPE = "ProductRemoved";
 
   /**
      * Represents the payload of the "ProductRemoved" event.
      * Contains the specific details of the product being removed.
      */
     public record Payload(
-      String productId
+      ProductId productId
     ) {}
 
   /**
@@ -1,5 +1,7 @@
 package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model;
 
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
 /**
  * Represents an entity for the "ProductUpdated" event.
  * This event is used to update an existing product in the product registry.
@@ -9,14 +11,14 @@ public class ProductUpdatedEventEntity extends ProductRegistryEventEntity {
   /**
    * The event type, used to identify that this is a "ProductUpdated" event.
    */
-  static final String EVENT_TYPE = "ProductUpdated";
+  public static final String EVENT_TYPE = "ProductUpdated";
 
   /**
      * Represents the payload of the "ProductUpdated" event.
      * Contains the specific details of the product being updated.
      */
     public record Payload(
-        String productId,
+        ProductId productId,
         String name,
         String productDescription
     ) {}
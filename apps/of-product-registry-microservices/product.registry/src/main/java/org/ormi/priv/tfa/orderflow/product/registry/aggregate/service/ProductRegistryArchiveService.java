@@ -0,0 +1,286 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.RawBsonDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistryPartitions;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventArchive;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryLeaseRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryOutboxCheckpointRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistrySnapshotRepository;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Product registry archive service.
+ * Periodically moves the oldest events of each registry stream from the event
+ * collection to the archive, so that the collection only holds the recent tail
+ * of the streams.
+ *
+ * @implNote An event is archived once older than the retention and, when
+ *           snapshots are enabled, covered by the latest snapshot of its
+ *           registry, so loading a registry never reads the archive. With the
+ *           outbox mode, only published events are archived.
+ * @implNote Events are written to the archive before being deleted from the
+ *           collection, an event in both is read from the archive.
+ * @implNote A single instance archives a registry at a time, the one holding
+ *           the archive lease of the registry.
+ */
+@ApplicationScoped
+public class ProductRegistryArchiveService {
+
+  /**
+   * Product registry event repository to read and delete the archived events.
+   */
+  @Inject
+  private ProductRegistryEventRepository eventRepository;
+
+  /**
+   * Archive of the oldest events.
+   */
+  @Inject
+  private ProductRegistryEventArchive archive;
+
+  /**
+   * Snapshot repository to find the version covered by the latest snapshot.
+   */
+  @Inject
+  private ProductRegistrySnapshotRepository snapshotRepository;
+
+  /**
+   * Checkpoint repository to find the version published by the outbox relay.
+   */
+  @Inject
+  private ProductRegistryOutboxCheckpointRepository checkpointRepository;
+
+  /**
+   * Lease repository to elect the archiving instance of each registry.
+   */
+  @Inject
+  private ProductRegistryLeaseRepository leaseRepository;
+
+  /**
+   * Number of product registry partitions.
+   */
+  @ConfigProperty(name = "product.registry.partitions", defaultValue = "1")
+  private int partitionCount;
+
+  /**
+   * Whether registry snapshots are taken and restored.
+   */
+  @ConfigProperty(name = "product.registry.snapshot.enabled", defaultValue = "true")
+  private boolean snapshotEnabled;
+
+  /**
+   * Whether the events are published by the outbox relay.
+   */
+  @ConfigProperty(name = "product.registry.outbox.enabled", defaultValue = "false")
+  private boolean outboxEnabled;
+
+  /**
+   * Age after which an event may be archived.
+   */
+  @ConfigProperty(name = "product.registry.archive.retention", defaultValue = "1h")
+  private Duration retention;
+
+  /**
+   * Delay between two archive runs.
+   */
+  @ConfigProperty(name = "product.registry.archive.interval", defaultValue = "1m")
+  private Duration interval;
+
+  /**
+   * Maximum number of events moved at once.
+   */
+  @ConfigProperty(name = "product.registry.archive.batch-size", defaultValue = "10000")
+  private int batchSize;
+
+  /**
+   * Duration of the archive leases.
+   */
+  @ConfigProperty(name = "product.registry.archive.lease-duration", defaultValue = "5m")
+  private Duration leaseDuration;
+
+  /**
+   * Id of this instance as an archive lease owner.
+   */
+  private final String ownerId = UUID.randomUUID().toString();
+
+  /**
+   * Local renewal deadline ({@link System#nanoTime()}) of the archive leases held by this instance.
+   */
+  private final Map<String, Long> leaseRenewals = new ConcurrentHashMap<>();
+
+  /**
+   * Archiver thread.
+   */
+  private Thread archiver;
+
+  /**
+   * Whether the archiver is running.
+   */
+  private volatile boolean running;
+
+  /**
+   * Start the archiver on startup when the archive is enabled.
+   *
+   * @param event - the startup event
+   */
+  void onStart(@Observes StartupEvent event) {
+    if (!archive.isEnabled()) {
+      return;
+    }
+    running = true;
+    archiver = new Thread(this::run, "product-registry-archiver");
+    archiver.setDaemon(true);
+    archiver.start();
+  }
+
+  /**
+   * Stop the archiver and release its leases on shutdown.
+   *
+   * @param event - the shutdown event
+   */
+  void onStop(@Observes ShutdownEvent event) {
+    if (archiver == null) {
+      return;
+    }
+    running = false;
+    archiver.interrupt();
+    try {
+      archiver.join(interval.toMillis() + 1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    leaseRenewals.keySet().forEach(registryId -> leaseRepository.release(archiveLeaseId(registryId), ownerId));
+  }
+
+  /**
+   * Archiver loop.
+   */
+  private void run() {
+    while (running) {
+      for (int partition = 0; partition < partitionCount && running; partition++) {
+        final String registryId = ProductRegistryPartitions.registryIdOf(partition, partitionCount);
+        try {
+          archive(registryId);
+        } catch (RuntimeException e) {
+          // Resume from the archived version on the next run
+          Log.error(String.format("Failed to archive events of registry %s: %s", registryId, e.getMessage()));
+        }
+      }
+      try {
+        Thread.sleep(interval.toMillis());
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Move the archivable events of a registry to the archive.
+   *
+   * @param registryId - the registry aggregate root id
+   * @return the number of archived events
+   */
+  long archive(String registryId) {
+    if (!holdsLease(registryId)) {
+      return 0;
+    }
+    // Another instance may have archived the registry before this one took the lease
+    archive.refresh(registryId);
+    long archivedVersion = archive.getArchivedVersion(registryId);
+    // Delete the events left by an interrupted run
+    if (archivedVersion > 0) {
+      eventRepository.deleteEventsUpToVersion(registryId, archivedVersion);
+    }
+    final long maxVersion = archivableVersion(registryId);
+    final long maxTimestamp = Instant.now().minus(retention).toEpochMilli();
+    long archived = 0;
+    while (running && archivedVersion < maxVersion && holdsLease(registryId)) {
+      final List<RawBsonDocument> events = eventRepository.findRawEventsToArchive(registryId, archivedVersion,
+          maxVersion, maxTimestamp, batchSize);
+      // Only archive contiguous versions, a gap is an event not old enough yet
+      final List<RawBsonDocument> batch = new ArrayList<>(events.size());
+      for (RawBsonDocument event : events) {
+        if (ProductRegistryEventArchive.versionOf(event) != archivedVersion + batch.size() + 1) {
+          break;
+        }
+        batch.add(event);
+      }
+      if (batch.isEmpty()) {
+        break;
+      }
+      archive.archive(registryId, batch);
+      archivedVersion += batch.size();
+      eventRepository.deleteEventsUpToVersion(registryId, archivedVersion);
+      archived += batch.size();
+    }
+    if (archived > 0) {
+      Log.info(String.format("Archived %d events of registry %s up to version %d", archived, registryId,
+          archivedVersion));
+    }
+    return archived;
+  }
+
+  /**
+   * Get the highest version of a registry that may be archived.
+   *
+   * @param registryId - the registry aggregate root id
+   * @return the highest archivable version
+   */
+  private long archivableVersion(String registryId) {
+    long maxVersion = Long.MAX_VALUE;
+    if (snapshotEnabled) {
+      maxVersion = snapshotRepository.findLatestSnapshotVersion(registryId);
+    }
+    if (outboxEnabled) {
+      maxVersion = Math.min(maxVersion, checkpointRepository.findPublishedVersion(registryId));
+    }
+    return maxVersion;
+  }
+
+  /**
+   * Check if this instance holds the archive lease of a registry, acquiring or
+   * renewing it when needed.
+   *
+   * @param registryId - the registry aggregate root id
+   * @return true if this instance is the archiver of the registry
+   */
+  private boolean holdsLease(String registryId) {
+    final long now = System.nanoTime();
+    final Long renewal = leaseRenewals.get(registryId);
+    if (renewal != null && now - renewal < 0) {
+      return true;
+    }
+    if (leaseRepository.tryAcquire(archiveLeaseId(registryId), ownerId, leaseDuration)) {
+      leaseRenewals.put(registryId, now + leaseDuration.toNanos() / 2);
+      return true;
+    }
+    leaseRenewals.remove(registryId);
+    return false;
+  }
+
+  /**
+   * Get the id of the archive lease of a registry.
+   *
+   * @param registryId - the registry aggregate root id
+   * @return the archive lease id
+   */
+  private static String archiveLeaseId(String registryId) {
+    return "archive:" + registryId;
+  }
+}
@@ -0,0 +1,127 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryLeaseRepository;
+
+import io.quarkus.logging.Log;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Product registry ownership service to decide whether the in-memory registry
+ * state can be trusted without catching up with the event store.
+ * 
+ * @implNote In {@link Mode#LEASE} mode, the instance holding the lease of a
+ *           registry is its single writer. It only catches up when it acquires
+ *           the lease or after a failed command.
+ * @implNote Lease expiration relies on the clocks of the instances being
+ *           synchronized within a small fraction of the lease duration.
+ */
+@ApplicationScoped
+public class ProductRegistryOwnershipService {
+
+  /**
+   * Registry ownership mode.
+   */
+  public enum Mode {
+    /**
+     * Any instance may write, the registry is caught up before every command.
+     */
+    SHARED,
+    /**
+     * The instance holding the lease of a registry trusts its in-memory state.
+     */
+    LEASE
+  }
+
+  /**
+   * Product registry lease repository to acquire and release leases.
+   */
+  @Inject
+  private ProductRegistryLeaseRepository leaseRepository;
+
+  /**
+   * Registry ownership mode.
+   */
+  @ConfigProperty(name = "product.registry.ownership.mode", defaultValue = "SHARED")
+  private Mode mode;
+
+  /**
+   * Duration of the registry leases, renewed after half of it.
+   */
+  @ConfigProperty(name = "product.registry.ownership.lease-duration", defaultValue = "30s")
+  private Duration leaseDuration;
+
+  /**
+   * Id of this instance as a lease owner.
+   */
+  private final String ownerId = UUID.randomUUID().toString();
+
+  /**
+   * Local deadline ({@link System#nanoTime()}) of the leases held by this instance.
+   * 
+   * @implNote The deadline is computed from the time the lease was requested, so
+   *           it never outlives the lease stored in the database.
+   */
+  private final Map<String, Long> leaseDeadlines = new ConcurrentHashMap<>();
+
+  /**
+   * Check if the in-memory state of a registry is current, acquiring or renewing
+   * its lease when needed.
+   * 
+   * @param registryId - The registry aggregate root id.
+   * @return true if this instance continuously held the lease since the registry
+   *         was last caught up, false if the registry must be caught up.
+   */
+  public boolean isCurrent(String registryId) {
+    if (mode != Mode.LEASE) {
+      return false;
+    }
+    final long leaseNanos = leaseDuration.toNanos();
+    final long now = System.nanoTime();
+    final Long deadline = leaseDeadlines.get(registryId);
+    // Held and not yet due for renewal
+    if (deadline != null && now - (deadline - leaseNanos / 2) < 0) {
+      return true;
+    }
+    final boolean held = deadline != null && now - deadline < 0;
+    if (leaseRepository.tryAcquire(registryId, ownerId, leaseDuration)) {
+      leaseDeadlines.put(registryId, now + leaseNanos);
+      if (!held) {
+        Log.info(String.format("Acquired lease of registry %s", registryId));
+      }
+      // Renewed without gap, nobody else could write meanwhile
+      return held;
+    }
+    leaseDeadlines.remove(registryId);
+    if (deadline != null) {
+      Log.warn(String.format("Lost lease of registry %s", registryId));
+    }
+    return false;
+  }
+
+  /**
+   * Invalidate the in-memory state of a registry, e.g. after a failed command
+   * or a version conflict, so that it is caught up before the next command.
+   * 
+   * @param registryId - The registry aggregate root id.
+   */
+  public void invalidate(String registryId) {
+    leaseDeadlines.remove(registryId);
+  }
+
+  /**
+   * Release the leases held by this instance on shutdown.
+   */
+  @PreDestroy
+  void releaseAll() {
+    leaseDeadlines.keySet().forEach(registryId -> leaseRepository.release(registryId, ownerId));
+    leaseDeadlines.clear();
+  }
+}
@@ -1,26 +1,60 @@
 package org.ormi.priv.tfa.orderflow.product.registry.aggregate.service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.bson.RawBsonDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 
 import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.snapshot.SnapshotPolicy;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.EventStoreConcurrencyException;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.GroupCommitEventAppender;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.ParallelEventReplayer;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProducts;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryBatchResult;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
-import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.Product;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistrySnapshotRepository;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper.ProductRegistryEventEntityMapper;
-import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegisteredEventEntity;
-import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRemovedEventEntity;
-import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductUpdatedEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper.ProductRegistrySnapshotMapper;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistrySnapshotEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics.Stage;
 import org.ormi.priv.tfa.orderflow.product.registry.service.producer.ProductRegistryEventEmitter;
 
-import io.quarkus.logging.Log;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.context.Context;
 import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -30,7 +64,11 @@ import jakarta.transaction.Transactional;
  */
 @ApplicationScoped
 public class ProductRegistryService {
-  private static final String PRODUCT_REGISTRY_ID = "GLOBAL_REGISTRY";
+
+  /**
+   * Logger of the class, usable outside of the application (benchmarks).
+   */
+  private static final Logger LOG = Logger.getLogger(ProductRegistryService.class);
 
   /**
    * Product registry repository to interact with the persistance layer.
@@ -44,46 +82,442 @@ public class ProductRegistryService {
   @Inject
   private ProductRegistryEventEmitter eventEmitter;
 
+  /**
+   * Product registry snapshot repository to save and restore registry snapshots.
+   */
+  @Inject
+  private ProductRegistrySnapshotRepository snapshotRepository;
+
+  /**
+   * Latency metrics of the command handling stages.
+   */
+  @Inject
+  private ProductRegistryCommandMetrics metrics;
+
+  /**
+   * Whether registry snapshots are taken and restored.
+   */
+  @ConfigProperty(name = "product.registry.snapshot.enabled", defaultValue = "true")
+  private boolean snapshotEnabled;
+
+  /**
+   * Number of events between two registry snapshots.
+   */
+  @ConfigProperty(name = "product.registry.snapshot.every-events", defaultValue = "1000")
+  private long snapshotEveryEvents;
+
+  /**
+   * Time between two registry snapshots, if events were applied meanwhile.
+   */
+  @ConfigProperty(name = "product.registry.snapshot.every", defaultValue = "5m")
+  private Duration snapshotEvery;
+
+  /**
+   * Version and timestamp of the latest snapshot taken or restored for each registry.
+   */
+  private final Map<String, SnapshotMark> latestSnapshots = new ConcurrentHashMap<>();
+
+  /**
+   * Registries whose snapshot is being saved.
+   */
+  private final Set<String> snapshotsInProgress = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Executor of the snapshot thread, encoding and saving the snapshots off the command path.
+   */
+  private ExecutorService snapshotExecutor;
+
+  /**
+   * Policy deciding when a registry is due for a snapshot.
+   */
+  private SnapshotPolicy snapshotPolicy;
+
+  /**
+   * Whether events are appended in batches (group commit).
+   */
+  @ConfigProperty(name = "product.registry.event-store.group-commit.enabled", defaultValue = "false")
+  private boolean groupCommitEnabled;
+
+  /**
+   * Time to wait for more events after the first event of a batch.
+   */
+  @ConfigProperty(name = "product.registry.event-store.group-commit.window", defaultValue = "2ms")
+  private Duration groupCommitWindow;
+
+  /**
+   * Maximum number of events in a batch.
+   */
+  @ConfigProperty(name = "product.registry.event-store.group-commit.max-batch-size", defaultValue = "256")
+  private int groupCommitMaxBatchSize;
+
+  /**
+   * Number of threads decoding events on replay, 0 for the number of available processors.
+   */
+  @ConfigProperty(name = "product.registry.replay.parallelism", defaultValue = "0")
+  private int replayParallelism;
+
+  /**
+   * Number of events decoded by a replay thread at once.
+   */
+  @ConfigProperty(name = "product.registry.replay.chunk-size", defaultValue = "256")
+  private int replayChunkSize;
+
+  /**
+   * Executor of the replay decoding threads.
+   */
+  private ExecutorService replayExecutor;
+
+  /**
+   * Replayer decoding events in parallel and applying them in order.
+   */
+  private ParallelEventReplayer replayer;
+
+  /**
+   * Whether the events are published by the outbox relay instead of the command handlers.
+   */
+  @ConfigProperty(name = "product.registry.outbox.enabled", defaultValue = "false")
+  private boolean outboxEnabled;
+
+  /**
+   * Whether commands are handled by the single writer command pipeline.
+   */
+  @ConfigProperty(name = "product.registry.command-pipeline.enabled", defaultValue = "false")
+  private boolean commandPipelineEnabled;
+
+  /**
+   * Event appender of the command pipeline, batching the events with group commit,
+   * null without the command pipeline.
+   */
+  private GroupCommitEventAppender<ProductRegistryEventEntity> eventAppender;
+
+  /**
+   * Completion of the last event appended by the appender to each registry stream.
+   */
+  private final Map<String, CompletableFuture<Void>> pendingAppends = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor of the container.
+   */
+  ProductRegistryService() {
+  }
+
+  /**
+   * Constructor outside of the container, without snapshots, group commit nor
+   * outbox. {@link #init()} must be called before use and {@link #close()} after.
+   *
+   * @param productRegistryRepository - the event repository
+   * @param eventEmitter - the event emitter
+   * @param metrics - the stage metrics
+   * @param snapshotEveryEvents - the number of events between two snapshots
+   * @param snapshotEvery - the time between two snapshots
+   * @param replayParallelism - the number of decoding threads on replay, 0 for the number of processors
+   * @param replayChunkSize - the number of events decoded by a replay thread at once
+   */
+  ProductRegistryService(ProductRegistryEventRepository productRegistryRepository,
+      ProductRegistryEventEmitter eventEmitter, ProductRegistryCommandMetrics metrics, long snapshotEveryEvents,
+      Duration snapshotEvery, int replayParallelism, int replayChunkSize) {
+    this.productRegistryRepository = productRegistryRepository;
+    this.eventEmitter = eventEmitter;
+    this.metrics = metrics;
+    this.snapshotEveryEvents = snapshotEveryEvents;
+    this.snapshotEvery = snapshotEvery;
+    this.replayParallelism = replayParallelism;
+    this.replayChunkSize = replayChunkSize;
+  }
+
+  /**
+   * Initialize the snapshot policy, the replayer and the event appender from the configuration.
+   */
+  @PostConstruct
+  void init() {
+    snapshotPolicy = new SnapshotPolicy(snapshotEveryEvents, snapshotEvery);
+    final int parallelism = replayParallelism > 0 ? replayParallelism : Runtime.getRuntime().availableProcessors();
+    final AtomicInteger replayThreads = new AtomicInteger();
+    replayExecutor = Executors.newFixedThreadPool(parallelism, task -> {
+      final Thread thread = new Thread(task, "product-registry-replay-" + replayThreads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    replayer = new ParallelEventReplayer(replayExecutor, parallelism, replayChunkSize);
+    if (snapshotEnabled) {
+      snapshotExecutor = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = new Thread(task, "product-registry-snapshot");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    if (commandPipelineEnabled) {
+      // Without group commit, the events are saved one at a time, still without blocking the pipeline
+      eventAppender = new GroupCommitEventAppender<>(productRegistryRepository, entity -> entity.aggregateRootId,
+          entity -> entity.version, groupCommitEnabled ? groupCommitWindow : Duration.ZERO,
+          groupCommitEnabled ? groupCommitMaxBatchSize : 1);
+      metrics.observe(eventAppender);
+    } else if (groupCommitEnabled) {
+      LOG.warn("Group commit is only used with the command pipeline, events are appended one command at a time");
+    }
+  }
+
+  /**
+   * Save the pending events on shutdown.
+   */
+  @PreDestroy
+  void close() {
+    replayExecutor.shutdownNow();
+    if (snapshotExecutor != null) {
+      snapshotExecutor.shutdown();
+    }
+    if (eventAppender != null) {
+      eventAppender.close();
+    }
+  }
+
+  /**
+   * Save an event to the event store and apply it to the registry.
+   * 
+   * @implNote The event is appended after the version of the registry it was
+   *           decided on, and applied once appended.
+   * @implNote With the command pipeline, the event is applied before it is saved:
+   *           its version is reserved so that the next commands are decided on it
+   *           while the appender writer thread saves it, together with them with
+   *           group commit, outside of the command transaction. An event failing to be saved
+   *           fails the events decided on it and leaves the registry stale, see
+   *           {@link #reloadProductRegistry(ProductRegistry)}.
+   * 
+   * @param registry - The registry the event was decided on.
+   * @param evt - The event to save.
+   * @param correlationId - The correlation id of the command, to find the event back on redelivery.
+   * @return a Uni completed once the event is durable, or failed with an
+   *         {@link EventStoreConcurrencyException} if another writer appended first.
+   */
+  private Uni<Void> saveEvent(ProductRegistry registry, ProductRegistryEvent evt, String correlationId) {
+    final ProductRegistryEventEntity entity = ProductRegistryEventEntityMapper.INSTANCE.toRegistryEventEntity(evt);
+    final Timer.Sample saving = metrics.start();
+    return appendEvent(registry, evt, entity, correlationId)
+        .onItem().invoke(() -> metrics.stop(saving, Stage.SAVE_EVENT, entity.eventType))
+        .onFailure().invoke(() -> metrics.failure(Stage.SAVE_EVENT, entity.eventType));
+  }
+
+  /**
+   * Append an event to the event store, see {@link #saveEvent(ProductRegistry, ProductRegistryEvent, String)}.
+   */
+  private Uni<Void> appendEvent(ProductRegistry registry, ProductRegistryEvent evt, ProductRegistryEventEntity entity,
+      String correlationId) {
+    entity.correlationId = correlationId;
+    if (eventAppender == null) {
+      try {
+        productRegistryRepository.append(entity.aggregateRootId, entity.version - 1, List.of(entity));
+      } catch (RuntimeException e) {
+        return Uni.createFrom().failure(e);
+      }
+      registry.apply(evt);
+      return Uni.createFrom().voidItem();
+    }
+    // Reserve the version of the event for the next commands
+    registry.apply(evt);
+    final CompletableFuture<Void> previous = pendingAppends.get(registry.getId());
+    final CompletableFuture<Void> appended = eventAppender.append(entity, previous)
+        .whenComplete((ignored, e) -> {
+          // The events decided on a failed event fail after it, the registry is only reloaded once
+          if (e != null && (previous == null || !previous.isCompletedExceptionally())) {
+            LOG.warn(String.format("Event %d of registry %s failed to be saved, reloading the registry",
+                entity.version, registry.getId()));
+            registry.markStale();
+          }
+        });
+    pendingAppends.put(registry.getId(), appended);
+    return Uni.createFrom().completionStage(appended);
+  }
+
+  /**
+   * Wait for the events of a registry being saved by the appender.
+   * 
+   * @param registry - The registry.
+   * @throws EventStoreConcurrencyException if an event failed to be saved.
+   */
+  private void awaitPendingAppends(ProductRegistry registry) {
+    final CompletableFuture<Void> pending = pendingAppends.get(registry.getId());
+    if (pending == null) {
+      return;
+    }
+    try {
+      pending.join();
+    } catch (CompletionException e) {
+      throw new EventStoreConcurrencyException(registry.getId(), registry.getVersion(), e.getCause());
+    }
+  }
+
+  /**
+   * Publish a saved event to the event channel, unless the outbox relay publishes it.
+   * 
+   * @param evt - The saved event.
+   */
+  private void publish(ProductRegistryEvent evt) {
+    if (!outboxEnabled) {
+      eventEmitter.emit(evt);
+    }
+  }
+
+  /**
+   * Find the events produced by a command from its correlation id.
+   * 
+   * @param correlationId - The correlation id of the command.
+   * @return The events produced by the command in order, empty if it produced none.
+   */
+  public List<ProductRegistryEvent> findEventsByCorrelationId(String correlationId) {
+    return productRegistryRepository.findEventsByCorrelationId(correlationId).stream()
+        .map(ProductRegistryEventEntityMapper.INSTANCE::toRegistryEvent)
+        .toList();
+  }
+
+  /**
+   * Find the aggregate root ids of the registry streams held by the event store.
+   * 
+   * @return The aggregate root ids of the registries with events.
+   */
+  public Set<String> findRegistryIds() {
+    return productRegistryRepository.findAggregateRootIds();
+  }
+
   /**
    * Load the product registry from the event store.
    * 
-   * This method will load all events from the event store and apply them to the
-   * product registry starting from the last known version.
+   * This method will stream all events from the event store and apply them to the
+   * product registry starting from the last known version. The events are decoded
+   * by a pool of threads and applied in version order.
+   * Only the event stream of the registry (partition) is replayed.
+   * 
+   * @implNote A registry that has never been loaded is first restored from its
+   *           latest snapshot, so only the events that follow it are replayed.
+   * @implNote Snapshots are taken once the registry is caught up with the
+   *           committed events of the store, see {@link #snapshotIfDue(ProductRegistry)}.
    * 
    * @return The product registry.
    */
   public ProductRegistry loadProductRegistry(ProductRegistry registry) {
-    productRegistryRepository.findEventsByAggregateRootIdAndStartingVersion(PRODUCT_REGISTRY_ID, registry.getVersion())
-        .stream()
-        .<ProductRegistryEvent>map(evtEntity -> {
-          if (evtEntity instanceof ProductRegisteredEventEntity) {
-            return (ProductRegistryEvent) ProductRegistryEventEntityMapper.INSTANCE
-                .toEvent((ProductRegisteredEventEntity) evtEntity);
-          } else if (evtEntity instanceof ProductUpdatedEventEntity) {
-            return (ProductRegistryEvent) ProductRegistryEventEntityMapper.INSTANCE
-                .toEvent((ProductUpdatedEventEntity) evtEntity);
-          } else if (evtEntity instanceof ProductRemovedEventEntity) {
-            return (ProductRegistryEvent) ProductRegistryEventEntityMapper.INSTANCE
-                .toEvent((ProductRemovedEventEntity) evtEntity);
-          }
-          throw new IllegalArgumentException("Unknown event type: " + evtEntity.getClass());
-        })
-        .forEach(registry::apply); // Apply the events to the registry
+    if (snapshotEnabled && registry.getVersion() == 0) {
+      snapshotRepository.findLatestSnapshotByAggregateRootId(registry.getId())
+          .ifPresent(snapshot -> {
+            LOG.debug(String.format("Restoring registry %s from snapshot at version %d", registry.getId(),
+                snapshot.version));
+            ProductRegistrySnapshotMapper.INSTANCE.restore(snapshot, registry);
+            latestSnapshots.put(registry.getId(), new SnapshotMark(snapshot.version, snapshot.timestamp));
+          });
+    }
+    final Function<RawBsonDocument, ProductRegistryEvent> decoder = rawEvent -> ProductRegistryEventEntityMapper.INSTANCE
+        .toRegistryEvent(productRegistryRepository.decode(rawEvent));
+    final ParallelEventReplayer.Result result;
+    try (Stream<RawBsonDocument> events = productRegistryRepository
+        .streamRawEventsByAggregateRootIdAndStartingVersion(registry.getId(), registry.getVersion())) {
+      // Decode the events in parallel and apply them to the registry in order
+      result = replayer.replay(events, decoder, registry::apply);
+    }
+    if (result.eventCount() >= replayChunkSize) {
+      LOG.info(String.format("Replayed %d events of registry %s in %d ms (%.0f events/s)", result.eventCount(),
+          registry.getId(), result.elapsedNanos() / 1_000_000, result.eventsPerSecond()));
+    }
+    snapshotIfDue(registry);
     return registry;
   }
 
+  /**
+   * Reload a stale registry, holding events that failed to be saved, from its
+   * latest snapshot and the event store.
+   * 
+   * @param registry - The stale registry.
+   * @return The product registry.
+   */
+  public ProductRegistry reloadProductRegistry(ProductRegistry registry) {
+    LOG.info(String.format("Reloading registry %s from version %d", registry.getId(), registry.getVersion()));
+    // The events decided on the failed ones fail after them, the next ones follow the store
+    pendingAppends.remove(registry.getId());
+    registry.restore(0, List.of());
+    return loadProductRegistry(registry);
+  }
+
+  /**
+   * Take a snapshot of the registry if it is due according to the snapshot policy.
+   * 
+   * @implNote A registry holding events not saved yet is not snapshotted.
+   * @implNote Only the products are copied here, by the writer of the registry.
+   *           The copy is encoded and saved by the snapshot thread, outside of the
+   *           command transaction: a failed snapshot is logged and does not fail
+   *           the command, the next one is taken after the interval of the policy.
+   * 
+   * @param registry - The registry to snapshot.
+   */
+  public void snapshotIfDue(ProductRegistry registry) {
+    final CompletableFuture<Void> pending = pendingAppends.get(registry.getId());
+    if (!snapshotEnabled || registry.isStale() || pending != null && !pending.isDone()
+        || snapshotsInProgress.contains(registry.getId())) {
+      return;
+    }
+    final SnapshotMark latest = latestSnapshots.get(registry.getId());
+    final long latestVersion = latest == null ? 0 : latest.version();
+    final long latestTimestamp = latest == null ? 0 : latest.timestamp();
+    if (!snapshotPolicy.isDue(latestVersion, latestTimestamp, registry.getVersion(), Instant.now().toEpochMilli())) {
+      return;
+    }
+    final String registryId = registry.getId();
+    final long version = registry.getVersion();
+    final List<Product> products = List.copyOf(registry.getProducts());
+    snapshotsInProgress.add(registryId);
+    try {
+      snapshotExecutor.execute(() -> saveSnapshot(registryId, version, products));
+    } catch (RejectedExecutionException e) {
+      // Shutting down
+      snapshotsInProgress.remove(registryId);
+    }
+  }
+
+  /**
+   * Encode and save a snapshot, on the snapshot thread.
+   * 
+   * @param registryId - The aggregate root id of the registry.
+   * @param version - The version of the registry the products were copied at.
+   * @param products - The products of the registry at that version.
+   */
+  private void saveSnapshot(String registryId, long version, List<Product> products) {
+    try {
+      final ProductRegistrySnapshotEntity snapshot = ProductRegistrySnapshotMapper.INSTANCE
+          .toEntity(registryId, version, products);
+      snapshotRepository.saveSnapshot(snapshot);
+      latestSnapshots.put(registryId, new SnapshotMark(snapshot.version, snapshot.timestamp));
+      LOG.debug(String.format("Saved snapshot of registry %s at version %d (%d products, %d bytes)", registryId,
+          snapshot.version, snapshot.productCount, snapshot.state.length));
+    } catch (RuntimeException e) {
+      LOG.error(String.format("Failed to save snapshot of registry %s at version %d", registryId, version), e);
+      // Retry after the interval of the policy rather than on the next command
+      latestSnapshots.put(registryId, new SnapshotMark(version, Instant.now().toEpochMilli()));
+    } finally {
+      snapshotsInProgress.remove(registryId);
+    }
+  }
+
+  /**
+   * Version and timestamp of a snapshot, deciding when the next one is due.
+   * 
+   * @param version - The version of the registry in the snapshot.
+   * @param timestamp - When the snapshot was taken, in epoch milliseconds.
+   */
+  private record SnapshotMark(long version, long timestamp) {
+  }
+
   /**
    * Handle the register command, save and return an event.
    * 
    * @param registerProduct - The register product command.
+   * @param correlationId - The correlation id of the command (can be null).
    * @return The product registered event.
    */
   @Transactional(Transactional.TxType.MANDATORY)
-  public Uni<ProductRegistered> registerProduct(ProductRegistry registry, RegisterProduct registerProduct) {
-    Log.debug("Registering product: " + registerProduct);
+  public Uni<ProductRegistered> registerProduct(ProductRegistry registry, RegisterProduct registerProduct,
+      String correlationId) {
+    LOG.debug("Registering product: " + registerProduct);
+    final Timer.Sample validation = metrics.start();
 
     // Check if the product name is available
     if (!registry.isProductNameAvailable(registerProduct.getName())) {
+      metrics.failure(Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(registerProduct));
       return Uni.createFrom()
           .failure(new IllegalArgumentException("Product name already in use: " + registerProduct.getName()));
     }
@@ -91,39 +525,43 @@ public class ProductRegistryService {
     // Create and save the event
     final ProductRegistered evt = new ProductRegistered(
         new EventId(),
-        PRODUCT_REGISTRY_ID,
-        registry.incrementVersion(),
+        registry.getId(),
+        registry.getVersion() + 1,
         Instant.now().toEpochMilli(),
         new ProductRegistered.Payload(
-            new ProductId(),
+            registry.newProductId(),
             registerProduct.getName(),
             registerProduct.getProductDescription()));
-    productRegistryRepository.saveEvent(ProductRegistryEventEntityMapper.INSTANCE.toEntity(evt));
-
-    // Emit the event
-    eventEmitter.emit(evt);
-
-    return Uni.createFrom().item(evt);
+    metrics.stop(validation, Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(registerProduct));
+    return saveEvent(registry, evt, correlationId)
+        // Emit the event once saved, in the span of the command
+        .invoke(Context.current().wrap(() -> publish(evt)))
+        .replaceWith(evt);
   }
 
   /**
    * Handle the update command, save and return an event.
    * 
    * @param updateProduct - The update product command.
+   * @param correlationId - The correlation id of the command (can be null).
    * @return The product updated event.
    */
   @Transactional(Transactional.TxType.MANDATORY)
-  public Uni<ProductUpdated> updateProduct(ProductRegistry registry, UpdateProduct updateProduct) {
-    Log.debug("Updating product: " + updateProduct);
+  public Uni<ProductUpdated> updateProduct(ProductRegistry registry, UpdateProduct updateProduct,
+      String correlationId) {
+    LOG.debug("Updating product: " + updateProduct);
+    final Timer.Sample validation = metrics.start();
 
     // Check if the product exists in the registry
     if (!registry.hasProductWithId(updateProduct.getProductId())) {
+      metrics.failure(Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(updateProduct));
       return Uni.createFrom()
           .failure(new IllegalArgumentException("Product not found: " + updateProduct.getProductId()));
     }
 
     // Check if the updated product name is available
     if (!registry.isProductNameAvailable(updateProduct.getName())) {
+      metrics.failure(Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(updateProduct));
       return Uni.createFrom()
           .failure(new IllegalArgumentException("Product name already in use: " + updateProduct.getName()));
     }
@@ -131,33 +569,36 @@ public class ProductRegistryService {
     // Create and save the event
     final ProductUpdated evt = new ProductUpdated(
         new EventId(),
-        PRODUCT_REGISTRY_ID,
-        registry.incrementVersion(),
+        registry.getId(),
+        registry.getVersion() + 1,
         Instant.now().toEpochMilli(),
         new ProductUpdated.Payload(
             updateProduct.getProductId(),
             updateProduct.getName(),
             updateProduct.getProductDescription()));
-    productRegistryRepository.saveEvent(ProductRegistryEventEntityMapper.INSTANCE.toEntity(evt));
-
-    // Emit the event
-    eventEmitter.emit(evt);
-
-    return Uni.createFrom().item(evt);
+    metrics.stop(validation, Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(updateProduct));
+    return saveEvent(registry, evt, correlationId)
+        // Emit the event once saved, in the span of the command
+        .invoke(Context.current().wrap(() -> publish(evt)))
+        .replaceWith(evt);
   }
 
   /**
    * Handle the remove command, save and return an event.
    * 
    * @param removeProduct - The remove product command.
+   * @param correlationId - The correlation id of the command (can be null).
    * @return The product removed event.
    */
   @Transactional(Transactional.TxType.MANDATORY)
-  public Uni<ProductRemoved> removeProduct(ProductRegistry registry, RemoveProduct removeProduct) {
-    Log.debug("Removing product: " + removeProduct);
+  public Uni<ProductRemoved> removeProduct(ProductRegistry registry, RemoveProduct removeProduct,
+      String correlationId) {
+    LOG.debug("Removing product: " + removeProduct);
+    final Timer.Sample validation = metrics.start();
 
     // Check if the product exists
     if (!registry.hasProductWithId(removeProduct.getProductId())) {
+      metrics.failure(Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(removeProduct));
       return Uni.createFrom()
           .failure(new IllegalArgumentException("Product not found: " + removeProduct.getProductId()));
     }
@@ -165,15 +606,163 @@ public class ProductRegistryService {
     // Create and save the event
     final ProductRemoved evt = new ProductRemoved(
         new EventId(),
-        PRODUCT_REGISTRY_ID,
-        registry.incrementVersion(),
+        registry.getId(),
+        registry.getVersion() + 1,
         Instant.now().toEpochMilli(),
           new ProductRemoved.Payload(removeProduct.getProductId()));
-    productRegistryRepository.saveEvent(ProductRegistryEventEntityMapper.INSTANCE.toEntity(evt));
+    metrics.stop(validation, Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(removeProduct));
+    return saveEvent(registry, evt, correlationId)
+        // Emit the event once saved, in the span of the command
+        .invoke(Context.current().wrap(() -> publish(evt)))
+        .replaceWith(evt);
+  }
 
-    // Emit the event
-    eventEmitter.emit(evt);
+  /**
+   * Handle the batch register command, save and return the batch result.
+   * 
+   * Each product is validated against the registry and against the products
+   * registered before it in the batch.
+   * 
+   * @param registerProducts - The batch register products command.
+   * @param correlationId - The correlation id of the command (can be null).
+   * @return The batch result, with the product registered events if every product is valid.
+   */
+  @Transactional(Transactional.TxType.MANDATORY)
+  public Uni<ProductRegistryBatchResult> registerProducts(ProductRegistry registry, RegisterProducts registerProducts,
+      String correlationId) {
+    LOG.debug("Registering products: " + registerProducts);
+    final Timer.Sample validation = metrics.start();
+
+    final long timestamp = Instant.now().toEpochMilli();
+    final List<ProductRegistryEvent> events = new ArrayList<>(registerProducts.getProducts().size());
+    final List<String> errors = new ArrayList<>(registerProducts.getProducts().size());
+    final Set<String> batchNames = new HashSet<>();
+    for (RegisterProduct registerProduct : registerProducts.getProducts()) {
+      // Check if the product name is available, including among the products of the batch
+      if (!registry.isProductNameAvailable(registerProduct.getName())
+          || !batchNames.add(registry.normalizeName(registerProduct.getName()))) {
+        errors.add("Product name already in use: " + registerProduct.getName());
+        continue;
+      }
+      errors.add(null);
+      events.add(new ProductRegistered(
+          new EventId(),
+          registry.getId(),
+          registry.getVersion() + events.size() + 1,
+          timestamp,
+          new ProductRegistered.Payload(
+              registry.newProductId(),
+              registerProduct.getName(),
+              registerProduct.getProductDescription())));
+    }
+    metrics.stop(validation, Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(registerProducts));
+    return saveBatch(Map.of(registry, events), events, errors, correlationId,
+        ProductRegistryCommandMetrics.typeOf(registerProducts));
+  }
+
+  /**
+   * Handle the batch update command, save and return the batch result.
+   * 
+   * Each update is validated against the registry and against the updates
+   * before it in the batch.
+   * 
+   * @implNote Each update is appended to the stream of the partition owning its
+   *           product, the batch is appended to every stream it spans in the
+   *           transaction of the command.
+   * 
+   * @param updateProducts - The batch update products command.
+   * @param correlationId - The correlation id of the command (can be null).
+   * @return The batch result, with the product updated events if every update is valid.
+   */
+  @Transactional(Transactional.TxType.MANDATORY)
+  public Uni<ProductRegistryBatchResult> updateProducts(ProductRegistry registry, UpdateProducts updateProducts,
+      String correlationId) {
+    LOG.debug("Updating products: " + updateProducts);
+    final Timer.Sample validation = metrics.start();
+
+    final long timestamp = Instant.now().toEpochMilli();
+    final List<ProductRegistryEvent> events = new ArrayList<>(updateProducts.getProducts().size());
+    final List<String> errors = new ArrayList<>(updateProducts.getProducts().size());
+    final Set<String> batchNames = new HashSet<>();
+    final Map<ProductRegistry, List<ProductRegistryEvent>> streams = new LinkedHashMap<>();
+    for (UpdateProduct updateProduct : updateProducts.getProducts()) {
+      final ProductRegistry owner = registry.ownerOf(updateProduct.getProductId());
+      // Check if the product exists in the registry partition owning it
+      if (!owner.hasProductWithId(updateProduct.getProductId())) {
+        errors.add("Product not found: " + updateProduct.getProductId());
+        continue;
+      }
+      // Check if the updated product name is available, including among the updates of the batch
+      if (!registry.isProductNameAvailable(updateProduct.getName())
+          || !batchNames.add(registry.normalizeName(updateProduct.getName()))) {
+        errors.add("Product name already in use: " + updateProduct.getName());
+        continue;
+      }
+      errors.add(null);
+      final List<ProductRegistryEvent> stream = streams.computeIfAbsent(owner, partition -> new ArrayList<>());
+      final ProductRegistryEvent evt = new ProductUpdated(
+          new EventId(),
+          owner.getId(),
+          owner.getVersion() + stream.size() + 1,
+          timestamp,
+          new ProductUpdated.Payload(
+              updateProduct.getProductId(),
+              updateProduct.getName(),
+              updateProduct.getProductDescription()));
+      stream.add(evt);
+      events.add(evt);
+    }
+    metrics.stop(validation, Stage.VALIDATION, ProductRegistryCommandMetrics.typeOf(updateProducts));
+    return saveBatch(streams, events, errors, correlationId, ProductRegistryCommandMetrics.typeOf(updateProducts));
+  }
 
-    return Uni.createFrom().item(evt);
+  /**
+   * Save the events of a batch if every item of the batch is valid, and apply them.
+   * 
+   * @implNote The events of each registry partition are appended with a single
+   *           insert after the version of the partition, bypassing group commit
+   *           as they already form a batch. A concurrent append fails the whole batch.
+   * @implNote The inserts join the transaction of the command, so the batch is
+   *           stored as a whole or not at all. With the command pipeline, each
+   *           insert waits for the events of its partition already being saved
+   *           by the appender. A store without transactions may keep the streams
+   *           appended before a failed one.
+   * 
+   * @param streams - The events of the valid items, by registry partition.
+   * @param events - The events of the valid items, in order.
+   * @param errors - The error of each item, null for the valid items.
+   * @param correlationId - The correlation id of the command (can be null).
+   * @param type - The type of the batch command, for the metrics.
+   * @return The applied batch result, or the rejected one if any item is invalid.
+   */
+  private Uni<ProductRegistryBatchResult> saveBatch(Map<ProductRegistry, List<ProductRegistryEvent>> streams,
+      List<ProductRegistryEvent> events, List<String> errors, String correlationId, String type) {
+    if (errors.stream().anyMatch(Objects::nonNull)) {
+      metrics.failure(Stage.VALIDATION, type);
+      return Uni.createFrom().item(ProductRegistryBatchResult.rejected(errors));
+    }
+    final Timer.Sample saving = metrics.start();
+    try {
+      for (Map.Entry<ProductRegistry, List<ProductRegistryEvent>> stream : streams.entrySet()) {
+        final ProductRegistry registry = stream.getKey();
+        final List<ProductRegistryEventEntity> entities = new ArrayList<>(stream.getValue().size());
+        for (ProductRegistryEvent evt : stream.getValue()) {
+          final ProductRegistryEventEntity entity = ProductRegistryEventEntityMapper.INSTANCE
+              .toRegistryEventEntity(evt);
+          entity.correlationId = correlationId;
+          entities.add(entity);
+        }
+        awaitPendingAppends(registry);
+        productRegistryRepository.append(registry.getId(), registry.getVersion(), entities);
+      }
+    } catch (RuntimeException e) {
+      metrics.failure(Stage.SAVE_EVENT, type);
+      return Uni.createFrom().failure(e);
+    }
+    metrics.stop(saving, Stage.SAVE_EVENT, type);
+    streams.forEach((registry, stream) -> stream.forEach(registry::apply));
+    // Emit the events once saved
+    events.forEach(this::publish);
+    return Uni.createFrom().item(ProductRegistryBatchResult.applied(events));
   }
 }
@@ -1,21 +1,52 @@
 package org.ormi.priv.tfa.orderflow.product.registry.service.consumer;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.idempotency.IdempotencyCache;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.pipeline.SingleWriterPipeline;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.EventStoreConcurrencyException;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryBatchResult;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistryPartitions;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductStorage;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryOwnershipService;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryService;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics.Stage;
 import org.ormi.priv.tfa.orderflow.product.registry.service.producer.ProductRegistryEventEmitter;
+import org.ormi.priv.tfa.orderflow.product.registry.service.tracing.ProductRegistryCommandTracing;
 
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
 import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
 import io.smallrye.reactive.messaging.pulsar.PulsarIncomingMessageMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
 
 /**
  * The product registry command consumer listens for commands related to product registration.
@@ -24,6 +55,27 @@ import jakarta.transaction.Transactional;
 @ApplicationScoped
 public class ProductRegistryCommandConsumer {
 
+  /**
+   * Incoming command with its delivery context.
+   * 
+   * @param command - the command
+   * @param correlationId - the correlation id of the command
+   * @param redelivered - whether the message was already delivered before
+   * @param tracing - the tracing context of the handling of the command
+   */
+  public record IncomingCommand(ProductRegistryCommand command, String correlationId, boolean redelivered,
+      Context tracing) {
+  }
+
+  /**
+   * Metadata of a command sent through an in-VM channel, which carries no
+   * Pulsar metadata.
+   * 
+   * @param correlationId - the correlation id of the command
+   */
+  public record CommandMetadata(String correlationId) {
+  }
+
   /**
    * Service used to load and manage the product registry.
    * The service provides functionality to interact with the product registry in the system.
@@ -39,56 +91,440 @@ public class ProductRegistryCommandConsumer {
   private ProductRegistryEventEmitter eventProducer;
 
   /**
-   * The cached product registry.
+   * Service deciding whether the cached registry must be caught up with the event store.
+   */
+  @Inject
+  private ProductRegistryOwnershipService ownershipService;
+
+  /**
+   * Latency metrics of the command handling stages.
+   */
+  @Inject
+  private ProductRegistryCommandMetrics metrics;
+
+  /**
+   * Tracing of the command handling.
+   */
+  @Inject
+  private ProductRegistryCommandTracing tracing;
+
+  /**
+   * Number of product registry partitions.
+   */
+  @ConfigProperty(name = "product.registry.partitions", defaultValue = "1")
+  private int partitionCount;
+
+  /**
+   * Normalization of the product names used for name uniqueness.
+   */
+  @ConfigProperty(name = "product.registry.name-normalization", defaultValue = "EXACT")
+  private ProductNameNormalization nameNormalization;
+
+  /**
+   * Storage engine of the products of the registries.
+   */
+  @ConfigProperty(name = "product.registry.storage", defaultValue = "MAP")
+  private ProductStorage storage;
+
+  /**
+   * Number of times a command is retried after a concurrent append to its registry.
+   */
+  @ConfigProperty(name = "product.registry.conflict-retries", defaultValue = "3")
+  private int conflictRetries;
+
+  /**
+   * Maximum number of handled commands remembered by correlation id.
+   */
+  @ConfigProperty(name = "product.registry.idempotency.cache-size", defaultValue = "100000")
+  private int idempotencyCacheSize;
+
+  /**
+   * Time a handled command is remembered by correlation id.
+   */
+  @ConfigProperty(name = "product.registry.idempotency.cache-ttl", defaultValue = "10m")
+  private Duration idempotencyCacheTtl;
+
+  /**
+   * Results of the recently handled commands by correlation id.
+   */
+  private IdempotencyCache<String, ChannelMessage> handledCommands;
+
+  /**
+   * Whether commands are handled by a single writer thread fed by a ring buffer.
+   */
+  @ConfigProperty(name = "product.registry.command-pipeline.enabled", defaultValue = "false")
+  private boolean commandPipelineEnabled;
+
+  /**
+   * Capacity of the command pipeline ring buffer.
+   */
+  @ConfigProperty(name = "product.registry.command-pipeline.capacity", defaultValue = "1024")
+  private int commandPipelineCapacity;
+
+  /**
+   * Single writer command pipeline, null when disabled.
+   * 
+   * @implNote When enabled, the registries are only loaded and mutated by the pipeline writer thread.
+   */
+  private SingleWriterPipeline<IncomingCommand, ChannelMessage> commandPipeline;
+
+  /**
+   * The cached product registry partitions.
    * 
    * @implNote This field is used to cache the product registry to avoid loading it from the event
-   * @implNote Avoid accessing this field directly, use the {@link #loadRegistry()} method instead.
+   * @implNote Avoid accessing this field directly, use the {@link #loadRegistry(ProductRegistryCommand)} method instead.
+   * @implNote Created once, under the lock of the consumer, by the first command.
+   */
+  private volatile ProductRegistryPartitions partitions;
+
+  /**
+   * Create the idempotency cache and start the command pipeline if enabled.
    */
-  private ProductRegistry registry;
+  @PostConstruct
+  void init() {
+    handledCommands = new IdempotencyCache<>(idempotencyCacheSize, idempotencyCacheTtl);
+    if (commandPipelineEnabled) {
+      commandPipeline = new SingleWriterPipeline<>("product-registry-command-writer", commandPipelineCapacity,
+          incoming -> handle(incoming, 0));
+      metrics.observe(commandPipeline);
+    }
+  }
 
   /**
-   * Get the cached product registry.
+   * Check on startup that the event store was written with the configured number of partitions.
    * 
-   * @implNote This method will load the product registry if it is not already loaded from the
-   * event store.
+   * @param event - the startup event
+   * @throws IllegalStateException if the store holds the streams of other partitions
+   */
+  void onStart(@Observes StartupEvent event) {
+    ProductRegistryPartitions.checkStoredRegistries(productRegistryService.findRegistryIds(), partitionCount);
+  }
+
+  /**
+   * Handle the queued commands and stop the command pipeline.
+   */
+  @PreDestroy
+  void close() {
+    if (commandPipeline != null) {
+      commandPipeline.close();
+    }
+  }
+
+  /**
+   * Get the cached product registry partition owning the command.
+   * 
+   * @implNote This method will load the product registry partitions if they are not already loaded
+   * from the event store. Every partition is loaded once so that catalog wide checks see the whole
+   * catalog, then the partition owning the command is caught up.
+   * @implNote A command checking that a name is free reads the names of every partition,
+   * which are all caught up before it, see {@link #readsProductNames(ProductRegistryCommand)}.
+   * @implNote The catch-up is skipped while this instance owns the partition, see
+   * {@link ProductRegistryOwnershipService#isCurrent(String)}. A stale partition,
+   * holding events that failed to be saved, is reloaded instead.
    * @implNote This method automatically inject the product registry service into the product registry.
    * 
-   * @return the product registry
+   * @param cmd - the command to route
+   * @return the product registry partition owning the command
    */
-  public ProductRegistry loadRegistry() {
-    if (registry == null) {
-      registry = new ProductRegistry(productRegistryService);
+  public ProductRegistry loadRegistry(ProductRegistryCommand cmd) {
+    final Timer.Sample loading = metrics.start();
+    try {
+      final ProductRegistryPartitions loaded = loadPartitions();
+      final ProductRegistry registry = loaded.route(cmd);
+      if (loaded.size() > 1 && readsProductNames(cmd)) {
+        loaded.getRegistries().stream()
+            .filter(partition -> partition != registry)
+            .forEach(this::catchUp);
+      }
+      return catchUp(registry);
+    } finally {
+      metrics.stop(loading, Stage.LOAD_REGISTRY, ProductRegistryCommandMetrics.typeOf(cmd));
+    }
+  }
+
+  /**
+   * Get the cached product registry partitions, loading them on first use.
+   * 
+   * @return the product registry partitions
+   */
+  private ProductRegistryPartitions loadPartitions() {
+    ProductRegistryPartitions loaded = partitions;
+    if (loaded == null) {
+      synchronized (this) {
+        loaded = partitions;
+        if (loaded == null) {
+          loaded = new ProductRegistryPartitions(productRegistryService, partitionCount, nameNormalization,
+              storage);
+          loaded.getRegistries().forEach(productRegistryService::loadProductRegistry);
+          partitions = loaded;
+        }
+      }
+    }
+    return loaded;
+  }
+
+  /**
+   * Catch up a cached product registry partition with the event store.
+   * 
+   * @param registry - the partition to catch up
+   * @return the caught up partition
+   */
+  private ProductRegistry catchUp(ProductRegistry registry) {
+    if (registry.isStale()) {
+      return productRegistryService.reloadProductRegistry(registry);
+    }
+    if (ownershipService.isCurrent(registry.getId())) {
+      productRegistryService.snapshotIfDue(registry);
+      return registry;
     }
     return productRegistryService.loadProductRegistry(registry);
   }
 
+  /**
+   * Check if a command reads the product names of the whole catalog.
+   * 
+   * @param cmd - the command to check
+   * @return true if the command checks that a product name is free, false otherwise
+   */
+  private static boolean readsProductNames(ProductRegistryCommand cmd) {
+    return cmd instanceof RegisterProduct || cmd instanceof UpdateProduct
+        || cmd instanceof RegisterProducts || cmd instanceof UpdateProducts;
+  }
+
+  /**
+   * Find the result of a command already handled from the events it produced.
+   * 
+   * @implNote A batch is only reported as applied if every item of the batch has
+   * its event in the store. A batch stored in part, which a store without
+   * transactions may have left behind, fails the command instead.
+   * 
+   * @param incoming - the command to look for
+   * @return the result of the command, empty if it produced no event
+   * @throws IllegalStateException if only part of the events of a batch are stored
+   */
+  private Optional<ChannelMessage> findHandledCommand(IncomingCommand incoming) {
+    final List<ProductRegistryEvent> events = productRegistryService
+        .findEventsByCorrelationId(incoming.correlationId());
+    if (events.isEmpty()) {
+      return Optional.empty();
+    }
+    final ProductRegistryCommand cmd = incoming.command();
+    final int batchSize = cmd instanceof RegisterProducts registerAll ? registerAll.getProducts().size()
+        : cmd instanceof UpdateProducts updateAll ? updateAll.getProducts().size()
+        : -1;
+    if (batchSize < 0) {
+      return Optional.of(events.get(0));
+    }
+    if (events.size() != batchSize) {
+      throw new IllegalStateException(String.format("Batch %s is stored in part: %d of %d events",
+          incoming.correlationId(), events.size(), batchSize));
+    }
+    return Optional.of(ProductRegistryBatchResult.applied(events));
+  }
+
+  /**
+   * Handle a command once, in a transaction of its own.
+   * 
+   * @implNote The registry is loaded, and caught up, in the transaction of the
+   * attempt, so that a retry sees the events of the writer it conflicted with.
+   * @implNote The outcome of a command known once it is handled, e.g. a direct
+   * append, is settled in the transaction: a failed command rolls it back.
+   * @implNote A write conflict between MongoDB transactions, reported by a write
+   * or by the commit, is a concurrent append to the registry of the command.
+   * 
+   * @param cmd - the command to handle
+   * @param correlationId - the correlation id of the command
+   * @return a completion stage completed with the result of the command
+   */
+  private CompletionStage<ChannelMessage> attempt(ProductRegistryCommand cmd, String correlationId) {
+    try {
+      return QuarkusTransaction.requiringNew().call(() -> {
+        final CompletableFuture<ChannelMessage> result = Uni.createFrom()
+            .<ChannelMessage>deferred(() -> loadRegistry(cmd).handle(cmd, correlationId))
+            .subscribeAsCompletionStage();
+        if (!result.isDone()) {
+          return result;
+        }
+        try {
+          return CompletableFuture.completedFuture(result.join());
+        } catch (CompletionException e) {
+          // Roll back the transaction of the failed command
+          throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+      });
+    } catch (RuntimeException e) {
+      if (!(e instanceof EventStoreConcurrencyException) && partitions != null
+          && ProductRegistryEventRepository.isWriteConflict(e)) {
+        final ProductRegistry registry = partitions.route(cmd);
+        return CompletableFuture.failedFuture(
+            new EventStoreConcurrencyException(registry.getId(), registry.getVersion(), e));
+      }
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Handle a command on the cached registry owning it.
+   * 
+   * @implNote A command already handled returns its original result without being
+   * validated nor appended again. Recent commands are found in memory by correlation id,
+   * the event store is only searched for redelivered messages.
+   * @implNote A command conflicting with a concurrent append to its registry is
+   * retried after catching up, each attempt in a new transaction, see
+   * {@link #attempt(ProductRegistryCommand, String)}. A failed command leaves its
+   * registry to be caught up before the next command.
+   * @implNote The tracing context of the command is current while the command
+   * is handled, so that the events are emitted in the span of the command.
+   * 
+   * @param incoming - the command to handle
+   * @return a completion stage completed with the event produced by the command,
+   * or the batch result of a batch command
+   */
+  CompletionStage<ChannelMessage> handle(IncomingCommand incoming) {
+    return handle(incoming, conflictRetries);
+  }
+
+  /**
+   * Submit a command to the command pipeline.
+   * 
+   * @implNote The pipeline writer makes a single attempt, as the events of the
+   * command are saved after the writer moved on to the next commands. A command
+   * conflicting with a concurrent append is queued again instead, from another
+   * thread than the appender writer thread that failed it, which must not wait
+   * for a full pipeline.
+   * 
+   * @param incoming - the command to handle
+   * @param retries - the number of retries left after a concurrent append
+   * @return a completion stage completed with the result of the command
+   */
+  private CompletionStage<ChannelMessage> submit(IncomingCommand incoming, int retries) {
+    return commandPipeline.submit(incoming).exceptionallyComposeAsync(e -> {
+      if (e instanceof EventStoreConcurrencyException && retries > 0) {
+        return submit(incoming, retries - 1);
+      }
+      return CompletableFuture.failedFuture(e);
+    });
+  }
+
+  /**
+   * Handle a command on the cached registry owning it, see {@link #handle(IncomingCommand)}.
+   * 
+   * @param incoming - the command to handle
+   * @param retries - the number of retries after a concurrent append
+   * @return a completion stage completed with the result of the command
+   */
+  @SuppressWarnings("try")
+  private CompletionStage<ChannelMessage> handle(IncomingCommand incoming, int retries) {
+    try (Scope ignored = incoming.tracing().makeCurrent()) {
+      final ProductRegistryCommand cmd = incoming.command();
+      final String correlationId = incoming.correlationId();
+      Optional<ChannelMessage> handled = handledCommands.get(correlationId);
+      if (handled.isEmpty() && incoming.redelivered()) {
+        try {
+          handled = findHandledCommand(incoming);
+        } catch (IllegalStateException e) {
+          return CompletableFuture.failedFuture(e);
+        }
+        handled.ifPresent(result -> handledCommands.put(correlationId, result));
+      }
+      if (handled.isPresent()) {
+        Log.debug(String.format("Command already handled: %s", correlationId));
+        return CompletableFuture.completedFuture(handled.get());
+      }
+      Uni<ChannelMessage> result = Uni.createFrom().completionStage(() -> attempt(cmd, correlationId))
+          // Another writer appended to the registry first: catch up and retry
+          .onFailure(EventStoreConcurrencyException.class).invoke(e -> {
+            final String registryId = ((EventStoreConcurrencyException) e).getAggregateRootId();
+            Log.warn(String.format("Concurrent append to registry %s, catching up", registryId));
+            ownershipService.invalidate(registryId);
+          });
+      if (retries > 0) {
+        result = result.onFailure(EventStoreConcurrencyException.class).retry().atMost(retries);
+      }
+      return result
+          // Catch up before the next command in case the registry is stale
+          .onFailure().invoke(() -> {
+            if (partitions != null) {
+              ownershipService.invalidate(partitions.route(cmd).getId());
+            }
+          })
+          // Remember the command to recognize a retry
+          .invoke(evt -> handledCommands.put(correlationId, evt))
+          .subscribeAsCompletionStage(); // Convert result to a completion stage
+    }
+  }
+
   /**
    * Handle the product registry command.
    * 
+   * @implNote Through the command pipeline, the message is acknowledged once its
+   * command completes but the next message is taken as soon as the command is
+   * queued, so that several commands are in flight and their events are saved
+   * together by group commit.
+   * 
    * @param msg - the message containing the command
    * @return a completion stage that indicates when the message has been processed
-   * and the message has been acknowledged
+   * and the message has been acknowledged, or queued through the command pipeline
    */
   @Incoming("product-registry-command")
-  @Transactional
   public CompletionStage<Void> handleCommand(Message<ProductRegistryCommand> msg) {
+    final Timer.Sample handling = metrics.start();
     // Get the correlation id from the message metadata
-    final var metadata = msg.getMetadata(PulsarIncomingMessageMetadata.class).orElseThrow();
-    final String correlationId = Optional.ofNullable(metadata.getProperty("correlation-id")).orElseThrow();
+    final var metadata = msg.getMetadata(PulsarIncomingMessageMetadata.class);
+    final String correlationId = metadata
+        .map(pulsarMetadata -> pulsarMetadata.getProperty("correlation-id"))
+        .or(() -> msg.getMetadata(CommandMetadata.class).map(CommandMetadata::correlationId))
+        .orElseThrow();
     // Get the message and its payload
     final ProductRegistryCommand cmd = msg.getPayload();
+    final String type = ProductRegistryCommandMetrics.typeOf(cmd);
+    // Time since the gateway published the command, across producer and broker clocks
+    metadata.ifPresent(pulsarMetadata -> metrics.record(Stage.TRANSIT, type,
+        System.currentTimeMillis() - pulsarMetadata.getPublishTime()));
+
+    // Trace the handling as a child of the span that published the command
+    final Span span = tracing.startHandling(msg, type, correlationId);
+
+    final IncomingCommand incoming = new IncomingCommand(cmd, correlationId,
+        metadata.map(pulsarMetadata -> pulsarMetadata.getRedeliveryCount() > 0).orElse(false),
+        Context.current().with(span));
 
-    // Handle the command
-    return loadRegistry().handle(cmd)
-        .subscribeAsCompletionStage() // Convert result to a completion stage
+    // Handle the command, through the single writer pipeline if enabled
+    if (commandPipeline != null) {
+      complete(msg, correlationId, submit(incoming, conflictRetries), handling, span);
+      return CompletableFuture.completedFuture(null);
+    }
+    return complete(msg, correlationId, handle(incoming), handling, span);
+  }
+
+  /**
+   * Sink the result of a command and acknowledge its message.
+   * 
+   * @param msg - the message containing the command
+   * @param correlationId - the correlation id of the command
+   * @param result - the result of the command
+   * @param handling - the timing of the handling of the command
+   * @param span - the span of the handling of the command
+   * @return a completion stage completed once the message is acknowledged
+   */
+  private CompletionStage<Void> complete(Message<ProductRegistryCommand> msg, String correlationId,
+      CompletionStage<ChannelMessage> result, Timer.Sample handling, Span span) {
+    final ProductRegistryCommand cmd = msg.getPayload();
+    final String type = ProductRegistryCommandMetrics.typeOf(cmd);
+    return result
         .thenAccept(evt -> {
           // Produce event on correlated bus
           eventProducer.sink(correlationId, evt);
           Log.debug(String.format("Acknowledge command: %s", cmd.getClass().getName()));
+          metrics.stop(handling, Stage.HANDLE, type);
+          ProductRegistryCommandTracing.end(span, null);
           msg.ack(); // Acknowledge the message after processing
         }).exceptionallyCompose(e -> {
           // Log error and nack message
           Log.error(String.format("Failed to handle command: %s", e.getMessage()));
+          metrics.failure(Stage.HANDLE, type);
+          metrics.nack(type);
+          ProductRegistryCommandTracing.end(span, e);
           msg.nack(e); // Negatively acknowledge the message in case of failure
           return CompletableFuture.failedFuture(e); // Return a failed future
         });
@@ -0,0 +1,37 @@
+package org.ormi.priv.tfa.orderflow.product.registry.service.id;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.IdGenerators;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.interceptor.Interceptor;
+
+/**
+ * Selects the generator of the new product and event ids on startup.
+ *
+ * @implNote The ids are minted by the value objects themselves from
+ *           {@link IdGenerators#current()}, so the generator is selected once
+ *           for the whole application, before the channels deliver the first
+ *           command.
+ */
+@ApplicationScoped
+public class ProductRegistryIdGeneratorSelector {
+
+  /**
+   * Generator of the new product and event ids.
+   */
+  @ConfigProperty(name = "product.registry.id-generator", defaultValue = "RANDOM")
+  private IdGenerators idGenerator;
+
+  /**
+   * Select the configured id generator, ahead of the other startup observers.
+   *
+   * @param event - the startup event
+   */
+  void onStart(@Observes @Priority(Interceptor.Priority.PLATFORM_BEFORE) StartupEvent event) {
+    IdGenerators.use(idGenerator);
+  }
+}
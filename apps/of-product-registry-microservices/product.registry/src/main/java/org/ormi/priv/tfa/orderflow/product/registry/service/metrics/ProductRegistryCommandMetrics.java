@@ -0,0 +1,257 @@
+package org.ormi.priv.tfa.orderflow.product.registry.service.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.pipeline.SingleWriterPipeline;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.GroupCommitEventAppender;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Latency metrics of the command handling stages of the product registry.
+ *
+ * Each stage is timed by command or event type in the
+ * {@value #STAGE_TIMER} histogram, failed stages and nacked commands are
+ * counted in {@value #FAILURE_COUNTER} and {@value #NACK_COUNTER}. When
+ * enabled, the command pipeline queue depth and wait times are gauged in
+ * {@value #PIPELINE_QUEUE_GAUGE} and {@value #PIPELINE_WAIT_GAUGE}, and the
+ * sizes of the group commit batches are distributed in
+ * {@value #GROUP_COMMIT_BATCH_SUMMARY}. The versions skipped by the outbox
+ * relay are counted in {@value #OUTBOX_SKIPPED_COUNTER}.
+ *
+ * @implNote Timers are cached by stage and type, the set of types is bounded
+ *           by the published language.
+ */
+@ApplicationScoped
+public class ProductRegistryCommandMetrics {
+
+  /**
+   * Name of the stage latency histograms.
+   */
+  public static final String STAGE_TIMER = "orderflow.command.stage";
+
+  /**
+   * Name of the failed stage counters.
+   */
+  public static final String FAILURE_COUNTER = "orderflow.command.failures";
+
+  /**
+   * Name of the nacked command counters.
+   */
+  public static final String NACK_COUNTER = "orderflow.command.nacks";
+
+  /**
+   * Name of the command pipeline queue depth gauge.
+   */
+  public static final String PIPELINE_QUEUE_GAUGE = "orderflow.command.pipeline.queue";
+
+  /**
+   * Name of the command pipeline wait time gauges.
+   */
+  public static final String PIPELINE_WAIT_GAUGE = "orderflow.command.pipeline.wait";
+
+  /**
+   * Name of the group commit batch size distribution.
+   */
+  public static final String GROUP_COMMIT_BATCH_SUMMARY = "orderflow.command.group-commit.batch";
+
+  /**
+   * Name of the counters of the versions skipped by the outbox relay.
+   */
+  public static final String OUTBOX_SKIPPED_COUNTER = "orderflow.command.outbox.skipped";
+
+  /**
+   * Stage of the handling of a command.
+   */
+  public enum Stage {
+    /**
+     * From the publication of the command by the gateway to its reception.
+     */
+    TRANSIT,
+    /**
+     * Loading or catching up the registry owning the command.
+     */
+    LOAD_REGISTRY,
+    /**
+     * Checking the command against the registry and creating its events.
+     */
+    VALIDATION,
+    /**
+     * Appending the events to the event store.
+     */
+    SAVE_EVENT,
+    /**
+     * Publishing an event until the broker acknowledges it.
+     */
+    EMIT,
+    /**
+     * From the reception of the command to its acknowledgement.
+     */
+    HANDLE;
+
+    private final String tag = name().toLowerCase();
+  }
+
+  /**
+   * Registry of the meters.
+   */
+  @Inject
+  private MeterRegistry meterRegistry;
+
+  /**
+   * Stage latency timers, by stage and type.
+   */
+  private final Map<Stage, Map<String, Timer>> timers = new EnumMap<>(Stage.class);
+
+  /**
+   * Constructor.
+   */
+  public ProductRegistryCommandMetrics() {
+    for (Stage stage : Stage.values()) {
+      timers.put(stage, new ConcurrentHashMap<>());
+    }
+  }
+
+  /**
+   * Constructor outside of the container, recording in the given registry.
+   *
+   * @param meterRegistry - the registry of the meters
+   */
+  public ProductRegistryCommandMetrics(MeterRegistry meterRegistry) {
+    this();
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Get the type of a command or event, as tagged in the metrics.
+   *
+   * @param message - the command or event
+   * @return the type of the message
+   */
+  public static String typeOf(Object message) {
+    return message.getClass().getSimpleName();
+  }
+
+  /**
+   * Start timing a stage.
+   *
+   * @return the sample to stop at the end of the stage
+   */
+  public Timer.Sample start() {
+    return Timer.start(meterRegistry);
+  }
+
+  /**
+   * Stop timing a stage.
+   *
+   * @param sample - the sample started at the beginning of the stage
+   * @param stage - the stage
+   * @param type - the command or event type
+   */
+  public void stop(Timer.Sample sample, Stage stage, String type) {
+    sample.stop(timer(stage, type));
+  }
+
+  /**
+   * Record the latency of a stage timed elsewhere.
+   *
+   * @param stage - the stage
+   * @param type - the command or event type
+   * @param millis - the latency in milliseconds
+   */
+  public void record(Stage stage, String type, long millis) {
+    timer(stage, type).record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Count a failed stage.
+   *
+   * @param stage - the stage
+   * @param type - the command or event type
+   */
+  public void failure(Stage stage, String type) {
+    Counter.builder(FAILURE_COUNTER)
+        .tag("stage", stage.tag)
+        .tag("type", type)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  /**
+   * Count a nacked command.
+   *
+   * @param type - the command type
+   */
+  public void nack(String type) {
+    Counter.builder(NACK_COUNTER)
+        .tag("type", type)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  /**
+   * Count the versions of a registry stream skipped by the outbox relay.
+   *
+   * @param registryId - the registry aggregate root id
+   * @param versions - the number of skipped versions
+   */
+  public void skipped(String registryId, long versions) {
+    Counter.builder(OUTBOX_SKIPPED_COUNTER)
+        .description("Versions of a registry stream never stored and skipped by the outbox relay")
+        .tag("registry", registryId)
+        .register(meterRegistry)
+        .increment(versions);
+  }
+
+  /**
+   * Gauge the queue depth and the wait times of the command pipeline.
+   *
+   * @param pipeline - the single writer command pipeline
+   */
+  public void observe(SingleWriterPipeline<?, ?> pipeline) {
+    Gauge.builder(PIPELINE_QUEUE_GAUGE, pipeline, SingleWriterPipeline::getQueueDepth)
+        .description("Commands waiting in the single writer pipeline")
+        .register(meterRegistry);
+    TimeGauge.builder(PIPELINE_WAIT_GAUGE, pipeline, TimeUnit.NANOSECONDS, SingleWriterPipeline::getAverageWaitNanos)
+        .description("Average time spent by the commands in the single writer pipeline")
+        .tag("statistic", "mean")
+        .register(meterRegistry);
+    TimeGauge.builder(PIPELINE_WAIT_GAUGE, pipeline, TimeUnit.NANOSECONDS, SingleWriterPipeline::getMaxWaitNanos)
+        .description("Longest time spent by a command in the single writer pipeline")
+        .tag("statistic", "max")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Distribute the number of events saved by each batch of the group commit appender.
+   *
+   * @param appender - the group commit event appender
+   */
+  public void observe(GroupCommitEventAppender<?> appender) {
+    final DistributionSummary batchSizes = DistributionSummary.builder(GROUP_COMMIT_BATCH_SUMMARY)
+        .description("Events saved by a group commit batch")
+        .baseUnit("events")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    appender.onBatchSaved(batchSizes::record);
+  }
+
+  private Timer timer(Stage stage, String type) {
+    return timers.get(stage).computeIfAbsent(type, key -> Timer.builder(STAGE_TIMER)
+        .description("Latency of a product registry command handling stage")
+        .tag("stage", stage.tag)
+        .tag("type", key)
+        .publishPercentileHistogram()
+        .register(meterRegistry));
+  }
+}
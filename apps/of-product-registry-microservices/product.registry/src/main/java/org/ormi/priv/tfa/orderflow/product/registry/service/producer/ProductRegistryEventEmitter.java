@@ -1,18 +1,33 @@
 package org.ormi.priv.tfa.orderflow.product.registry.service.producer;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.PulsarClientException;
-import org.apache.pulsar.client.api.Schema;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch.EventDispatcher;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEventTypes;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.config.ProductRegistryEventChannelName;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.config.ProductRegistryQueryChannelName;
+import org.ormi.priv.tfa.orderflow.lib.shared.schema.ProductRegistrySchemas;
+import org.ormi.priv.tfa.orderflow.product.registry.exception.EventProductionFailureException;
+import org.ormi.priv.tfa.orderflow.product.registry.exception.ProducerCloseFailureException;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics.Stage;
+import org.ormi.priv.tfa.orderflow.product.registry.service.tracing.ProductRegistryCommandTracing;
 
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.logging.Log;
 import io.smallrye.reactive.messaging.pulsar.PulsarClientService;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -26,89 +41,149 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class ProductRegistryEventEmitter {
 
+  /**
+   * Emitters of the events, by event type.
+   */
+  private static final EventDispatcher<ProductRegistryEventEmitter, ProductRegistryEvent, CompletionStage<Void>> EMITTERS = ProductRegistryEventTypes.REGISTRY
+      .<ProductRegistryEventEmitter, ProductRegistryEvent, CompletionStage<Void>>dispatcher()
+      .on(ProductRegistered.class, ProductRegistryEventEmitter::emitRegisteredProduct)
+      .on(ProductUpdated.class, ProductRegistryEventEmitter::projectUpdatedProduct)
+      .on(ProductRemoved.class, ProductRegistryEventEmitter::emitRemovedProduct)
+      .build();
+
   /**
    * The Pulsar client service.
    */
   @Inject
   private PulsarClientService pulsarClients;
 
+  /**
+   * Latency metrics of the command handling stages.
+   */
+  @Inject
+  private ProductRegistryCommandMetrics metrics;
+
   /**
    * Event emitter to send events to the read model.
    */
   @Channel("product-registry-event")
   private Emitter<ProductRegistryEvent> eventEmitter;
 
+  /**
+   * Connector of the event channel, the correlated results are only sent
+   * with Pulsar, the in-VM channels have no topic per correlation id.
+   */
+  @ConfigProperty(name = "mp.messaging.outgoing.product-registry-event.connector", defaultValue = "smallrye-pulsar")
+  private String eventConnector;
+
+  /**
+   * Wire format of the result topics, must match the api gateway.
+   */
+  @ConfigProperty(name = "product.registry.messaging.result.format", defaultValue = "JSON")
+  private MessageFormat resultFormat;
+
   /**
    * Project the event.
    * 
    * @param event - the event to project
+   * @return a completion stage completed once the event is acknowledged by the broker
    */
-  public void emit(ProductRegistryEvent event) throws IllegalStateException {
+  public CompletionStage<Void> emit(ProductRegistryEvent event) throws IllegalStateException {
     Log.debug("Projecting event: " + event.toString());
-    if (event instanceof ProductRegistered registered) {
-      emitRegisteredProduct(registered);
-    } else if (event instanceof ProductUpdated updated) {
-      projectUpdatedProduct(updated);
-    } else if (event instanceof ProductRemoved removed) {
-      emitRemovedProduct(removed);
-    }
+    final Timer.Sample emitting = metrics.start();
+    final String type = ProductRegistryCommandMetrics.typeOf(event);
+    return EMITTERS.dispatch(this, event)
+        .whenComplete((ack, e) -> {
+          if (e != null) {
+            metrics.failure(Stage.EMIT, type);
+          } else {
+            metrics.stop(emitting, Stage.EMIT, type);
+          }
+        });
   }
 
   /**
    * Emit a product registered event.
    * 
    * @param registered - the event to emit
+   * @return a completion stage completed once the event is acknowledged by the broker
    */
-  void emitRegisteredProduct(ProductRegistered registered) throws IllegalStateException {
-    eventEmitter.send(registered);
+  CompletionStage<Void> emitRegisteredProduct(ProductRegistered registered) throws IllegalStateException {
+    return send(registered);
   }
 
   /**
    * Emit a product updated event.
    * 
    * @param updated - the event to emit
+   * @return a completion stage completed once the event is acknowledged by the broker
    */
-  void projectUpdatedProduct(ProductUpdated updated) throws IllegalStateException {
-    eventEmitter.send(updated);
+  CompletionStage<Void> projectUpdatedProduct(ProductUpdated updated) throws IllegalStateException {
+    return send(updated);
   }
 
   /**
    * Emit a product removed event.
    * 
    * @param removed - the event to project
+   * @return a completion stage completed once the event is acknowledged by the broker
    */
-  void emitRemovedProduct(ProductRemoved removed) throws IllegalStateException {
-    eventEmitter.send(removed);
+  CompletionStage<Void> emitRemovedProduct(ProductRemoved removed) throws IllegalStateException {
+    return send(removed);
   }
 
-  // /**
-  //  * Produce the given event with the given correlation id.
-  //  * 
-  //  * @param correlationId - the correlation id
-  //  * @param event         - the event
-  //  */
-  // public void sink(String correlationId, ProductRegistryEvent event) {
-  //   // Get the producer for the correlation id
-  //   getEventSinkByCorrelationId(correlationId)
-  //       .thenAccept((producer) -> {
-  //         // Sink the event to the producer
-  //         producer
-  //             .newMessage()
-  //             .value(event)
-  //             .sendAsync()
-  //             .whenComplete((msgId, ex) -> {
-  //               if (ex != null) {
-  //                 throw new EventProductionFailureException("Failed to produce event for correlation id: " + correlationId, ex);
-  //               }
-  //               Log.debug(String.format("Sinked event with correlation id{%s} in msg{%s}", correlationId, msgId));
-  //               try {
-  //                 producer.close(); // Close the producer after sending the message
-  //               } catch (PulsarClientException e) {
-  //                 throw new ProducerCloseFailureException("Failed to close producer", e);
-  //               }
-  //             });
-  //       });
-  // }
+  /**
+   * Send an event in the current span.
+   * 
+   * @param event - the event to send
+   * @return a completion stage completed once the event is acknowledged by the broker
+   */
+  private CompletionStage<Void> send(ProductRegistryEvent event) {
+    final CompletableFuture<Void> acked = new CompletableFuture<>();
+    eventEmitter.send(Message.of(event, Metadata.of(ProductRegistryCommandTracing.current()),
+        () -> {
+          acked.complete(null);
+          return CompletableFuture.completedFuture(null);
+        },
+        e -> {
+          acked.completeExceptionally(e);
+          return CompletableFuture.completedFuture(null);
+        }));
+    return acked;
+  }
+
+  /**
+   * Produce the given result of a command on the topic of its correlation id.
+   * 
+   * @param correlationId - the correlation id
+   * @param result        - the event or batch result of the command
+   */
+  public void sink(String correlationId, ChannelMessage result) {
+    if (!"smallrye-pulsar".equals(eventConnector)) {
+      Log.debug(String.format("No correlated result for correlation id{%s} on in-VM channels", correlationId));
+      return;
+    }
+    // Get the producer for the correlation id
+    getEventSinkByCorrelationId(correlationId)
+        .thenAccept((producer) -> {
+          // Sink the result to the producer
+          producer
+              .newMessage()
+              .value(result)
+              .sendAsync()
+              .whenComplete((msgId, ex) -> {
+                if (ex != null) {
+                  throw new EventProductionFailureException("Failed to produce event for correlation id: " + correlationId, ex);
+                }
+                Log.debug(String.format("Sinked event with correlation id{%s} in msg{%s}", correlationId, msgId));
+                try {
+                  producer.close(); // Close the producer after sending the message
+                } catch (PulsarClientException e) {
+                  throw new ProducerCloseFailureException("Failed to close producer", e);
+                }
+              });
+        });
+  }
 
   /**
    * Create a producer for the given correlation id.
@@ -116,13 +191,12 @@ public class ProductRegistryEventEmitter {
    * @param correlationId - the correlation id
    * @return the producer
    */
-  private CompletionStage<Producer<ProductRegistryEvent>> getEventSinkByCorrelationId(String correlationId) {
-    // Define the channel name, topic and schema definition
-    final String channelName = ProductRegistryEventChannelName.PRODUCT_REGISTRY_READ_RESULT.toString();
-    final String topic = channelName + "-" + correlationId;
-    // Create and return a new Pulsar producer
-    return pulsarClients.getClient(channelName)
-        .newProducer(Schema.JSON(ProductRegistryEvent.class))
+  private CompletionStage<Producer<ChannelMessage>> getEventSinkByCorrelationId(String correlationId) {
+    // Define the topic watched by the api gateway and schema definition
+    final String topic = ProductRegistryQueryChannelName.PRODUCT_REGISTRY_READ_RESULT + "-" + correlationId;
+    // Create and return a new Pulsar producer, with the client of the event channel
+    return pulsarClients.getClient(ProductRegistryEventChannelName.PRODUCT_REGISTRY_EVENT.toString())
+        .newProducer(ProductRegistrySchemas.messages(resultFormat))
         .producerName(topic)
         .topic(topic)
         .createAsync()
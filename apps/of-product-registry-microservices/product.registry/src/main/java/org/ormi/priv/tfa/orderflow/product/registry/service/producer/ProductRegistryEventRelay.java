@@ -0,0 +1,318 @@
+package org.ormi.priv.tfa.orderflow.product.registry.service.producer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistryPartitions;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryLeaseRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryOutboxCheckpointRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper.ProductRegistryEventEntityMapper;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * The product registry event relay.
+ * Publishes the events of the event store to the product registry event channel
+ * when the outbox mode is enabled, the event store being the outbox.
+ * 
+ * @implNote The relay tails the event stream of each registry by version,
+ *           publishes the new events by batches and checkpoints the version of
+ *           the last event acknowledged by the broker. Events are published at
+ *           least once, in version order, and only once they are stored.
+ * @implNote On its first start, the relay checkpoints each registry at its
+ *           last stored version: the events stored before the outbox mode was
+ *           enabled were published by the command handlers.
+ * @implNote A gap in the versions is a write not yet visible, the relay waits
+ *           for it. A gap still there after the gap timeout is a version that
+ *           will never be stored, it is logged, counted and skipped.
+ * @implNote A single instance relays a registry at a time, the one holding the
+ *           relay lease of the registry.
+ */
+@ApplicationScoped
+public class ProductRegistryEventRelay {
+
+  /**
+   * Product registry event repository to tail the event streams.
+   */
+  @Inject
+  private ProductRegistryEventRepository eventRepository;
+
+  /**
+   * Checkpoint repository to track the publication progress.
+   */
+  @Inject
+  private ProductRegistryOutboxCheckpointRepository checkpointRepository;
+
+  /**
+   * Lease repository to elect the relaying instance of each registry.
+   */
+  @Inject
+  private ProductRegistryLeaseRepository leaseRepository;
+
+  /**
+   * Event emitter to publish the events.
+   */
+  @Inject
+  private ProductRegistryEventEmitter eventEmitter;
+
+  /**
+   * Metrics of the skipped versions.
+   */
+  @Inject
+  private ProductRegistryCommandMetrics metrics;
+
+  /**
+   * Whether the events are published by the relay instead of the command handlers.
+   */
+  @ConfigProperty(name = "product.registry.outbox.enabled", defaultValue = "false")
+  private boolean outboxEnabled;
+
+  /**
+   * Number of product registry partitions.
+   */
+  @ConfigProperty(name = "product.registry.partitions", defaultValue = "1")
+  private int partitionCount;
+
+  /**
+   * Maximum number of events published per registry and poll.
+   */
+  @ConfigProperty(name = "product.registry.outbox.batch-size", defaultValue = "500")
+  private int batchSize;
+
+  /**
+   * Delay between two polls when there is nothing to publish.
+   */
+  @ConfigProperty(name = "product.registry.outbox.poll-interval", defaultValue = "100ms")
+  private Duration pollInterval;
+
+  /**
+   * Duration of the relay leases.
+   */
+  @ConfigProperty(name = "product.registry.outbox.lease-duration", defaultValue = "30s")
+  private Duration leaseDuration;
+
+  /**
+   * Time a gap in the versions of a registry is waited for before being skipped.
+   */
+  @ConfigProperty(name = "product.registry.outbox.gap-timeout", defaultValue = "10s")
+  private Duration gapTimeout;
+
+  /**
+   * Id of this instance as a relay lease owner.
+   */
+  private final String ownerId = UUID.randomUUID().toString();
+
+  /**
+   * Local renewal deadline ({@link System#nanoTime()}) of the relay leases held by this instance.
+   */
+  private final Map<String, Long> leaseRenewals = new ConcurrentHashMap<>();
+
+  /**
+   * Version of the last published event by registry, as checkpointed.
+   */
+  private final Map<String, Long> publishedVersions = new ConcurrentHashMap<>();
+
+  /**
+   * Gap currently waited for by registry.
+   */
+  private final Map<String, Gap> gaps = new ConcurrentHashMap<>();
+
+  /**
+   * Gap in the versions of a registry stream.
+   * 
+   * @param afterVersion - the version of the last event before the gap
+   * @param since - the time ({@link System#nanoTime()}) the gap was first seen
+   */
+  private record Gap(long afterVersion, long since) {
+  }
+
+  /**
+   * Relay thread.
+   */
+  private Thread relay;
+
+  /**
+   * Whether the relay is running.
+   */
+  private volatile boolean running;
+
+  /**
+   * Start the relay on startup when the outbox mode is enabled.
+   * 
+   * @param event - the startup event
+   */
+  void onStart(@Observes StartupEvent event) {
+    if (!outboxEnabled) {
+      return;
+    }
+    for (int partition = 0; partition < partitionCount; partition++) {
+      final String registryId = ProductRegistryPartitions.registryIdOf(partition, partitionCount);
+      if (!checkpointRepository.hasCheckpoint(registryId)) {
+        final long lastVersion = eventRepository.findLastVersion(registryId);
+        Log.info(String.format("Outbox enabled for registry %s, relaying the events after version %d", registryId,
+            lastVersion));
+        checkpointRepository.initPublishedVersion(registryId, lastVersion);
+      }
+    }
+    running = true;
+    relay = new Thread(this::run, "product-registry-event-relay");
+    relay.setDaemon(true);
+    relay.start();
+  }
+
+  /**
+   * Stop the relay and release its leases on shutdown.
+   * 
+   * @param event - the shutdown event
+   */
+  void onStop(@Observes ShutdownEvent event) {
+    if (relay == null) {
+      return;
+    }
+    running = false;
+    relay.interrupt();
+    try {
+      relay.join(pollInterval.toMillis() + 1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    leaseRenewals.keySet().forEach(registryId -> leaseRepository.release(relayLeaseId(registryId), ownerId));
+  }
+
+  /**
+   * Relay loop.
+   */
+  private void run() {
+    while (running) {
+      int published = 0;
+      for (int partition = 0; partition < partitionCount; partition++) {
+        final String registryId = ProductRegistryPartitions.registryIdOf(partition, partitionCount);
+        try {
+          if (holdsLease(registryId)) {
+            published += relay(registryId);
+          }
+        } catch (RuntimeException e) {
+          // Retry from the last checkpoint on the next poll
+          Log.error(String.format("Failed to relay events of registry %s: %s", registryId, e.getMessage()));
+          publishedVersions.remove(registryId);
+        }
+      }
+      if (published == 0) {
+        try {
+          Thread.sleep(pollInterval.toMillis());
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Publish the next batch of events of a registry and checkpoint it.
+   * 
+   * @param registryId - the registry aggregate root id
+   * @return the number of events published
+   */
+  private int relay(String registryId) {
+    final long publishedVersion = publishedVersions
+        .computeIfAbsent(registryId, checkpointRepository::findPublishedVersion);
+    final List<ProductRegistryEventEntity> batch = new ArrayList<>(batchSize);
+    try (Stream<ProductRegistryEventEntity> events = eventRepository
+        .streamEventsByAggregateRootIdAndStartingVersion(registryId, publishedVersion)) {
+      events.limit(batchSize).forEach(batch::add);
+    }
+    // Only publish contiguous versions, a gap is a write not yet visible
+    long lastVersion = publishedVersion;
+    final List<CompletableFuture<Void>> acks = new ArrayList<>(batch.size());
+    for (ProductRegistryEventEntity event : batch) {
+      if (event.version != lastVersion + 1 && !skipGap(registryId, lastVersion, event.version)) {
+        break;
+      }
+      acks.add(eventEmitter.emit(ProductRegistryEventEntityMapper.INSTANCE.toRegistryEvent(event))
+          .toCompletableFuture());
+      lastVersion = event.version;
+    }
+    if (acks.isEmpty()) {
+      return 0;
+    }
+    // Checkpoint once the whole batch is acknowledged by the broker
+    CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).join();
+    checkpointRepository.savePublishedVersion(registryId, lastVersion);
+    publishedVersions.put(registryId, lastVersion);
+    Log.debug(String.format("Relayed %d events of registry %s up to version %d", acks.size(), registryId,
+        lastVersion));
+    return acks.size();
+  }
+
+  /**
+   * Decide whether to skip a gap in the versions of a registry, once it lasted
+   * for the gap timeout.
+   * 
+   * @param registryId - the registry aggregate root id
+   * @param afterVersion - the version of the last event before the gap
+   * @param nextVersion - the version of the first event after the gap
+   * @return true if the gap is skipped, false to wait for it
+   */
+  private boolean skipGap(String registryId, long afterVersion, long nextVersion) {
+    final long now = System.nanoTime();
+    final Gap gap = gaps.compute(registryId,
+        (key, current) -> current != null && current.afterVersion() == afterVersion ? current
+            : new Gap(afterVersion, now));
+    if (now - gap.since() < gapTimeout.toNanos()) {
+      return false;
+    }
+    gaps.remove(registryId);
+    Log.warn(String.format("Skipping versions %d to %d of registry %s, missing for more than %s", afterVersion + 1,
+        nextVersion - 1, registryId, gapTimeout));
+    metrics.skipped(registryId, nextVersion - afterVersion - 1);
+    return true;
+  }
+
+  /**
+   * Check if this instance holds the relay lease of a registry, acquiring or
+   * renewing it when needed.
+   * 
+   * @param registryId - the registry aggregate root id
+   * @return true if this instance is the relay of the registry
+   */
+  private boolean holdsLease(String registryId) {
+    final long now = System.nanoTime();
+    final Long renewal = leaseRenewals.get(registryId);
+    if (renewal != null && now - renewal < 0) {
+      return true;
+    }
+    if (leaseRepository.tryAcquire(relayLeaseId(registryId), ownerId, leaseDuration)) {
+      leaseRenewals.put(registryId, now + leaseDuration.toNanos() / 2);
+      return true;
+    }
+    leaseRenewals.remove(registryId);
+    // Another instance relays the registry, reload its checkpoint when taking over
+    publishedVersions.remove(registryId);
+    return false;
+  }
+
+  /**
+   * Get the id of the relay lease of a registry.
+   * 
+   * @param registryId - the registry aggregate root id
+   * @return the relay lease id
+   */
+  private static String relayLeaseId(String registryId) {
+    return "relay:" + registryId;
+  }
+}
@@ -0,0 +1,54 @@
+package org.ormi.priv.tfa.orderflow.product.registry.service.schema;
+
+import org.apache.pulsar.client.api.Schema;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.shared.schema.ProductRegistrySchemas;
+
+import io.smallrye.common.annotation.Identifier;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+
+/**
+ * Pulsar schemas of the product registry channels, selected per channel.
+ * The Pulsar connector picks the schema bean identified by the channel name.
+ */
+@ApplicationScoped
+public class ProductRegistryChannelSchemas {
+
+  /**
+   * Wire format of the command channel, must match the api gateway.
+   */
+  @ConfigProperty(name = "product.registry.messaging.command.format", defaultValue = "JSON")
+  private MessageFormat commandFormat;
+
+  /**
+   * Wire format of the event channel, must match the product registry read side.
+   */
+  @ConfigProperty(name = "product.registry.messaging.event.format", defaultValue = "JSON")
+  private MessageFormat eventFormat;
+
+  /**
+   * Schema of the incoming commands.
+   *
+   * @return the command schema
+   */
+  @Produces
+  @Identifier("product-registry-command")
+  Schema<ProductRegistryCommand> commandSchema() {
+    return ProductRegistrySchemas.commands(commandFormat);
+  }
+
+  /**
+   * Schema of the outgoing events.
+   *
+   * @return the event schema
+   */
+  @Produces
+  @Identifier("product-registry-event")
+  Schema<ProductRegistryEvent> eventSchema() {
+    return ProductRegistrySchemas.events(eventFormat);
+  }
+}
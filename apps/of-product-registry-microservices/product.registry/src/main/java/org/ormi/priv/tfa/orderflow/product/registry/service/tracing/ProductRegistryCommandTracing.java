@@ -0,0 +1,108 @@
+package org.ormi.priv.tfa.orderflow.product.registry.service.tracing;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.smallrye.reactive.messaging.TracingMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * Tracing of the command handling of the product registry.
+ *
+ * The span context travels in the Pulsar message properties next to the
+ * correlation id, written and read by the Pulsar connector from the
+ * {@link TracingMetadata} of the messages. Spans are tagged with the
+ * correlation id, so that the requests of a command to the api gateway can be
+ * joined to its handling.
+ *
+ * @implNote Spans are exported as OTLP JSON lines to the log category of the
+ *           exporter, routed to a file by the configuration, without a
+ *           collector.
+ */
+@ApplicationScoped
+public class ProductRegistryCommandTracing {
+
+  /**
+   * Correlation id of the traced command.
+   */
+  public static final AttributeKey<String> CORRELATION_ID = AttributeKey.stringKey("orderflow.correlation_id");
+
+  /**
+   * Type of the traced command.
+   */
+  public static final AttributeKey<String> TYPE = AttributeKey.stringKey("orderflow.type");
+
+  /**
+   * Tracer of the service.
+   */
+  @Inject
+  private Tracer tracer;
+
+  /**
+   * Exporter of the finished spans.
+   *
+   * @implNote Static so that the tracer, which depends on the exporters, is not
+   *           needed to produce it.
+   *
+   * @return the OTLP JSON logging exporter
+   */
+  @Produces
+  @Singleton
+  static SpanExporter spanExporter() {
+    return OtlpJsonLoggingSpanExporter.create();
+  }
+
+  /**
+   * Start the span of the handling of a command, child of the span that
+   * published it.
+   *
+   * @param msg - the message of the command
+   * @param type - the command type
+   * @param correlationId - the correlation id of the command
+   * @return the started span
+   */
+  public Span startHandling(Message<?> msg, String type, String correlationId) {
+    final Context parent = TracingMetadata.fromMessage(msg)
+        .map(TracingMetadata::getCurrentContext)
+        .orElseGet(Context::current);
+    return tracer.spanBuilder("handle " + type)
+        .setParent(parent)
+        .setSpanKind(SpanKind.CONSUMER)
+        .setAttribute(TYPE, type)
+        .setAttribute(CORRELATION_ID, correlationId)
+        .startSpan();
+  }
+
+  /**
+   * End a span.
+   *
+   * @param span - the span
+   * @param failure - the failure of the traced work, null on success
+   */
+  public static void end(Span span, Throwable failure) {
+    if (failure != null) {
+      span.recordException(failure);
+      span.setStatus(StatusCode.ERROR);
+    }
+    span.end();
+  }
+
+  /**
+   * Get the tracing metadata of a message sent in the current span.
+   *
+   * @return the tracing metadata, for the connector to propagate the span
+   */
+  public static TracingMetadata current() {
+    return TracingMetadata.withCurrent(Context.current());
+  }
+}
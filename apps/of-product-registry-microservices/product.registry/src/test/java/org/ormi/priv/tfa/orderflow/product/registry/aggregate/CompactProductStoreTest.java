@@ -0,0 +1,84 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+public class CompactProductStoreTest {
+
+  private static List<String> describe(ProductStore store) {
+    return store.values().stream()
+        .sorted(Comparator.comparing(product -> product.getProductId().getId()))
+        .map(product -> product.getProductId().getId() + "|" + product.getName() + "|" + product.getProductDescription())
+        .toList();
+  }
+
+  @Nested
+  public class Put {
+
+    @Test
+    public void it_should_holdSameProductsAsMapStore_when_productsAreAddedReplacedAndRemoved() {
+      // Given
+      ProductStore compact = new CompactProductStore(ProductNameNormalization.IGNORE_CASE, true);
+      ProductStore map = new MapProductStore(ProductNameNormalization.IGNORE_CASE);
+      List<ProductId> productIds = new ArrayList<>();
+      Random random = new Random(42);
+
+      // When
+      for (int i = 0; i < 20_000; i++) {
+        int operation = random.nextInt(10);
+        if (operation < 5 || productIds.isEmpty()) {
+          ProductId productId = new ProductId();
+          productIds.add(productId);
+          Product product = new Product(productId, "Product " + i, i % 7 == 0 ? null : "Description " + i);
+          compact.put(product);
+          map.put(product);
+        } else if (operation < 8) {
+          ProductId productId = productIds.get(random.nextInt(productIds.size()));
+          Product product = new Product(productId, "Renamed " + i, "x".repeat(random.nextInt(1000)));
+          compact.put(product);
+          map.put(product);
+        } else {
+          ProductId productId = productIds.remove(random.nextInt(productIds.size()));
+          compact.remove(productId);
+          map.remove(productId);
+        }
+      }
+
+      // Then
+      assertEquals(map.size(), compact.size());
+      assertEquals(describe(map), describe(compact));
+      for (ProductId productId : productIds) {
+        assertTrue(compact.containsId(productId));
+      }
+      for (Product product : map.values()) {
+        assertTrue(compact.containsName(product.getName().toUpperCase()));
+      }
+      assertFalse(compact.containsName("Unknown product"));
+    }
+
+    @Test
+    public void it_should_keepProduct_when_idIsNotCanonicalUuid() {
+      // Given
+      ProductStore store = new CompactProductStore(ProductNameNormalization.EXACT, false);
+      ProductId productId = ProductId.of("0-0-0-0-1");
+
+      // When
+      store.put(new Product(productId, "Legacy", "A legacy product"));
+
+      // Then
+      assertTrue(store.containsId(productId));
+      assertTrue(store.containsName("Legacy"));
+      assertEquals("0-0-0-0-1", store.values().iterator().next().getProductId().getId());
+    }
+  }
+}
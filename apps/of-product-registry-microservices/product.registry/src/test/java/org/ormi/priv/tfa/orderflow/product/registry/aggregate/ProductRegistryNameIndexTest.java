@@ -0,0 +1,84 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+public class ProductRegistryNameIndexTest {
+
+  private static ProductRegistry registryWith(ProductNameNormalization normalization, ProductId productId, String name) {
+    final ProductRegistry registry = new ProductRegistry(null, normalization);
+    registry.apply(new ProductRegistered(new EventId(), registry.getId(), 1, 0,
+        new ProductRegistered.Payload(productId, name, "A test product")));
+    return registry;
+  }
+
+  @Nested
+  public class Apply {
+
+    @Test
+    public void it_should_releaseOldName_when_productIsRenamed() {
+      // Given
+      ProductId productId = new ProductId();
+      ProductRegistry registry = registryWith(ProductNameNormalization.EXACT, productId, "Test");
+
+      // When
+      registry.apply(new ProductUpdated(new EventId(), registry.getId(), 2, 0,
+          new ProductUpdated.Payload(productId, "Renamed", "A test product")));
+
+      // Then
+      assertTrue(registry.isProductNameAvailable("Test"));
+      assertFalse(registry.isProductNameAvailable("Renamed"));
+    }
+
+    @Test
+    public void it_should_releaseName_when_productIsRemoved() {
+      // Given
+      ProductId productId = new ProductId();
+      ProductRegistry registry = registryWith(ProductNameNormalization.EXACT, productId, "Test");
+
+      // When
+      registry.apply(new ProductRemoved(new EventId(), registry.getId(), 2, 0,
+          new ProductRemoved.Payload(productId)));
+
+      // Then
+      assertTrue(registry.isProductNameAvailable("Test"));
+    }
+  }
+
+  @Nested
+  public class IsProductNameAvailable {
+
+    @Test
+    public void it_should_returnTrue_when_nameOnlyDiffersByCaseWithExactNormalization() {
+      // Given
+      ProductRegistry registry = registryWith(ProductNameNormalization.EXACT, new ProductId(), "Test Product");
+
+      // When
+      boolean result = registry.isProductNameAvailable("test product");
+
+      // Then
+      assertTrue(result);
+    }
+
+    @Test
+    public void it_should_returnFalse_when_nameOnlyDiffersByCaseAndWhitespaces() {
+      // Given
+      ProductRegistry registry = registryWith(ProductNameNormalization.IGNORE_CASE_AND_FOLD_WHITESPACE,
+          new ProductId(), "Test Product");
+
+      // When
+      boolean result = registry.isProductNameAvailable("  test   PRODUCT ");
+
+      // Then
+      assertFalse(result);
+    }
+  }
+}
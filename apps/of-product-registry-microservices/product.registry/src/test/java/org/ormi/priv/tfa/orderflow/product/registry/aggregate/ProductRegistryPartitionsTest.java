@@ -0,0 +1,176 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+public class ProductRegistryPartitionsTest {
+
+  @Nested
+  public class RegistryId {
+
+    @Test
+    public void it_should_keepGlobalRegistryId_when_notPartitioned() {
+      // Given
+      ProductRegistryPartitions partitions = new ProductRegistryPartitions(null, 1);
+
+      // When
+      String registryId = partitions.get(0).getId();
+
+      // Then
+      assertEquals(ProductRegistryPartitions.GLOBAL_REGISTRY_ID, registryId);
+    }
+
+    @Test
+    public void it_should_suffixRegistryIdWithPartition_when_partitioned() {
+      // Given
+      ProductRegistryPartitions partitions = new ProductRegistryPartitions(null, 4);
+
+      // When
+      String registryId = partitions.get(3).getId();
+
+      // Then
+      assertEquals(ProductRegistryPartitions.GLOBAL_REGISTRY_ID + "-3", registryId);
+    }
+  }
+
+  @Nested
+  public class Route {
+
+    @Test
+    public void it_should_routeToPartitionOfProduct_when_commandTargetsAProduct() {
+      // Given
+      ProductRegistryPartitions partitions = new ProductRegistryPartitions(null, 8);
+      ProductId productId = new ProductId();
+
+      // When
+      ProductRegistry registry = partitions.route(new RemoveProduct(productId));
+
+      // Then
+      assertSame(partitions.get(partitions.partitionOf(productId)), registry);
+    }
+
+    @Test
+    public void it_should_routeBatchToPartitionOfFirstProduct_when_batchSpansPartitions() {
+      // Given
+      ProductRegistryPartitions partitions = new ProductRegistryPartitions(null, 8);
+      ProductId first = partitions.get(2).newProductId();
+      ProductId other = partitions.get(6).newProductId();
+      UpdateProducts cmd = new UpdateProducts(List.of(
+          new UpdateProduct(first, "First", "A test product"),
+          new UpdateProduct(other, "Other", "A test product")));
+
+      // When
+      ProductRegistry registry = partitions.route(cmd);
+
+      // Then
+      assertSame(partitions.get(2), registry);
+      assertTrue(registry.ownsProduct(first));
+      assertFalse(registry.ownsProduct(other));
+    }
+
+    @Test
+    public void it_should_mintProductIdOfThePartition_when_generatingProductId() {
+      // Given
+      ProductRegistryPartitions partitions = new ProductRegistryPartitions(null, 8);
+
+      // When
+      ProductId productId = partitions.get(5).newProductId();
+
+      // Then
+      assertEquals(5, partitions.partitionOf(productId));
+    }
+
+    @Test
+    public void it_should_keepThePartitionOfAProduct_when_hashingItsId() {
+      // Given
+      ProductRegistryPartitions partitions = new ProductRegistryPartitions(null, 8);
+      ProductId productId = ProductId.of("123e4567-e89b-12d3-a456-426614174000");
+
+      // When
+      int partition = partitions.partitionOf(productId);
+
+      // Then
+      // The stored products are routed by this hash, it must not change
+      assertEquals(5, partition);
+    }
+  }
+
+  @Nested
+  public class IsProductNameAvailable {
+
+    @Test
+    public void it_should_returnFalse_when_nameIsUsedInAnotherPartition() {
+      // Given
+      ProductRegistryPartitions partitions = new ProductRegistryPartitions(null, 2);
+      ProductRegistry registry = partitions.get(0);
+      registry.apply(new ProductRegistered(new EventId(), registry.getId(), 1, 0,
+          new ProductRegistered.Payload(registry.newProductId(), "Test", "A test product")));
+
+      // When
+      boolean result = partitions.get(1).isProductNameAvailable("Test");
+
+      // Then
+      assertFalse(result);
+    }
+  }
+
+  @Nested
+  public class Apply {
+
+    @Test
+    public void it_should_trackVersionPerPartition_when_applyingEvents() {
+      // Given
+      ProductRegistryPartitions partitions = new ProductRegistryPartitions(null, 2);
+      ProductRegistry registry = partitions.get(0);
+
+      // When
+      registry.apply(new ProductRegistered(new EventId(), registry.getId(), 1, 0,
+          new ProductRegistered.Payload(registry.newProductId(), "Test", "A test product")));
+
+      // Then
+      assertEquals(1, registry.getVersion());
+      assertEquals(0, partitions.get(1).getVersion());
+      assertTrue(partitions.get(1).isProductNameAvailable("Other"));
+    }
+  }
+
+  @Nested
+  public class CheckStoredRegistries {
+
+    @Test
+    public void it_should_accept_when_storeHoldsSomeOfTheConfiguredPartitions() {
+      // Given
+      Set<String> storedRegistryIds = Set.of(ProductRegistryPartitions.registryIdOf(0, 4),
+          ProductRegistryPartitions.registryIdOf(3, 4));
+
+      // When / Then
+      ProductRegistryPartitions.checkStoredRegistries(storedRegistryIds, 4);
+    }
+
+    @Test
+    public void it_should_reject_when_storeWasWrittenWithAnotherPartitionCount() {
+      // Given
+      Set<String> storedRegistryIds = Set.of(ProductRegistryPartitions.registryIdOf(0, 1));
+
+      // When / Then
+      IllegalStateException exception = assertThrows(IllegalStateException.class,
+          () -> ProductRegistryPartitions.checkStoredRegistries(storedRegistryIds, 4));
+      assertTrue(exception.getMessage().contains(ProductRegistryPartitions.GLOBAL_REGISTRY_ID));
+    }
+  }
+}
@@ -2,12 +2,14 @@ package org.ormi.priv.tfa.orderflow.product.registry.aggregate;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.*;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.*;
 import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
 import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryService;
 
+import io.smallrye.mutiny.Uni;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -18,7 +20,6 @@ import static org.mockito.Mockito.*;
 class ProductRegistryTest {
 
     // Constants for repeated literals
-    private static final String PRODUCT_ID = "12345";
     private static final String PRODUCT_NAME = "Product Name";
     private static final String PRODUCT_DESCRIPTION = "Product Description";
     private static final String OTHER_PRODUCT_NAME = "Other Product Name";
@@ -26,6 +27,14 @@ class ProductRegistryTest {
     private ProductRegistry productRegistry;
     private ProductRegistryService productRegistryService;
 
+    /**
+     * Create the event registering a product in the registry.
+     */
+    private ProductRegistered registered(ProductId productId, long version) {
+        return new ProductRegistered(new EventId(), productRegistry.getId(), version, 0,
+            new ProductRegistered.Payload(productId, PRODUCT_NAME, PRODUCT_DESCRIPTION));
+    }
+
     /**
      * Set up the test environment by initializing the ProductRegistry and its dependencies.
      * Mock the ProductRegistryService to isolate tests.
@@ -38,39 +47,42 @@ class ProductRegistryTest {
 
     /**
      * Test handling a valid RegisterProduct command.
-     * Verifies that the product is correctly added to the registry.
+     * Verifies that the event decided and applied by the service is returned.
      */
     @Test
     void testHandleValidRegisterProductCommand() {
         // Prepare a valid RegisterProduct command and its corresponding event
-        ProductId productId = new ProductId(PRODUCT_ID);
-        RegisterProduct command = new RegisterProduct(productId, PRODUCT_NAME, PRODUCT_DESCRIPTION);
-        ProductRegistered event = new ProductRegistered(command);
+        ProductId productId = new ProductId();
+        RegisterProduct command = new RegisterProduct(PRODUCT_NAME, PRODUCT_DESCRIPTION);
+        ProductRegistered event = registered(productId, 1);
 
         // Mock the behavior of the ProductRegistryService to return the expected event
-        when(productRegistryService.registerProduct(eq(productRegistry), eq(command)))
+        when(productRegistryService.registerProduct(eq(productRegistry), eq(command), isNull()))
             .thenReturn(Uni.createFrom().item(event));
 
-        // Handle the command and observe the result asynchronously
-        productRegistry.handle(command)
-            .onItem().invoke(result -> {
-                // Verify that the product is successfully added to the registry
-                assertTrue(productRegistry.hasProductWithId(productId));
-            }).subscribe().with(result -> { });
+        // Handle the command
+        ChannelMessage result = productRegistry.handle(command).await().indefinitely();
+
+        // Verify that the event of the service is returned, and not applied a second time
+        assertSame(event, result);
+        assertEquals(0, productRegistry.getVersion());
     }
 
     /**
-     * Test handling an invalid command type.
-     * Verifies that an exception is thrown for unrecognized commands.
+     * Test handling a command rejected by the service.
+     * Verifies that the failure is propagated and nothing is applied.
      */
     @Test
-    void testHandleInvalidCommand() {
-        // Create a mock command of an unrecognized type
-        ProductRegistryCommand invalidCommand = mock(ProductRegistryCommand.class);
-
-        // Ensure that handling an invalid command throws an exception
-        assertThrows(IllegalArgumentException.class, () -> 
-            productRegistry.handle(invalidCommand).await().indefinitely());
+    void testHandleRejectedCommand() {
+        // Prepare a command rejected by the ProductRegistryService
+        RegisterProduct command = new RegisterProduct(PRODUCT_NAME, PRODUCT_DESCRIPTION);
+        when(productRegistryService.registerProduct(eq(productRegistry), eq(command), isNull()))
+            .thenReturn(Uni.createFrom().failure(new IllegalArgumentException("Product name already in use")));
+
+        // Ensure that handling the command throws the rejection
+        assertThrows(IllegalArgumentException.class, () ->
+            productRegistry.handle(command).await().indefinitely());
+        assertEquals(0, productRegistry.getVersion());
     }
 
     /**
@@ -80,8 +92,8 @@ class ProductRegistryTest {
     @Test
     void testApplyValidProductRegisteredEvent() {
         // Create a ProductRegistered event
-        ProductId productId = new ProductId(PRODUCT_ID);
-        ProductRegistered event = new ProductRegistered(new RegisterProduct(productId, PRODUCT_NAME, PRODUCT_DESCRIPTION));
+        ProductId productId = new ProductId();
+        ProductRegistered event = registered(productId, 1);
 
         // Apply the event to the ProductRegistry
         productRegistry.apply(event);
@@ -97,11 +109,12 @@ class ProductRegistryTest {
     @Test
     void testApplyProductRemovedEvent() {
         // Add a product to the registry by applying a ProductRegistered event
-        ProductId productId = new ProductId(PRODUCT_ID);
-        productRegistry.apply(new ProductRegistered(new RegisterProduct(productId, PRODUCT_NAME, PRODUCT_DESCRIPTION)));
+        ProductId productId = new ProductId();
+        productRegistry.apply(registered(productId, 1));
 
         // Create a ProductRemoved event for the same product
-        ProductRemoved event = new ProductRemoved(new RemoveProduct(productId));
+        ProductRemoved event = new ProductRemoved(new EventId(), productRegistry.getId(), 2, 0,
+            new ProductRemoved.Payload(productId));
 
         // Apply the ProductRemoved event
         productRegistry.apply(event);
@@ -112,7 +125,7 @@ class ProductRegistryTest {
 
     /**
      * Test retrieving the current version of the registry.
-     * Verifies that the version starts at 0 and increments correctly.
+     * Verifies that the version starts at 0 and follows the applied events.
      */
     @Test
     void testGetVersion() {
@@ -122,8 +135,8 @@ class ProductRegistryTest {
         // Verify that the initial version is 0
         assertEquals(0, version);
 
-        // Increment the version and verify the change
-        productRegistry.incrementVersion();
+        // Apply an event and verify the change
+        productRegistry.apply(registered(new ProductId(), 1));
         assertEquals(1, productRegistry.getVersion());
     }
 
@@ -134,8 +147,8 @@ class ProductRegistryTest {
     @Test
     void testHasProductWithId() {
         // Add a product to the registry by applying a ProductRegistered event
-        ProductId productId = new ProductId(PRODUCT_ID);
-        productRegistry.apply(new ProductRegistered(new RegisterProduct(productId, PRODUCT_NAME, PRODUCT_DESCRIPTION)));
+        ProductId productId = new ProductId();
+        productRegistry.apply(registered(productId, 1));
 
         // Check that the product is found by its ID
         assertTrue(productRegistry.hasProductWithId(productId));
@@ -148,9 +161,9 @@ class ProductRegistryTest {
     @Test
     void testHasProduct() {
         // Add a product to the registry by applying a ProductRegistered event
-        ProductId productId = new ProductId(PRODUCT_ID);
+        ProductId productId = new ProductId();
         Product product = new Product(productId, PRODUCT_NAME, PRODUCT_DESCRIPTION);
-        productRegistry.apply(new ProductRegistered(new RegisterProduct(productId, PRODUCT_NAME, PRODUCT_DESCRIPTION)));
+        productRegistry.apply(registered(productId, 1));
 
         // Check that the product is found in the registry
         assertTrue(productRegistry.hasProduct(product));
@@ -163,7 +176,7 @@ class ProductRegistryTest {
     @Test
     void testIsProductNameAvailable() {
         // Add a product with a specific name to the registry
-        productRegistry.apply(new ProductRegistered(new RegisterProduct(new ProductId(PRODUCT_ID), PRODUCT_NAME, PRODUCT_DESCRIPTION)));
+        productRegistry.apply(registered(new ProductId(), 1));
 
         // Verify the availability of product names
         assertFalse(productRegistry.isProductNameAvailable(PRODUCT_NAME)); // Name is already taken
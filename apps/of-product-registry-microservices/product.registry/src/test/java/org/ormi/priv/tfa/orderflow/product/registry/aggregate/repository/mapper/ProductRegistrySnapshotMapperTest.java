@@ -0,0 +1,45 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.Product;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistrySnapshotEntity;
+
+public class ProductRegistrySnapshotMapperTest {
+
+  @Nested
+  public class Restore {
+
+    @Test
+    public void it_should_restoreProductsAndVersion_when_restoringASnapshot() {
+      // Given
+      ProductRegistry registry = new ProductRegistry(null, ProductNameNormalization.EXACT);
+      ProductId uuidId = new ProductId();
+      ProductId legacyId = ProductId.of("3F2504E0-4F89-11D3-9A0C-0305E82C3301");
+      registry.apply(new ProductRegistered(new EventId(), registry.getId(), 1, 0,
+          new ProductRegistered.Payload(uuidId, "Test", "A test product")));
+      registry.apply(new ProductRegistered(new EventId(), registry.getId(), 2, 0,
+          new ProductRegistered.Payload(legacyId, "Legacy", null)));
+      ProductRegistrySnapshotEntity snapshot = ProductRegistrySnapshotMapper.INSTANCE.toEntity(registry);
+
+      // When
+      ProductRegistry restored = new ProductRegistry(null, ProductNameNormalization.EXACT);
+      ProductRegistrySnapshotMapper.INSTANCE.restore(snapshot, restored);
+
+      // Then
+      assertEquals(2, restored.getVersion());
+      assertTrue(restored.hasProduct(new Product(uuidId, "Test", "A test product")));
+      assertTrue(restored.hasProduct(new Product(legacyId, "Legacy", null)));
+      assertFalse(restored.isProductNameAvailable("Legacy"));
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package org.ormi.priv.tfa.orderflow.product.registry.service.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.eclipse.microprofile.reactive.messaging.spi.Connector;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper.ProductRegistryEventEntityMapper;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.service.consumer.ProductRegistryCommandConsumer.CommandMetadata;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectSpy;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import io.smallrye.reactive.messaging.memory.InMemorySink;
+import io.smallrye.reactive.messaging.memory.InMemorySource;
+import jakarta.inject.Inject;
+
+/**
+ * Command handling through the in-VM channels and the in-memory event store of
+ * the test profile, without outside services.
+ */
+@QuarkusTest
+public class ProductRegistryCommandConsumerTest {
+
+  @Inject
+  @Connector("smallrye-in-memory")
+  private InMemoryConnector connector;
+
+  @InjectSpy
+  private ProductRegistryEventRepository repository;
+
+  /**
+   * Send a command through the in-VM channel and wait for the event it produces.
+   */
+  private ProductRegistryEvent send(ProductRegistryCommand command) throws InterruptedException {
+    InMemorySource<Message<ProductRegistryCommand>> commands = connector.source("product-registry-command");
+    InMemorySink<ProductRegistryEvent> events = connector.sink("product-registry-event");
+    events.clear();
+    commands.send(Message.of(command, Metadata.of(new CommandMetadata(UUID.randomUUID().toString()))));
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (events.received().isEmpty() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    return events.received().get(0).getPayload();
+  }
+
+  @Nested
+  public class HandleCommand {
+
+    @Test
+    public void it_should_emitEvent_when_commandIsSentInVm() throws InterruptedException {
+      // Given
+      InMemorySource<Message<ProductRegistryCommand>> commands = connector.source("product-registry-command");
+      InMemorySink<ProductRegistryEvent> events = connector.sink("product-registry-event");
+      events.clear();
+      String name = "Product " + UUID.randomUUID();
+
+      // When
+      commands.send(Message.of(new RegisterProduct(name, "Description"),
+          Metadata.of(new CommandMetadata(UUID.randomUUID().toString()))));
+
+      // Then
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (events.received().isEmpty() && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      ProductRegistered registered = assertInstanceOf(ProductRegistered.class, events.received().get(0).getPayload());
+      assertEquals(name, registered.payload.name);
+    }
+  }
+
+  @Nested
+  public class ConcurrentWriters {
+
+    @Test
+    public void it_should_catchUpAndRetry_when_anotherWriterAppendsTheSameVersionFirst() throws InterruptedException {
+      // Given
+      String name = "Product " + UUID.randomUUID();
+      AtomicLong competingVersion = new AtomicLong();
+      // Another writer appends at the version the command was decided on, right before its append
+      doAnswer(invocation -> {
+        String registryId = invocation.getArgument(0);
+        long expectedVersion = invocation.getArgument(1);
+        ProductRegistryEventEntity competing = ProductRegistryEventEntityMapper.INSTANCE.toEntity(
+            new ProductRegistered(new EventId(), registryId, expectedVersion + 1, System.currentTimeMillis(),
+                new ProductRegistered.Payload(new ProductId(), "Other " + name, "Description")));
+        repository.append(registryId, expectedVersion, List.of(competing));
+        competingVersion.set(competing.version);
+        return invocation.callRealMethod();
+      }).doCallRealMethod().when(repository).append(anyString(), anyLong(), anyList());
+
+      // When
+      ProductRegistryEvent event = send(new RegisterProduct(name, "Description"));
+
+      // Then
+      ProductRegistered registered = assertInstanceOf(ProductRegistered.class, event);
+      assertEquals(name, registered.payload.name);
+      assertEquals(competingVersion.get() + 1, registered.version);
+    }
+  }
+}
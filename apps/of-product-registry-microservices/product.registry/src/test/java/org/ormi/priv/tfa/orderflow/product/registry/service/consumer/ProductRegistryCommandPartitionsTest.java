@@ -0,0 +1,105 @@
+package org.ormi.priv.tfa.orderflow.product.registry.service.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.eclipse.microprofile.reactive.messaging.spi.Connector;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
+import org.ormi.priv.tfa.orderflow.product.registry.service.consumer.ProductRegistryCommandConsumer.CommandMetadata;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import io.smallrye.reactive.messaging.memory.InMemorySink;
+import io.smallrye.reactive.messaging.memory.InMemorySource;
+import jakarta.inject.Inject;
+
+/**
+ * Command handling over several registry partitions, with the in-VM channels
+ * and the in-memory event store of the test profile.
+ */
+@QuarkusTest
+@TestProfile(ProductRegistryCommandPartitionsTest.Partitioned.class)
+public class ProductRegistryCommandPartitionsTest {
+
+  /**
+   * Test profile with the registry spread over several partitions.
+   */
+  public static class Partitioned implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of("product.registry.partitions", "4");
+    }
+  }
+
+  @Inject
+  @Connector("smallrye-in-memory")
+  private InMemoryConnector connector;
+
+  /**
+   * Send a command through the in-VM channel and wait for the events it produces.
+   */
+  private List<ProductRegistryEvent> send(ProductRegistryCommand command, int eventCount)
+      throws InterruptedException {
+    InMemorySource<Message<ProductRegistryCommand>> commands = connector.source("product-registry-command");
+    InMemorySink<ProductRegistryEvent> events = connector.sink("product-registry-event");
+    events.clear();
+    commands.send(Message.of(command, Metadata.of(new CommandMetadata(UUID.randomUUID().toString()))));
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (events.received().size() < eventCount && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    return events.received().stream().map(Message::getPayload).toList();
+  }
+
+  @Nested
+  public class HandleCommand {
+
+    @Test
+    public void it_should_updateEveryProduct_when_batchSpansPartitions() throws InterruptedException {
+      // Given
+      final List<ProductRegistered> registered = new ArrayList<>();
+      for (int i = 0; registered.size() < 2 && i < 32; i++) {
+        final ProductRegistered product = (ProductRegistered) send(
+            new RegisterProduct("Product " + UUID.randomUUID(), "Description"), 1).get(0);
+        if (registered.isEmpty() || !registered.get(0).aggregateId.equals(product.aggregateId)) {
+          registered.add(product);
+        }
+      }
+      UpdateProducts cmd = new UpdateProducts(registered.stream()
+          .map(product -> new UpdateProduct(product.payload.productId, "Updated " + UUID.randomUUID(),
+              "Description"))
+          .toList());
+
+      // When
+      List<ProductRegistryEvent> events = send(cmd, 2);
+
+      // Then
+      assertEquals(2, events.size());
+      Set<String> registryIds = events.stream()
+          .map(event -> ((ProductUpdated) event).aggregateId)
+          .collect(Collectors.toSet());
+      assertEquals(registered.stream().map(product -> product.aggregateId).collect(Collectors.toSet()),
+          registryIds);
+    }
+  }
+}
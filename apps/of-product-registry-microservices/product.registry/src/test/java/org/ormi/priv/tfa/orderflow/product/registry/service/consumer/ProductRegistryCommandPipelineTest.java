@@ -0,0 +1,114 @@
+package org.ormi.priv.tfa.orderflow.product.registry.service.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.eclipse.microprofile.reactive.messaging.spi.Connector;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.product.registry.service.consumer.ProductRegistryCommandConsumer.CommandMetadata;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import io.smallrye.reactive.messaging.memory.InMemorySink;
+import io.smallrye.reactive.messaging.memory.InMemorySource;
+import jakarta.inject.Inject;
+
+/**
+ * Command handling through the single writer command pipeline, with the in-VM
+ * channels and the in-memory event store of the test profile.
+ */
+@QuarkusTest
+@TestProfile(ProductRegistryCommandPipelineTest.CommandPipeline.class)
+public class ProductRegistryCommandPipelineTest {
+
+  /**
+   * Test profile with the command pipeline and group commit enabled.
+   */
+  public static class CommandPipeline implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of(
+          "product.registry.command-pipeline.enabled", "true",
+          "product.registry.event-store.group-commit.enabled", "true");
+    }
+  }
+
+  @Inject
+  @Connector("smallrye-in-memory")
+  private InMemoryConnector connector;
+
+  @Inject
+  private MeterRegistry meterRegistry;
+
+  @Nested
+  public class HandleCommand {
+
+    @Test
+    public void it_should_emitEvent_when_commandIsHandledByThePipeline() throws InterruptedException {
+      // Given
+      InMemorySource<Message<ProductRegistryCommand>> commands = connector.source("product-registry-command");
+      InMemorySink<ProductRegistryEvent> events = connector.sink("product-registry-event");
+      events.clear();
+      String name = "Product " + UUID.randomUUID();
+
+      // When
+      commands.send(Message.of(new RegisterProduct(name, "Description"),
+          Metadata.of(new CommandMetadata(UUID.randomUUID().toString()))));
+
+      // Then
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (events.received().isEmpty() && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      ProductRegistered registered = assertInstanceOf(ProductRegistered.class, events.received().get(0).getPayload());
+      assertEquals(name, registered.payload.name);
+      assertNotNull(meterRegistry.find(ProductRegistryCommandMetrics.PIPELINE_QUEUE_GAUGE).gauge());
+    }
+
+    @Test
+    public void it_should_saveConsecutiveVersions_when_commandsAreInFlightTogether() throws InterruptedException {
+      // Given
+      InMemorySource<Message<ProductRegistryCommand>> commands = connector.source("product-registry-command");
+      InMemorySink<ProductRegistryEvent> events = connector.sink("product-registry-event");
+      events.clear();
+      String prefix = "Product " + UUID.randomUUID();
+
+      // When
+      for (int i = 0; i < 20; i++) {
+        commands.send(Message.of(new RegisterProduct(prefix + " " + i, "Description"),
+            Metadata.of(new CommandMetadata(UUID.randomUUID().toString()))));
+      }
+
+      // Then
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (events.received().size() < 20 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      List<Long> versions = events.received().stream()
+          .map(event -> ((ProductRegistered) event.getPayload()).version)
+          .sorted()
+          .toList();
+      assertEquals(20, versions.size());
+      assertEquals(LongStream.range(0, 20).map(i -> versions.get(0) + i).boxed().toList(), versions);
+    }
+  }
+}
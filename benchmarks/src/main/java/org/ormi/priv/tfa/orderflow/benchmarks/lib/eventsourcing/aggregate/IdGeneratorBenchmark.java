@@ -0,0 +1,66 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.lib.eventsourcing.aggregate;
+
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.IdGenerators;
+
+/**
+ * Throughput of the id generators, and of inserting their ids in an ordered index.
+ *
+ * The index is a tree ordered like the BSON binary ids in a MongoDB index
+ * (unsigned bytes), time-ordered ids are expected to be inserted at its end.
+ * Run with {@code -t <threads>} to measure the generators under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+  private static final int INDEX_SIZE = 100_000;
+
+  /**
+   * Order of the BSON binary UUIDs in an index.
+   */
+  private static final Comparator<UUID> INDEX_ORDER = (left, right) -> {
+    final int order = Long.compareUnsigned(left.getMostSignificantBits(), right.getMostSignificantBits());
+    return order != 0 ? order : Long.compareUnsigned(left.getLeastSignificantBits(), right.getLeastSignificantBits());
+  };
+
+  /**
+   * Id generator.
+   */
+  @Param({ "RANDOM", "TIME_ORDERED" })
+  public IdGenerators generator;
+
+  @Benchmark
+  public UUID generate() {
+    return generator.next();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(INDEX_SIZE)
+  public TreeMap<UUID, Boolean> insert() {
+    final TreeMap<UUID, Boolean> index = new TreeMap<>(INDEX_ORDER);
+    for (int i = 0; i < INDEX_SIZE; i++) {
+      index.put(generator.next(), Boolean.TRUE);
+    }
+    return index;
+  }
+}
@@ -0,0 +1,130 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.lib.eventsourcing.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.MappedFileEventStore;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.MappedFileEventStore.FsyncPolicy;
+
+/**
+ * Append throughput and latency of the mapped file event store by fsync
+ * policy.
+ *
+ * Each benchmark thread appends single events to its own stream, as the
+ * command handlers of distinct registries do. Run with {@code -t 4} to see the
+ * group commit share the forces of concurrent appends. The sample time mode
+ * reports the latency percentiles of an append.
+ *
+ * @implNote The event collection is left out, it needs a running MongoDB:
+ *           the same events cost a round trip per append there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedFileEventStoreBenchmark {
+
+  /**
+   * Size of an event, about a raw product registered event.
+   */
+  private static final int EVENT_SIZE = 256;
+
+  /**
+   * Stored event.
+   */
+  private record StoredEvent(String aggregateRootId, long version, byte[] data) {
+  }
+
+  /**
+   * When appends are forced to the storage device.
+   */
+  @Param({ "ALWAYS", "GROUP", "PERIODIC" })
+  public FsyncPolicy fsync;
+
+  /**
+   * Stream appended by a benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class Writer {
+    private final String aggregateRootId = UUID.randomUUID().toString();
+    private long version;
+  }
+
+  private Path directory;
+  private MappedFileEventStore<StoredEvent> store;
+  private byte[] data;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("mapped-event-store-benchmark");
+    data = new byte[EVENT_SIZE];
+    ThreadLocalRandom.current().nextBytes(data);
+    store = new MappedFileEventStore<>(directory, 64 << 20, fsync, Duration.ofMillis(100),
+        new MappedFileEventStore.EventCodec<>() {
+          @Override
+          public String aggregateRootIdOf(StoredEvent event) {
+            return event.aggregateRootId();
+          }
+
+          @Override
+          public long versionOf(StoredEvent event) {
+            return event.version();
+          }
+
+          @Override
+          public byte[] encode(StoredEvent event) {
+            return event.data();
+          }
+
+          @Override
+          public StoredEvent decode(byte[] data) {
+            throw new UnsupportedOperationException();
+          }
+        });
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    store.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> {
+        try {
+          Files.delete(path);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+  }
+
+  @Benchmark
+  public void append(Writer writer) {
+    final long expectedVersion = writer.version++;
+    store.append(writer.aggregateRootId, expectedVersion,
+        List.of(new StoredEvent(writer.aggregateRootId, expectedVersion + 1, data)));
+  }
+}
@@ -0,0 +1,49 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.lib.publishedlanguage.codec;
+
+import java.io.IOException;
+
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageCodec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * JSON codecs of the channel messages, as used by the Pulsar JSON schema.
+ */
+public final class JsonMessageCodecs {
+
+  private JsonMessageCodecs() {
+  }
+
+  /**
+   * JSON codec of a sealed hierarchy.
+   *
+   * @param rootType - the root of the message hierarchy
+   * @return the codec, reading and writing the type property of the root
+   */
+  public static MessageCodec<Object> of(Class<?> rootType) {
+    final ObjectMapper mapper = new ObjectMapper();
+    final ObjectWriter writer = mapper.writerFor(rootType);
+    final ObjectReader reader = mapper.readerFor(rootType);
+    return new MessageCodec<>() {
+      @Override
+      public byte[] encode(Object message) {
+        try {
+          return writer.writeValueAsBytes(message);
+        } catch (IOException e) {
+          throw new IllegalArgumentException(e);
+        }
+      }
+
+      @Override
+      public Object decode(byte[] data) {
+        try {
+          return reader.readValue(data);
+        } catch (IOException e) {
+          throw new IllegalArgumentException(e);
+        }
+      }
+    };
+  }
+}
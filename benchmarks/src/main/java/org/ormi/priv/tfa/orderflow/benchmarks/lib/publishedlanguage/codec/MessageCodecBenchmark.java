@@ -0,0 +1,152 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.lib.publishedlanguage.codec;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.BinaryMessageCodecs;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageCodec;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Cost and size of the channel messages by wire format.
+ *
+ * The encoded size of the message is reported as the {@code encodedBytes}
+ * secondary result of {@code size}. Run with {@code -prof gc} to compare the
+ * allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+  /**
+   * Message sent on a channel.
+   */
+  public enum Sample {
+    /**
+     * Event of the event channel.
+     */
+    PRODUCT_REGISTERED,
+    /**
+     * Single product command of the command channel.
+     */
+    UPDATE_PRODUCT,
+    /**
+     * Batch command of 100 products of the command channel.
+     */
+    REGISTER_PRODUCTS
+  }
+
+  /**
+   * Message encoded and decoded.
+   */
+  @Param({ "PRODUCT_REGISTERED", "UPDATE_PRODUCT", "REGISTER_PRODUCTS" })
+  public Sample sample;
+
+  /**
+   * Wire format of the message.
+   */
+  @Param({ "JSON", "BINARY" })
+  public MessageFormat format;
+
+  /**
+   * Encoded size of the message.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Size {
+    public long encodedBytes;
+  }
+
+  private Object message;
+  private byte[] encoded;
+  private MessageCodec<Object> codec;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final Class<?> rootType;
+    final MessageCodec<?> binaryCodec;
+    switch (sample) {
+      case PRODUCT_REGISTERED -> {
+        message = new ProductRegistered(new EventId(), "product-registry", 1234, System.currentTimeMillis(),
+            new ProductRegistered.Payload(new ProductId(), "Product 1234", "Description of product 1234"));
+        rootType = ProductRegistryEvent.class;
+        binaryCodec = BinaryMessageCodecs.EVENTS;
+      }
+      case UPDATE_PRODUCT -> {
+        message = new UpdateProduct(new ProductId(), "Product 1234", "Description of product 1234");
+        rootType = ProductRegistryCommand.class;
+        binaryCodec = BinaryMessageCodecs.COMMANDS;
+      }
+      default -> {
+        message = new RegisterProducts(IntStream.range(0, 100)
+            .mapToObj(i -> new RegisterProduct("Product " + i, "Description of product " + i))
+            .toList());
+        rootType = ProductRegistryCommand.class;
+        binaryCodec = BinaryMessageCodecs.COMMANDS;
+      }
+    }
+    codec = switch (format) {
+      case JSON -> JsonMessageCodecs.of(rootType);
+      case BINARY -> cast(binaryCodec);
+    };
+    encoded = codec.encode(message);
+    // Both formats must carry the whole message
+    if (codec.encode(codec.decode(encoded)).length != encoded.length) {
+      throw new IllegalStateException("Round trip changed the " + format + " message " + sample);
+    }
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return codec.encode(message);
+  }
+
+  @Benchmark
+  public Object decode() {
+    return codec.decode(encoded);
+  }
+
+  /**
+   * Single encoding reporting the encoded size, the counters are summed over the
+   * measurement iterations.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  public byte[] size(Size size) {
+    final byte[] data = codec.encode(message);
+    size.encodedBytes = data.length;
+    return data;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MessageCodec<Object> cast(MessageCodec<?> codec) {
+    return (MessageCodec<Object>) codec;
+  }
+}
@@ -0,0 +1,71 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.lib.publishedlanguage.valueobject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Cost of parsing product ids and of looking them up in a hash map.
+ *
+ * Run with {@code -prof gc} to compare the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductIdBenchmark {
+
+  /**
+   * Number of products in the map.
+   */
+  @Param({ "100000", "1000000" })
+  public int catalogSize;
+
+  private String[] ids;
+  private ProductId[] productIds;
+  private Map<ProductId, Integer> products;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ids = new String[catalogSize];
+    productIds = new ProductId[catalogSize];
+    products = new HashMap<>(catalogSize * 2);
+    for (int i = 0; i < catalogSize; i++) {
+      productIds[i] = new ProductId();
+      ids[i] = productIds[i].getId();
+      products.put(productIds[i], i);
+    }
+  }
+
+  @Benchmark
+  public ProductId parse() {
+    return ProductId.of(ids[ThreadLocalRandom.current().nextInt(catalogSize)]);
+  }
+
+  @Benchmark
+  public Integer lookup() {
+    return products.get(productIds[ThreadLocalRandom.current().nextInt(catalogSize)]);
+  }
+
+  @Benchmark
+  public Integer parseAndLookup() {
+    return products.get(ProductId.of(ids[ThreadLocalRandom.current().nextInt(catalogSize)]));
+  }
+}
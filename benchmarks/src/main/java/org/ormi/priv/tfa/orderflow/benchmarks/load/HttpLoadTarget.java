@@ -0,0 +1,124 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Api gateway under load, over HTTP.
+ *
+ * A command is posted to the command resource, then the 303 redirection to
+ * its event stream is followed until the first event is received, as a client
+ * waiting for the outcome of its command does. Queries wait for the response
+ * of the query resource.
+ */
+public final class HttpLoadTarget implements LoadTarget {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final URI baseUri;
+  private final Duration timeout;
+  private final HttpClient client;
+
+  /**
+   * Constructor.
+   *
+   * @param baseUri - the base URI of the api gateway, e.g. {@code http://localhost:8080}
+   * @param timeout - the timeout of a request, and of the wait for an event
+   */
+  public HttpLoadTarget(URI baseUri, Duration timeout) {
+    this.baseUri = baseUri;
+    this.timeout = timeout;
+    this.client = HttpClient.newBuilder()
+        .connectTimeout(timeout)
+        .followRedirects(HttpClient.Redirect.NEVER)
+        .build();
+  }
+
+  @Override
+  public String register(String name, String description) throws IOException, InterruptedException {
+    final JsonNode event = command("/product/registry/registerProduct",
+        Map.of("name", name, "description", description));
+    final JsonNode productId = event.path("payload").path("id");
+    if (!productId.isTextual()) {
+      throw new IllegalStateException("Registered event without product id: " + event);
+    }
+    return productId.asText();
+  }
+
+  @Override
+  public void update(String productId, String name, String description) throws IOException, InterruptedException {
+    command("/product/registry/updateProduct",
+        Map.of("productId", productId, "name", name, "description", description));
+  }
+
+  @Override
+  public void remove(String productId) throws IOException, InterruptedException {
+    command("/product/registry/removeProduct", Map.of("productId", productId));
+  }
+
+  @Override
+  public void get(String productId) throws IOException, InterruptedException {
+    query("/productRegistry/products/" + productId);
+  }
+
+  @Override
+  public void list() throws IOException, InterruptedException {
+    query("/productRegistry/products");
+  }
+
+  @Override
+  public void close() {
+    // The client connections are released with the client
+  }
+
+  /**
+   * Post a command and wait for its first event.
+   */
+  private JsonNode command(String path, Map<String, String> body) throws IOException, InterruptedException {
+    final HttpResponse<Void> accepted = client.send(HttpRequest.newBuilder(baseUri.resolve(path))
+        .timeout(timeout)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)))
+        .build(), HttpResponse.BodyHandlers.discarding());
+    if (accepted.statusCode() != 303) {
+      throw new IllegalStateException(path + " returned " + accepted.statusCode());
+    }
+    final URI events = accepted.uri().resolve(accepted.headers().firstValue("Location")
+        .orElseThrow(() -> new IllegalStateException(path + " returned no event stream location")));
+    final HttpResponse<Stream<String>> stream = client.send(HttpRequest.newBuilder(events)
+        .timeout(timeout)
+        .GET()
+        .build(), HttpResponse.BodyHandlers.ofLines());
+    try (Stream<String> lines = stream.body()) {
+      if (stream.statusCode() != 200) {
+        throw new IllegalStateException(events.getPath() + " returned " + stream.statusCode());
+      }
+      // Server-sent events or a streamed JSON array, the first object is the event
+      final String line = lines.filter(l -> l.indexOf('{') >= 0).findFirst()
+          .orElseThrow(() -> new IllegalStateException(events.getPath() + " ended without event"));
+      return MAPPER.readTree(line.substring(line.indexOf('{'), line.lastIndexOf('}') + 1));
+    }
+  }
+
+  /**
+   * Send a query and read its response.
+   */
+  private void query(String path) throws IOException, InterruptedException {
+    final HttpResponse<Void> response = client.send(HttpRequest.newBuilder(baseUri.resolve(path))
+        .timeout(timeout)
+        .GET()
+        .build(), HttpResponse.BodyHandlers.discarding());
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException(path + " returned " + response.statusCode());
+    }
+  }
+}
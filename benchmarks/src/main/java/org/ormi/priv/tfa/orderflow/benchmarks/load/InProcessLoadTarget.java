@@ -0,0 +1,88 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.load;
+
+import java.util.List;
+
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryService;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryServiceStubs;
+
+/**
+ * Product registry under load in the load generator process.
+ *
+ * Commands are handled by a registry of the product registry service, with
+ * the stubbed event store and emitter of the benchmarks, one command at a time
+ * as the command consumer does. Measures the command handling without the
+ * broker and the database.
+ *
+ * @implNote The read side is not part of the process: queries are answered
+ *           from the state of the registry.
+ */
+public final class InProcessLoadTarget implements LoadTarget {
+
+  private final ProductRegistryService service;
+  private final ProductRegistry registry;
+
+  /**
+   * Constructor.
+   */
+  public InProcessLoadTarget() {
+    service = ProductRegistryServiceStubs.create(List.of(), 1);
+    registry = new ProductRegistry(service, ProductNameNormalization.EXACT);
+  }
+
+  @Override
+  public String register(String name, String description) {
+    final ChannelMessage event = handle(new RegisterProduct(name, description));
+    if (!(event instanceof ProductRegistered registered)) {
+      throw new IllegalStateException("Registration resulted in " + event);
+    }
+    return registered.payload.productId.getId();
+  }
+
+  @Override
+  public void update(String productId, String name, String description) {
+    handle(new UpdateProduct(ProductId.of(productId), name, description));
+  }
+
+  @Override
+  public void remove(String productId) {
+    handle(new RemoveProduct(ProductId.of(productId)));
+  }
+
+  @Override
+  public void get(String productId) {
+    final boolean found;
+    synchronized (registry) {
+      found = registry.hasProductWithId(ProductId.of(productId));
+    }
+    if (!found) {
+      throw new IllegalStateException("Product " + productId + " not found");
+    }
+  }
+
+  @Override
+  public void list() {
+    synchronized (registry) {
+      List.copyOf(registry.getProducts());
+    }
+  }
+
+  @Override
+  public void close() {
+    ProductRegistryServiceStubs.close(service);
+  }
+
+  private ChannelMessage handle(ProductRegistryCommand command) {
+    synchronized (registry) {
+      return registry.handle(command).await().indefinitely();
+    }
+  }
+}
@@ -0,0 +1,377 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Open model load generator of the product registry.
+ *
+ * Operations are issued at a fixed arrival rate, whatever the response time
+ * of the target, as independent clients do. An operation is scheduled at its
+ * intended start time and executed by a pool of client threads.
+ *
+ * Two latencies are recorded per operation in HdrHistograms:
+ * <ul>
+ * <li>the response time, from the intended start time to the completion: a
+ * stalled target delays the following operations, and their wait is counted,
+ * which corrects the coordinated omission of a closed model;</li>
+ * <li>the service time, from the actual start to the completion, as a closed
+ * model would report it.</li>
+ * </ul>
+ * Failed and timed out operations are recorded at their completion, and the
+ * operations still queued when the run is stopped at their stop, so that the
+ * response times of a saturated target are not left out; their service time
+ * is only recorded once started.
+ *
+ * Usage: {@code ./gradlew :benchmarks:loadgen -Pload.args="--rate=200 --duration=2m"}
+ * <ul>
+ * <li>{@code --target=http|in-process}: the api gateway of a locally started
+ * stack, or the product registry in this process (default http);</li>
+ * <li>{@code --url=http://localhost:8080}: the base URL of the api gateway;</li>
+ * <li>{@code --rate=100}: the operations per second;</li>
+ * <li>{@code --duration=60s} and {@code --warmup=10s}: the recorded and
+ * unrecorded run times;</li>
+ * <li>{@code --mix=register:20,update:20,remove:5,get:40,list:15}: the
+ * weights of the operations;</li>
+ * <li>{@code --clients=64}: the client threads, the maximum of operations in
+ * flight;</li>
+ * <li>{@code --catalog=100}: the products registered before the run;</li>
+ * <li>{@code --timeout=10s}: the timeout of an operation;</li>
+ * <li>{@code --report-dir=<dir>}: write the percentile distributions as
+ * {@code .hgrm} files, for plotting.</li>
+ * </ul>
+ *
+ * @implNote Operations on a known product fall back to a registration while
+ *           no product is known.
+ */
+public final class LoadGenerator {
+
+  private final LoadTarget target;
+  private final OperationMix mix;
+  private final double rate;
+  private final Duration warmup;
+  private final Duration duration;
+  private final Duration timeout;
+  private final int clients;
+  private final KnownProducts products = new KnownProducts();
+  private final AtomicLong names = new AtomicLong();
+  private final Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+
+  /**
+   * Latencies and outcomes of an operation, in microseconds.
+   */
+  private static final class Latencies {
+    private final Histogram responseTime = new ConcurrentHistogram(3);
+    private final Histogram serviceTime = new ConcurrentHistogram(3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    long failed() {
+      return errors.sum() + timeouts.sum() + dropped.sum();
+    }
+  }
+
+  /**
+   * An operation queued for a client thread.
+   */
+  private final class ScheduledOperation implements Runnable {
+    private final Operation operation;
+    private final long intendedStart;
+    private final boolean recorded;
+
+    ScheduledOperation(Operation operation, long intendedStart, boolean recorded) {
+      this.operation = operation;
+      this.intendedStart = intendedStart;
+      this.recorded = recorded;
+    }
+
+    @Override
+    public void run() {
+      execute(operation, intendedStart, recorded);
+    }
+
+    /**
+     * Record the operation as dropped, never started before the end of the run.
+     */
+    void drop() {
+      if (recorded) {
+        final Latencies operationLatencies = latencies.get(operation);
+        operationLatencies.dropped.increment();
+        operationLatencies.responseTime.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart));
+      }
+    }
+  }
+
+  /**
+   * Ids of the products known to be registered.
+   */
+  private static final class KnownProducts {
+    private final List<String> ids = new ArrayList<>();
+
+    synchronized void add(String productId) {
+      ids.add(productId);
+    }
+
+    synchronized String pick() {
+      return ids.isEmpty() ? null : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    synchronized String take() {
+      if (ids.isEmpty()) {
+        return null;
+      }
+      final int i = ThreadLocalRandom.current().nextInt(ids.size());
+      final String productId = ids.get(i);
+      ids.set(i, ids.get(ids.size() - 1));
+      ids.remove(ids.size() - 1);
+      return productId;
+    }
+  }
+
+  private LoadGenerator(LoadTarget target, OperationMix mix, double rate, Duration warmup, Duration duration,
+      Duration timeout, int clients) {
+    this.target = target;
+    this.mix = mix;
+    this.rate = rate;
+    this.warmup = warmup;
+    this.duration = duration;
+    this.timeout = timeout;
+    this.clients = clients;
+    for (Operation operation : Operation.values()) {
+      latencies.put(operation, new Latencies());
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Map<String, String> options = parse(args);
+    final Duration timeout = duration(options.getOrDefault("timeout", "10s"));
+    final String targetName = options.getOrDefault("target", "http");
+    try (LoadTarget target = switch (targetName) {
+      case "http" -> new HttpLoadTarget(URI.create(options.getOrDefault("url", "http://localhost:8080")), timeout);
+      case "in-process" -> new InProcessLoadTarget();
+      default -> throw new IllegalArgumentException("Unknown target: " + targetName);
+    }) {
+      final LoadGenerator generator = new LoadGenerator(target,
+          OperationMix.parse(options.getOrDefault("mix", "register:20,update:20,remove:5,get:40,list:15")),
+          Double.parseDouble(options.getOrDefault("rate", "100")),
+          duration(options.getOrDefault("warmup", "10s")),
+          duration(options.getOrDefault("duration", "60s")),
+          timeout,
+          Integer.parseInt(options.getOrDefault("clients", "64")));
+      generator.seed(Integer.parseInt(options.getOrDefault("catalog", "100")));
+      final long elapsed = generator.run();
+      generator.report(System.out, elapsed);
+      if (options.containsKey("report-dir")) {
+        generator.writeDistributions(Path.of(options.get("report-dir")));
+      }
+    }
+  }
+
+  /**
+   * Register the products of the catalog before the run, unrecorded.
+   */
+  private void seed(int catalogSize) throws Exception {
+    for (int i = 0; i < catalogSize; i++) {
+      products.add(target.register(nextName(), "Seeded product"));
+    }
+  }
+
+  /**
+   * Issue the operations at the arrival rate for the warmup and the duration.
+   *
+   * @return the recorded run time, in nanoseconds
+   */
+  private long run() throws InterruptedException {
+    final ExecutorService executor = Executors.newFixedThreadPool(clients);
+    final double interval = TimeUnit.SECONDS.toNanos(1) / rate;
+    final long start = System.nanoTime();
+    final long recordFrom = start + warmup.toNanos();
+    final long end = recordFrom + duration.toNanos();
+    for (long i = 0;; i++) {
+      final long intendedStart = start + (long) (i * interval);
+      if (intendedStart >= end) {
+        break;
+      }
+      // Wait for the intended start, never for the completion of the previous operations
+      long wait;
+      while ((wait = intendedStart - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      final Operation operation = mix.next(ThreadLocalRandom.current());
+      final boolean recorded = intendedStart >= recordFrom;
+      executor.execute(new ScheduledOperation(operation, intendedStart, recorded));
+    }
+    executor.shutdown();
+    if (!executor.awaitTermination(timeout.toNanos() * 2, TimeUnit.NANOSECONDS)) {
+      System.err.println("Operations still in flight at the end of the run, the target is saturated");
+      for (Runnable queued : executor.shutdownNow()) {
+        ((ScheduledOperation) queued).drop();
+      }
+      // The interrupted operations record their failure
+      executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    return end - recordFrom;
+  }
+
+  private void execute(Operation operation, long intendedStart, boolean recorded) {
+    final long actualStart = System.nanoTime();
+    Operation executed = operation;
+    LongAdder failures = null;
+    try {
+      executed = perform(operation);
+    } catch (HttpTimeoutException | TimeoutException e) {
+      failures = latencies.get(operation).timeouts;
+    } catch (Exception e) {
+      failures = latencies.get(operation).errors;
+    }
+    if (recorded) {
+      final long completion = System.nanoTime();
+      final Latencies operationLatencies = latencies.get(executed);
+      if (failures != null) {
+        failures.increment();
+      }
+      operationLatencies.responseTime.recordValue(TimeUnit.NANOSECONDS.toMicros(completion - intendedStart));
+      operationLatencies.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(completion - actualStart));
+    }
+  }
+
+  /**
+   * Perform an operation on the target.
+   *
+   * @return the performed operation, a registration if no product is known
+   */
+  private Operation perform(Operation operation) throws Exception {
+    final String productId = switch (operation) {
+      case REGISTER, LIST -> null;
+      case REMOVE -> products.take();
+      default -> products.pick();
+    };
+    if (productId == null && operation != Operation.LIST) {
+      products.add(target.register(nextName(), "Product under load"));
+      return Operation.REGISTER;
+    }
+    switch (operation) {
+      case UPDATE -> target.update(productId, nextName(), "Updated product under load");
+      case REMOVE -> target.remove(productId);
+      case GET -> target.get(productId);
+      default -> target.list();
+    }
+    return operation;
+  }
+
+  private String nextName() {
+    return "Product " + names.incrementAndGet() + " " + Long.toHexString(System.nanoTime());
+  }
+
+  /**
+   * Print the percentiles of the response and service times per operation, in
+   * milliseconds, with the failed operations they include.
+   */
+  private void report(PrintStream out, long elapsedNanos) {
+    long completed = 0;
+    long errors = 0;
+    long timeouts = 0;
+    long dropped = 0;
+    out.printf("%-9s %-8s %9s %9s %9s %9s %9s %9s %9s %7s %8s %7s%n", "operation", "latency", "count", "p50", "p90",
+        "p99", "p99.9", "p99.99", "max", "errors", "timeouts", "dropped");
+    for (Map.Entry<Operation, Latencies> entry : latencies.entrySet()) {
+      final Latencies operationLatencies = entry.getValue();
+      if (operationLatencies.responseTime.getTotalCount() == 0) {
+        continue;
+      }
+      completed += operationLatencies.responseTime.getTotalCount() - operationLatencies.failed();
+      errors += operationLatencies.errors.sum();
+      timeouts += operationLatencies.timeouts.sum();
+      dropped += operationLatencies.dropped.sum();
+      print(out, entry.getKey(), "response", operationLatencies.responseTime, operationLatencies);
+      print(out, entry.getKey(), "service", operationLatencies.serviceTime, operationLatencies);
+    }
+    out.printf("target %.1f ops/s, completed %.1f ops/s, %d errors, %d timeouts, %d dropped%n", rate,
+        completed * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos, errors, timeouts, dropped);
+  }
+
+  private static void print(PrintStream out, Operation operation, String latency, Histogram histogram,
+      Latencies operationLatencies) {
+    out.printf("%-9s %-8s %9d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %7d %8d %7d%n", operation.name().toLowerCase(),
+        latency,
+        histogram.getTotalCount(),
+        histogram.getValueAtPercentile(50) / 1000.0,
+        histogram.getValueAtPercentile(90) / 1000.0,
+        histogram.getValueAtPercentile(99) / 1000.0,
+        histogram.getValueAtPercentile(99.9) / 1000.0,
+        histogram.getValueAtPercentile(99.99) / 1000.0,
+        histogram.getMaxValue() / 1000.0,
+        operationLatencies.errors.sum(),
+        operationLatencies.timeouts.sum(),
+        operationLatencies.dropped.sum());
+  }
+
+  /**
+   * Write the percentile distributions, in milliseconds, one file per operation
+   * and latency.
+   */
+  private void writeDistributions(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    for (Map.Entry<Operation, Latencies> entry : latencies.entrySet()) {
+      final String operation = entry.getKey().name().toLowerCase();
+      write(directory.resolve(operation + "-response.hgrm"), entry.getValue().responseTime);
+      write(directory.resolve(operation + "-service.hgrm"), entry.getValue().serviceTime);
+    }
+  }
+
+  private static void write(Path file, Histogram histogram) throws IOException {
+    if (histogram.getTotalCount() == 0) {
+      return;
+    }
+    try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+      histogram.outputPercentileDistribution(out, 1000.0);
+    }
+  }
+
+  private static Map<String, String> parse(String[] args) {
+    final Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+        throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+      }
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+    return options;
+  }
+
+  /**
+   * Parse a duration such as {@code 500ms}, {@code 30s} or {@code 2m}.
+   */
+  private static Duration duration(String value) {
+    if (value.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+    } else if (value.endsWith("s")) {
+      return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+    } else if (value.endsWith("m")) {
+      return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+    }
+    return Duration.parse(value);
+  }
+}
@@ -0,0 +1,53 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.load;
+
+/**
+ * System under load, executing the operations of the load generator.
+ *
+ * Operations are executed concurrently and synchronously: an operation
+ * returns once its response, or its event for a command, is received.
+ */
+public interface LoadTarget extends AutoCloseable {
+
+  /**
+   * Register a product.
+   *
+   * @param name - the product name
+   * @param description - the product description
+   * @return the id of the registered product
+   * @throws Exception if the product is not registered
+   */
+  String register(String name, String description) throws Exception;
+
+  /**
+   * Update a product.
+   *
+   * @param productId - the product id
+   * @param name - the new product name
+   * @param description - the new product description
+   * @throws Exception if the product is not updated
+   */
+  void update(String productId, String name, String description) throws Exception;
+
+  /**
+   * Remove a product.
+   *
+   * @param productId - the product id
+   * @throws Exception if the product is not removed
+   */
+  void remove(String productId) throws Exception;
+
+  /**
+   * Get a product by id.
+   *
+   * @param productId - the product id
+   * @throws Exception if the product is not found
+   */
+  void get(String productId) throws Exception;
+
+  /**
+   * List the products.
+   *
+   * @throws Exception if the products are not listed
+   */
+  void list() throws Exception;
+}
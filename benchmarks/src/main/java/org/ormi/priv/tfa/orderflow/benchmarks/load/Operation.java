@@ -0,0 +1,27 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.load;
+
+/**
+ * Operation issued by the load generator.
+ */
+public enum Operation {
+  /**
+   * Register a new product, then wait for its registered event.
+   */
+  REGISTER,
+  /**
+   * Update a known product, then wait for its updated event.
+   */
+  UPDATE,
+  /**
+   * Remove a known product, then wait for its removed event.
+   */
+  REMOVE,
+  /**
+   * Get a known product by id.
+   */
+  GET,
+  /**
+   * List the products.
+   */
+  LIST
+}
@@ -0,0 +1,81 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Weighted mix of the operations issued by the load generator.
+ */
+public final class OperationMix {
+
+  private final Operation[] operations;
+  private final int[] cumulativeWeights;
+
+  private OperationMix(Map<Operation, Integer> weights) {
+    operations = weights.keySet().toArray(Operation[]::new);
+    cumulativeWeights = new int[operations.length];
+    int total = 0;
+    for (int i = 0; i < operations.length; i++) {
+      total += weights.get(operations[i]);
+      cumulativeWeights[i] = total;
+    }
+  }
+
+  /**
+   * Parse a mix.
+   *
+   * @param mix - the weights by operation, e.g. {@code register:20,get:60,list:20}
+   * @return the mix
+   * @throws IllegalArgumentException if an operation or weight is invalid, or all weights are zero
+   */
+  public static OperationMix parse(String mix) {
+    final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    for (String entry : mix.split(",")) {
+      final String[] parts = entry.trim().split(":");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Invalid operation weight: " + entry);
+      }
+      final int weight = Integer.parseInt(parts[1].trim());
+      if (weight < 0) {
+        throw new IllegalArgumentException("Negative operation weight: " + entry);
+      }
+      if (weight > 0) {
+        weights.merge(Operation.valueOf(parts[0].trim().toUpperCase()), weight, Integer::sum);
+      }
+    }
+    if (weights.isEmpty()) {
+      throw new IllegalArgumentException("No operation in mix: " + mix);
+    }
+    return new OperationMix(weights);
+  }
+
+  /**
+   * Pick an operation with the probability of its weight.
+   *
+   * @param random - the random generator
+   * @return the operation
+   */
+  public Operation next(RandomGenerator random) {
+    final int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    int i = 0;
+    while (value >= cumulativeWeights[i]) {
+      i++;
+    }
+    return operations[i];
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    int previous = 0;
+    for (int i = 0; i < operations.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(operations[i].name().toLowerCase()).append(':').append(cumulativeWeights[i] - previous);
+      previous = cumulativeWeights[i];
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,107 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.product.registry.aggregate;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+
+/**
+ * Cost of applying an event to the product registry by event type.
+ *
+ * Each invocation applies one event of the type to every product of a freshly
+ * loaded registry, scores are per applied event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductRegistryApplyBenchmark {
+
+  private static final int CATALOG_SIZE = 10_000;
+
+  /**
+   * Type of the applied events.
+   */
+  public enum EventType {
+    /**
+     * A new product is registered.
+     */
+    REGISTERED,
+    /**
+     * An existing product is renamed.
+     */
+    UPDATED,
+    /**
+     * An existing product is removed.
+     */
+    REMOVED
+  }
+
+  /**
+   * Type of the applied events.
+   */
+  @Param({ "REGISTERED", "UPDATED", "REMOVED" })
+  public EventType eventType;
+
+  private ProductRegistered[] registered;
+  private ProductRegistryEvent[] events;
+  private ProductRegistry registry;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    registered = new ProductRegistered[CATALOG_SIZE];
+    events = new ProductRegistryEvent[CATALOG_SIZE];
+    for (int i = 0; i < CATALOG_SIZE; i++) {
+      final ProductId productId = new ProductId();
+      registered[i] = new ProductRegistered(new EventId(), "GLOBAL_REGISTRY", i + 1L, 0L,
+          new ProductRegistered.Payload(productId, "Product " + i, "Description " + i));
+      final long version = CATALOG_SIZE + i + 1L;
+      events[i] = switch (eventType) {
+        case REGISTERED -> new ProductRegistered(new EventId(), "GLOBAL_REGISTRY", version, 0L,
+            new ProductRegistered.Payload(new ProductId(), "Other product " + i, "Description " + i));
+        case UPDATED -> new ProductUpdated(new EventId(), "GLOBAL_REGISTRY", version, 0L,
+            new ProductUpdated.Payload(productId, "Renamed product " + i, "New description " + i));
+        case REMOVED -> new ProductRemoved(new EventId(), "GLOBAL_REGISTRY", version, 0L,
+            new ProductRemoved.Payload(productId));
+      };
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void load() {
+    registry = new ProductRegistry(null, ProductNameNormalization.EXACT);
+    for (ProductRegistered event : registered) {
+      registry.apply(event);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CATALOG_SIZE)
+  public ProductRegistry apply() {
+    for (ProductRegistryEvent event : events) {
+      registry.apply(event);
+    }
+    return registry;
+  }
+}
@@ -0,0 +1,164 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.product.registry.aggregate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.Event;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.pipeline.SingleWriterPipeline;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.EventStore;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.GroupCommitEventAppender;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+
+/**
+ * Registrations per second handled by the single writer pipeline, compared to
+ * the current path where concurrent commands are serialized around the registry.
+ *
+ * The persistence is left out of {@link #serialized()} and {@link #pipeline()},
+ * a command is the name check, the event creation and its application to the
+ * registry. The {@code durable} benchmarks add an event store taking
+ * {@link #APPEND_NANOS} per append: the writer either waits for the append of
+ * each command, or reserves the version of the event and lets the group commit
+ * appender save it with the events of the next commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ProductRegistryCommandPipelineBenchmark {
+
+  /**
+   * Time of an append round trip to the event store.
+   */
+  private static final long APPEND_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+  /**
+   * Event store taking {@link #APPEND_NANOS} per write, the events are discarded.
+   */
+  private static final EventStore<ProductRegistryEvent> SLOW_STORE = new EventStore<>() {
+    @Override
+    public void saveEvent(ProductRegistryEvent event) {
+      LockSupport.parkNanos(APPEND_NANOS);
+    }
+
+    @Override
+    public void append(String aggregateRootId, long expectedVersion, List<ProductRegistryEvent> events) {
+      LockSupport.parkNanos(APPEND_NANOS);
+    }
+
+    @Override
+    public List<ProductRegistryEvent> findEventsByAggregateRootIdAndStartingVersion(String aggregateRootId,
+        long startingVersion) {
+      return List.of();
+    }
+  };
+
+  private final AtomicLong names = new AtomicLong();
+  private ProductRegistry registry;
+  private SingleWriterPipeline<String, ProductRegistryEvent> pipeline;
+  private SingleWriterPipeline<String, ProductRegistryEvent> awaitingPipeline;
+  private SingleWriterPipeline<String, ProductRegistryEvent> reservingPipeline;
+  private GroupCommitEventAppender<ProductRegistryEvent> appender;
+  private CompletableFuture<Void> pendingAppend;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    registry = new ProductRegistry(null, ProductNameNormalization.EXACT);
+    pipeline = new SingleWriterPipeline<>("registry-writer", 1024,
+        name -> CompletableFuture.completedFuture(register(name)));
+    awaitingPipeline = new SingleWriterPipeline<>("awaiting-registry-writer", 1024,
+        name -> CompletableFuture.completedFuture(registerAwaitingAppend(name)));
+    appender = new GroupCommitEventAppender<>(SLOW_STORE, evt -> ((Event) evt).aggregateId,
+        evt -> ((Event) evt).version, Duration.ZERO, 256);
+    pendingAppend = null;
+    reservingPipeline = new SingleWriterPipeline<>("reserving-registry-writer", 1024, this::registerReserving);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    pipeline.close();
+    awaitingPipeline.close();
+    reservingPipeline.close();
+    appender.close();
+  }
+
+  private ProductRegistryEvent register(String name) {
+    if (!registry.isProductNameAvailable(name)) {
+      throw new IllegalArgumentException("Product name already in use: " + name);
+    }
+    final ProductRegistered evt = new ProductRegistered(new EventId(), registry.getId(), registry.getVersion() + 1,
+        0L, new ProductRegistered.Payload(new ProductId(), name, "Description"));
+    registry.apply(evt);
+    return evt;
+  }
+
+  /**
+   * Register a product and wait for its event to be saved, as the writer did
+   * before reserving versions.
+   */
+  private ProductRegistryEvent registerAwaitingAppend(String name) {
+    final ProductRegistryEvent evt = register(name);
+    SLOW_STORE.append(registry.getId(), registry.getVersion() - 1, List.of(evt));
+    return evt;
+  }
+
+  /**
+   * Register a product, its version is reserved and the event saved by the
+   * appender after the event it was decided on.
+   */
+  private CompletionStage<ProductRegistryEvent> registerReserving(String name) {
+    final ProductRegistryEvent evt = register(name);
+    pendingAppend = appender.append(evt, pendingAppend);
+    return pendingAppend.thenApply(saved -> evt);
+  }
+
+  @Benchmark
+  public ProductRegistryEvent serialized() {
+    final String name = "Product " + names.incrementAndGet();
+    synchronized (this) {
+      return register(name);
+    }
+  }
+
+  @Benchmark
+  public ProductRegistryEvent pipeline() {
+    return pipeline.submit("Product " + names.incrementAndGet()).join();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public ProductRegistryEvent durableAwaitingAppend() {
+    return awaitingPipeline.submit("Product " + names.incrementAndGet()).join();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public ProductRegistryEvent durableReservingVersion() {
+    return reservingPipeline.submit("Product " + names.incrementAndGet()).join();
+  }
+}
@@ -0,0 +1,112 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.product.registry.aggregate;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductStorage;
+
+/**
+ * Memory footprint of a loaded product registry by storage engine.
+ *
+ * Each iteration loads a registry and reports the heap and off-heap memory it
+ * retains per product, measured after a full GC, as the
+ * {@code heapBytesPerProduct} and {@code offHeapBytesPerProduct} secondary
+ * results. The load time is the primary result.
+ *
+ * A single iteration is measured: JMH sums event counters over the
+ * iterations, the reported bytes per product would be multiplied otherwise.
+ *
+ * @implNote The heap must hold the largest catalog, e.g.
+ *           {@code -jvmArgsAppend -Xmx8g} for 10M products with the MAP storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(1)
+public class ProductRegistryFootprintBenchmark {
+
+  /**
+   * Number of products in the registry.
+   */
+  @Param({ "1000000", "10000000" })
+  public int catalogSize;
+
+  /**
+   * Storage engine of the products.
+   */
+  @Param({ "MAP", "COMPACT", "COMPACT_OFF_HEAP" })
+  public ProductStorage storage;
+
+  /**
+   * Memory retained per product.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public long heapBytesPerProduct;
+    public long offHeapBytesPerProduct;
+  }
+
+  private ProductRegistry registry;
+  private long baselineHeap;
+  private long baselineOffHeap;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    registry = null;
+    gc();
+    baselineHeap = usedHeap();
+    baselineOffHeap = usedOffHeap();
+  }
+
+  @Benchmark
+  public ProductRegistry load(Footprint footprint) {
+    registry = new ProductRegistry(null, ProductNameNormalization.EXACT, storage);
+    for (int i = 0; i < catalogSize; i++) {
+      registry.apply(new ProductRegistered(new EventId(), registry.getId(), i + 1L, 0L,
+          new ProductRegistered.Payload(new ProductId(), "Product " + i, "Description of product " + i)));
+    }
+    gc();
+    footprint.heapBytesPerProduct = (usedHeap() - baselineHeap) / catalogSize;
+    footprint.offHeapBytesPerProduct = (usedOffHeap() - baselineOffHeap) / catalogSize;
+    return registry;
+  }
+
+  private static void gc() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+  }
+
+  private static long usedHeap() {
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long usedOffHeap() {
+    return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+        .filter(pool -> "direct".equals(pool.getName()))
+        .mapToLong(BufferPoolMXBean::getMemoryUsed)
+        .sum();
+  }
+}
@@ -0,0 +1,86 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.product.registry.aggregate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryService;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryServiceStubs;
+
+/**
+ * Cost of handling a single product command by catalog size.
+ *
+ * The command goes through the registry and the service, checks, event
+ * creation, entity mapping and application, with a stubbed event store and
+ * emitter (see {@link ProductRegistryServiceStubs}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductRegistryHandleBenchmark {
+
+  /**
+   * Number of products in the registry.
+   */
+  @Param({ "1000", "100000" })
+  public int catalogSize;
+
+  private ProductRegistryService service;
+  private ProductRegistry registry;
+  private ProductId[] productIds;
+  private long names;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    service = ProductRegistryServiceStubs.create(List.of(), 1);
+    registry = new ProductRegistry(service, ProductNameNormalization.EXACT);
+    productIds = new ProductId[catalogSize];
+    for (int i = 0; i < catalogSize; i++) {
+      productIds[i] = new ProductId();
+      registry.apply(new ProductRegistered(new EventId(), registry.getId(), i + 1L, 0L,
+          new ProductRegistered.Payload(productIds[i], "Product " + i, "Description " + i)));
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    ProductRegistryServiceStubs.close(service);
+  }
+
+  @Benchmark
+  public ChannelMessage registerProduct() {
+    return registry.handle(new RegisterProduct("New product " + names++, "Description"))
+        .await().indefinitely();
+  }
+
+  @Benchmark
+  public ChannelMessage updateProduct() {
+    final ProductId productId = productIds[ThreadLocalRandom.current().nextInt(catalogSize)];
+    return registry.handle(new UpdateProduct(productId, "Renamed product " + names++, "Description"))
+        .await().indefinitely();
+  }
+}
@@ -0,0 +1,82 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.product.registry.aggregate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.Product;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+
+/**
+ * Latency of the product registry uniqueness checks by catalog size.
+ *
+ * The checks are expected to answer in constant time whatever the catalog size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductRegistryNameCheckBenchmark {
+
+  /**
+   * Number of products in the registry.
+   */
+  @Param({ "1000", "100000", "1000000" })
+  public int catalogSize;
+
+  /**
+   * Normalization of the product names.
+   */
+  @Param({ "EXACT", "IGNORE_CASE_AND_FOLD_WHITESPACE" })
+  public ProductNameNormalization nameNormalization;
+
+  private ProductRegistry registry;
+  private Product[] products;
+  private String[] names;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    registry = new ProductRegistry(null, nameNormalization);
+    products = new Product[catalogSize];
+    names = new String[catalogSize];
+    for (int i = 0; i < catalogSize; i++) {
+      final ProductId productId = new ProductId();
+      names[i] = "Product " + i;
+      products[i] = new Product(productId, names[i], "Description " + i);
+      registry.apply(new ProductRegistered(new EventId(), registry.getId(), i + 1L, 0L,
+          new ProductRegistered.Payload(productId, names[i], "Description " + i)));
+    }
+  }
+
+  @Benchmark
+  public boolean isProductNameAvailable_usedName() {
+    return registry.isProductNameAvailable(names[ThreadLocalRandom.current().nextInt(catalogSize)]);
+  }
+
+  @Benchmark
+  public boolean isProductNameAvailable_freeName() {
+    return registry.isProductNameAvailable("Unknown product");
+  }
+
+  @Benchmark
+  public boolean hasProduct() {
+    return registry.hasProduct(products[ThreadLocalRandom.current().nextInt(catalogSize)]);
+  }
+}
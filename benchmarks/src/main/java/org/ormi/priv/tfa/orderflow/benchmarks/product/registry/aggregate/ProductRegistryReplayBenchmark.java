@@ -0,0 +1,99 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.product.registry.aggregate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.ParallelEventReplayer;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductNameNormalization;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.ProductRegistry;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper.ProductRegistryEventEntityMapper;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegisteredEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryService;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.service.ProductRegistryServiceStubs;
+
+/**
+ * Replay throughput of the product registry by number of decoding threads.
+ *
+ * {@code replay} measures the entity to event mapping and the ordered apply,
+ * {@code load} the whole {@code loadProductRegistry} path from the raw BSON
+ * events of an in-memory list, decoding included. The database fetch is left
+ * out. Scores are per replayed event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductRegistryReplayBenchmark {
+
+  private static final int EVENT_COUNT = 100_000;
+
+  /**
+   * Number of decoding threads.
+   */
+  @Param({ "1", "2", "4", "8" })
+  public int parallelism;
+
+  private ProductRegisteredEventEntity[] storedEvents;
+  private ExecutorService executor;
+  private ParallelEventReplayer replayer;
+  private ProductRegistryService service;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    storedEvents = new ProductRegisteredEventEntity[EVENT_COUNT];
+    for (int i = 0; i < EVENT_COUNT; i++) {
+      final ProductRegisteredEventEntity entity = new ProductRegisteredEventEntity();
+      entity.eventId = new EventId();
+      entity.aggregateRootId = "GLOBAL_REGISTRY";
+      entity.version = i + 1L;
+      entity.timestamp = i;
+      entity.setPayload(new ProductRegisteredEventEntity.Payload(new ProductId(), "Product " + i,
+          "Description " + i));
+      storedEvents[i] = entity;
+    }
+    executor = Executors.newFixedThreadPool(parallelism);
+    replayer = new ParallelEventReplayer(executor, parallelism, 256);
+    service = ProductRegistryServiceStubs.create(
+        Stream.of(storedEvents).map(ProductRegistryServiceStubs::encode).toList(), parallelism);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+    ProductRegistryServiceStubs.close(service);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENT_COUNT)
+  public ProductRegistry replay() {
+    final ProductRegistry registry = new ProductRegistry(null, ProductNameNormalization.EXACT);
+    replayer.replay(Stream.of(storedEvents), ProductRegistryEventEntityMapper.INSTANCE::toEvent, registry::apply);
+    return registry;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENT_COUNT)
+  public ProductRegistry load() {
+    return service.loadProductRegistry(new ProductRegistry(service, ProductNameNormalization.EXACT));
+  }
+}
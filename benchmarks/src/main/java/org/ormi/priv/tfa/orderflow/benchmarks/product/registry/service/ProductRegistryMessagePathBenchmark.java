@@ -0,0 +1,278 @@
+package org.ormi.priv.tfa.orderflow.benchmarks.product.registry.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.RegisterProductCommandDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.RemoveProductCommandDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.UpdateProductCommandDto;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.mapper.ProductRegistryCommandDtoMapper;
+import org.ormi.priv.tfa.orderflow.api.gateway.productregistry.adapter.inbound.http.dto.mapper.ProductRegistryEventDtoMapper;
+import org.ormi.priv.tfa.orderflow.benchmarks.lib.publishedlanguage.codec.JsonMessageCodecs;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.BinaryMessageCodecs;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageCodec;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDto;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.codec.ProductRegistryCodecProvider;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.mapper.ProductRegistryEventEntityMapper;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.read.adapter.outbound.message.dto.mapper.RegistryProductDtoMapper;
+import org.ormi.priv.tfa.orderflow.product.registry.read.projection.repository.model.ProductEntity;
+
+import com.mongodb.MongoClientSettings;
+
+/**
+ * Cost of each hop of a product command from the api gateway through the
+ * product registry and its read side, by message and wire format.
+ *
+ * The api gateway maps the request DTO to a command and encodes it for the
+ * command channel. The product registry decodes the command, maps its event to
+ * its entity, encodes the entity to BSON for the event store, then encodes the
+ * event for the event channel. The api gateway decodes the event and maps it to
+ * its response DTO, the read side maps the projected product to the DTO of the
+ * query results. A replay decodes the BSON entity and maps it back to the
+ * event. {@code endToEnd} chains the hops of a command, the command handling
+ * and the projection themselves are measured by
+ * {@code ProductRegistryHandleBenchmark} and the read side metrics.
+ *
+ * Run with {@code -prof gc} (or {@code -Pjmh.profilers=gc} with Gradle): the
+ * {@code gc.alloc.rate.norm} secondary result is the bytes allocated per
+ * message by each hop and end to end, next to its time per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductRegistryMessagePathBenchmark {
+
+  /**
+   * Command and the event it results in.
+   */
+  public enum Sample {
+    /**
+     * Product registration.
+     */
+    PRODUCT_REGISTERED,
+    /**
+     * Product update.
+     */
+    PRODUCT_UPDATED,
+    /**
+     * Product removal.
+     */
+    PRODUCT_REMOVED
+  }
+
+  /**
+   * Command and event going through the hops.
+   */
+  @Param({ "PRODUCT_REGISTERED", "PRODUCT_UPDATED", "PRODUCT_REMOVED" })
+  public Sample sample;
+
+  /**
+   * Wire format of the command and event channels.
+   */
+  @Param({ "JSON", "BINARY" })
+  public MessageFormat format;
+
+  /**
+   * Codecs of the event entities, as registered in the MongoDB client.
+   */
+  private static final CodecRegistry CODECS = CodecRegistries.fromRegistries(
+      CodecRegistries.fromProviders(new ProductRegistryCodecProvider()),
+      MongoClientSettings.getDefaultCodecRegistry(),
+      CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+
+  private final ProductRegistryEventEntityMapper mapper = ProductRegistryEventEntityMapper.INSTANCE;
+  private final ProductRegistryCommandDtoMapper commandDtoMapper = ProductRegistryCommandDtoMapper.INSTANCE;
+  private final ProductRegistryEventDtoMapper eventDtoMapper = ProductRegistryEventDtoMapper.INSTANCE;
+  private final RegistryProductDtoMapper productDtoMapper = RegistryProductDtoMapper.INSTANCE;
+
+  private MessageCodec<Object> commandCodec;
+  private MessageCodec<Object> eventCodec;
+  private Codec<ProductRegistryEventEntity> entityCodec;
+  private Object commandDto;
+  private ProductRegistryCommand command;
+  private byte[] encodedCommand;
+  private ProductRegistryEvent event;
+  private byte[] encodedEvent;
+  private ProductRegistryEventEntity entity;
+  private RawBsonDocument rawEntity;
+  private ProductEntity product;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final ProductId productId = new ProductId();
+    switch (sample) {
+      case PRODUCT_REGISTERED -> {
+        commandDto = new RegisterProductCommandDto("Product 1234", "Description of product 1234");
+        command = new RegisterProduct("Product 1234", "Description of product 1234");
+        event = new ProductRegistered(new EventId(), "product-registry", 1234, System.currentTimeMillis(),
+            new ProductRegistered.Payload(productId, "Product 1234", "Description of product 1234"));
+      }
+      case PRODUCT_UPDATED -> {
+        commandDto = new UpdateProductCommandDto(productId.getId(), "Product 1234", "Description of product 1234");
+        command = new UpdateProduct(productId, "Product 1234", "Description of product 1234");
+        event = new ProductUpdated(new EventId(), "product-registry", 1234, System.currentTimeMillis(),
+            new ProductUpdated.Payload(productId, "Product 1234", "Description of product 1234"));
+      }
+      default -> {
+        commandDto = new RemoveProductCommandDto(productId.getId());
+        command = new RemoveProduct(productId);
+        event = new ProductRemoved(new EventId(), "product-registry", 1234, System.currentTimeMillis(),
+            new ProductRemoved.Payload(productId));
+      }
+    }
+    commandCodec = switch (format) {
+      case JSON -> JsonMessageCodecs.of(ProductRegistryCommand.class);
+      case BINARY -> cast(BinaryMessageCodecs.COMMANDS);
+    };
+    eventCodec = switch (format) {
+      case JSON -> JsonMessageCodecs.of(ProductRegistryEvent.class);
+      case BINARY -> cast(BinaryMessageCodecs.EVENTS);
+    };
+    encodedCommand = commandCodec.encode(command);
+    encodedEvent = eventCodec.encode(event);
+    entity = mapper.toRegistryEventEntity(event);
+    entityCodec = codecOf(entity);
+    rawEntity = new RawBsonDocument(entity, entityCodec);
+    // A removed product leaves no product to query
+    if (sample != Sample.PRODUCT_REMOVED) {
+      product = new ProductEntity();
+      product.productId = productId.getId();
+      product.name = "Product 1234";
+      product.description = "Description of product 1234";
+      product.version = 1234;
+      product.registeredAt = System.currentTimeMillis();
+      product.updatedAt = product.registeredAt;
+    }
+  }
+
+  @Benchmark
+  public ProductRegistryCommand mapDtoToCommand() {
+    return toCommand(commandDto);
+  }
+
+  @Benchmark
+  public byte[] encodeCommand() {
+    return commandCodec.encode(command);
+  }
+
+  @Benchmark
+  public Object decodeCommand() {
+    return commandCodec.decode(encodedCommand);
+  }
+
+  @Benchmark
+  public ProductRegistryEventEntity mapEventToEntity() {
+    return mapper.toRegistryEventEntity(event);
+  }
+
+  @Benchmark
+  public RawBsonDocument encodeEntity() {
+    return new RawBsonDocument(entity, entityCodec);
+  }
+
+  @Benchmark
+  public byte[] encodeEvent() {
+    return eventCodec.encode(event);
+  }
+
+  @Benchmark
+  public Object decodeEvent() {
+    return eventCodec.decode(encodedEvent);
+  }
+
+  @Benchmark
+  public Object mapEventToDto() {
+    return toDto(event);
+  }
+
+  @Benchmark
+  public RegistryProductDto mapProductToDto() {
+    return product == null ? null : productDtoMapper.toRegistryProductDto(product);
+  }
+
+  @Benchmark
+  public ProductRegistryEventEntity decodeEntity() {
+    return ProductRegistryEventRepository.decode(CODECS, rawEntity);
+  }
+
+  @Benchmark
+  public ProductRegistryEvent mapEntityToEvent() {
+    return mapper.toRegistryEvent(entity);
+  }
+
+  /**
+   * All the hops of a command, from the request DTO of the api gateway to its
+   * response DTO and the query DTO of the read side.
+   */
+  @Benchmark
+  public Object endToEnd(Blackhole blackhole) {
+    blackhole.consume(commandCodec.encode(toCommand(commandDto)));
+    blackhole.consume(commandCodec.decode(encodedCommand));
+    final ProductRegistryEventEntity mapped = mapper.toRegistryEventEntity(event);
+    blackhole.consume(new RawBsonDocument(mapped, entityCodec));
+    blackhole.consume(eventCodec.encode(event));
+    blackhole.consume(toDto((ProductRegistryEvent) eventCodec.decode(encodedEvent)));
+    return product == null ? null : productDtoMapper.toRegistryProductDto(product);
+  }
+
+  private ProductRegistryCommand toCommand(Object dto) {
+    if (dto instanceof RegisterProductCommandDto register) {
+      return commandDtoMapper.toCommand(register);
+    } else if (dto instanceof UpdateProductCommandDto update) {
+      return commandDtoMapper.toCommand(update);
+    }
+    return commandDtoMapper.toCommand((RemoveProductCommandDto) dto);
+  }
+
+  private Object toDto(ProductRegistryEvent evt) {
+    if (evt instanceof ProductRegistered registered) {
+      return eventDtoMapper.toDto(registered);
+    } else if (evt instanceof ProductUpdated updated) {
+      return eventDtoMapper.toDto(updated);
+    }
+    return eventDtoMapper.toDto((ProductRemoved) evt);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Codec<ProductRegistryEventEntity> codecOf(ProductRegistryEventEntity entity) {
+    return (Codec<ProductRegistryEventEntity>) CODECS.get(entity.getClass());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MessageCodec<Object> cast(MessageCodec<?> codec) {
+    return (MessageCodec<Object>) codec;
+  }
+}
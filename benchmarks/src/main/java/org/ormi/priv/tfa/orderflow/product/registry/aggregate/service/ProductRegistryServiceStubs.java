@@ -0,0 +1,122 @@
+package org.ormi.priv.tfa.orderflow.product.registry.aggregate.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventArchive;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.ProductRegistryEventRepository;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.codec.ProductRegistryCodecProvider;
+import org.ormi.priv.tfa.orderflow.product.registry.aggregate.repository.model.ProductRegistryEventEntity;
+import org.ormi.priv.tfa.orderflow.product.registry.service.metrics.ProductRegistryCommandMetrics;
+import org.ormi.priv.tfa.orderflow.product.registry.service.producer.ProductRegistryEventEmitter;
+
+import com.mongodb.MongoClientSettings;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Product registry service outside of the application, for the benchmarks and
+ * the in-process load generator.
+ *
+ * The service is wired by hand with a repository replaying a list of raw
+ * events and discarding the appended ones, and an emitter discarding the
+ * events, so that only the registry and service code is measured. The stage
+ * metrics are recorded in memory.
+ *
+ * @implNote In the package of the service, to build it with its package-private
+ *           constructor.
+ */
+public final class ProductRegistryServiceStubs {
+
+  /**
+   * Codecs of the event entities, as registered in the MongoDB client.
+   */
+  private static final CodecRegistry CODECS = CodecRegistries.fromRegistries(
+      CodecRegistries.fromProviders(new ProductRegistryCodecProvider()),
+      MongoClientSettings.getDefaultCodecRegistry(),
+      CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+
+  private ProductRegistryServiceStubs() {
+  }
+
+  /**
+   * Repository replaying a list of raw events, appends are discarded.
+   */
+  private static final class ReplayRepository extends ProductRegistryEventRepository {
+    private final List<RawBsonDocument> events;
+
+    ReplayRepository(List<RawBsonDocument> events) {
+      this.events = events;
+    }
+
+    @Override
+    public void append(String aggregateRootId, long expectedVersion, List<ProductRegistryEventEntity> events) {
+      // Discarded, the registry version is the only concurrency check
+    }
+
+    @Override
+    public Stream<RawBsonDocument> streamRawEventsByAggregateRootIdAndStartingVersion(String aggregateRootId,
+        long startingVersion) {
+      return events.stream().filter(event -> ProductRegistryEventArchive.versionOf(event) > startingVersion);
+    }
+
+    @Override
+    public ProductRegistryEventEntity decode(RawBsonDocument rawEvent) {
+      return ProductRegistryEventRepository.decode(CODECS, rawEvent);
+    }
+  }
+
+  /**
+   * Emitter discarding the events.
+   */
+  private static final class DiscardingEmitter extends ProductRegistryEventEmitter {
+    @Override
+    public CompletionStage<Void> emit(ProductRegistryEvent event) {
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
+  /**
+   * Create a service replaying a list of events.
+   *
+   * @param events - the raw events of the registry stream, in version order
+   * @param replayParallelism - the number of decoding threads on replay
+   * @return the initialized service, to be closed with {@link #close(ProductRegistryService)}
+   */
+  public static ProductRegistryService create(List<RawBsonDocument> events, int replayParallelism) {
+    final ProductRegistryService service = new ProductRegistryService(new ReplayRepository(events),
+        new DiscardingEmitter(), new ProductRegistryCommandMetrics(new SimpleMeterRegistry()), 1000L,
+        Duration.ofMinutes(5), replayParallelism, 256);
+    service.init();
+    return service;
+  }
+
+  /**
+   * Stop the replay threads of a service.
+   *
+   * @param service - the service
+   */
+  public static void close(ProductRegistryService service) {
+    service.close();
+  }
+
+  /**
+   * Encode an event entity to its raw BSON document, as stored in the collection.
+   *
+   * @param entity - the event entity
+   * @return the raw BSON document
+   */
+  @SuppressWarnings("unchecked")
+  public static RawBsonDocument encode(ProductRegistryEventEntity entity) {
+    return new RawBsonDocument(entity, (Codec<ProductRegistryEventEntity>) CODECS.get(entity.getClass()));
+  }
+}
@@ -1,48 +1,88 @@
 package org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate;
 
+import java.util.Objects;
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Event Id value object
+ * 
+ * @implNote Held as the two longs of the UUID. An id that is a valid UUID but
+ *           not in canonical form also keeps its text, so that it is written
+ *           back exactly as it was read.
  */
 public class EventId {
   /**
-   * Event Id internal value
+   * Most significant bits of the UUID
+   */
+  private final long mostSignificantBits;
+  /**
+   * Least significant bits of the UUID
+   */
+  private final long leastSignificantBits;
+  /**
+   * Text of the id when it is not a canonical UUID, null otherwise
    */
-  private final String id;
+  private final String text;
+  /**
+   * Cached hash code
+   */
+  private final int hash;
 
   /**
    * Constructor.
    * 
    * Generate a new event id.
    * 
-   * @implNote Use UUID to generate a new event id.
+   * @implNote Use the current generator, see {@link IdGenerators}.
    */
   public EventId() {
-    this.id = UUID.randomUUID().toString();
+    this(IdGenerators.current().next());
   }
 
-  /**
-   * Constructor.
-   * 
-   * @param id the event id
-   */
-  private EventId(String id) {
-    this.id = id;
+  private EventId(UUID uuid) {
+    this(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), null);
+  }
+
+  private EventId(long mostSignificantBits, long leastSignificantBits, String text) {
+    this.mostSignificantBits = mostSignificantBits;
+    this.leastSignificantBits = leastSignificantBits;
+    this.text = text;
+    this.hash = Uuids.hash(mostSignificantBits, leastSignificantBits);
   }
 
   /**
    * Create a new instance of the given event id value.
    * 
+   * @implNote A canonical UUID is parsed without allocating.
+   * 
    * @param id the event id
    */
-  public static EventId of(String id) {
+  @JsonCreator
+  public static EventId of(@JsonProperty("id") CharSequence id) {
+    if (id != null && Uuids.isCanonical(id)) {
+      return new EventId(Uuids.mostSignificantBits(id), Uuids.leastSignificantBits(id), null);
+    }
+    final UUID uuid;
     try {
-      UUID.fromString(id);
+      uuid = UUID.fromString(id.toString());
     } catch (Exception e) {
       throw new IllegalArgumentException("Invalid event id. Must be a valid UUID.");
     }
-    return new EventId(id);
+    return new EventId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), id.toString());
+  }
+
+  /**
+   * Create a new instance of the given event id bits.
+   * 
+   * @param mostSignificantBits the most significant bits of the UUID
+   * @param leastSignificantBits the least significant bits of the UUID
+   */
+  public static EventId of(long mostSignificantBits, long leastSignificantBits) {
+    return new EventId(mostSignificantBits, leastSignificantBits, null);
   }
 
   /**
@@ -50,13 +90,44 @@ public class EventId {
    * 
    * @return the event id
    */
+  @JsonProperty("id")
   public String getId() {
-    return id;
+    return text != null ? text : new UUID(mostSignificantBits, leastSignificantBits).toString();
+  }
+
+  /**
+   * Get the most significant bits of the event id.
+   * 
+   * @return the most significant bits of the UUID
+   */
+  @JsonIgnore
+  public long getMostSignificantBits() {
+    return mostSignificantBits;
+  }
+
+  /**
+   * Get the least significant bits of the event id.
+   * 
+   * @return the least significant bits of the UUID
+   */
+  @JsonIgnore
+  public long getLeastSignificantBits() {
+    return leastSignificantBits;
+  }
+
+  /**
+   * Check if the event id is a canonical UUID, fully represented by its bits.
+   * 
+   * @return true if the id is in canonical UUID form
+   */
+  @JsonIgnore
+  public boolean isCanonical() {
+    return text == null;
   }
 
   @Override
   public String toString() {
-    return String.format("EventId{value='%s'}", id);
+    return String.format("EventId{value='%s'}", getId());
   }
 
   @Override
@@ -64,11 +135,13 @@ public class EventId {
     if (this == o) return true;
     if (!(o instanceof EventId)) return false;
     EventId eventId = (EventId) o;
-    return id.equals(eventId.id);
+    return mostSignificantBits == eventId.mostSignificantBits
+        && leastSignificantBits == eventId.leastSignificantBits
+        && Objects.equals(text, eventId.text);
   }
 
   @Override
   public int hashCode() {
-    return id.hashCode();
+    return hash;
   }
 }
@@ -0,0 +1,19 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate;
+
+import java.util.UUID;
+
+/**
+ * Generator of the UUIDs of the new ids.
+ *
+ * @implNote Implementations are thread safe.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+  /**
+   * Generate a new UUID.
+   *
+   * @return a new unique UUID
+   */
+  UUID next();
+}
@@ -0,0 +1,52 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate;
+
+import java.util.UUID;
+
+/**
+ * Built-in id generators, and the generator used by the new ids.
+ */
+public enum IdGenerators implements IdGenerator {
+  /**
+   * Random UUIDs (version 4) from {@link UUID#randomUUID()}.
+   */
+  RANDOM {
+    @Override
+    public UUID next() {
+      return UUID.randomUUID();
+    }
+  },
+  /**
+   * Time-ordered UUIDs (version 7), see {@link TimeOrderedIdGenerator}.
+   */
+  TIME_ORDERED {
+    @Override
+    public UUID next() {
+      return TIME_ORDERED_GENERATOR.next();
+    }
+  };
+
+  private static final TimeOrderedIdGenerator TIME_ORDERED_GENERATOR = new TimeOrderedIdGenerator();
+
+  /**
+   * Generator of the new ids.
+   */
+  private static volatile IdGenerator current = RANDOM;
+
+  /**
+   * Get the generator of the new ids.
+   *
+   * @return the current generator, {@link #RANDOM} by default
+   */
+  public static IdGenerator current() {
+    return current;
+  }
+
+  /**
+   * Set the generator of the new ids.
+   *
+   * @param generator - The generator to use from now on
+   */
+  public static void use(IdGenerator generator) {
+    current = generator;
+  }
+}
@@ -0,0 +1,69 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generator of time-ordered UUIDs (version 7).
+ *
+ * A UUID holds the Unix time in milliseconds in its 48 first bits, followed by
+ * a 42 bits counter and 32 random bits, so that ids generated one after the
+ * other are close in an index.
+ *
+ * @implNote Each thread has its own clock and counter, ids are monotonic per
+ *           thread and ordered by millisecond across threads. The counter starts
+ *           at a random value each millisecond and, when it overflows, the
+ *           timestamp is moved ahead by a millisecond instead of waiting.
+ * @implNote Random bits come from {@link ThreadLocalRandom}: generation never
+ *           blocks nor contends, but the ids are not unguessable.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+
+  /**
+   * Number of bits of the counter.
+   */
+  private static final int COUNTER_BITS = 42;
+
+  /**
+   * Highest value of the counter.
+   */
+  private static final long COUNTER_MAX = (1L << COUNTER_BITS) - 1;
+
+  /**
+   * Number of counter bits stored in the least significant bits.
+   */
+  private static final int LOW_COUNTER_BITS = 30;
+
+  /**
+   * Clock and counter of a thread.
+   */
+  private static final class State {
+    long millis;
+    long counter;
+  }
+
+  private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+  @Override
+  public UUID next() {
+    final State state = states.get();
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final long now = System.currentTimeMillis();
+    if (now > state.millis) {
+      state.millis = now;
+      // Start in the lower half to leave room for the ids of the same millisecond
+      state.counter = random.nextLong() >>> (Long.SIZE - COUNTER_BITS + 1);
+    } else if (++state.counter > COUNTER_MAX) {
+      // Also covers a clock going backwards: the timestamp never decreases
+      state.millis++;
+      state.counter = random.nextLong() >>> (Long.SIZE - COUNTER_BITS + 1);
+    }
+    final long mostSignificantBits = (state.millis << 16)
+        | 0x7000L // version 7
+        | (state.counter >>> LOW_COUNTER_BITS);
+    final long leastSignificantBits = 0x8000000000000000L // IETF variant
+        | ((state.counter & ((1L << LOW_COUNTER_BITS) - 1)) << 32)
+        | (random.nextInt() & 0xFFFFFFFFL);
+    return new UUID(mostSignificantBits, leastSignificantBits);
+  }
+}
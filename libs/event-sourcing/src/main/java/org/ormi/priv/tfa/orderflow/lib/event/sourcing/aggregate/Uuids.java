@@ -0,0 +1,84 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate;
+
+import java.util.UUID;
+
+/**
+ * UUID parsing helpers for the binary id value objects.
+ */
+public final class Uuids {
+
+  private Uuids() {
+  }
+
+  /**
+   * Check if a text is a UUID in canonical form, the lower case form produced
+   * by {@link UUID#toString()}, so that it is rebuilt as is from its two longs.
+   *
+   * @param text - The text to check
+   * @return true if the text is a canonical UUID
+   */
+  public static boolean isCanonical(CharSequence text) {
+    if (text.length() != 36) {
+      return false;
+    }
+    for (int i = 0; i < 36; i++) {
+      final char c = text.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') {
+          return false;
+        }
+      } else if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the most significant bits of a canonical UUID, without allocation.
+   *
+   * @param text - The canonical UUID, see {@link #isCanonical(CharSequence)}
+   * @return the most significant bits
+   */
+  public static long mostSignificantBits(CharSequence text) {
+    return hexBits(text, 0, 18);
+  }
+
+  /**
+   * Get the least significant bits of a canonical UUID, without allocation.
+   *
+   * @param text - The canonical UUID, see {@link #isCanonical(CharSequence)}
+   * @return the least significant bits
+   */
+  public static long leastSignificantBits(CharSequence text) {
+    return hexBits(text, 19, 36);
+  }
+
+  /**
+   * Hash the two longs of a UUID (murmur3 finalizer).
+   *
+   * @param mostSignificantBits - The most significant bits
+   * @param leastSignificantBits - The least significant bits
+   * @return the hash
+   */
+  public static int hash(long mostSignificantBits, long leastSignificantBits) {
+    long bits = mostSignificantBits * 31 + leastSignificantBits;
+    bits ^= bits >>> 33;
+    bits *= 0xff51afd7ed558ccdL;
+    bits ^= bits >>> 33;
+    bits *= 0xc4ceb9fe1a85ec53L;
+    bits ^= bits >>> 33;
+    return (int) bits;
+  }
+
+  private static long hexBits(CharSequence text, int from, int to) {
+    long bits = 0;
+    for (int i = from; i < to; i++) {
+      final char c = text.charAt(i);
+      if (c != '-') {
+        bits = (bits << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+      }
+    }
+    return bits;
+  }
+}
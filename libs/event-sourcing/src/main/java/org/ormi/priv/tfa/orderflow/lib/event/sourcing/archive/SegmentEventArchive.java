@@ -0,0 +1,545 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Segment event archive.
+ *
+ * Cold storage of the oldest events of the event streams, in compressed,
+ * append-only local segment files. Each stream has its own directory of
+ * segments named after their first version, a segment being a sequence of
+ * blocks of events:
+ *
+ * <pre>
+ * block  = magic (int) | compressed length (int) | event count (int)
+ *          | first version (long) | last version (long) | crc32 (int)
+ *          | deflated events
+ * event  = version (long) | length (int) | bytes
+ * </pre>
+ *
+ * A sparse index of the blocks (one entry per block, not per event) is kept in
+ * memory and rebuilt from the block headers when a stream is first accessed, so
+ * a read seeks to the block holding its starting version and scans the
+ * segments sequentially from there.
+ *
+ * @implNote Versions of a stream are archived in increasing order, appends are
+ *           flushed to disk before returning. Indexing stops at a torn block,
+ *           left by a crash during an append, and the next append overwrites it.
+ * @implNote The archive must only be appended by one writer at a time,
+ *           readers may read concurrently. A process sharing the directory
+ *           with the writer must {@link #refresh(String)} a stream to see the
+ *           events appended by the writer.
+ */
+public class SegmentEventArchive {
+
+  /**
+   * Archived event.
+   *
+   * @param version - the version of the event in its stream
+   * @param data - the serialized event
+   */
+  public record ArchivedEvent(long version, byte[] data) {
+  }
+
+  /**
+   * Block of events in a segment, entry of the sparse index.
+   */
+  private record Block(Path segment, long offset, int compressedLength, int eventCount, long firstVersion,
+      long lastVersion) {
+  }
+
+  /**
+   * Sparse index of a stream.
+   *
+   * @implNote The block list is copied on write, readers iterate a consistent view.
+   */
+  private static final class StreamIndex {
+    private volatile List<Block> blocks = List.of();
+    private volatile long lastVersion;
+  }
+
+  /**
+   * Block header marker.
+   */
+  private static final int MAGIC = 0x45564231;
+
+  /**
+   * Block header size in bytes.
+   */
+  private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 4;
+
+  /**
+   * Segment file extension.
+   */
+  private static final String SEGMENT_EXTENSION = ".seg";
+
+  /**
+   * Root directory of the archive.
+   */
+  private final Path directory;
+
+  /**
+   * Size of a segment after which a new segment is started.
+   */
+  private final long maxSegmentSize;
+
+  /**
+   * Maximum number of events per block.
+   */
+  private final int blockSize;
+
+  /**
+   * Sparse index by stream.
+   */
+  private final Map<String, StreamIndex> indexes = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param directory - the root directory of the archive, created if needed
+   * @param maxSegmentSize - the size in bytes after which a new segment is started
+   * @param blockSize - the maximum number of events per block, the granularity of the index
+   */
+  public SegmentEventArchive(Path directory, long maxSegmentSize, int blockSize) {
+    if (maxSegmentSize < 1 || blockSize < 1) {
+      throw new IllegalArgumentException("Segment and block sizes must be at least 1");
+    }
+    this.directory = directory;
+    this.maxSegmentSize = maxSegmentSize;
+    this.blockSize = blockSize;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create event archive directory " + directory, e);
+    }
+  }
+
+  /**
+   * Get the version of the last archived event of a stream.
+   *
+   * @param streamId - the stream (aggregate root) id
+   * @return the last archived version, 0 if nothing is archived
+   */
+  public long getLastVersion(String streamId) {
+    return index(streamId).lastVersion;
+  }
+
+  /**
+   * Drop the index of a stream so that it is rebuilt from its segments, to see
+   * the events appended by another process.
+   *
+   * @param streamId - the stream (aggregate root) id
+   */
+  public synchronized void refresh(String streamId) {
+    indexes.remove(streamId);
+  }
+
+  /**
+   * Append events to the archive of a stream.
+   *
+   * @param streamId - the stream (aggregate root) id
+   * @param events - the events to archive, in increasing versions after the last archived version
+   * @throws IllegalArgumentException if the events do not follow the archived versions
+   */
+  public synchronized void append(String streamId, List<ArchivedEvent> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    final StreamIndex index = index(streamId);
+    long previous = index.lastVersion;
+    for (ArchivedEvent event : events) {
+      if (event.version() <= previous) {
+        throw new IllegalArgumentException(String.format(
+            "Event version %d of stream %s does not follow archived version %d", event.version(), streamId,
+            previous));
+      }
+      previous = event.version();
+    }
+    final List<Block> blocks = new ArrayList<>(index.blocks);
+    final Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+    // Blocks are written at the end of the indexed ones, over any torn write
+    Path segment = last == null ? null : last.segment();
+    long offset = last == null ? 0 : last.offset() + HEADER_SIZE + last.compressedLength();
+    FileChannel channel = null;
+    try {
+      for (int from = 0; from < events.size(); from += blockSize) {
+        final List<ArchivedEvent> chunk = events.subList(from, Math.min(from + blockSize, events.size()));
+        // Start a new segment when the current one is full
+        if (segment == null || offset >= maxSegmentSize) {
+          if (channel != null) {
+            channel.force(false);
+            channel.close();
+          }
+          segment = streamDirectory(streamId)
+              .resolve(String.format("%019d%s", chunk.get(0).version(), SEGMENT_EXTENSION));
+          offset = 0;
+          channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } else if (channel == null) {
+          channel = FileChannel.open(segment, StandardOpenOption.WRITE);
+        }
+        final Block block = writeBlock(channel, segment, offset, chunk);
+        blocks.add(block);
+        offset += HEADER_SIZE + block.compressedLength();
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to archive events of stream " + streamId, e);
+    } finally {
+      closeQuietly(channel);
+    }
+    index.blocks = Collections.unmodifiableList(blocks);
+    index.lastVersion = previous;
+  }
+
+  /**
+   * Read the archived events of a stream.
+   *
+   * @param streamId - the stream (aggregate root) id
+   * @param startingVersion - the version after which to read
+   * @return the archived events with a version greater than the starting version, in order
+   */
+  public Stream<ArchivedEvent> read(String streamId, long startingVersion) {
+    final List<Block> blocks = index(streamId).blocks;
+    // Seek the first block holding a version after the starting version
+    int low = 0;
+    int high = blocks.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (blocks.get(mid).lastVersion() <= startingVersion) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return blocks.subList(low, blocks.size()).stream()
+        .flatMap(block -> readBlock(block).stream())
+        .filter(event -> event.version() > startingVersion);
+  }
+
+  /**
+   * Read a stream from the archive then from the live store.
+   *
+   * The archived events are read first, then the live events that follow the
+   * last archived one. As events are moved from the live store to the archive
+   * while the stream is read, a live event that skips versions archived in the
+   * meantime sends the read back to the archive, refreshed in case another
+   * process archived them.
+   *
+   * @param <T> - the type of the read events
+   * @param streamId - the stream (aggregate root) id
+   * @param startingVersion - the version after which to read
+   * @param fromArchive - the conversion of an archived event
+   * @param liveAfter - the live events after a version, in order
+   * @param versionOf - the version of a read event
+   * @return the events of the stream after the starting version, in order, to be closed
+   */
+  public <T> Stream<T> stitch(String streamId, long startingVersion, Function<ArchivedEvent, T> fromArchive,
+      LongFunction<Stream<T>> liveAfter, ToLongFunction<T> versionOf) {
+    final StitchedIterator<T> iterator = new StitchedIterator<>(streamId, startingVersion, fromArchive, liveAfter,
+        versionOf);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+        .onClose(iterator::close);
+  }
+
+  /**
+   * Iterator over the archived then live events of a stream.
+   */
+  private final class StitchedIterator<T> implements Iterator<T> {
+    private final String streamId;
+    private final Function<ArchivedEvent, T> fromArchive;
+    private final LongFunction<Stream<T>> liveAfter;
+    private final ToLongFunction<T> versionOf;
+    private long lastVersion;
+    private Iterator<ArchivedEvent> archived;
+    private Stream<T> live;
+    private Iterator<T> liveIterator;
+    private T next;
+
+    StitchedIterator(String streamId, long startingVersion, Function<ArchivedEvent, T> fromArchive,
+        LongFunction<Stream<T>> liveAfter, ToLongFunction<T> versionOf) {
+      this.streamId = streamId;
+      this.fromArchive = fromArchive;
+      this.liveAfter = liveAfter;
+      this.versionOf = versionOf;
+      this.lastVersion = startingVersion;
+      this.archived = read(streamId, startingVersion).iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null) {
+        if (archived != null) {
+          if (archived.hasNext()) {
+            next = fromArchive.apply(archived.next());
+            break;
+          }
+          archived = null;
+          live = liveAfter.apply(lastVersion);
+          liveIterator = live.iterator();
+        }
+        if (!liveIterator.hasNext()) {
+          return false;
+        }
+        final T candidate = liveIterator.next();
+        final long version = versionOf.applyAsLong(candidate);
+        if (version > lastVersion + 1 && getLastVersion(streamId) <= lastVersion) {
+          refresh(streamId);
+        }
+        if (version > lastVersion + 1 && getLastVersion(streamId) > lastVersion) {
+          // The missing versions were archived meanwhile
+          close();
+          archived = read(streamId, lastVersion).iterator();
+          continue;
+        }
+        next = candidate;
+      }
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final T current = next;
+      next = null;
+      lastVersion = versionOf.applyAsLong(current);
+      return current;
+    }
+
+    void close() {
+      if (live != null) {
+        live.close();
+        live = null;
+      }
+    }
+  }
+
+  /**
+   * Get the sparse index of a stream, building it on first access.
+   *
+   * @param streamId - the stream id
+   * @return the index of the stream
+   */
+  private StreamIndex index(String streamId) {
+    return indexes.computeIfAbsent(streamId, this::loadIndex);
+  }
+
+  /**
+   * Build the sparse index of a stream from the block headers of its segments.
+   *
+   * @param streamId - the stream id
+   * @return the index of the stream
+   */
+  private StreamIndex loadIndex(String streamId) {
+    final StreamIndex index = new StreamIndex();
+    final Path streamDirectory = directory.resolve(URLEncoder.encode(streamId, StandardCharsets.UTF_8));
+    if (!Files.isDirectory(streamDirectory)) {
+      return index;
+    }
+    final List<Block> blocks = new ArrayList<>();
+    try (Stream<Path> files = Files.list(streamDirectory)) {
+      final List<Path> segments = files
+          .filter(path -> path.getFileName().toString().endsWith(SEGMENT_EXTENSION))
+          .sorted()
+          .toList();
+      for (Path segment : segments) {
+        indexSegment(segment, blocks);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to index event archive of stream " + streamId, e);
+    }
+    index.blocks = Collections.unmodifiableList(blocks);
+    index.lastVersion = blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).lastVersion();
+    return index;
+  }
+
+  /**
+   * Index the blocks of a segment, up to a torn block if any.
+   *
+   * @implNote The segment is left untouched as it may be written concurrently.
+   *
+   * @param segment - the segment file
+   * @param blocks - the index to add the blocks to
+   */
+  private static void indexSegment(Path segment, List<Block> blocks) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      long offset = 0;
+      while (offset < size) {
+        header.clear();
+        final Block block = size - offset < HEADER_SIZE || channel.read(header, offset) < HEADER_SIZE
+            ? null
+            : parseHeader(header.flip(), segment, offset);
+        final long previousVersion = blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).lastVersion();
+        if (block == null || offset + HEADER_SIZE + block.compressedLength() > size
+            || block.firstVersion() <= previousVersion) {
+          return;
+        }
+        blocks.add(block);
+        offset += HEADER_SIZE + block.compressedLength();
+      }
+    }
+  }
+
+  /**
+   * Parse a block header.
+   *
+   * @return the block, null if the header is invalid
+   */
+  private static Block parseHeader(ByteBuffer header, Path segment, long offset) {
+    if (header.getInt() != MAGIC) {
+      return null;
+    }
+    final int compressedLength = header.getInt();
+    final int eventCount = header.getInt();
+    final long firstVersion = header.getLong();
+    final long lastVersion = header.getLong();
+    return compressedLength < 0 ? null
+        : new Block(segment, offset, compressedLength, eventCount, firstVersion, lastVersion);
+  }
+
+  /**
+   * Write a block of events at the given offset of a segment.
+   *
+   * @return the written block
+   */
+  private static Block writeBlock(FileChannel channel, Path segment, long offset, List<ArchivedEvent> events)
+      throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+      for (ArchivedEvent event : events) {
+        out.writeLong(event.version());
+        out.writeInt(event.data().length);
+        out.write(event.data());
+      }
+    } finally {
+      deflater.end();
+    }
+    final byte[] compressed = bytes.toByteArray();
+    final CRC32 crc = new CRC32();
+    crc.update(compressed);
+    final long firstVersion = events.get(0).version();
+    final long lastVersion = events.get(events.size() - 1).version();
+    final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + compressed.length)
+        .putInt(MAGIC)
+        .putInt(compressed.length)
+        .putInt(events.size())
+        .putLong(firstVersion)
+        .putLong(lastVersion)
+        .putInt((int) crc.getValue())
+        .put(compressed)
+        .flip();
+    long position = offset;
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    return new Block(segment, offset, compressed.length, events.size(), firstVersion, lastVersion);
+  }
+
+  /**
+   * Read and decompress the events of a block.
+   *
+   * @param block - the block to read
+   * @return the events of the block, in order
+   */
+  private static List<ArchivedEvent> readBlock(Block block) {
+    final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + block.compressedLength());
+    try (FileChannel channel = FileChannel.open(block.segment(), StandardOpenOption.READ)) {
+      long position = block.offset();
+      while (buffer.hasRemaining()) {
+        final int read = channel.read(buffer, position);
+        if (read < 0) {
+          throw new IOException("Unexpected end of segment " + block.segment());
+        }
+        position += read;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read event archive block", e);
+    }
+    buffer.flip().position(HEADER_SIZE - 4);
+    final int expectedCrc = buffer.getInt();
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate());
+    if ((int) crc.getValue() != expectedCrc) {
+      throw new IllegalStateException(String.format("Corrupted event archive block at %d of %s", block.offset(),
+          block.segment()));
+    }
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(buffer);
+      final List<ArchivedEvent> events = new ArrayList<>(block.eventCount());
+      final ByteBuffer eventHeader = ByteBuffer.allocate(12);
+      for (int i = 0; i < block.eventCount(); i++) {
+        inflateFully(inflater, eventHeader.clear());
+        final long version = eventHeader.flip().getLong();
+        final byte[] data = new byte[eventHeader.getInt()];
+        inflateFully(inflater, ByteBuffer.wrap(data));
+        events.add(new ArchivedEvent(version, data));
+      }
+      return events;
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupted event archive block in " + block.segment(), e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static void inflateFully(Inflater inflater, ByteBuffer output) throws DataFormatException {
+    while (output.hasRemaining()) {
+      if (inflater.inflate(output) == 0 && (inflater.finished() || inflater.needsInput())) {
+        throw new DataFormatException("Truncated event archive block");
+      }
+    }
+  }
+
+  private Path streamDirectory(String streamId) {
+    final Path streamDirectory = directory.resolve(URLEncoder.encode(streamId, StandardCharsets.UTF_8));
+    try {
+      return Files.createDirectories(streamDirectory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create event archive directory " + streamDirectory, e);
+    }
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // Already flushed or failed
+      }
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch;
+
+/**
+ * Table of handlers, one per event type of an {@link EventTypeRegistry}.
+ *
+ * Values are dispatched either by their class, when they are the events
+ * themselves, or by an event type name, e.g. for the stored form of the
+ * events. A dispatcher must handle every registered event type, so that a new
+ * event type fails fast at build time in every place that does not handle it
+ * yet.
+ *
+ * @param <C> - the type of the context passed to the handlers
+ * @param <S> - the type of the dispatched values
+ * @param <R> - the type of the results of the handlers
+ */
+public final class EventDispatcher<C, S, R> {
+
+  /**
+   * Handler of a single event type.
+   *
+   * @param <C> - the type of the context
+   * @param <T> - the type of the handled values
+   * @param <R> - the type of the result
+   */
+  @FunctionalInterface
+  public interface Handler<C, T, R> {
+    /**
+     * Handle a value.
+     *
+     * @param context - the context of the dispatch
+     * @param value - the value of the handled event type
+     * @return the result
+     */
+    R handle(C context, T value);
+  }
+
+  /**
+   * Event types of the handlers.
+   */
+  private final EventTypeRegistry<?> registry;
+
+  /**
+   * Handlers by event type index.
+   */
+  private final Handler<C, Object, R>[] handlers;
+
+  private EventDispatcher(EventTypeRegistry<?> registry, Handler<C, Object, R>[] handlers) {
+    this.registry = registry;
+    this.handlers = handlers;
+  }
+
+  /**
+   * Dispatch an event by its class.
+   *
+   * @param context - the context passed to the handler
+   * @param event - the event
+   * @return the result of the handler
+   * @throws IllegalArgumentException if the event type is not registered
+   */
+  public R dispatch(C context, S event) throws IllegalArgumentException {
+    final int index = registry.indexOf(event.getClass());
+    if (index < 0) {
+      throw new IllegalArgumentException("Unknown event type: " + event.getClass().getName());
+    }
+    return handlers[index].handle(context, event);
+  }
+
+  /**
+   * Dispatch a value by its event type name.
+   *
+   * @param context - the context passed to the handler
+   * @param eventType - the event type name of the value
+   * @param value - the value
+   * @return the result of the handler
+   * @throws IllegalArgumentException if the event type is not registered
+   */
+  public R dispatch(C context, String eventType, S value) throws IllegalArgumentException {
+    final int index = registry.indexOf(eventType);
+    if (index < 0) {
+      throw new IllegalArgumentException("Unknown event type: " + eventType);
+    }
+    return handlers[index].handle(context, value);
+  }
+
+  /**
+   * Builder of a dispatcher.
+   *
+   * @param <C> - the type of the context passed to the handlers
+   * @param <S> - the type of the dispatched values
+   * @param <R> - the type of the results of the handlers
+   */
+  public static final class Builder<C, S, R> {
+    private final EventTypeRegistry<?> registry;
+    private final Handler<C, Object, R>[] handlers;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Builder(EventTypeRegistry<?> registry) {
+      this.registry = registry;
+      this.handlers = new Handler[registry.size()];
+    }
+
+    /**
+     * Set the handler of an event class.
+     *
+     * @param <T> - the event class
+     * @param type - the event class
+     * @param handler - the handler of the events of the class
+     * @return this builder
+     * @throws IllegalArgumentException if the class is not registered
+     */
+    public <T extends S> Builder<C, S, R> on(Class<T> type, Handler<? super C, ? super T, ? extends R> handler)
+        throws IllegalArgumentException {
+      return set(registry.indexOf(type), type.getName(), handler);
+    }
+
+    /**
+     * Set the handler of an event type name, for values that are not the events
+     * themselves.
+     *
+     * @implNote The values of an event type are cast to {@code T} unchecked, the
+     *           type argument is given explicitly when the handler needs a subtype
+     *           of {@code S}.
+     *
+     * @param <T> - the type of the values of the event type
+     * @param eventType - the event type name
+     * @param handler - the handler of the values of the event type
+     * @return this builder
+     * @throws IllegalArgumentException if the event type is not registered
+     */
+    public <T extends S> Builder<C, S, R> on(String eventType, Handler<? super C, ? super T, ? extends R> handler)
+        throws IllegalArgumentException {
+      return set(registry.indexOf(eventType), eventType, handler);
+    }
+
+    /**
+     * Build the dispatcher.
+     *
+     * @return the dispatcher
+     * @throws IllegalStateException if an event type has no handler
+     */
+    public EventDispatcher<C, S, R> build() throws IllegalStateException {
+      for (int i = 0; i < handlers.length; i++) {
+        if (handlers[i] == null) {
+          throw new IllegalStateException("No handler for event type: " + registry.eventTypeAt(i));
+        }
+      }
+      return new EventDispatcher<>(registry, handlers.clone());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Builder<C, S, R> set(int index, String name, Handler<?, ?, ?> handler) {
+      if (index < 0) {
+        throw new IllegalArgumentException("Unknown event type: " + name);
+      }
+      handlers[index] = (Handler<C, Object, R>) handler;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the event types of an event hierarchy.
+ *
+ * Each event type is registered once with its name, as stored in the event
+ * store, and its class. Types are numbered in registration order, this index
+ * keys the handler tables of the {@link EventDispatcher}s built from the
+ * registry.
+ *
+ * @implNote The index of a class is computed once per class and cached with a
+ *           {@link ClassValue}, so dispatching an event is a constant time
+ *           lookup whatever the number of event types.
+ *
+ * @param <E> - the root type of the events
+ */
+public final class EventTypeRegistry<E> {
+
+  /**
+   * Names of the event types, by index.
+   */
+  private final String[] eventTypes;
+
+  /**
+   * Classes of the event types, by index.
+   */
+  private final Class<?>[] types;
+
+  /**
+   * Index of the event types by name.
+   */
+  private final Map<String, Integer> indexByEventType;
+
+  /**
+   * Index of the event types by class, -1 for other classes.
+   */
+  private final ClassValue<Integer> indexByType = new ClassValue<>() {
+    @Override
+    protected Integer computeValue(Class<?> type) {
+      for (int i = 0; i < types.length; i++) {
+        if (types[i] == type) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  };
+
+  private EventTypeRegistry(List<String> eventTypes, List<Class<?>> types) {
+    this.eventTypes = eventTypes.toArray(String[]::new);
+    this.types = types.toArray(Class<?>[]::new);
+    this.indexByEventType = new HashMap<>();
+    for (int i = 0; i < this.eventTypes.length; i++) {
+      indexByEventType.put(this.eventTypes[i], i);
+    }
+  }
+
+  /**
+   * Start a registry.
+   *
+   * @param <E> - the root type of the events
+   * @return the registry builder
+   */
+  public static <E> Builder<E> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Get the number of event types.
+   *
+   * @return the number of event types
+   */
+  public int size() {
+    return eventTypes.length;
+  }
+
+  /**
+   * Get the index of an event class.
+   *
+   * @param type - the event class
+   * @return the index of the event type, -1 if not registered
+   */
+  public int indexOf(Class<?> type) {
+    return indexByType.get(type);
+  }
+
+  /**
+   * Get the index of an event type name.
+   *
+   * @param eventType - the event type name
+   * @return the index of the event type, -1 if not registered
+   */
+  public int indexOf(String eventType) {
+    final Integer index = eventType == null ? null : indexByEventType.get(eventType);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Get the name of an event type.
+   *
+   * @param index - the index of the event type
+   * @return the event type name
+   */
+  public String eventTypeAt(int index) {
+    return eventTypes[index];
+  }
+
+  /**
+   * Start a dispatcher over the event types.
+   *
+   * @param <C> - the type of the context passed to the handlers
+   * @param <S> - the type of the dispatched values
+   * @param <R> - the type of the results of the handlers
+   * @return the dispatcher builder
+   */
+  public <C, S, R> EventDispatcher.Builder<C, S, R> dispatcher() {
+    return new EventDispatcher.Builder<>(this);
+  }
+
+  /**
+   * Builder of an event type registry.
+   *
+   * @param <E> - the root type of the events
+   */
+  public static final class Builder<E> {
+    private final List<String> eventTypes = new ArrayList<>();
+    private final List<Class<?>> types = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    /**
+     * Register an event type.
+     *
+     * @param eventType - the name of the event type
+     * @param type - the class of the events
+     * @return this builder
+     * @throws IllegalArgumentException if the name or class is already registered
+     */
+    public Builder<E> register(String eventType, Class<? extends E> type) throws IllegalArgumentException {
+      if (eventTypes.contains(eventType) || types.contains(type)) {
+        throw new IllegalArgumentException("Event type already registered: " + eventType);
+      }
+      eventTypes.add(eventType);
+      types.add(type);
+      return this;
+    }
+
+    /**
+     * Build the registry.
+     *
+     * @return the registry
+     */
+    public EventTypeRegistry<E> build() {
+      return new EventTypeRegistry<>(eventTypes, types);
+    }
+  }
+}
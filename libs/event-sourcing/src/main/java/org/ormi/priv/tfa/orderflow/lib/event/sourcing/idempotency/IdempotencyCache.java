@@ -0,0 +1,132 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.idempotency;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Idempotency cache.
+ * 
+ * Remembers the result of recently handled commands by idempotency key (e.g.
+ * correlation id), so that a redelivered or retried command returns its
+ * original result instead of being handled again.
+ * 
+ * @implNote The cache is bounded both in size and in time: the oldest entries
+ *           are evicted first when the cache is full, and entries expire after
+ *           the time to live.
+ * 
+ * @param <K> - the type of the idempotency keys
+ * @param <V> - the type of the results
+ */
+public class IdempotencyCache<K, V> {
+
+  /**
+   * Cached result.
+   */
+  private record Entry<V>(V result, long expiresAt) {
+  }
+
+  /**
+   * Entries in insertion order, the oldest first.
+   */
+  private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>();
+
+  /**
+   * Maximum number of entries.
+   */
+  private final int maxSize;
+
+  /**
+   * Time to live of the entries, in nanoseconds.
+   */
+  private final long ttlNanos;
+
+  /**
+   * Clock in nanoseconds.
+   */
+  private final LongSupplier nanoClock;
+
+  /**
+   * Constructor.
+   * 
+   * @param maxSize - the maximum number of entries
+   * @param ttl - the time to live of the entries
+   */
+  public IdempotencyCache(int maxSize, Duration ttl) {
+    this(maxSize, ttl, System::nanoTime);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param maxSize - the maximum number of entries
+   * @param ttl - the time to live of the entries
+   * @param nanoClock - the clock in nanoseconds
+   */
+  IdempotencyCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Idempotency cache size must be at least 1: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.ttlNanos = ttl.toNanos();
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Get the result of a recently handled command.
+   * 
+   * @param key - the idempotency key of the command
+   * @return the result of the command, empty if unknown or expired
+   */
+  public synchronized Optional<V> get(K key) {
+    if (key == null) {
+      return Optional.empty();
+    }
+    evictExpired();
+    final Entry<V> entry = entries.get(key);
+    return entry == null ? Optional.empty() : Optional.of(entry.result());
+  }
+
+  /**
+   * Remember the result of a handled command.
+   * 
+   * @param key - the idempotency key of the command
+   * @param result - the result of the command
+   */
+  public synchronized void put(K key, V result) {
+    if (key == null) {
+      return;
+    }
+    evictExpired();
+    entries.remove(key);
+    entries.put(key, new Entry<>(result, nanoClock.getAsLong() + ttlNanos));
+    if (entries.size() > maxSize) {
+      final Iterator<Map.Entry<K, Entry<V>>> oldest = entries.entrySet().iterator();
+      oldest.next();
+      oldest.remove();
+    }
+  }
+
+  /**
+   * Get the number of entries.
+   * 
+   * @return the number of entries, including the expired ones not yet evicted
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Evict the expired entries, which are the oldest ones.
+   */
+  private void evictExpired() {
+    final long now = nanoClock.getAsLong();
+    final Iterator<Entry<V>> oldest = entries.values().iterator();
+    while (oldest.hasNext() && now - oldest.next().expiresAt() >= 0) {
+      oldest.remove();
+    }
+  }
+}
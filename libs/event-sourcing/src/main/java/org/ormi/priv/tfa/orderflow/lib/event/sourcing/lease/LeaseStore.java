@@ -0,0 +1,33 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.lease;
+
+import java.time.Duration;
+
+/**
+ * Lease store.
+ * 
+ * The lease store grants time bounded exclusive ownership of an aggregate to a
+ * single writer, so that the owner can trust its in-memory state instead of
+ * reading the event store before each command.
+ */
+public interface LeaseStore {
+  /**
+   * Acquire or renew the lease of an aggregate.
+   * 
+   * @implNote The lease is granted if it is free, expired or already held by the
+   *           same owner.
+   * 
+   * @param aggregateRootId - the aggregate root id
+   * @param ownerId - the id of the candidate owner
+   * @param duration - the duration of the lease from now
+   * @return true if the owner holds the lease, false otherwise
+   */
+  public boolean tryAcquire(String aggregateRootId, String ownerId, Duration duration);
+
+  /**
+   * Release the lease of an aggregate if it is held by the given owner.
+   * 
+   * @param aggregateRootId - the aggregate root id
+   * @param ownerId - the id of the owner
+   */
+  public void release(String aggregateRootId, String ownerId);
+}
@@ -0,0 +1,226 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Single writer command pipeline.
+ * 
+ * Commands submitted from any thread are queued in a bounded ring buffer and
+ * handled one at a time by a dedicated writer thread, so that the handler can
+ * validate, append and apply without any locking of the aggregate state.
+ * 
+ * @implNote The writer takes the next command as soon as the handler returns,
+ *           without waiting for the completion stage of the command: the handler
+ *           decides and applies a command on the writer thread, and only its
+ *           durability, e.g. a group commit, completes afterwards.
+ * @implNote Submitting blocks while the buffer is full, which propagates back
+ *           pressure to the producers.
+ * 
+ * @param <C> - the type of the commands
+ * @param <R> - the type of the command results
+ */
+public class SingleWriterPipeline<C, R> implements AutoCloseable {
+
+  /**
+   * Queued command.
+   */
+  private record Task<C, R>(C command, CompletableFuture<R> result, long enqueuedAt) {
+  }
+
+  /**
+   * Handler of the commands, only called by the writer thread.
+   */
+  private final Function<C, ? extends CompletionStage<? extends R>> handler;
+
+  /**
+   * Ring buffer of the queued commands.
+   */
+  private final BlockingQueue<Task<C, R>> buffer;
+
+  /**
+   * Capacity of the ring buffer.
+   */
+  private final int capacity;
+
+  /**
+   * Writer thread.
+   */
+  private final Thread writer;
+
+  /**
+   * Number of commands handled by the writer, whether completed or not.
+   */
+  private final AtomicLong processedCount = new AtomicLong();
+
+  /**
+   * Total time spent by the handled commands in the buffer, in nanoseconds.
+   */
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+
+  /**
+   * Longest time spent by a command in the buffer, in nanoseconds.
+   */
+  private volatile long maxWaitNanos;
+
+  /**
+   * Whether the pipeline is running.
+   */
+  private volatile boolean running = true;
+
+  /**
+   * Constructor.
+   * 
+   * Starts the writer thread.
+   * 
+   * @param name - the name of the writer thread
+   * @param capacity - the capacity of the ring buffer
+   * @param handler - the handler of the commands
+   */
+  public SingleWriterPipeline(String name, int capacity,
+      Function<C, ? extends CompletionStage<? extends R>> handler) {
+    this.handler = handler;
+    this.capacity = capacity;
+    this.buffer = new ArrayBlockingQueue<>(capacity);
+    this.writer = new Thread(this::run, name);
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Submit a command.
+   * 
+   * @param command - the command to handle
+   * @return a completion stage completed with the result of the command
+   */
+  public CompletableFuture<R> submit(C command) {
+    final CompletableFuture<R> result = new CompletableFuture<>();
+    if (!running) {
+      result.completeExceptionally(new IllegalStateException("Command pipeline is closed"));
+      return result;
+    }
+    try {
+      buffer.put(new Task<>(command, result, System.nanoTime()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Get the number of commands waiting in the buffer.
+   * 
+   * @return the queue depth
+   */
+  public int getQueueDepth() {
+    return buffer.size();
+  }
+
+  /**
+   * Get the capacity of the buffer.
+   * 
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the number of commands handled.
+   * 
+   * @return the number of commands
+   */
+  public long getProcessedCount() {
+    return processedCount.get();
+  }
+
+  /**
+   * Get the average time spent by the handled commands in the buffer.
+   * 
+   * @return the average wait time in nanoseconds, 0 if no command was handled
+   */
+  public long getAverageWaitNanos() {
+    final long processed = processedCount.get();
+    return processed == 0 ? 0 : totalWaitNanos.get() / processed;
+  }
+
+  /**
+   * Get the longest time spent by a command in the buffer.
+   * 
+   * @return the maximum wait time in nanoseconds
+   */
+  public long getMaxWaitNanos() {
+    return maxWaitNanos;
+  }
+
+  /**
+   * Stop accepting commands, handle the commands already queued and stop the writer.
+   */
+  @Override
+  public void close() {
+    running = false;
+    writer.interrupt();
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Fail the commands submitted concurrently with the shutdown
+    Task<C, R> task;
+    while ((task = buffer.poll()) != null) {
+      task.result().completeExceptionally(new IllegalStateException("Command pipeline is closed"));
+    }
+  }
+
+  /**
+   * Writer loop.
+   */
+  private void run() {
+    while (running || !buffer.isEmpty()) {
+      final Task<C, R> task;
+      try {
+        task = buffer.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        // Closing: handle the commands already queued
+        continue;
+      }
+      if (task != null) {
+        handle(task);
+      }
+    }
+  }
+
+  /**
+   * Handle a command, its result is completed with the completion stage of the handler.
+   * 
+   * @param task - the queued command
+   */
+  private void handle(Task<C, R> task) {
+    final long waitNanos = System.nanoTime() - task.enqueuedAt();
+    totalWaitNanos.addAndGet(waitNanos);
+    if (waitNanos > maxWaitNanos) {
+      maxWaitNanos = waitNanos;
+    }
+    try {
+      handler.apply(task.command()).whenComplete((result, e) -> {
+        if (e == null) {
+          task.result().complete(result);
+        } else {
+          task.result().completeExceptionally(e instanceof CompletionException && e.getCause() != null
+              ? e.getCause()
+              : e);
+        }
+      });
+    } catch (RuntimeException e) {
+      task.result().completeExceptionally(e);
+    }
+    processedCount.incrementAndGet();
+  }
+}
@@ -0,0 +1,52 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.snapshot;
+
+import java.time.Duration;
+
+/**
+ * Snapshot policy.
+ * 
+ * Decides when an aggregate is due for a new snapshot: every given number of
+ * events, or once a given time has elapsed since the previous snapshot and
+ * new events have been applied.
+ */
+public class SnapshotPolicy {
+  /**
+   * Number of events between two snapshots.
+   */
+  private final long eventInterval;
+
+  /**
+   * Time between two snapshots, in milliseconds.
+   */
+  private final long timeInterval;
+
+  /**
+   * Constructor.
+   * 
+   * @param eventInterval - the number of events between two snapshots
+   * @param timeInterval - the time between two snapshots
+   */
+  public SnapshotPolicy(long eventInterval, Duration timeInterval) {
+    if (eventInterval < 1) {
+      throw new IllegalArgumentException("Snapshot event interval must be at least 1: " + eventInterval);
+    }
+    this.eventInterval = eventInterval;
+    this.timeInterval = timeInterval.toMillis();
+  }
+
+  /**
+   * Check if an aggregate is due for a snapshot.
+   * 
+   * @param snapshotVersion - the version of the latest snapshot
+   * @param snapshotTimestamp - the timestamp of the latest snapshot, in epoch milliseconds
+   * @param version - the current version of the aggregate
+   * @param now - the current time, in epoch milliseconds
+   * @return true if a snapshot should be taken, false otherwise
+   */
+  public boolean isDue(long snapshotVersion, long snapshotTimestamp, long version, long now) {
+    if (version <= snapshotVersion) {
+      return false;
+    }
+    return version - snapshotVersion >= eventInterval || now - snapshotTimestamp >= timeInterval;
+  }
+}
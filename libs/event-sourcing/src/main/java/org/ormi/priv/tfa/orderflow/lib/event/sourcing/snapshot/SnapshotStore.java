@@ -0,0 +1,29 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.snapshot;
+
+import java.util.Optional;
+
+/**
+ * Snapshot store.
+ * 
+ * The snapshot store is responsible for storing and retrieving snapshots of
+ * aggregates, so that an aggregate can be rebuilt from its latest snapshot and
+ * the events that follow it instead of its whole event history.
+ * 
+ * @param <T> - the type of the snapshot
+ */
+public interface SnapshotStore<T> {
+  /**
+   * Save a snapshot.
+   * 
+   * @param snapshot - the snapshot to save
+   */
+  public void saveSnapshot(T snapshot);
+
+  /**
+   * Get the latest snapshot of an aggregate.
+   * 
+   * @param aggregateRootId - the aggregate root id
+   * @return the snapshot with the highest version, if any
+   */
+  public Optional<T> findLatestSnapshotByAggregateRootId(String aggregateRootId);
+}
@@ -1,6 +1,7 @@
 package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Event store.
@@ -17,6 +18,34 @@ public interface EventStore<T> {
    */
   public void saveEvent(T event);
 
+  /**
+   * Save a batch of events at once.
+   * 
+   * @implNote Stores should override this method to write the batch with a
+   *           single round trip.
+   * 
+   * @param events - the events to save, in order
+   */
+  public default void saveEvents(List<T> events) {
+    events.forEach(this::saveEvent);
+  }
+
+  /**
+   * Append events to the stream of an aggregate, provided the stream is still at
+   * the expected version.
+   * 
+   * @apiNote The events must be ordered and numbered from expectedVersion + 1
+   *          without gap.
+   * 
+   * @param aggregateRootId - the aggregate root id
+   * @param expectedVersion - the version of the last event of the stream known by the writer
+   * @param events - the events to append
+   * @throws EventStoreConcurrencyException if another writer already appended
+   *                                        an event past the expected version
+   */
+  public void append(String aggregateRootId, long expectedVersion, List<T> events)
+      throws EventStoreConcurrencyException;
+
   /**
    * Get events by aggregate root id.
    * 
@@ -28,4 +57,21 @@ public interface EventStore<T> {
    * @return the list of ordered events
    */
   public List<T> findEventsByAggregateRootIdAndStartingVersion(String aggregateRootId, long startingVersion);
+
+  /**
+   * Stream events by aggregate root id.
+   * 
+   * @apiNote Same as
+   *          {@link #findEventsByAggregateRootIdAndStartingVersion(String, long)}
+   *          but the events are fetched lazily, so that a replay holds a bounded
+   *          number of events in memory whatever the stream length. The returned
+   *          stream must be closed.
+   * 
+   * @param aggregateRootId - the aggregate root id
+   * @return the stream of ordered events
+   */
+  public default Stream<T> streamEventsByAggregateRootIdAndStartingVersion(String aggregateRootId,
+      long startingVersion) {
+    return findEventsByAggregateRootIdAndStartingVersion(aggregateRootId, startingVersion).stream();
+  }
 }
@@ -0,0 +1,82 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+/**
+ * Exception thrown when events are appended to an aggregate stream that has
+ * moved past the expected version, i.e. another writer appended first.
+ * 
+ * @implNote The writer is expected to catch up with the stream and retry.
+ */
+public class EventStoreConcurrencyException extends RuntimeException {
+
+  /**
+   * The aggregate root id of the stream.
+   */
+  private final String aggregateRootId;
+
+  /**
+   * The version the writer expected the stream to be at.
+   */
+  private final long expectedVersion;
+
+  /**
+   * The number of events of the failed write that were stored before the conflict.
+   */
+  private final int writtenCount;
+
+  /**
+   * Constructor.
+   * 
+   * @param aggregateRootId - the aggregate root id of the stream
+   * @param expectedVersion - the version the writer expected the stream to be at
+   * @param cause - the cause of the exception (can be null)
+   */
+  public EventStoreConcurrencyException(String aggregateRootId, long expectedVersion, Throwable cause) {
+    this(aggregateRootId, expectedVersion, 0, cause);
+  }
+
+  /**
+   * Constructor, for a write that stored its first events before the conflict.
+   * 
+   * @param aggregateRootId - the aggregate root id of the conflicting stream
+   * @param expectedVersion - the version the writer expected the stream to be at
+   * @param writtenCount - the number of events of the write stored before the conflict
+   * @param cause - the cause of the exception (can be null)
+   */
+  public EventStoreConcurrencyException(String aggregateRootId, long expectedVersion, int writtenCount,
+      Throwable cause) {
+    super(String.format("Concurrent append to aggregate %s: expected version %d is outdated", aggregateRootId,
+        expectedVersion), cause);
+    this.aggregateRootId = aggregateRootId;
+    this.expectedVersion = expectedVersion;
+    this.writtenCount = writtenCount;
+  }
+
+  /**
+   * Get the aggregate root id of the stream.
+   * 
+   * @return the aggregate root id
+   */
+  public String getAggregateRootId() {
+    return aggregateRootId;
+  }
+
+  /**
+   * Get the version the writer expected the stream to be at.
+   * 
+   * @return the expected version
+   */
+  public long getExpectedVersion() {
+    return expectedVersion;
+  }
+
+  /**
+   * Get the number of events of the failed write that were stored before the conflict.
+   * 
+   * @implNote Only a write made outside of a transaction may store part of its events.
+   * 
+   * @return the number of stored events, in the order of the write
+   */
+  public int getWrittenCount() {
+    return writtenCount;
+  }
+}
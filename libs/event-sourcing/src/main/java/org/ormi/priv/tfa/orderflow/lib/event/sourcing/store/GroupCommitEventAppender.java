@@ -0,0 +1,337 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Group commit event appender.
+ * 
+ * Appends events to an {@link EventStore} in batches. The events appended
+ * within a short window, up to a maximum batch size, are written by a dedicated
+ * writer thread with one {@link EventStore#append(String, long, List)} call per
+ * aggregate stream of the batch, so that the store checks the expected version
+ * of each stream. The completion of each append is released once its stream
+ * is saved.
+ * 
+ * @implNote The window starts with the first event of a batch, a zero window
+ *           only batches the events already waiting for the writer.
+ * @implNote An event that does not follow the previous event of its stream in
+ *           the batch, e.g. decided on the same version by a concurrent writer,
+ *           fails with an {@link EventStoreConcurrencyException} without being
+ *           written.
+ * @implNote A failed append fails the completion of the events of its stream,
+ *           except those the store reports as written before a conflict.
+ * @implNote An event appended after the event it was decided on, see
+ *           {@link #append(Object, CompletionStage)}, fails without being written
+ *           if that event failed: a writer may decide the next events of a stream
+ *           before the previous ones are saved.
+ * 
+ * @param <T> - the type of the event
+ */
+public class GroupCommitEventAppender<T> implements AutoCloseable {
+
+  /**
+   * Event waiting for its batch to be saved.
+   */
+  private record PendingEvent<T>(T event, CompletableFuture<?> after, CompletableFuture<Void> completion) {
+  }
+
+  /**
+   * The store the batches are saved to.
+   */
+  private final EventStore<T> eventStore;
+
+  /**
+   * Get the aggregate root id of an event.
+   */
+  private final Function<? super T, String> aggregateRootIdOf;
+
+  /**
+   * Get the version of an event in its stream.
+   */
+  private final ToLongFunction<? super T> versionOf;
+
+  /**
+   * Time to wait for more events after the first event of a batch, in nanoseconds.
+   */
+  private final long windowNanos;
+
+  /**
+   * Maximum number of events in a batch.
+   */
+  private final int maxBatchSize;
+
+  /**
+   * Events waiting to be saved.
+   */
+  private final BlockingQueue<PendingEvent<T>> queue = new LinkedBlockingQueue<>();
+
+  /**
+   * Writer thread saving the batches.
+   */
+  private final Thread writer;
+
+  /**
+   * Number of batches saved.
+   */
+  private final AtomicLong batchCount = new AtomicLong();
+
+  /**
+   * Number of events saved.
+   */
+  private final AtomicLong eventCount = new AtomicLong();
+
+  /**
+   * Size of the largest batch saved.
+   */
+  private final LongAccumulator largestBatchSize = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Listener of the size of each batch saved.
+   */
+  private volatile IntConsumer batchListener = size -> {
+  };
+
+  /**
+   * Whether the appender is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Constructor.
+   * 
+   * Starts the writer thread.
+   * 
+   * @param eventStore - the store the batches are saved to
+   * @param aggregateRootIdOf - get the aggregate root id of an event
+   * @param versionOf - get the version of an event in its stream
+   * @param window - the time to wait for more events after the first event of a batch
+   * @param maxBatchSize - the maximum number of events in a batch
+   */
+  public GroupCommitEventAppender(EventStore<T> eventStore, Function<? super T, String> aggregateRootIdOf,
+      ToLongFunction<? super T> versionOf, Duration window, int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("Group commit max batch size must be at least 1: " + maxBatchSize);
+    }
+    this.eventStore = eventStore;
+    this.aggregateRootIdOf = aggregateRootIdOf;
+    this.versionOf = versionOf;
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.writer = new Thread(this::run, "group-commit-event-appender");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Append an event.
+   * 
+   * @param event - the event to append
+   * @return a completion stage completed once the batch of the event is saved
+   */
+  public CompletableFuture<Void> append(T event) {
+    return append(event, null);
+  }
+
+  /**
+   * Append an event decided on a previous event of its stream, which may not be
+   * saved yet.
+   * 
+   * @implNote The previous event must be appended first, so that it is saved
+   *           before the event or in the same batch.
+   * 
+   * @param event - the event to append
+   * @param after - the completion of the append of the previous event (can be null)
+   * @return a completion stage completed once the batch of the event is saved,
+   *         failed with an {@link EventStoreConcurrencyException} if the previous
+   *         event failed
+   */
+  public CompletableFuture<Void> append(T event, CompletionStage<?> after) {
+    final CompletableFuture<Void> completion = new CompletableFuture<>();
+    if (closed) {
+      completion.completeExceptionally(new IllegalStateException("Group commit event appender is closed"));
+      return completion;
+    }
+    queue.add(new PendingEvent<>(event, after == null ? null : after.toCompletableFuture(), completion));
+    return completion;
+  }
+
+  /**
+   * Listen to the number of events saved by each batch, e.g. to record the
+   * distribution of the batch sizes.
+   * 
+   * @implNote The listener is called by the writer thread.
+   * 
+   * @param listener - the listener of the batch sizes
+   */
+  public void onBatchSaved(IntConsumer listener) {
+    this.batchListener = listener;
+  }
+
+  /**
+   * Get the number of batches saved.
+   * 
+   * @return the number of batches
+   */
+  public long getBatchCount() {
+    return batchCount.get();
+  }
+
+  /**
+   * Get the number of events saved.
+   * 
+   * @return the number of events
+   */
+  public long getEventCount() {
+    return eventCount.get();
+  }
+
+  /**
+   * Get the average number of events per batch.
+   * 
+   * @return the average batch size, 0 if no batch was saved
+   */
+  public double getAverageBatchSize() {
+    final long batches = batchCount.get();
+    return batches == 0 ? 0 : (double) eventCount.get() / batches;
+  }
+
+  /**
+   * Get the size of the largest batch saved.
+   * 
+   * @return the largest batch size
+   */
+  public long getLargestBatchSize() {
+    return largestBatchSize.get();
+  }
+
+  /**
+   * Stop accepting events, save the events already appended and stop the writer.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    writer.interrupt();
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Fail the events appended concurrently with the shutdown
+    PendingEvent<T> pending;
+    while ((pending = queue.poll()) != null) {
+      pending.completion().completeExceptionally(new IllegalStateException("Group commit event appender is closed"));
+    }
+  }
+
+  /**
+   * Writer loop.
+   */
+  private void run() {
+    final List<PendingEvent<T>> batch = new ArrayList<>(maxBatchSize);
+    while (!closed || !queue.isEmpty()) {
+      try {
+        final PendingEvent<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        collect(batch);
+      } catch (InterruptedException e) {
+        // Closing: drain the events already appended
+        queue.drainTo(batch, maxBatchSize - batch.size());
+      }
+      if (!batch.isEmpty()) {
+        save(batch);
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Collect the events of a batch until the window elapses or the batch is full.
+   * 
+   * @param batch - the batch, containing its first event
+   * @throws InterruptedException if the appender is closed meanwhile
+   */
+  private void collect(List<PendingEvent<T>> batch) throws InterruptedException {
+    final long deadline = System.nanoTime() + windowNanos;
+    queue.drainTo(batch, maxBatchSize - batch.size());
+    while (batch.size() < maxBatchSize) {
+      final long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return;
+      }
+      final PendingEvent<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+      queue.drainTo(batch, maxBatchSize - batch.size());
+    }
+  }
+
+  /**
+   * Save a batch and release the completion of its events.
+   * 
+   * @param batch - the batch to save
+   */
+  private void save(List<PendingEvent<T>> batch) {
+    // Split the batch by stream, rejecting the events that do not follow their stream
+    // or that follow a failed event
+    final Map<String, List<PendingEvent<T>>> streams = new LinkedHashMap<>();
+    for (PendingEvent<T> pending : batch) {
+      final String aggregateRootId = aggregateRootIdOf.apply(pending.event());
+      final long version = versionOf.applyAsLong(pending.event());
+      final List<PendingEvent<T>> stream = streams.computeIfAbsent(aggregateRootId, key -> new ArrayList<>());
+      if (pending.after() != null && pending.after().isCompletedExceptionally()) {
+        // Decided on an event that failed in a previous batch
+        pending.completion().completeExceptionally(new EventStoreConcurrencyException(aggregateRootId, version - 1,
+            pending.after().handle((ignored, failure) -> failure).join()));
+        continue;
+      }
+      if (!stream.isEmpty() && version != versionOf.applyAsLong(stream.get(stream.size() - 1).event()) + 1) {
+        pending.completion().completeExceptionally(
+            new EventStoreConcurrencyException(aggregateRootId, version - 1, null));
+        continue;
+      }
+      stream.add(pending);
+    }
+    final List<PendingEvent<T>> saved = new ArrayList<>(batch.size());
+    for (Map.Entry<String, List<PendingEvent<T>>> stream : streams.entrySet()) {
+      final List<T> events = new ArrayList<>(stream.getValue().size());
+      stream.getValue().forEach(pending -> events.add(pending.event()));
+      try {
+        eventStore.append(stream.getKey(), versionOf.applyAsLong(events.get(0)) - 1, events);
+      } catch (RuntimeException e) {
+        // The events written before a conflict are saved, only the others fail
+        final int written = e instanceof EventStoreConcurrencyException conflict ? conflict.getWrittenCount() : 0;
+        saved.addAll(stream.getValue().subList(0, written));
+        stream.getValue().subList(written, events.size())
+            .forEach(pending -> pending.completion().completeExceptionally(e));
+        continue;
+      }
+      saved.addAll(stream.getValue());
+    }
+    if (!saved.isEmpty()) {
+      batchCount.incrementAndGet();
+      eventCount.addAndGet(saved.size());
+      largestBatchSize.accumulate(saved.size());
+      batchListener.accept(saved.size());
+    }
+    saved.forEach(pending -> pending.completion().complete(null));
+  }
+}
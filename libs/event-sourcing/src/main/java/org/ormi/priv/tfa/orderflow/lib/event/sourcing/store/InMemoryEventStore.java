@@ -0,0 +1,129 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory event store.
+ *
+ * Keeps the streams of the aggregates in the heap, for tests and measurements
+ * that must not depend on a database. Streams are checked for concurrent
+ * appends the same way as a persistent store, so the optimistic concurrency
+ * of the writers is exercised.
+ *
+ * @implNote Appends are serialized by a single lock, reads copy the requested
+ *           part of a stream under the lock.
+ *
+ * @param <T> - the type of the events
+ */
+public class InMemoryEventStore<T> implements EventStore<T> {
+
+  /**
+   * Get the aggregate root id of an event.
+   */
+  private final Function<? super T, String> aggregateRootIdOf;
+
+  /**
+   * Get the version of an event in its stream.
+   */
+  private final ToLongFunction<? super T> versionOf;
+
+  /**
+   * Events by aggregate root id, in version order.
+   */
+  private final Map<String, List<T>> streams = new HashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param aggregateRootIdOf - get the aggregate root id of an event
+   * @param versionOf - get the version of an event in its stream
+   */
+  public InMemoryEventStore(Function<? super T, String> aggregateRootIdOf, ToLongFunction<? super T> versionOf) {
+    this.aggregateRootIdOf = aggregateRootIdOf;
+    this.versionOf = versionOf;
+  }
+
+  /**
+   * Get the aggregate root ids of the streams of the store.
+   *
+   * @return the aggregate root ids
+   */
+  public synchronized Set<String> getAggregateRootIds() {
+    return Set.copyOf(streams.keySet());
+  }
+
+  @Override
+  public void saveEvent(T event) {
+    append(aggregateRootIdOf.apply(event), versionOf.applyAsLong(event) - 1, List.of(event));
+  }
+
+  /**
+   * Save a batch of events of any streams.
+   *
+   * @implNote The versions of the whole batch are checked before saving, a
+   *           batch conflicting with its streams is not saved at all.
+   *
+   * @param events - the events to save, each following the last event of its stream
+   * @throws EventStoreConcurrencyException if an event does not follow the last event of its stream
+   */
+  @Override
+  public synchronized void saveEvents(List<T> events) {
+    final Map<String, Long> lastVersions = new HashMap<>();
+    for (T event : events) {
+      final String aggregateRootId = aggregateRootIdOf.apply(event);
+      final long lastVersion = lastVersions.computeIfAbsent(aggregateRootId, this::lastVersion);
+      if (versionOf.applyAsLong(event) != lastVersion + 1) {
+        throw new EventStoreConcurrencyException(aggregateRootId, versionOf.applyAsLong(event) - 1, null);
+      }
+      lastVersions.put(aggregateRootId, lastVersion + 1);
+    }
+    events.forEach(event -> streams.computeIfAbsent(aggregateRootIdOf.apply(event), key -> new ArrayList<>())
+        .add(event));
+  }
+
+  @Override
+  public synchronized void append(String aggregateRootId, long expectedVersion, List<T> events)
+      throws EventStoreConcurrencyException {
+    long version = expectedVersion;
+    for (T event : events) {
+      if (!aggregateRootId.equals(aggregateRootIdOf.apply(event)) || versionOf.applyAsLong(event) != ++version) {
+        throw new IllegalArgumentException(String.format("Event version %d does not follow version %d of aggregate %s",
+            versionOf.applyAsLong(event), version - 1, aggregateRootId));
+      }
+    }
+    if (lastVersion(aggregateRootId) != expectedVersion) {
+      throw new EventStoreConcurrencyException(aggregateRootId, expectedVersion, null);
+    }
+    streams.computeIfAbsent(aggregateRootId, key -> new ArrayList<>()).addAll(events);
+  }
+
+  @Override
+  public synchronized List<T> findEventsByAggregateRootIdAndStartingVersion(String aggregateRootId,
+      long startingVersion) {
+    final List<T> stream = streams.get(aggregateRootId);
+    if (stream == null || stream.isEmpty()) {
+      return List.of();
+    }
+    // Versions are contiguous from the first event of the stream
+    final long firstVersion = versionOf.applyAsLong(stream.get(0));
+    final int from = (int) Math.min(stream.size(), Math.max(0, startingVersion - firstVersion + 1));
+    return List.copyOf(stream.subList(from, stream.size()));
+  }
+
+  /**
+   * Get the version of the last event of a stream.
+   *
+   * @param aggregateRootId - the aggregate root id
+   * @return the last version, 0 if the stream is empty
+   */
+  private long lastVersion(String aggregateRootId) {
+    final List<T> stream = streams.get(aggregateRootId);
+    return stream == null || stream.isEmpty() ? 0 : versionOf.applyAsLong(stream.get(stream.size() - 1));
+  }
+}
@@ -0,0 +1,648 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Memory-mapped file event store.
+ *
+ * Local, append-only event store of all the aggregate streams, for
+ * deployments without a database and to measure the write path without a
+ * network round trip. Events are written as records at the end of a log of
+ * fixed size segment files, mapped in memory:
+ *
+ * <pre>
+ * record = length (int) | crc32c (int) | body
+ * body   = version (long) | aggregate root id length (short)
+ *          | aggregate root id (utf-8) | event bytes
+ * </pre>
+ *
+ * The position of every record is indexed in memory by aggregate and version,
+ * the index being rebuilt by scanning the segments when the store is opened,
+ * so a read only touches the records of its stream.
+ *
+ * @implNote Appends are serialized by a single lock and are visible to the
+ *           readers once the append returns, readers do not take the lock
+ *           while decoding. The store must only be opened by one process at a
+ *           time.
+ * @implNote Records are checked against their CRC when the store is opened,
+ *           indexing stops at the first torn record of the last segment, left
+ *           by a crash during an append, and the next append overwrites it.
+ *
+ * @param <T> - the type of the events
+ */
+public class MappedFileEventStore<T> implements EventStore<T>, AutoCloseable {
+
+  /**
+   * When appended records are forced to the storage device.
+   */
+  public enum FsyncPolicy {
+    /**
+     * Every append is forced before returning, under the append lock.
+     */
+    ALWAYS,
+    /**
+     * Every append is forced before returning, but concurrent appends share a
+     * single force (group commit).
+     */
+    GROUP,
+    /**
+     * Appends return once in memory, records are forced at a fixed interval and
+     * the last ones may be lost on a host crash.
+     */
+    PERIODIC
+  }
+
+  /**
+   * Serialization of the events.
+   *
+   * @param <T> - the type of the events
+   */
+  public interface EventCodec<T> {
+    /**
+     * Get the aggregate root id of an event.
+     *
+     * @param event - the event
+     * @return the aggregate root id
+     */
+    String aggregateRootIdOf(T event);
+
+    /**
+     * Get the version of an event in its stream.
+     *
+     * @param event - the event
+     * @return the version
+     */
+    long versionOf(T event);
+
+    /**
+     * Serialize an event.
+     *
+     * @param event - the event
+     * @return the event bytes
+     */
+    byte[] encode(T event);
+
+    /**
+     * Deserialize an event.
+     *
+     * @param data - the event bytes
+     * @return the event
+     */
+    T decode(byte[] data);
+  }
+
+  /**
+   * Index of the records of a stream.
+   *
+   * @implNote The positions are only mutated under the append lock, readers
+   *           copy them under the lock.
+   */
+  private static final class StreamIndex {
+    private long firstVersion;
+    private long[] positions = new long[16];
+    private int size;
+
+    long lastVersion() {
+      return size == 0 ? 0 : firstVersion + size - 1;
+    }
+
+    void add(long version, long position) {
+      if (size == 0) {
+        firstVersion = version;
+      }
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, size * 2);
+      }
+      positions[size++] = position;
+    }
+  }
+
+  /**
+   * Record header size in bytes.
+   */
+  private static final int HEADER_SIZE = 4 + 4;
+
+  /**
+   * Segment file extension.
+   */
+  private static final String SEGMENT_EXTENSION = ".log";
+
+  /**
+   * Directory of the segments.
+   */
+  private final Path directory;
+
+  /**
+   * Size of a new segment.
+   */
+  private final int segmentSize;
+
+  /**
+   * When appends are forced to the storage device.
+   */
+  private final FsyncPolicy fsyncPolicy;
+
+  /**
+   * Serialization of the events.
+   */
+  private final EventCodec<T> codec;
+
+  /**
+   * Mapped segments, by sequence number.
+   */
+  private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+  /**
+   * Index of the records by stream.
+   */
+  private final Map<String, StreamIndex> indexes = new HashMap<>();
+
+  /**
+   * Position after the last appended record.
+   */
+  private long writePosition;
+
+  /**
+   * Position up to which the records are forced.
+   */
+  private long durablePosition;
+
+  /**
+   * Lock of the forces, distinct from the append lock so that appends go on
+   * during a force.
+   */
+  private final Object fsyncLock = new Object();
+
+  /**
+   * Forcing thread of the periodic policy, null for the other policies.
+   */
+  private final ScheduledExecutorService fsyncExecutor;
+
+  /**
+   * Open a store, creating its directory if needed.
+   *
+   * @param directory - the directory of the segment files
+   * @param segmentSize - the size in bytes of a segment file, the maximum size of a record
+   * @param fsyncPolicy - when appends are forced to the storage device
+   * @param fsyncInterval - the interval between two forces with the periodic policy
+   * @param codec - the serialization of the events
+   * @throws UncheckedIOException if the segments cannot be read
+   * @throws IllegalStateException if a segment other than the last is corrupted
+   */
+  public MappedFileEventStore(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+      EventCodec<T> codec) {
+    if (segmentSize <= HEADER_SIZE + 8 + 2) {
+      throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.fsyncPolicy = fsyncPolicy;
+    this.codec = codec;
+    try {
+      Files.createDirectories(directory);
+      recover();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open event store directory " + directory, e);
+    }
+    if (fsyncPolicy == FsyncPolicy.PERIODIC) {
+      fsyncExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+        final Thread thread = new Thread(task, "mapped-event-store-fsync");
+        thread.setDaemon(true);
+        return thread;
+      });
+      final long intervalNanos = fsyncInterval.toNanos();
+      fsyncExecutor.scheduleWithFixedDelay(this::flush, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    } else {
+      fsyncExecutor = null;
+    }
+  }
+
+  /**
+   * Get the aggregate root ids of the streams of the store.
+   *
+   * @return the aggregate root ids
+   */
+  public synchronized Set<String> getAggregateRootIds() {
+    return Set.copyOf(indexes.keySet());
+  }
+
+  /**
+   * Get the version of the last event of a stream.
+   *
+   * @param aggregateRootId - the aggregate root id
+   * @return the last version, 0 if the stream is empty
+   */
+  public synchronized long getLastVersion(String aggregateRootId) {
+    final StreamIndex index = indexes.get(aggregateRootId);
+    return index == null ? 0 : index.lastVersion();
+  }
+
+  @Override
+  public void saveEvent(T event) {
+    append(codec.aggregateRootIdOf(event), codec.versionOf(event) - 1, List.of(event));
+  }
+
+  /**
+   * Save a batch of events of any streams with a single force.
+   *
+   * @implNote The versions of the whole batch are checked before writing, a
+   *           batch conflicting with its streams is not written at all.
+   *
+   * @param events - the events to save, each following the last event of its stream
+   * @throws EventStoreConcurrencyException if an event does not follow the last event of its stream
+   */
+  @Override
+  public void saveEvents(List<T> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    final long end;
+    synchronized (this) {
+      final Map<String, Long> lastVersions = new HashMap<>();
+      for (T event : events) {
+        final String aggregateRootId = codec.aggregateRootIdOf(event);
+        final long lastVersion = lastVersions.computeIfAbsent(aggregateRootId, this::getLastVersion);
+        if (codec.versionOf(event) != lastVersion + 1) {
+          throw new EventStoreConcurrencyException(aggregateRootId, codec.versionOf(event) - 1, null);
+        }
+        lastVersions.put(aggregateRootId, lastVersion + 1);
+      }
+      end = write(events);
+    }
+    sync(end);
+  }
+
+  @Override
+  public void append(String aggregateRootId, long expectedVersion, List<T> events)
+      throws EventStoreConcurrencyException {
+    long version = expectedVersion;
+    for (T event : events) {
+      if (!aggregateRootId.equals(codec.aggregateRootIdOf(event)) || codec.versionOf(event) != ++version) {
+        throw new IllegalArgumentException(String.format("Event version %d does not follow version %d of aggregate %s",
+            codec.versionOf(event), version - 1, aggregateRootId));
+      }
+    }
+    if (events.isEmpty()) {
+      return;
+    }
+    final long end;
+    synchronized (this) {
+      if (getLastVersion(aggregateRootId) != expectedVersion) {
+        throw new EventStoreConcurrencyException(aggregateRootId, expectedVersion, null);
+      }
+      end = write(events);
+    }
+    sync(end);
+  }
+
+  @Override
+  public List<T> findEventsByAggregateRootIdAndStartingVersion(String aggregateRootId, long startingVersion) {
+    try (Stream<T> events = streamEventsByAggregateRootIdAndStartingVersion(aggregateRootId, startingVersion)) {
+      return events.toList();
+    }
+  }
+
+  @Override
+  public Stream<T> streamEventsByAggregateRootIdAndStartingVersion(String aggregateRootId, long startingVersion) {
+    return streamRawEventsByAggregateRootIdAndStartingVersion(aggregateRootId, startingVersion).map(codec::decode);
+  }
+
+  /**
+   * Stream the undecoded events of a stream, so that decoding can be spread
+   * over several threads.
+   *
+   * @param aggregateRootId - the aggregate root id
+   * @param startingVersion - the version after which to read
+   * @return the event bytes after the starting version, in order, read lazily
+   */
+  public Stream<byte[]> streamRawEventsByAggregateRootIdAndStartingVersion(String aggregateRootId,
+      long startingVersion) {
+    final long[] positions;
+    final MappedByteBuffer[] mapped;
+    synchronized (this) {
+      final StreamIndex index = indexes.get(aggregateRootId);
+      if (index == null || startingVersion >= index.lastVersion()) {
+        return Stream.empty();
+      }
+      final int from = (int) Math.max(0, startingVersion - index.firstVersion + 1);
+      positions = Arrays.copyOfRange(index.positions, from, index.size);
+      mapped = segments;
+    }
+    return Arrays.stream(positions).mapToObj(position -> readData(mapped, position));
+  }
+
+  /**
+   * Force the appended records to the storage device.
+   */
+  public void flush() {
+    final long end;
+    synchronized (this) {
+      end = writePosition;
+    }
+    force(end);
+  }
+
+  /**
+   * Force the appended records and stop the periodic forces.
+   */
+  @Override
+  public void close() {
+    if (fsyncExecutor != null) {
+      fsyncExecutor.shutdownNow();
+    }
+    flush();
+  }
+
+  /**
+   * Write records at the end of the log and index them.
+   *
+   * @implNote Called under the append lock.
+   * @implNote The whole batch is encoded and its sizes checked before writing
+   *           the first record. A batch failing while written, when a segment
+   *           cannot be mapped or forced, is rolled back: its records are
+   *           cleared and unindexed, and the next append starts where it did.
+   *
+   * @param events - the events to write, already checked
+   * @return the position after the last record
+   * @throws IllegalArgumentException if an event does not fit in a segment
+   */
+  private long write(List<T> events) {
+    final byte[][] ids = new byte[events.size()][];
+    final byte[][] data = new byte[events.size()][];
+    for (int i = 0; i < events.size(); i++) {
+      final T event = events.get(i);
+      ids[i] = codec.aggregateRootIdOf(event).getBytes(StandardCharsets.UTF_8);
+      data[i] = codec.encode(event);
+      final int length = 8 + 2 + ids[i].length + data[i].length;
+      if (ids[i].length > 0xFFFF || HEADER_SIZE + length > segmentSize) {
+        throw new IllegalArgumentException(String.format("Event version %d of aggregate %s is too large: %d bytes",
+            codec.versionOf(event), codec.aggregateRootIdOf(event), length));
+      }
+    }
+    final long start = writePosition;
+    final long[] positions = new long[events.size()];
+    int written = 0;
+    try {
+      for (; written < events.size(); written++) {
+        final T event = events.get(written);
+        final byte[] id = ids[written];
+        final int length = 8 + 2 + id.length + data[written].length;
+        int segment = segmentOf(writePosition);
+        int offset = offsetOf(writePosition);
+        if (segment == segments.length || offset + HEADER_SIZE + length > segments[segment].capacity()) {
+          segment = roll();
+          offset = 0;
+        }
+        final MappedByteBuffer buffer = segments[segment];
+        buffer.putLong(offset + HEADER_SIZE, codec.versionOf(event));
+        buffer.putShort(offset + HEADER_SIZE + 8, (short) id.length);
+        buffer.put(offset + HEADER_SIZE + 10, id);
+        buffer.put(offset + HEADER_SIZE + 10 + id.length, data[written]);
+        buffer.putInt(offset + 4, crc(buffer, offset + HEADER_SIZE, length));
+        // The length is written last, a record is only valid once complete
+        buffer.putInt(offset, length);
+        positions[written] = positionOf(segment, offset);
+        indexes.computeIfAbsent(codec.aggregateRootIdOf(event), key -> new StreamIndex())
+            .add(codec.versionOf(event), positions[written]);
+        writePosition = positions[written] + HEADER_SIZE + length;
+      }
+      if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+        force(writePosition);
+      }
+    } catch (RuntimeException e) {
+      rollback(events, positions, written, start, e);
+      throw e;
+    }
+    return writePosition;
+  }
+
+  /**
+   * Undo the records written by a failed batch.
+   *
+   * @implNote Called under the append lock. The cleared lengths are forced on
+   *           a best effort basis, so that the records are not recovered after
+   *           a crash.
+   *
+   * @param events - the events of the batch
+   * @param positions - the positions of the written records
+   * @param written - the number of written records
+   * @param start - the write position before the batch
+   * @param failure - the failure of the batch, to which a failed force is added
+   */
+  private void rollback(List<T> events, long[] positions, int written, long start, RuntimeException failure) {
+    final long end = writePosition;
+    for (int i = written - 1; i >= 0; i--) {
+      segments[segmentOf(positions[i])].putInt(offsetOf(positions[i]), 0);
+      final String aggregateRootId = codec.aggregateRootIdOf(events.get(i));
+      final StreamIndex index = indexes.get(aggregateRootId);
+      if (--index.size == 0) {
+        indexes.remove(aggregateRootId);
+      }
+    }
+    writePosition = start;
+    synchronized (fsyncLock) {
+      durablePosition = Math.min(durablePosition, start);
+    }
+    try {
+      force(end);
+    } catch (RuntimeException e) {
+      failure.addSuppressed(e);
+    }
+    synchronized (fsyncLock) {
+      durablePosition = Math.min(durablePosition, start);
+    }
+  }
+
+  /**
+   * Start a new segment, after forcing the current one so that only the last
+   * segment can hold a torn record.
+   *
+   * @implNote Called under the append lock.
+   *
+   * @return the sequence number of the new segment
+   */
+  private int roll() {
+    final int segment = segments.length;
+    if (segment > 0) {
+      force(writePosition);
+    }
+    final MappedByteBuffer buffer = map(segmentPath(segment), segmentSize);
+    final MappedByteBuffer[] rolled = Arrays.copyOf(segments, segment + 1);
+    rolled[segment] = buffer;
+    segments = rolled;
+    writePosition = positionOf(segment, 0);
+    return segment;
+  }
+
+  /**
+   * Force the records of an append up to a position according to the policy,
+   * unless already done by a concurrent append.
+   *
+   * @param end - the position after the last record to force
+   */
+  private void sync(long end) {
+    if (fsyncPolicy != FsyncPolicy.PERIODIC) {
+      force(end);
+    }
+  }
+
+  /**
+   * Force the mapped pages between the durable position and a position.
+   *
+   * @param end - the position after the last record to force
+   */
+  private void force(long end) {
+    synchronized (fsyncLock) {
+      if (durablePosition >= end) {
+        return;
+      }
+      final MappedByteBuffer[] mapped = segments;
+      for (int segment = segmentOf(durablePosition); segment <= segmentOf(end); segment++) {
+        final int from = segment == segmentOf(durablePosition) ? offsetOf(durablePosition) : 0;
+        final int to = segment == segmentOf(end) ? offsetOf(end) : mapped[segment].capacity();
+        if (to > from) {
+          mapped[segment].force(from, to - from);
+        }
+      }
+      durablePosition = end;
+    }
+  }
+
+  /**
+   * Map the existing segments and index their records.
+   *
+   * @throws IOException if a segment cannot be read
+   */
+  private void recover() throws IOException {
+    final List<Path> paths = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_EXTENSION))
+          .sorted()
+          .forEach(paths::add);
+    }
+    final MappedByteBuffer[] mapped = new MappedByteBuffer[paths.size()];
+    for (int segment = 0; segment < mapped.length; segment++) {
+      if (!paths.get(segment).equals(segmentPath(segment))) {
+        throw new IllegalStateException("Missing event store segment " + segmentPath(segment));
+      }
+      mapped[segment] = map(paths.get(segment), (int) Math.max(Files.size(paths.get(segment)), segmentSize));
+    }
+    segments = mapped;
+    for (int segment = 0; segment < mapped.length; segment++) {
+      final MappedByteBuffer buffer = mapped[segment];
+      int offset = 0;
+      while (offset + HEADER_SIZE <= buffer.capacity()) {
+        final int length = buffer.getInt(offset);
+        if (length == 0) {
+          break;
+        }
+        final boolean valid = length > 0 && length <= buffer.capacity() - offset - HEADER_SIZE
+            && buffer.getInt(offset + 4) == crc(buffer, offset + HEADER_SIZE, length);
+        if (!valid) {
+          if (segment < mapped.length - 1) {
+            throw new IllegalStateException(String.format("Corrupted event store segment %s at offset %d",
+                segmentPath(segment), offset));
+          }
+          // Torn record, cleared so that no stale record follows the next append
+          final byte[] zeros = new byte[4096];
+          for (int cleared = offset; cleared < buffer.capacity(); cleared += zeros.length) {
+            buffer.put(cleared, zeros, 0, Math.min(zeros.length, buffer.capacity() - cleared));
+          }
+          buffer.force();
+          break;
+        }
+        final long version = buffer.getLong(offset + HEADER_SIZE);
+        final byte[] id = new byte[Short.toUnsignedInt(buffer.getShort(offset + HEADER_SIZE + 8))];
+        buffer.get(offset + HEADER_SIZE + 10, id);
+        indexes.computeIfAbsent(new String(id, StandardCharsets.UTF_8), key -> new StreamIndex())
+            .add(version, positionOf(segment, offset));
+        offset += HEADER_SIZE + length;
+      }
+      writePosition = positionOf(segment, offset);
+    }
+    durablePosition = writePosition;
+  }
+
+  /**
+   * Read the event bytes of a record.
+   *
+   * @param mapped - the mapped segments
+   * @param position - the position of the record
+   * @return the event bytes
+   */
+  private static byte[] readData(MappedByteBuffer[] mapped, long position) {
+    final MappedByteBuffer buffer = mapped[segmentOf(position)];
+    final int offset = offsetOf(position);
+    final int idLength = Short.toUnsignedInt(buffer.getShort(offset + HEADER_SIZE + 8));
+    final byte[] data = new byte[buffer.getInt(offset) - 8 - 2 - idLength];
+    buffer.get(offset + HEADER_SIZE + 10 + idLength, data);
+    return data;
+  }
+
+  /**
+   * Compute the CRC of a range of a segment.
+   *
+   * @param buffer - the segment
+   * @param offset - the offset of the range
+   * @param length - the length of the range
+   * @return the CRC32C of the range
+   */
+  private static int crc(ByteBuffer buffer, int offset, int length) {
+    final CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(offset, length));
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Map a segment file, created if needed.
+   *
+   * @param path - the segment file
+   * @param size - the size of the mapping
+   * @return the mapped segment
+   */
+  private static MappedByteBuffer map(Path path, int size) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      // The mapping stays valid once the channel is closed
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to map event store segment " + path, e);
+    }
+  }
+
+  private Path segmentPath(int segment) {
+    return directory.resolve(String.format("%010d%s", segment, SEGMENT_EXTENSION));
+  }
+
+  private static long positionOf(int segment, int offset) {
+    return ((long) segment << 32) | offset;
+  }
+
+  private static int segmentOf(long position) {
+    return (int) (position >>> 32);
+  }
+
+  private static int offsetOf(long position) {
+    return (int) position;
+  }
+}
@@ -0,0 +1,170 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Parallel event replayer.
+ * 
+ * Replays a stream of stored events into an aggregate: the stored events are
+ * read by chunks, each chunk is decoded to events by a worker of the executor,
+ * and the decoded chunks are applied in their original order by the calling
+ * thread (the sequencer).
+ * 
+ * @implNote At most {@code 2 * parallelism} chunks are in flight, so memory
+ *           stays bounded whatever the stream length.
+ * @implNote A stream that fits in a single chunk, e.g. a catch-up, is decoded
+ *           and applied by the calling thread only.
+ */
+public class ParallelEventReplayer {
+
+  /**
+   * Replay result.
+   * 
+   * @param eventCount - the number of events applied
+   * @param elapsedNanos - the replay duration in nanoseconds
+   */
+  public record Result(long eventCount, long elapsedNanos) {
+    /**
+     * Get the replay throughput.
+     * 
+     * @return the number of events applied per second
+     */
+    public double eventsPerSecond() {
+      return elapsedNanos == 0 ? 0 : eventCount * 1_000_000_000d / elapsedNanos;
+    }
+  }
+
+  /**
+   * Executor of the decoding workers.
+   */
+  private final Executor executor;
+
+  /**
+   * Number of decoding workers.
+   */
+  private final int parallelism;
+
+  /**
+   * Number of stored events decoded by a worker at once.
+   */
+  private final int chunkSize;
+
+  /**
+   * Constructor.
+   * 
+   * @param executor - the executor of the decoding workers
+   * @param parallelism - the number of decoding workers
+   * @param chunkSize - the number of stored events decoded by a worker at once
+   */
+  public ParallelEventReplayer(Executor executor, int parallelism, int chunkSize) {
+    if (parallelism < 1 || chunkSize < 1) {
+      throw new IllegalArgumentException(
+          String.format("Replay parallelism and chunk size must be at least 1: %d, %d", parallelism, chunkSize));
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Replay stored events.
+   * 
+   * @param <S> - the type of the stored events
+   * @param <E> - the type of the events
+   * @param storedEvents - the ordered stored events, closed by the caller
+   * @param decoder - the thread safe decoder of a stored event
+   * @param sequencer - the consumer applying the events, called in order by the calling thread
+   * @return the replay result
+   */
+  public <S, E> Result replay(Stream<S> storedEvents, Function<S, E> decoder, Consumer<E> sequencer) {
+    final long start = System.nanoTime();
+    final Iterator<S> source = storedEvents.iterator();
+    long eventCount = 0;
+
+    List<S> chunk = nextChunk(source);
+    if (chunk.size() < chunkSize || parallelism == 1) {
+      // Small tail or no parallelism: decode and apply inline
+      while (!chunk.isEmpty()) {
+        eventCount += decodeAndApply(chunk, decoder, sequencer);
+        chunk = nextChunk(source);
+      }
+      return new Result(eventCount, System.nanoTime() - start);
+    }
+
+    final ArrayDeque<CompletableFuture<List<E>>> inFlight = new ArrayDeque<>();
+    try {
+      while (!chunk.isEmpty()) {
+        if (inFlight.size() == 2 * parallelism) {
+          eventCount += applyChunk(inFlight.poll(), sequencer);
+        }
+        final List<S> toDecode = chunk;
+        inFlight.add(CompletableFuture.supplyAsync(() -> decode(toDecode, decoder), executor));
+        chunk = nextChunk(source);
+      }
+      while (!inFlight.isEmpty()) {
+        eventCount += applyChunk(inFlight.poll(), sequencer);
+      }
+    } finally {
+      inFlight.forEach(future -> future.cancel(false));
+    }
+    return new Result(eventCount, System.nanoTime() - start);
+  }
+
+  /**
+   * Read the next chunk of stored events.
+   */
+  private <S> List<S> nextChunk(Iterator<S> source) {
+    final List<S> chunk = new ArrayList<>(chunkSize);
+    while (chunk.size() < chunkSize && source.hasNext()) {
+      chunk.add(source.next());
+    }
+    return chunk;
+  }
+
+  /**
+   * Decode a chunk of stored events.
+   */
+  private static <S, E> List<E> decode(List<S> chunk, Function<S, E> decoder) {
+    final List<E> events = new ArrayList<>(chunk.size());
+    for (S storedEvent : chunk) {
+      events.add(decoder.apply(storedEvent));
+    }
+    return events;
+  }
+
+  /**
+   * Decode and apply a chunk of stored events in the calling thread.
+   */
+  private static <S, E> int decodeAndApply(List<S> chunk, Function<S, E> decoder, Consumer<E> sequencer) {
+    for (S storedEvent : chunk) {
+      sequencer.accept(decoder.apply(storedEvent));
+    }
+    return chunk.size();
+  }
+
+  /**
+   * Wait for a decoded chunk and apply it.
+   */
+  private static <E> int applyChunk(CompletableFuture<List<E>> decoded, Consumer<E> sequencer) {
+    final List<E> events;
+    try {
+      events = decoded.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    events.forEach(sequencer);
+    return events.size();
+  }
+}
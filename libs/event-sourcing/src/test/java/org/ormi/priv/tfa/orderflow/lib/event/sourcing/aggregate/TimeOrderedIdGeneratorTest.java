@@ -0,0 +1,68 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class TimeOrderedIdGeneratorTest {
+
+  @Nested
+  public class Next {
+
+    @Test
+    public void it_should_generateIncreasingVersion7Uuids_when_calledFromOneThread() {
+      // Given
+      TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+      UUID previous = generator.next();
+
+      for (int i = 0; i < 100_000; i++) {
+        // When
+        UUID uuid = generator.next();
+
+        // Then
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        int order = Long.compareUnsigned(uuid.getMostSignificantBits(), previous.getMostSignificantBits());
+        assertTrue(order > 0 || order == 0
+            && Long.compareUnsigned(uuid.getLeastSignificantBits(), previous.getLeastSignificantBits()) > 0);
+        previous = uuid;
+      }
+    }
+
+    @Test
+    public void it_should_generateUniqueUuids_when_calledFromSeveralThreads() throws Exception {
+      // Given
+      TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+      Set<UUID> uuids = ConcurrentHashMap.newKeySet();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+
+      // When
+      List<Future<?>> tasks = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        tasks.add(executor.submit(() -> {
+          for (int i = 0; i < 50_000; i++) {
+            uuids.add(generator.next());
+          }
+        }));
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+      executor.shutdown();
+
+      // Then
+      assertEquals(200_000, uuids.size());
+    }
+  }
+}
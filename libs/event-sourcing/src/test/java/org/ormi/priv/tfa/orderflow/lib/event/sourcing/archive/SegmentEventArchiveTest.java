@@ -0,0 +1,94 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.archive.SegmentEventArchive.ArchivedEvent;
+
+public class SegmentEventArchiveTest {
+
+  private static List<ArchivedEvent> events(long fromVersion, long toVersion) {
+    return LongStream.rangeClosed(fromVersion, toVersion)
+        .mapToObj(version -> new ArchivedEvent(version, ("event-" + version).getBytes(StandardCharsets.UTF_8)))
+        .toList();
+  }
+
+  private static List<Long> versions(Stream<ArchivedEvent> events) {
+    try (events) {
+      return events.map(ArchivedEvent::version).toList();
+    }
+  }
+
+  @Nested
+  public class Read {
+
+    @Test
+    public void it_should_readEventsAfterStartingVersion_when_spreadOverSegmentsAndBlocks(@TempDir Path directory) {
+      // Given
+      SegmentEventArchive archive = new SegmentEventArchive(directory, 256, 8);
+      archive.append("registry", events(1, 60));
+      archive.append("registry", events(61, 100));
+
+      // When
+      List<Long> result = versions(archive.read("registry", 42));
+
+      // Then
+      assertEquals(LongStream.rangeClosed(43, 100).boxed().toList(), result);
+    }
+
+    @Test
+    public void it_should_overwriteTornBlock_when_reopened(@TempDir Path directory) throws IOException {
+      // Given
+      new SegmentEventArchive(directory, 1 << 20, 8).append("registry", events(1, 20));
+      try (Stream<Path> files = Files.walk(directory)) {
+        Path segment = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+        Files.write(segment, new byte[] { 0x45, 0x56, 0x42 }, StandardOpenOption.APPEND);
+      }
+
+      // When
+      SegmentEventArchive reopened = new SegmentEventArchive(directory, 1 << 20, 8);
+      reopened.append("registry", events(21, 30));
+
+      // Then
+      assertEquals(30, reopened.getLastVersion("registry"));
+      assertEquals(LongStream.rangeClosed(1, 30).boxed().toList(), versions(reopened.read("registry", 0)));
+    }
+  }
+
+  @Nested
+  public class Stitch {
+
+    @Test
+    public void it_should_readBackFromArchive_when_liveEventsWereArchivedMeanwhile(@TempDir Path directory) {
+      // Given
+      SegmentEventArchive archive = new SegmentEventArchive(directory, 1 << 20, 8);
+      archive.append("registry", events(1, 10));
+      List<Long> live = new ArrayList<>(LongStream.rangeClosed(11, 30).boxed().toList());
+      // Events 11 to 20 are moved to the archive once the archived part is read
+      archive.append("registry", events(11, 20));
+      live.removeIf(version -> version <= 20);
+
+      // When
+      List<Long> result;
+      try (Stream<Long> events = archive.stitch("registry", 5, ArchivedEvent::version,
+          after -> live.stream().filter(version -> version > after), Long::longValue)) {
+        result = events.toList();
+      }
+
+      // Then
+      assertEquals(LongStream.rangeClosed(6, 30).boxed().toList(), result);
+    }
+  }
+}
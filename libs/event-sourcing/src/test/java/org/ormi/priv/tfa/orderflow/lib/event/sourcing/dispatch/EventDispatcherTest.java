@@ -0,0 +1,72 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class EventDispatcherTest {
+
+  private sealed interface TestEvent permits Created, Deleted {
+  }
+
+  private record Created(String name) implements TestEvent {
+  }
+
+  private record Deleted(String name) implements TestEvent {
+  }
+
+  private static final EventTypeRegistry<TestEvent> REGISTRY = EventTypeRegistry.<TestEvent>builder()
+      .register("Created", Created.class)
+      .register("Deleted", Deleted.class)
+      .build();
+
+  @Nested
+  public class Dispatch {
+
+    @Test
+    public void it_should_callHandlerOfEventClass_when_dispatchedByClass() {
+      // Given
+      EventDispatcher<String, TestEvent, String> dispatcher = REGISTRY.<String, TestEvent, String>dispatcher()
+          .on(Created.class, (prefix, created) -> prefix + "created " + created.name())
+          .on(Deleted.class, (prefix, deleted) -> prefix + "deleted " + deleted.name())
+          .build();
+
+      // When
+      String result = dispatcher.dispatch("> ", new Deleted("a"));
+
+      // Then
+      assertEquals("> deleted a", result);
+    }
+
+    @Test
+    public void it_should_callHandlerOfEventType_when_dispatchedByName() {
+      // Given
+      EventDispatcher<Void, String, String> dispatcher = REGISTRY.<Void, String, String>dispatcher()
+          .on("Created", (context, stored) -> "created " + stored)
+          .on("Deleted", (context, stored) -> "deleted " + stored)
+          .build();
+
+      // When
+      String result = dispatcher.dispatch(null, "Created", "a");
+
+      // Then
+      assertEquals("created a", result);
+    }
+  }
+
+  @Nested
+  public class Build {
+
+    @Test
+    public void it_should_fail_when_anEventTypeIsNotHandled() {
+      // Given
+      EventDispatcher.Builder<Void, TestEvent, Void> builder = REGISTRY.<Void, TestEvent, Void>dispatcher()
+          .on(Created.class, (context, created) -> null);
+
+      // When / Then
+      assertThrows(IllegalStateException.class, builder::build);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class IdempotencyCacheTest {
+
+  @Nested
+  public class Get {
+
+    @Test
+    public void it_should_returnResult_when_keyWasRecentlyHandled() {
+      // Given
+      IdempotencyCache<String, String> cache = new IdempotencyCache<>(10, Duration.ofMinutes(1));
+      cache.put("correlation-1", "event-1");
+
+      // When
+      Optional<String> result = cache.get("correlation-1");
+
+      // Then
+      assertEquals(Optional.of("event-1"), result);
+    }
+
+    @Test
+    public void it_should_returnEmpty_when_entryExpired() {
+      // Given
+      AtomicLong clock = new AtomicLong();
+      IdempotencyCache<String, String> cache = new IdempotencyCache<>(10, Duration.ofSeconds(1), clock::get);
+      cache.put("correlation-1", "event-1");
+
+      // When
+      clock.addAndGet(Duration.ofSeconds(1).toNanos());
+      Optional<String> result = cache.get("correlation-1");
+
+      // Then
+      assertEquals(Optional.empty(), result);
+      assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void it_should_evictOldestEntry_when_full() {
+      // Given
+      IdempotencyCache<String, String> cache = new IdempotencyCache<>(2, Duration.ofMinutes(1));
+      cache.put("correlation-1", "event-1");
+      cache.put("correlation-2", "event-2");
+
+      // When
+      cache.put("correlation-3", "event-3");
+
+      // Then
+      assertEquals(Optional.empty(), cache.get("correlation-1"));
+      assertEquals(Optional.of("event-3"), cache.get("correlation-3"));
+      assertEquals(2, cache.size());
+    }
+  }
+}
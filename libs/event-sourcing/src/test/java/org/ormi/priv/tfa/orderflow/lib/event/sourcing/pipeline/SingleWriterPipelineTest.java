@@ -0,0 +1,93 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class SingleWriterPipelineTest {
+
+  @Nested
+  public class Submit {
+
+    @Test
+    public void it_should_handleCommandsOnTheWriterThread_when_submittedFromManyThreads() throws Exception {
+      // Given
+      List<String> writerThreads = new ArrayList<>();
+      try (SingleWriterPipeline<Integer, Integer> pipeline = new SingleWriterPipeline<>("writer", 16, command -> {
+        writerThreads.add(Thread.currentThread().getName());
+        return CompletableFuture.completedFuture(command * 2);
+      })) {
+
+        // When
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+          final int producer = p;
+          Thread thread = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+              CompletableFuture<Integer> result = pipeline.submit(producer * 100 + i);
+              synchronized (results) {
+                results.add(result);
+              }
+            }
+          });
+          producers.add(thread);
+          thread.start();
+        }
+        for (Thread thread : producers) {
+          thread.join();
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(400, pipeline.getProcessedCount());
+        assertEquals(List.of("writer"), writerThreads.stream().distinct().toList());
+      }
+    }
+
+    @Test
+    public void it_should_failTheCommand_when_handlerFails() {
+      // Given
+      IllegalArgumentException failure = new IllegalArgumentException("Invalid command");
+      try (SingleWriterPipeline<Integer, Integer> pipeline = new SingleWriterPipeline<>("writer", 16,
+          command -> CompletableFuture.failedFuture(failure))) {
+
+        // When
+        CompletableFuture<Integer> result = pipeline.submit(1);
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertSame(failure, e.getCause());
+      }
+    }
+
+    @Test
+    public void it_should_handleTheNextCommand_when_theCommandIsNotCompletedYet() throws Exception {
+      // Given
+      CompletableFuture<Integer> durable = new CompletableFuture<>();
+      try (SingleWriterPipeline<Integer, Integer> pipeline = new SingleWriterPipeline<>("writer", 16,
+          command -> command == 1 ? durable : CompletableFuture.completedFuture(command))) {
+
+        // When
+        CompletableFuture<Integer> first = pipeline.submit(1);
+        CompletableFuture<Integer> second = pipeline.submit(2);
+
+        // Then
+        assertEquals(2, second.get(5, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+        durable.complete(1);
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+      }
+    }
+  }
+}
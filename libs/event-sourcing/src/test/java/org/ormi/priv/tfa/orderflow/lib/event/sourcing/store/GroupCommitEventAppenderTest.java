@@ -0,0 +1,193 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class GroupCommitEventAppenderTest {
+
+  /**
+   * Event store recording the batches it saves, events are named
+   * {@code <aggregateRootId>:<version>}. Writes of a {@code fail} event fail,
+   * writes of a conflicting event store the events before it.
+   */
+  private static class RecordingEventStore implements EventStore<String> {
+    private final List<List<String>> batches = new ArrayList<>();
+    private final Set<String> conflicting = new HashSet<>();
+
+    @Override
+    public void saveEvent(String event) {
+      saveEvents(List.of(event));
+    }
+
+    @Override
+    public synchronized void saveEvents(List<String> events) {
+      if (events.stream().anyMatch(event -> event.startsWith("fail:"))) {
+        throw new IllegalStateException("Write failed");
+      }
+      for (int i = 0; i < events.size(); i++) {
+        if (conflicting.contains(events.get(i))) {
+          batches.add(List.copyOf(events.subList(0, i)));
+          throw new EventStoreConcurrencyException(events.get(i).split(":")[0], i, i, null);
+        }
+      }
+      batches.add(List.copyOf(events));
+    }
+
+    @Override
+    public void append(String aggregateRootId, long expectedVersion, List<String> events) {
+      saveEvents(events);
+    }
+
+    @Override
+    public List<String> findEventsByAggregateRootIdAndStartingVersion(String aggregateRootId, long startingVersion) {
+      return List.of();
+    }
+  }
+
+  /**
+   * Create an appender of events named {@code <aggregateRootId>:<version>}.
+   */
+  private static GroupCommitEventAppender<String> appender(RecordingEventStore store, int maxBatchSize) {
+    return new GroupCommitEventAppender<>(store, event -> event.split(":")[0],
+        event -> Long.parseLong(event.split(":")[1]), Duration.ofMillis(200), maxBatchSize);
+  }
+
+  @Nested
+  public class Append {
+
+    @Test
+    public void it_should_saveEventsInOneBatch_when_appendedWithinTheWindow() throws Exception {
+      // Given
+      RecordingEventStore store = new RecordingEventStore();
+      try (GroupCommitEventAppender<String> appender = appender(store, 10)) {
+
+        // When
+        List<CompletableFuture<Void>> completions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+          completions.add(appender.append("a:" + (i + 1)));
+        }
+        CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(List.of(List.of("a:1", "a:2", "a:3")), store.batches);
+        assertEquals(1, appender.getBatchCount());
+        assertEquals(3, appender.getLargestBatchSize());
+      }
+    }
+
+    @Test
+    public void it_should_splitBatches_when_maxBatchSizeIsReached() throws Exception {
+      // Given
+      RecordingEventStore store = new RecordingEventStore();
+      try (GroupCommitEventAppender<String> appender = appender(store, 2)) {
+
+        // When
+        appender.append("a:1");
+        appender.append("a:2");
+        appender.append("a:3").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(List.of(List.of("a:1", "a:2"), List.of("a:3")), store.batches);
+        assertEquals(1.5, appender.getAverageBatchSize());
+      }
+    }
+
+    @Test
+    public void it_should_failEveryEventOfTheStream_when_appendFails() throws Exception {
+      // Given
+      RecordingEventStore store = new RecordingEventStore();
+      try (GroupCommitEventAppender<String> appender = appender(store, 10)) {
+
+        // When
+        CompletableFuture<Void> ok = appender.append("a:1");
+        CompletableFuture<Void> ko = appender.append("fail:1");
+        CompletableFuture<Void> koNext = appender.append("fail:2");
+
+        // Then
+        ok.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> ko.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertThrows(ExecutionException.class, () -> koNext.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("a:1")), store.batches);
+        assertEquals(1, appender.getEventCount());
+      }
+    }
+
+    @Test
+    public void it_should_saveTheEventsWrittenBeforeAConflict_when_appendFailsInPart() throws Exception {
+      // Given
+      RecordingEventStore store = new RecordingEventStore();
+      try (GroupCommitEventAppender<String> appender = appender(store, 10)) {
+
+        store.conflicting.add("a:2");
+
+        // When
+        CompletableFuture<Void> written = appender.append("a:1");
+        CompletableFuture<Void> ko = appender.append("a:2");
+        CompletableFuture<Void> notWritten = appender.append("a:3");
+
+        // Then
+        written.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> ko.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof EventStoreConcurrencyException);
+        assertThrows(ExecutionException.class, () -> notWritten.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("a:1")), store.batches);
+        assertEquals(1, appender.getEventCount());
+      }
+    }
+
+    @Test
+    public void it_should_failTheEvent_when_itsVersionIsAlreadyInTheBatch() throws Exception {
+      // Given
+      RecordingEventStore store = new RecordingEventStore();
+      try (GroupCommitEventAppender<String> appender = appender(store, 10)) {
+
+        // When
+        CompletableFuture<Void> first = appender.append("a:1");
+        CompletableFuture<Void> duplicate = appender.append("a:1");
+        CompletableFuture<Void> other = appender.append("b:1");
+
+        // Then
+        first.get(5, TimeUnit.SECONDS);
+        other.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> duplicate.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof EventStoreConcurrencyException);
+        assertEquals(List.of(List.of("a:1"), List.of("b:1")), store.batches);
+      }
+    }
+
+    @Test
+    public void it_should_failTheEvent_when_theEventItWasDecidedOnFailed() throws Exception {
+      // Given
+      RecordingEventStore store = new RecordingEventStore();
+      try (GroupCommitEventAppender<String> appender = appender(store, 10)) {
+        store.conflicting.add("a:1");
+        CompletableFuture<Void> ko = appender.append("a:1");
+        assertThrows(ExecutionException.class, () -> ko.get(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<Void> decidedOnKo = appender.append("a:2", ko);
+        CompletableFuture<Void> other = appender.append("b:1");
+
+        // Then
+        other.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> decidedOnKo.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof EventStoreConcurrencyException);
+        assertEquals(List.of(List.of(), List.of("b:1")), store.batches);
+      }
+    }
+  }
+}
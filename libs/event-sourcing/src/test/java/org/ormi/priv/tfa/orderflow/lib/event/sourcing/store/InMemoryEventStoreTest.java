@@ -0,0 +1,33 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryEventStoreTest {
+
+  private record TestEvent(String aggregateRootId, long version) {
+  }
+
+  @Nested
+  public class SaveEvents {
+
+    @Test
+    public void it_should_saveNothing_when_anEventOfTheBatchConflicts() {
+      // Given
+      InMemoryEventStore<TestEvent> store = new InMemoryEventStore<>(TestEvent::aggregateRootId,
+          TestEvent::version);
+      store.append("a", 0, List.of(new TestEvent("a", 1)));
+
+      // When / Then
+      assertThrows(EventStoreConcurrencyException.class,
+          () -> store.saveEvents(List.of(new TestEvent("b", 1), new TestEvent("a", 1))));
+      assertEquals(List.of(), store.findEventsByAggregateRootIdAndStartingVersion("b", 0));
+      assertEquals(List.of(new TestEvent("a", 1)), store.findEventsByAggregateRootIdAndStartingVersion("a", 0));
+    }
+  }
+}
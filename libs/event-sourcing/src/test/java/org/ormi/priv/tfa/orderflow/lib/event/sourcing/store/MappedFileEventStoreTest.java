@@ -0,0 +1,157 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.store.MappedFileEventStore.FsyncPolicy;
+
+public class MappedFileEventStoreTest {
+
+  private record TestEvent(String aggregateRootId, long version) {
+  }
+
+  private static final MappedFileEventStore.EventCodec<TestEvent> CODEC = new MappedFileEventStore.EventCodec<>() {
+    @Override
+    public String aggregateRootIdOf(TestEvent event) {
+      return event.aggregateRootId();
+    }
+
+    @Override
+    public long versionOf(TestEvent event) {
+      return event.version();
+    }
+
+    @Override
+    public byte[] encode(TestEvent event) {
+      return (event.aggregateRootId() + ":" + event.version()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public TestEvent decode(byte[] data) {
+      final String[] fields = new String(data, StandardCharsets.UTF_8).split(":");
+      return new TestEvent(fields[0], Long.parseLong(fields[1]));
+    }
+  };
+
+  private static MappedFileEventStore<TestEvent> open(Path directory, int segmentSize) {
+    return new MappedFileEventStore<>(directory, segmentSize, FsyncPolicy.GROUP, Duration.ofSeconds(1), CODEC);
+  }
+
+  private static List<TestEvent> events(String aggregateRootId, long fromVersion, long toVersion) {
+    return LongStream.rangeClosed(fromVersion, toVersion)
+        .mapToObj(version -> new TestEvent(aggregateRootId, version))
+        .toList();
+  }
+
+  @Nested
+  public class Append {
+
+    @Test
+    public void it_should_readStreamAfterStartingVersion_when_streamsAreInterleavedOverSegments(
+        @TempDir Path directory) {
+      // Given
+      try (MappedFileEventStore<TestEvent> store = open(directory, 256)) {
+        for (long version = 1; version <= 50; version++) {
+          store.append("a", version - 1, events("a", version, version));
+          store.append("b", version - 1, events("b", version, version));
+        }
+
+        // When
+        List<TestEvent> result = store.findEventsByAggregateRootIdAndStartingVersion("a", 20);
+
+        // Then
+        assertEquals(events("a", 21, 50), result);
+      }
+    }
+
+    @Test
+    public void it_should_reject_when_streamMovedPastExpectedVersion(@TempDir Path directory) {
+      // Given
+      try (MappedFileEventStore<TestEvent> store = open(directory, 1 << 16)) {
+        store.append("a", 0, events("a", 1, 3));
+
+        // When / Then
+        assertThrows(EventStoreConcurrencyException.class, () -> store.append("a", 2, events("a", 3, 4)));
+        assertEquals(3, store.getLastVersion("a"));
+      }
+    }
+
+    @Test
+    public void it_should_writeNothing_when_anEventOfTheBatchIsTooLarge(@TempDir Path directory) {
+      // Given
+      final TestEvent tooLarge = new TestEvent("b".repeat(300), 1);
+      try (MappedFileEventStore<TestEvent> store = open(directory, 256)) {
+
+        // When
+        assertThrows(IllegalArgumentException.class,
+            () -> store.saveEvents(List.of(new TestEvent("a", 1), new TestEvent("a", 2), tooLarge)));
+        store.append("a", 0, events("a", 1, 1));
+
+        // Then
+        assertEquals(1, store.getLastVersion("a"));
+      }
+      try (MappedFileEventStore<TestEvent> reopened = open(directory, 256)) {
+        assertEquals(events("a", 1, 1), reopened.findEventsByAggregateRootIdAndStartingVersion("a", 0));
+      }
+    }
+  }
+
+  @Nested
+  public class Recover {
+
+    @Test
+    public void it_should_reindexStreams_when_reopened(@TempDir Path directory) {
+      // Given
+      try (MappedFileEventStore<TestEvent> store = open(directory, 256)) {
+        store.saveEvents(events("a", 1, 30));
+      }
+
+      // When
+      try (MappedFileEventStore<TestEvent> reopened = open(directory, 256)) {
+        reopened.append("a", 30, events("a", 31, 31));
+
+        // Then
+        assertEquals(events("a", 1, 31), reopened.findEventsByAggregateRootIdAndStartingVersion("a", 0));
+      }
+    }
+
+    @Test
+    public void it_should_overwriteTornRecord_when_reopened(@TempDir Path directory) throws IOException {
+      // Given
+      try (MappedFileEventStore<TestEvent> store = open(directory, 1 << 16)) {
+        store.saveEvents(events("a", 1, 10));
+      }
+      // A crash left the length of a record without its body
+      try (FileChannel segment = FileChannel.open(directory.resolve("0000000000.log"), StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        long end = 0;
+        final ByteBuffer length = ByteBuffer.allocate(4);
+        while (segment.read(length.clear(), end) == 4 && length.getInt(0) != 0) {
+          end += 8 + length.getInt(0);
+        }
+        segment.write(ByteBuffer.allocate(4).putInt(0, 64), end);
+      }
+
+      // When
+      try (MappedFileEventStore<TestEvent> reopened = open(directory, 1 << 16)) {
+        reopened.append("a", 10, events("a", 11, 12));
+
+        // Then
+        assertEquals(events("a", 1, 12), reopened.findEventsByAggregateRootIdAndStartingVersion("a", 0));
+      }
+    }
+  }
+}
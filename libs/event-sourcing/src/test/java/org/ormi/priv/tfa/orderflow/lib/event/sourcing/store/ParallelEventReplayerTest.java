@@ -0,0 +1,67 @@
+package org.ormi.priv.tfa.orderflow.lib.event.sourcing.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class ParallelEventReplayerTest {
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Nested
+  public class Replay {
+
+    @Test
+    public void it_should_applyEventsInOrder_when_decodedInParallel() {
+      // Given
+      ParallelEventReplayer replayer = new ParallelEventReplayer(executor, 4, 16);
+      List<Integer> storedEvents = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+      List<String> applied = new ArrayList<>();
+
+      // When
+      ParallelEventReplayer.Result result = replayer.replay(storedEvents.stream(), String::valueOf, applied::add);
+
+      // Then
+      assertEquals(10_000, result.eventCount());
+      assertEquals(storedEvents.stream().map(String::valueOf).collect(Collectors.toList()), applied);
+    }
+
+    @Test
+    public void it_should_rethrowDecodingFailure_when_aStoredEventCannotBeDecoded() {
+      // Given
+      ParallelEventReplayer replayer = new ParallelEventReplayer(executor, 4, 16);
+      Stream<Integer> storedEvents = IntStream.range(0, 1_000).boxed();
+
+      // When / Then
+      assertThrows(IllegalStateException.class, () -> replayer.replay(storedEvents, storedEvent -> {
+        if (storedEvent == 500) {
+          throw new IllegalStateException("Corrupted event");
+        }
+        return storedEvent;
+      }, event -> {
+      }));
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec;
+
+import java.nio.charset.StandardCharsets;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Cursor reading the fields of a binary message, see {@link BinaryOutput}.
+ */
+final class BinaryInput {
+
+  /**
+   * Read bytes.
+   */
+  private final byte[] data;
+
+  /**
+   * Position of the next byte to read.
+   */
+  private int position;
+
+  /**
+   * Constructor.
+   *
+   * @param data - the bytes to read
+   */
+  BinaryInput(byte[] data) {
+    this.data = data;
+  }
+
+  /**
+   * Read a byte.
+   *
+   * @return the byte, unsigned
+   * @throws IllegalArgumentException if the data is truncated
+   */
+  int readByte() throws IllegalArgumentException {
+    require(1);
+    return data[position++] & 0xFF;
+  }
+
+  /**
+   * Read a long written as 8 big-endian bytes.
+   *
+   * @return the long
+   * @throws IllegalArgumentException if the data is truncated
+   */
+  long readLong() throws IllegalArgumentException {
+    require(8);
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (data[position++] & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Read a variable length quantity.
+   *
+   * @return the positive long
+   * @throws IllegalArgumentException if the data is truncated or malformed
+   */
+  long readVarLong() throws IllegalArgumentException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable length quantity at " + position);
+  }
+
+  /**
+   * Read a length, checked against the remaining bytes.
+   *
+   * @param minBytesPerElement - the minimum number of bytes of each counted element
+   * @return the length
+   * @throws IllegalArgumentException if the length exceeds the remaining bytes
+   */
+  int readLength(int minBytesPerElement) throws IllegalArgumentException {
+    final long length = readVarLong();
+    if (length * minBytesPerElement > data.length - position) {
+      throw new IllegalArgumentException("Length " + length + " exceeds the message at " + position);
+    }
+    return (int) length;
+  }
+
+  /**
+   * Read a nullable string.
+   *
+   * @return the string
+   * @throws IllegalArgumentException if the data is truncated
+   */
+  String readString() throws IllegalArgumentException {
+    final long lengthPlusOne = readVarLong();
+    if (lengthPlusOne == 0) {
+      return null;
+    }
+    final long length = lengthPlusOne - 1;
+    if (length > data.length - position) {
+      throw new IllegalArgumentException("String length " + length + " exceeds the message at " + position);
+    }
+    final String value = new String(data, position, (int) length, StandardCharsets.UTF_8);
+    position += (int) length;
+    return value;
+  }
+
+  /**
+   * Read a nullable event id.
+   *
+   * @return the event id
+   * @throws IllegalArgumentException if the data is truncated or malformed
+   */
+  EventId readEventId() throws IllegalArgumentException {
+    final int kind = readByte();
+    return switch (kind) {
+      case BinaryOutput.NULL_ID -> null;
+      case BinaryOutput.UUID_ID -> EventId.of(readLong(), readLong());
+      case BinaryOutput.TEXT_ID -> EventId.of(readString());
+      default -> throw new IllegalArgumentException("Unknown id kind " + kind);
+    };
+  }
+
+  /**
+   * Read a nullable product id.
+   *
+   * @return the product id
+   * @throws IllegalArgumentException if the data is truncated or malformed
+   */
+  ProductId readProductId() throws IllegalArgumentException {
+    final int kind = readByte();
+    return switch (kind) {
+      case BinaryOutput.NULL_ID -> null;
+      case BinaryOutput.UUID_ID -> ProductId.of(readLong(), readLong());
+      case BinaryOutput.TEXT_ID -> ProductId.of(readString());
+      default -> throw new IllegalArgumentException("Unknown id kind " + kind);
+    };
+  }
+
+  /**
+   * Check that the whole message was read.
+   *
+   * @throws IllegalArgumentException if bytes are left
+   */
+  void end() throws IllegalArgumentException {
+    if (position != data.length) {
+      throw new IllegalArgumentException((data.length - position) + " trailing bytes after the message");
+    }
+  }
+
+  /**
+   * Check that bytes are left.
+   *
+   * @param length - the number of bytes to read
+   * @throws IllegalArgumentException if the data is truncated
+   */
+  private void require(int length) throws IllegalArgumentException {
+    if (length > data.length - position) {
+      throw new IllegalArgumentException("Truncated message at " + position);
+    }
+  }
+}
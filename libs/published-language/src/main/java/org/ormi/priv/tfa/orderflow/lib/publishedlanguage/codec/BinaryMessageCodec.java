@@ -0,0 +1,56 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec;
+
+/**
+ * Base of the binary codecs, writing the format version before the message.
+ *
+ * @param <T> - the type of the messages
+ */
+abstract class BinaryMessageCodec<T> implements MessageCodec<T> {
+
+  /**
+   * Version of the binary format, written as the first byte of every message.
+   */
+  static final int FORMAT_VERSION = 1;
+
+  /**
+   * Initial capacity of the encoding buffer, fits a single product message.
+   */
+  private static final int INITIAL_CAPACITY = 128;
+
+  @Override
+  public byte[] encode(T message) {
+    final BinaryOutput out = new BinaryOutput(INITIAL_CAPACITY);
+    out.writeByte(FORMAT_VERSION);
+    write(message, out);
+    return out.toByteArray();
+  }
+
+  @Override
+  public T decode(byte[] data) throws IllegalArgumentException {
+    final BinaryInput in = new BinaryInput(data);
+    final int version = in.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IllegalArgumentException("Unsupported binary format version " + version);
+    }
+    final T message = read(in);
+    in.end();
+    return message;
+  }
+
+  /**
+   * Write the type tag and fields of a message.
+   *
+   * @param message - the message
+   * @param out - the output
+   */
+  abstract void write(T message, BinaryOutput out);
+
+  /**
+   * Read the type tag and fields of a message.
+   *
+   * @param in - the input
+   * @return the message
+   * @throws IllegalArgumentException if the data is not a message of this codec
+   */
+  abstract T read(BinaryInput in) throws IllegalArgumentException;
+}
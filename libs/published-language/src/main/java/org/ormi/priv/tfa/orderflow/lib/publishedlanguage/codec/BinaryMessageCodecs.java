@@ -0,0 +1,393 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RegisterProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.RemoveProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryBatchResult;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryError;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRemoved;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductUpdated;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.GetProductById;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.GetProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery.ProductRegistryQueryResult;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.ProductNotFound;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDto;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDtoCollection;
+
+/**
+ * Compact binary codecs of the product registry commands, events, queries,
+ * command results (channel messages) and query results.
+ *
+ * A message is its format version byte, the tag of its type in its sealed
+ * hierarchy, then its fields in declaration order:
+ * <ul>
+ * <li>strings as their UTF-8 length plus one (0 for null) then their UTF-8 bytes,</li>
+ * <li>ids as a kind byte (null, UUID or text) then either their two longs or their text,</li>
+ * <li>versions, indexes and list sizes as variable length quantities,</li>
+ * <li>timestamps as 8 big-endian bytes,</li>
+ * <li>booleans, enum constants and the presence of optional values as a byte.</li>
+ * </ul>
+ *
+ * @implNote Type tags are part of the format: a new type takes a new tag and
+ *           a tag is never reused. Any change to the fields of a type bumps
+ *           the format version.
+ */
+public final class BinaryMessageCodecs {
+
+  /**
+   * Binary codec of the product registry events, also writing the events of the channel messages.
+   */
+  private static final EventCodec EVENT_CODEC = new EventCodec();
+
+  /**
+   * Codec of the product registry events.
+   */
+  public static final MessageCodec<ProductRegistryEvent> EVENTS = EVENT_CODEC;
+
+  /**
+   * Codec of the product registry commands.
+   */
+  public static final MessageCodec<ProductRegistryCommand> COMMANDS = new CommandCodec();
+
+  /**
+   * Codec of the product registry queries.
+   */
+  public static final MessageCodec<ProductRegistryQuery> QUERIES = new QueryCodec();
+
+  /**
+   * Codec of the command results: events, errors and batch results.
+   */
+  public static final MessageCodec<ChannelMessage> MESSAGES = new ChannelMessageCodec();
+
+  /**
+   * Codec of the query results.
+   */
+  public static final MessageCodec<ProductRegistryQueryResult> QUERY_RESULTS = new QueryResultCodec();
+
+  private BinaryMessageCodecs() {
+  }
+
+  /**
+   * Binary codec of the product registry events.
+   */
+  private static final class EventCodec extends BinaryMessageCodec<ProductRegistryEvent> {
+    private static final int PRODUCT_REGISTERED = 1;
+    private static final int PRODUCT_UPDATED = 2;
+    private static final int PRODUCT_REMOVED = 3;
+
+    @Override
+    void write(ProductRegistryEvent message, BinaryOutput out) {
+      if (message instanceof ProductRegistered event) {
+        out.writeByte(PRODUCT_REGISTERED);
+        writeHeader(event.id, event.aggregateId, event.version, event.timestamp, out);
+        out.writeProductId(event.payload.productId);
+        out.writeString(event.payload.name);
+        out.writeString(event.payload.productDescription);
+      } else if (message instanceof ProductUpdated event) {
+        out.writeByte(PRODUCT_UPDATED);
+        writeHeader(event.id, event.aggregateId, event.version, event.timestamp, out);
+        out.writeProductId(event.payload.productId);
+        out.writeString(event.payload.name);
+        out.writeString(event.payload.productDescription);
+      } else if (message instanceof ProductRemoved event) {
+        out.writeByte(PRODUCT_REMOVED);
+        writeHeader(event.id, event.aggregateId, event.version, event.timestamp, out);
+        out.writeProductId(event.payload.productId);
+      } else {
+        throw new IllegalArgumentException("Unsupported event " + message);
+      }
+    }
+
+    @Override
+    ProductRegistryEvent read(BinaryInput in) throws IllegalArgumentException {
+      final int tag = in.readByte();
+      return switch (tag) {
+        case PRODUCT_REGISTERED -> new ProductRegistered(in.readEventId(), in.readString(), in.readVarLong(),
+            in.readLong(),
+            new ProductRegistered.Payload(in.readProductId(), in.readString(), in.readString()));
+        case PRODUCT_UPDATED -> new ProductUpdated(in.readEventId(), in.readString(), in.readVarLong(),
+            in.readLong(),
+            new ProductUpdated.Payload(in.readProductId(), in.readString(), in.readString()));
+        case PRODUCT_REMOVED -> new ProductRemoved(in.readEventId(), in.readString(), in.readVarLong(),
+            in.readLong(),
+            new ProductRemoved.Payload(in.readProductId()));
+        default -> throw new IllegalArgumentException("Unknown event tag " + tag);
+      };
+    }
+
+    /**
+     * Write the fields common to all events.
+     */
+    private static void writeHeader(EventId id, String aggregateId, long version, long timestamp, BinaryOutput out) {
+      out.writeEventId(id);
+      out.writeString(aggregateId);
+      out.writeVarLong(version);
+      out.writeLong(timestamp);
+    }
+  }
+
+  /**
+   * Binary codec of the product registry commands.
+   */
+  private static final class CommandCodec extends BinaryMessageCodec<ProductRegistryCommand> {
+    private static final int REGISTER_PRODUCT = 1;
+    private static final int UPDATE_PRODUCT = 2;
+    private static final int REMOVE_PRODUCT = 3;
+    private static final int REGISTER_PRODUCTS = 4;
+    private static final int UPDATE_PRODUCTS = 5;
+
+    @Override
+    void write(ProductRegistryCommand message, BinaryOutput out) {
+      if (message instanceof RegisterProduct command) {
+        out.writeByte(REGISTER_PRODUCT);
+        writeRegisterProduct(command, out);
+      } else if (message instanceof UpdateProduct command) {
+        out.writeByte(UPDATE_PRODUCT);
+        writeUpdateProduct(command, out);
+      } else if (message instanceof RemoveProduct command) {
+        out.writeByte(REMOVE_PRODUCT);
+        out.writeProductId(command.getProductId());
+      } else if (message instanceof RegisterProducts command) {
+        out.writeByte(REGISTER_PRODUCTS);
+        out.writeVarLong(command.getProducts().size());
+        command.getProducts().forEach(product -> writeRegisterProduct(product, out));
+      } else if (message instanceof UpdateProducts command) {
+        out.writeByte(UPDATE_PRODUCTS);
+        out.writeVarLong(command.getProducts().size());
+        command.getProducts().forEach(product -> writeUpdateProduct(product, out));
+      } else {
+        throw new IllegalArgumentException("Unsupported command " + message);
+      }
+    }
+
+    @Override
+    ProductRegistryCommand read(BinaryInput in) throws IllegalArgumentException {
+      final int tag = in.readByte();
+      return switch (tag) {
+        case REGISTER_PRODUCT -> readRegisterProduct(in);
+        case UPDATE_PRODUCT -> readUpdateProduct(in);
+        case REMOVE_PRODUCT -> new RemoveProduct(in.readProductId());
+        case REGISTER_PRODUCTS -> {
+          // Each product takes at least its two string lengths
+          final int count = in.readLength(2);
+          final List<RegisterProduct> products = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+            products.add(readRegisterProduct(in));
+          }
+          yield new RegisterProducts(products);
+        }
+        case UPDATE_PRODUCTS -> {
+          // Each product takes at least its id kind and two string lengths
+          final int count = in.readLength(3);
+          final List<UpdateProduct> products = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+            products.add(readUpdateProduct(in));
+          }
+          yield new UpdateProducts(products);
+        }
+        default -> throw new IllegalArgumentException("Unknown command tag " + tag);
+      };
+    }
+
+    private static void writeRegisterProduct(RegisterProduct command, BinaryOutput out) {
+      out.writeString(command.getName());
+      out.writeString(command.getProductDescription());
+    }
+
+    private static void writeUpdateProduct(UpdateProduct command, BinaryOutput out) {
+      out.writeProductId(command.getProductId());
+      out.writeString(command.getName());
+      out.writeString(command.getProductDescription());
+    }
+
+    private static RegisterProduct readRegisterProduct(BinaryInput in) {
+      return new RegisterProduct(in.readString(), in.readString());
+    }
+
+    private static UpdateProduct readUpdateProduct(BinaryInput in) {
+      return new UpdateProduct(in.readProductId(), in.readString(), in.readString());
+    }
+  }
+
+  /**
+   * Binary codec of the product registry queries.
+   */
+  private static final class QueryCodec extends BinaryMessageCodec<ProductRegistryQuery> {
+    private static final int GET_PRODUCT_BY_ID = 1;
+    private static final int GET_PRODUCTS = 2;
+
+    @Override
+    void write(ProductRegistryQuery message, BinaryOutput out) {
+      if (message instanceof GetProductById query) {
+        out.writeByte(GET_PRODUCT_BY_ID);
+        out.writeProductId(query.getProductId());
+      } else if (message instanceof GetProducts) {
+        out.writeByte(GET_PRODUCTS);
+      } else {
+        throw new IllegalArgumentException("Unsupported query " + message);
+      }
+    }
+
+    @Override
+    ProductRegistryQuery read(BinaryInput in) throws IllegalArgumentException {
+      final int tag = in.readByte();
+      return switch (tag) {
+        case GET_PRODUCT_BY_ID -> new GetProductById(in.readProductId());
+        case GET_PRODUCTS -> new GetProducts();
+        default -> throw new IllegalArgumentException("Unknown query tag " + tag);
+      };
+    }
+  }
+
+  /**
+   * Binary codec of the command results.
+   */
+  private static final class ChannelMessageCodec extends BinaryMessageCodec<ChannelMessage> {
+    private static final int EVENT = 1;
+    private static final int ERROR = 2;
+    private static final int BATCH_RESULT = 3;
+
+    private static final int APPLIED = 1;
+    private static final int REJECTED = 2;
+    private static final int NOT_APPLIED = 3;
+
+    @Override
+    void write(ChannelMessage message, BinaryOutput out) {
+      if (message instanceof ProductRegistryEvent event) {
+        out.writeByte(EVENT);
+        EVENT_CODEC.write(event, out);
+      } else if (message instanceof ProductRegistryError error) {
+        out.writeByte(ERROR);
+        out.writeString(error.code());
+        out.writeString(error.message());
+      } else if (message instanceof ProductRegistryBatchResult result) {
+        out.writeByte(BATCH_RESULT);
+        out.writeByte(result.applied ? 1 : 0);
+        out.writeVarLong(result.items.size());
+        for (ProductRegistryBatchResult.Item item : result.items) {
+          out.writeVarLong(item.index);
+          out.writeByte(switch (item.status) {
+            case APPLIED -> APPLIED;
+            case REJECTED -> REJECTED;
+            case NOT_APPLIED -> NOT_APPLIED;
+          });
+          out.writeByte(item.event == null ? 0 : 1);
+          if (item.event != null) {
+            EVENT_CODEC.write(item.event, out);
+          }
+          out.writeString(item.error);
+        }
+      } else {
+        throw new IllegalArgumentException("Unsupported channel message " + message);
+      }
+    }
+
+    @Override
+    ChannelMessage read(BinaryInput in) throws IllegalArgumentException {
+      final int tag = in.readByte();
+      return switch (tag) {
+        case EVENT -> EVENT_CODEC.read(in);
+        case ERROR -> new ProductRegistryError(in.readString(), in.readString());
+        case BATCH_RESULT -> {
+          final boolean applied = in.readByte() != 0;
+          // Each item takes at least its index, status, event presence and error length
+          final int count = in.readLength(4);
+          final List<ProductRegistryBatchResult.Item> items = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+            final int index = (int) in.readVarLong();
+            final int status = in.readByte();
+            final ProductRegistryEvent event = in.readByte() == 0 ? null : EVENT_CODEC.read(in);
+            items.add(new ProductRegistryBatchResult.Item(index, switch (status) {
+              case APPLIED -> ProductRegistryBatchResult.Status.APPLIED;
+              case REJECTED -> ProductRegistryBatchResult.Status.REJECTED;
+              case NOT_APPLIED -> ProductRegistryBatchResult.Status.NOT_APPLIED;
+              default -> throw new IllegalArgumentException("Unknown batch item status " + status);
+            }, event, in.readString()));
+          }
+          yield new ProductRegistryBatchResult(applied, items);
+        }
+        default -> throw new IllegalArgumentException("Unknown channel message tag " + tag);
+      };
+    }
+  }
+
+  /**
+   * Binary codec of the query results.
+   */
+  private static final class QueryResultCodec extends BinaryMessageCodec<ProductRegistryQueryResult> {
+    private static final int PRODUCT = 1;
+    private static final int PRODUCT_NOT_FOUND = 2;
+    private static final int PRODUCTS = 3;
+
+    @Override
+    void write(ProductRegistryQueryResult message, BinaryOutput out) {
+      if (message instanceof RegistryProductDto product) {
+        out.writeByte(PRODUCT);
+        writeProduct(product, out);
+      } else if (message instanceof ProductNotFound notFound) {
+        out.writeByte(PRODUCT_NOT_FOUND);
+        out.writeString(notFound.getMessage());
+      } else if (message instanceof RegistryProductDtoCollection products) {
+        out.writeByte(PRODUCTS);
+        out.writeVarLong(products.getProducts().size());
+        products.getProducts().forEach(product -> writeProduct(product, out));
+      } else {
+        throw new IllegalArgumentException("Unsupported query result " + message);
+      }
+    }
+
+    @Override
+    ProductRegistryQueryResult read(BinaryInput in) throws IllegalArgumentException {
+      final int tag = in.readByte();
+      return switch (tag) {
+        case PRODUCT -> readProduct(in);
+        case PRODUCT_NOT_FOUND -> new ProductNotFound(in.readString());
+        case PRODUCTS -> {
+          // Each product takes at least its three string lengths and two timestamp presences
+          final int count = in.readLength(5);
+          final List<RegistryProductDto> products = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+            products.add(readProduct(in));
+          }
+          yield new RegistryProductDtoCollection(products);
+        }
+        default -> throw new IllegalArgumentException("Unknown query result tag " + tag);
+      };
+    }
+
+    private static void writeProduct(RegistryProductDto product, BinaryOutput out) {
+      out.writeString(product.id());
+      out.writeString(product.name());
+      out.writeString(product.description());
+      writeTimestamp(product.updatedAt(), out);
+      writeTimestamp(product.registeredAt(), out);
+    }
+
+    private static RegistryProductDto readProduct(BinaryInput in) {
+      return new RegistryProductDto(in.readString(), in.readString(), in.readString(), readTimestamp(in),
+          readTimestamp(in));
+    }
+
+    private static void writeTimestamp(Long timestamp, BinaryOutput out) {
+      out.writeByte(timestamp == null ? 0 : 1);
+      if (timestamp != null) {
+        out.writeLong(timestamp);
+      }
+    }
+
+    private static Long readTimestamp(BinaryInput in) {
+      return in.readByte() == 0 ? null : in.readLong();
+    }
+  }
+}
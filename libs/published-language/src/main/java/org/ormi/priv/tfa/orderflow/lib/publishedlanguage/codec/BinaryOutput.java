@@ -0,0 +1,157 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+/**
+ * Growable buffer writing the fields of a binary message.
+ */
+final class BinaryOutput {
+
+  /**
+   * Id kind of a missing id.
+   */
+  static final byte NULL_ID = 0;
+
+  /**
+   * Id kind of a canonical UUID id, written as its two longs.
+   */
+  static final byte UUID_ID = 1;
+
+  /**
+   * Id kind of any other id, written as its text.
+   */
+  static final byte TEXT_ID = 2;
+
+  /**
+   * Written bytes.
+   */
+  private byte[] buffer;
+
+  /**
+   * Number of written bytes.
+   */
+  private int size;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity - the initial capacity
+   */
+  BinaryOutput(int capacity) {
+    this.buffer = new byte[capacity];
+  }
+
+  /**
+   * Write a byte.
+   *
+   * @param value - the byte
+   */
+  void writeByte(int value) {
+    ensureCapacity(1);
+    buffer[size++] = (byte) value;
+  }
+
+  /**
+   * Write a long as 8 big-endian bytes.
+   *
+   * @param value - the long
+   */
+  void writeLong(long value) {
+    ensureCapacity(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      buffer[size++] = (byte) (value >>> shift);
+    }
+  }
+
+  /**
+   * Write a positive long as a variable length quantity, 7 bits per byte.
+   *
+   * @param value - the positive long
+   */
+  void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[size++] = (byte) value;
+  }
+
+  /**
+   * Write a nullable string as its UTF-8 length plus one then its UTF-8 bytes,
+   * 0 for null.
+   *
+   * @param value - the string
+   */
+  void writeString(String value) {
+    if (value == null) {
+      writeVarLong(0);
+      return;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(bytes.length + 1L);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, size, bytes.length);
+    size += bytes.length;
+  }
+
+  /**
+   * Write a nullable event id.
+   *
+   * @param id - the event id
+   */
+  void writeEventId(EventId id) {
+    if (id == null) {
+      writeByte(NULL_ID);
+    } else if (id.isCanonical()) {
+      writeByte(UUID_ID);
+      writeLong(id.getMostSignificantBits());
+      writeLong(id.getLeastSignificantBits());
+    } else {
+      writeByte(TEXT_ID);
+      writeString(id.getId());
+    }
+  }
+
+  /**
+   * Write a nullable product id.
+   *
+   * @param id - the product id
+   */
+  void writeProductId(ProductId id) {
+    if (id == null) {
+      writeByte(NULL_ID);
+    } else if (id.isCanonical()) {
+      writeByte(UUID_ID);
+      writeLong(id.getMostSignificantBits());
+      writeLong(id.getLeastSignificantBits());
+    } else {
+      writeByte(TEXT_ID);
+      writeString(id.getId());
+    }
+  }
+
+  /**
+   * Get the written bytes.
+   *
+   * @return a copy of the written bytes
+   */
+  byte[] toByteArray() {
+    return Arrays.copyOf(buffer, size);
+  }
+
+  /**
+   * Grow the buffer to fit more bytes.
+   *
+   * @param length - the number of bytes to fit
+   */
+  private void ensureCapacity(int length) {
+    if (size + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+    }
+  }
+}
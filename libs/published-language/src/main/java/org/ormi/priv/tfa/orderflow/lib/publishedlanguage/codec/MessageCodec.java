@@ -0,0 +1,26 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec;
+
+/**
+ * Codec of the messages exchanged on a channel.
+ *
+ * @param <T> - the type of the messages, the root of a sealed hierarchy
+ */
+public interface MessageCodec<T> {
+
+  /**
+   * Encode a message.
+   *
+   * @param message - the message to encode
+   * @return the encoded message
+   */
+  byte[] encode(T message);
+
+  /**
+   * Decode a message.
+   *
+   * @param data - the encoded message
+   * @return the decoded message
+   * @throws IllegalArgumentException if the data is not a message of this codec
+   */
+  T decode(byte[] data) throws IllegalArgumentException;
+}
@@ -0,0 +1,18 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec;
+
+/**
+ * Wire format of the messages of a channel.
+ *
+ * @implNote Both ends of a channel must use the same format, switch the
+ *           consumers first then the producers once the topic is drained.
+ */
+public enum MessageFormat {
+  /**
+   * JSON with a type property, readable and schema-less.
+   */
+  JSON,
+  /**
+   * Compact binary, see {@link BinaryMessageCodecs}.
+   */
+  BINARY
+}
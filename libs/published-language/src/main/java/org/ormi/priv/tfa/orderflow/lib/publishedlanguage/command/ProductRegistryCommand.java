@@ -16,7 +16,10 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 @JsonSubTypes({
     @JsonSubTypes.Type(value = RegisterProduct.class, name = "RegisterProduct"),
     @JsonSubTypes.Type(value = UpdateProduct.class, name = "UpdateProduct"),
-    @JsonSubTypes.Type(value = RemoveProduct.class, name = "RemoveProduct")
+    @JsonSubTypes.Type(value = RemoveProduct.class, name = "RemoveProduct"),
+    @JsonSubTypes.Type(value = RegisterProducts.class, name = "RegisterProducts"),
+    @JsonSubTypes.Type(value = UpdateProducts.class, name = "UpdateProducts")
 })
-public sealed interface ProductRegistryCommand extends Serializable permits RegisterProduct, UpdateProduct, RemoveProduct {
+public sealed interface ProductRegistryCommand extends Serializable
+    permits RegisterProduct, UpdateProduct, RemoveProduct, RegisterProducts, UpdateProducts {
 }
@@ -0,0 +1,48 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Command to register a batch of products in the registry.
+ * 
+ * The batch is validated and appended as a whole: either every product is
+ * registered or none is.
+ */
+public final class RegisterProducts implements ProductRegistryCommand {
+  /**
+   * Serial version UID
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The products to register, in order.
+   */
+  private List<RegisterProduct> products;
+
+  /**
+   * Constructor.
+   * 
+   * @param products - The products to register, in order.
+   */
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public RegisterProducts(@JsonProperty("products") List<RegisterProduct> products) {
+    this.products = products == null ? List.of() : List.copyOf(products);
+  }
+
+  /**
+   * Get the products to register.
+   * 
+   * @return the products to register, in order
+   */
+  public List<RegisterProduct> getProducts() {
+    return products;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s{products=%d}", this.getClass().getSimpleName(), products.size());
+  }
+}
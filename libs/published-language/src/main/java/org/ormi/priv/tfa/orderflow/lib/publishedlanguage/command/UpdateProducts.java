@@ -0,0 +1,48 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Command to update a batch of products in the registry.
+ * 
+ * The batch is validated and appended as a whole: either every product is
+ * updated or none is.
+ */
+public final class UpdateProducts implements ProductRegistryCommand {
+  /**
+   * Serial version UID
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The product updates, in order.
+   */
+  private List<UpdateProduct> products;
+
+  /**
+   * Constructor.
+   * 
+   * @param products - The product updates, in order.
+   */
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public UpdateProducts(@JsonProperty("products") List<UpdateProduct> products) {
+    this.products = products == null ? List.of() : List.copyOf(products);
+  }
+
+  /**
+   * Get the product updates.
+   * 
+   * @return the product updates, in order
+   */
+  public List<UpdateProduct> getProducts() {
+    return products;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s{products=%d}", this.getClass().getSimpleName(), products.size());
+  }
+}
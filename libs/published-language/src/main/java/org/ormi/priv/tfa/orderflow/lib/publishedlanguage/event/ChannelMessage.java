@@ -13,7 +13,8 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 )
 @JsonSubTypes({
   @JsonSubTypes.Type(value = ProductRegistryEvent.class, name = "ProductRegistryEvent"),
-  @JsonSubTypes.Type(value = ProductRegistryError.class, name = "ProductRegistryError")
+  @JsonSubTypes.Type(value = ProductRegistryError.class, name = "ProductRegistryError"),
+  @JsonSubTypes.Type(value = ProductRegistryBatchResult.class, name = "ProductRegistryBatchResult")
 })
-public sealed interface ChannelMessage permits ProductRegistryEvent, ProductRegistryError {
+public sealed interface ChannelMessage permits ProductRegistryEvent, ProductRegistryError, ProductRegistryBatchResult {
 }
@@ -10,7 +10,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * Event to indicate that a product has been registered.
  */
 public final class ProductRegistered extends Event implements ProductRegistryEvent {
-  private final static String EVENT_TYPE = "ProductRegistered";
+  public final static String EVENT_TYPE = "ProductRegistered";
 
   public static final class Payload {
     /**
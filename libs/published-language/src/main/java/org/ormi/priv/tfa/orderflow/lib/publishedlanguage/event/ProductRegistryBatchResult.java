@@ -0,0 +1,137 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of a batch command, with the outcome of each item of the batch.
+ *
+ * A batch is applied as a whole: either every item produced its event, or the
+ * batch was rejected and no event was produced.
+ */
+public final class ProductRegistryBatchResult implements ChannelMessage {
+
+  /**
+   * Outcome of an item of the batch.
+   */
+  public enum Status {
+    /**
+     * The item produced its event.
+     */
+    APPLIED,
+    /**
+     * The item is invalid, see its error.
+     */
+    REJECTED,
+    /**
+     * The item is valid but was not applied because other items of the batch were rejected.
+     */
+    NOT_APPLIED
+  }
+
+  /**
+   * Outcome of an item of the batch.
+   */
+  public static final class Item {
+    /**
+     * The index of the item in the batch command.
+     */
+    public final int index;
+    /**
+     * The outcome of the item.
+     */
+    public final Status status;
+    /**
+     * The event produced by the item, if applied.
+     */
+    public final ProductRegistryEvent event;
+    /**
+     * The reason the item was rejected, if rejected.
+     */
+    public final String error;
+
+    public Item(
+        @JsonProperty("index") int index,
+        @JsonProperty("status") Status status,
+        @JsonProperty("event") ProductRegistryEvent event,
+        @JsonProperty("error") String error) {
+      this.index = index;
+      this.status = status;
+      this.event = event;
+      this.error = error;
+    }
+  }
+
+  /**
+   * Whether the batch was applied.
+   */
+  public final boolean applied;
+
+  /**
+   * The outcome of each item, in the order of the batch command.
+   */
+  public final List<Item> items;
+
+  /**
+   * Constructor.
+   *
+   * @param applied - Whether the batch was applied.
+   * @param items - The outcome of each item.
+   */
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public ProductRegistryBatchResult(
+      @JsonProperty("applied") boolean applied,
+      @JsonProperty("items") List<Item> items) {
+    this.applied = applied;
+    this.items = List.copyOf(items);
+  }
+
+  /**
+   * Result of an applied batch.
+   *
+   * @param events - The events produced by the items, in order.
+   * @return the result of the batch
+   */
+  public static ProductRegistryBatchResult applied(List<? extends ProductRegistryEvent> events) {
+    final List<Item> items = new ArrayList<>(events.size());
+    for (int i = 0; i < events.size(); i++) {
+      items.add(new Item(i, Status.APPLIED, events.get(i), null));
+    }
+    return new ProductRegistryBatchResult(true, items);
+  }
+
+  /**
+   * Result of a rejected batch.
+   *
+   * @param errors - The error of each item, in order, null for the valid items.
+   * @return the result of the batch
+   */
+  public static ProductRegistryBatchResult rejected(List<String> errors) {
+    final List<Item> items = new ArrayList<>(errors.size());
+    for (int i = 0; i < errors.size(); i++) {
+      final String error = errors.get(i);
+      items.add(new Item(i, error == null ? Status.NOT_APPLIED : Status.REJECTED, null, error));
+    }
+    return new ProductRegistryBatchResult(false, items);
+  }
+
+  /**
+   * Get the events produced by the batch.
+   *
+   * @return the events in order, empty if the batch was rejected
+   */
+  @JsonIgnore
+  public List<ProductRegistryEvent> getEvents() {
+    return items.stream().map(item -> item.event).filter(Objects::nonNull).toList();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s{applied=%s, items=%d}", this.getClass().getSimpleName(), applied, items.size());
+  }
+}
@@ -0,0 +1,17 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event;
+
+/**
+ * Represents a generic processing error in the ProductRegistry.
+ *
+ * @param code - the error code
+ * @param message - the error message
+ */
+public record ProductRegistryError(String code, String message) implements ChannelMessage {
+  @Override
+  public String toString() {
+    return "ProductRegistryError{" +
+        "errorcode='" + code + '\'' +
+        ", errormessage='" + message + '\'' +
+        '}';
+  }
+}
@@ -0,0 +1,26 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event;
+
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.dispatch.EventTypeRegistry;
+
+/**
+ * Event types of the product registry.
+ *
+ * The handlers of the product registry events (appliers, mappers, emitters,
+ * projectors) are dispatchers built from this registry, so a new event type is
+ * registered here once then must be handled by each of them.
+ */
+public final class ProductRegistryEventTypes {
+
+  /**
+   * Registry of the product registry event types.
+   */
+  public static final EventTypeRegistry<ProductRegistryEvent> REGISTRY = EventTypeRegistry
+      .<ProductRegistryEvent>builder()
+      .register(ProductRegistered.EVENT_TYPE, ProductRegistered.class)
+      .register(ProductUpdated.EVENT_TYPE, ProductUpdated.class)
+      .register(ProductRemoved.EVENT_TYPE, ProductRemoved.class)
+      .build();
+
+  private ProductRegistryEventTypes() {
+  }
+}
@@ -10,7 +10,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * Event to indicate that a product has been removed from the registry.
  */
 public final class ProductRemoved extends Event implements ProductRegistryEvent {
-  private final static String EVENT_TYPE = "ProductRemoved";
+  public final static String EVENT_TYPE = "ProductRemoved";
 
   public static final class Payload {
     /**
@@ -10,7 +10,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * Event to indicate that a product has been updated
  */
 public final class ProductUpdated extends Event implements ProductRegistryEvent {
-  private final static String EVENT_TYPE = "ProductUpdated";
+  public final static String EVENT_TYPE = "ProductUpdated";
 
   public static final class Payload {
     /**
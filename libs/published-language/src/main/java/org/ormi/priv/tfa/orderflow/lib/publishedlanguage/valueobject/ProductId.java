@@ -1,48 +1,91 @@
 package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject;
 
+import java.util.Objects;
 import java.util.UUID;
 
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.IdGenerators;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.Uuids;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Product Id value object
+ * 
+ * @implNote Held as the two longs of the UUID. An id that is a valid UUID but
+ *           not in canonical form also keeps its text, so that it is written
+ *           back exactly as it was read.
  */
 public class ProductId {
   /**
-   * Product Id internal value
+   * Most significant bits of the UUID
+   */
+  private final long mostSignificantBits;
+  /**
+   * Least significant bits of the UUID
+   */
+  private final long leastSignificantBits;
+  /**
+   * Text of the id when it is not a canonical UUID, null otherwise
+   */
+  private final String text;
+  /**
+   * Cached hash code
    */
-  private final String id;
+  private final int hash;
 
   /**
    * Constructor.
    * 
    * Generate a new product id.
    * 
-   * @implNote Use UUID to generate a new product id.
+   * @implNote Use the current generator, see {@link IdGenerators}.
    */
   public ProductId() {
-    this.id = UUID.randomUUID().toString();
+    this(IdGenerators.current().next());
   }
 
-  /**
-   * Constructor.
-   * 
-   * @param id the product id
-   */
-  private ProductId(String id) {
-    this.id = id;
+  private ProductId(UUID uuid) {
+    this(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), null);
+  }
+
+  private ProductId(long mostSignificantBits, long leastSignificantBits, String text) {
+    this.mostSignificantBits = mostSignificantBits;
+    this.leastSignificantBits = leastSignificantBits;
+    this.text = text;
+    this.hash = Uuids.hash(mostSignificantBits, leastSignificantBits);
   }
 
   /**
    * Create a new instance of the given product id value.
    * 
+   * @implNote A canonical UUID is parsed without allocating.
+   * 
    * @param id the product id
    */
-  public static ProductId of(String id) throws IllegalArgumentException {
+  @JsonCreator
+  public static ProductId of(@JsonProperty("id") CharSequence id) throws IllegalArgumentException {
+    if (id != null && Uuids.isCanonical(id)) {
+      return new ProductId(Uuids.mostSignificantBits(id), Uuids.leastSignificantBits(id), null);
+    }
+    final UUID uuid;
     try {
-      UUID.fromString(id);
+      uuid = UUID.fromString(id.toString());
     } catch (Exception e) {
       throw new IllegalArgumentException("Invalid product id. Must be a valid UUID.");
     }
-    return new ProductId(id);
+    return new ProductId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), id.toString());
+  }
+
+  /**
+   * Create a new instance of the given product id bits.
+   * 
+   * @param mostSignificantBits the most significant bits of the UUID
+   * @param leastSignificantBits the least significant bits of the UUID
+   */
+  public static ProductId of(long mostSignificantBits, long leastSignificantBits) {
+    return new ProductId(mostSignificantBits, leastSignificantBits, null);
   }
 
   /**
@@ -50,13 +93,44 @@ public class ProductId {
    * 
    * @return the product id
    */
+  @JsonProperty("id")
   public String getId() {
-    return id;
+    return text != null ? text : new UUID(mostSignificantBits, leastSignificantBits).toString();
+  }
+
+  /**
+   * Get the most significant bits of the product id.
+   * 
+   * @return the most significant bits of the UUID
+   */
+  @JsonIgnore
+  public long getMostSignificantBits() {
+    return mostSignificantBits;
+  }
+
+  /**
+   * Get the least significant bits of the product id.
+   * 
+   * @return the least significant bits of the UUID
+   */
+  @JsonIgnore
+  public long getLeastSignificantBits() {
+    return leastSignificantBits;
+  }
+
+  /**
+   * Check if the product id is a canonical UUID, fully represented by its bits.
+   * 
+   * @return true if the id is in canonical UUID form
+   */
+  @JsonIgnore
+  public boolean isCanonical() {
+    return text == null;
   }
 
   @Override
   public String toString() {
-    return String.format("ProductId{value='%s'}", id);
+    return String.format("ProductId{value='%s'}", getId());
   }
 
   @Override
@@ -64,11 +138,13 @@ public class ProductId {
     if (this == o) return true;
     if (!(o instanceof ProductId)) return false;
     ProductId productId = (ProductId) o;
-    return id.equals(productId.id);
+    return mostSignificantBits == productId.mostSignificantBits
+        && leastSignificantBits == productId.leastSignificantBits
+        && Objects.equals(text, productId.text);
   }
 
   @Override
   public int hashCode() {
-    return id.hashCode();
+    return hash;
   }
 }
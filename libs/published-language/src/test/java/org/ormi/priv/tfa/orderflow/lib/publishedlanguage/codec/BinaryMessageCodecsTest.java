@@ -0,0 +1,156 @@
+package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.lib.event.sourcing.aggregate.EventId;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProduct;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.UpdateProducts;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryBatchResult;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery.ProductRegistryQueryResult;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDto;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.model.dto.RegistryProductDtoCollection;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject.ProductId;
+
+public class BinaryMessageCodecsTest {
+
+  @Nested
+  public class Events {
+
+    @Test
+    public void it_should_decodeEncodedEvent_when_fieldsAreNullOrNotAscii() {
+      // Given
+      ProductRegistered event = new ProductRegistered(new EventId(), "product-registry", 300, 1718000000000L,
+          new ProductRegistered.Payload(ProductId.of(UUID.randomUUID().toString().toUpperCase()), "Cr\u00e8me br\u00fbl\u00e9e \ud83c\udf6e", null));
+
+      // When
+      ProductRegistryEvent decoded = BinaryMessageCodecs.EVENTS.decode(BinaryMessageCodecs.EVENTS.encode(event));
+
+      // Then
+      ProductRegistered result = assertInstanceOf(ProductRegistered.class, decoded);
+      assertEquals(event.id, result.id);
+      assertEquals(event.aggregateId, result.aggregateId);
+      assertEquals(event.version, result.version);
+      assertEquals(event.timestamp, result.timestamp);
+      assertEquals(event.payload.productId, result.payload.productId);
+      assertEquals(event.payload.name, result.payload.name);
+      assertNull(result.payload.productDescription);
+    }
+
+    @Test
+    public void it_should_reject_when_messageIsTruncated() {
+      // Given
+      ProductRegistered event = new ProductRegistered(new EventId(), "product-registry", 1, 0L,
+          new ProductRegistered.Payload(new ProductId(), "name", "description"));
+      byte[] data = BinaryMessageCodecs.EVENTS.encode(event);
+
+      // When / Then
+      assertThrows(IllegalArgumentException.class,
+          () -> BinaryMessageCodecs.EVENTS.decode(Arrays.copyOf(data, data.length - 1)));
+    }
+  }
+
+  @Nested
+  public class Commands {
+
+    @Test
+    public void it_should_decodeEncodedBatch_when_batchHasSeveralProducts() {
+      // Given
+      UpdateProducts command = new UpdateProducts(List.of(
+          new UpdateProduct(new ProductId(), "first", "first description"),
+          new UpdateProduct(new ProductId(), "second", null)));
+
+      // When
+      ProductRegistryCommand decoded = BinaryMessageCodecs.COMMANDS
+          .decode(BinaryMessageCodecs.COMMANDS.encode(command));
+
+      // Then
+      UpdateProducts result = assertInstanceOf(UpdateProducts.class, decoded);
+      assertEquals(2, result.getProducts().size());
+      for (int i = 0; i < 2; i++) {
+        UpdateProduct expected = command.getProducts().get(i);
+        UpdateProduct actual = result.getProducts().get(i);
+        assertEquals(expected.getProductId(), actual.getProductId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getProductDescription(), actual.getProductDescription());
+      }
+    }
+  }
+
+  @Nested
+  public class Messages {
+
+    @Test
+    public void it_should_decodeEncodedBatchResult_when_itemsHaveEventsAndErrors() {
+      // Given
+      ProductRegistered event = new ProductRegistered(new EventId(), "product-registry", 2, 1718000000000L,
+          new ProductRegistered.Payload(new ProductId(), "name", "description"));
+      ProductRegistryBatchResult batch = new ProductRegistryBatchResult(false, List.of(
+          new ProductRegistryBatchResult.Item(0, ProductRegistryBatchResult.Status.NOT_APPLIED, event, null),
+          new ProductRegistryBatchResult.Item(1, ProductRegistryBatchResult.Status.REJECTED, null, "Name is taken")));
+
+      // When
+      ChannelMessage decoded = BinaryMessageCodecs.MESSAGES.decode(BinaryMessageCodecs.MESSAGES.encode(batch));
+
+      // Then
+      ProductRegistryBatchResult result = assertInstanceOf(ProductRegistryBatchResult.class, decoded);
+      assertEquals(batch.applied, result.applied);
+      assertEquals(2, result.items.size());
+      ProductRegistered resultEvent = assertInstanceOf(ProductRegistered.class, result.items.get(0).event);
+      assertEquals(event.id, resultEvent.id);
+      assertEquals(event.payload.productId, resultEvent.payload.productId);
+      assertEquals(ProductRegistryBatchResult.Status.NOT_APPLIED, result.items.get(0).status);
+      assertNull(result.items.get(0).error);
+      assertEquals(1, result.items.get(1).index);
+      assertEquals(ProductRegistryBatchResult.Status.REJECTED, result.items.get(1).status);
+      assertNull(result.items.get(1).event);
+      assertEquals("Name is taken", result.items.get(1).error);
+    }
+  }
+
+  @Nested
+  public class QueryResults {
+
+    @Test
+    public void it_should_decodeEncodedProducts_when_timestampsAreNull() {
+      // Given
+      RegistryProductDtoCollection products = new RegistryProductDtoCollection(List.of(
+          new RegistryProductDto("first-id", "first", "first description", 1718000000000L, 1717000000000L),
+          new RegistryProductDto("second-id", "second", null, null, 1717000000000L)));
+
+      // When
+      ProductRegistryQueryResult decoded = BinaryMessageCodecs.QUERY_RESULTS
+          .decode(BinaryMessageCodecs.QUERY_RESULTS.encode(products));
+
+      // Then
+      RegistryProductDtoCollection result = assertInstanceOf(RegistryProductDtoCollection.class, decoded);
+      assertEquals(products.getProducts(), result.getProducts());
+    }
+
+    @Test
+    public void it_should_decodeEmptyCollection_when_registryHasNoProducts() {
+      // Given
+      RegistryProductDtoCollection products = new RegistryProductDtoCollection(Collections.emptyList());
+
+      // When
+      ProductRegistryQueryResult decoded = BinaryMessageCodecs.QUERY_RESULTS
+          .decode(BinaryMessageCodecs.QUERY_RESULTS.encode(products));
+
+      // Then
+      assertEquals(0, assertInstanceOf(RegistryProductDtoCollection.class, decoded).getProducts().size());
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package org.ormi.priv.tfa.orderflow.lib.publishedlanguage.valueobject;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.UUID;
@@ -11,6 +13,44 @@ import org.junit.jupiter.api.Test;
 
 public class ProductIdTest {
 
+  @Nested
+  public class Of {
+
+    @Test
+    public void it_should_keepUuidBits_when_idIsCanonical() {
+      // Given
+      UUID uuid = UUID.randomUUID();
+
+      // When
+      ProductId productId = ProductId.of(new StringBuilder(uuid.toString()));
+
+      // Then
+      assertEquals(uuid.getMostSignificantBits(), productId.getMostSignificantBits());
+      assertEquals(uuid.getLeastSignificantBits(), productId.getLeastSignificantBits());
+      assertEquals(uuid.toString(), productId.getId());
+      assertEquals(ProductId.of(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()), productId);
+    }
+
+    @Test
+    public void it_should_keepText_when_idIsNotCanonical() {
+      // Given
+      String id = UUID.randomUUID().toString().toUpperCase();
+
+      // When
+      ProductId productId = ProductId.of(id);
+
+      // Then
+      assertFalse(productId.isCanonical());
+      assertEquals(id, productId.getId());
+      assertNotEquals(ProductId.of(id.toLowerCase()), productId);
+    }
+
+    @Test
+    public void it_should_throw_when_idIsNotUuid() {
+      assertThrows(IllegalArgumentException.class, () -> ProductId.of("not-a-uuid"));
+    }
+  }
+
   @Nested
   public class Equals {
 
@@ -0,0 +1,63 @@
+package org.ormi.priv.tfa.orderflow.lib.shared.schema;
+
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageCodec;
+
+/**
+ * Pulsar schema of a channel encoded by a message codec.
+ *
+ * @implNote The messages are declared as raw bytes to Pulsar, the codec owns
+ *           the format and its versioning.
+ *
+ * @param <T> - the type of the messages
+ */
+public class MessageCodecSchema<T> implements Schema<T> {
+
+  /**
+   * Codec of the messages.
+   */
+  private final MessageCodec<T> codec;
+
+  /**
+   * Schema info declared to Pulsar.
+   */
+  private final SchemaInfo schemaInfo;
+
+  /**
+   * Constructor.
+   *
+   * @param name - the name of the schema
+   * @param codec - the codec of the messages
+   */
+  public MessageCodecSchema(String name, MessageCodec<T> codec) {
+    this.codec = codec;
+    this.schemaInfo = SchemaInfo.builder()
+        .name(name)
+        .type(SchemaType.BYTES)
+        .schema(new byte[0])
+        .build();
+  }
+
+  @Override
+  public byte[] encode(T message) {
+    return codec.encode(message);
+  }
+
+  @Override
+  public T decode(byte[] bytes) {
+    return codec.decode(bytes);
+  }
+
+  @Override
+  public SchemaInfo getSchemaInfo() {
+    return schemaInfo;
+  }
+
+  @Override
+  public Schema<T> clone() {
+    // Stateless, the codec is thread safe
+    return this;
+  }
+}
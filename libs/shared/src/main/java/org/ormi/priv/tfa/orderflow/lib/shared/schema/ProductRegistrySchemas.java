@@ -0,0 +1,81 @@
+package org.ormi.priv.tfa.orderflow.lib.shared.schema;
+
+import org.apache.pulsar.client.api.Schema;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.BinaryMessageCodecs;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageCodec;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.codec.MessageFormat;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.command.ProductRegistryCommand;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ChannelMessage;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.event.ProductRegistryEvent;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery;
+import org.ormi.priv.tfa.orderflow.lib.publishedlanguage.query.ProductRegistryQuery.ProductRegistryQueryResult;
+
+/**
+ * Pulsar schemas of the product registry channels, by wire format.
+ * Shared by both ends of each channel so that they agree on the schema of a format.
+ */
+public final class ProductRegistrySchemas {
+
+  private ProductRegistrySchemas() {
+  }
+
+  /**
+   * Schema of the commands.
+   *
+   * @param format - the wire format of the command channel
+   * @return the command schema
+   */
+  public static Schema<ProductRegistryCommand> commands(MessageFormat format) {
+    return schema(format, ProductRegistryCommand.class, "product-registry-command-binary",
+        BinaryMessageCodecs.COMMANDS);
+  }
+
+  /**
+   * Schema of the events.
+   *
+   * @param format - the wire format of the event channel
+   * @return the event schema
+   */
+  public static Schema<ProductRegistryEvent> events(MessageFormat format) {
+    return schema(format, ProductRegistryEvent.class, "product-registry-event-binary", BinaryMessageCodecs.EVENTS);
+  }
+
+  /**
+   * Schema of the queries.
+   *
+   * @param format - the wire format of the query channel
+   * @return the query schema
+   */
+  public static Schema<ProductRegistryQuery> queries(MessageFormat format) {
+    return schema(format, ProductRegistryQuery.class, "product-registry-query-binary", BinaryMessageCodecs.QUERIES);
+  }
+
+  /**
+   * Schema of the command results sent on the result topics.
+   *
+   * @param format - the wire format of the result topics
+   * @return the command result schema
+   */
+  public static Schema<ChannelMessage> messages(MessageFormat format) {
+    return schema(format, ChannelMessage.class, "product-registry-message-binary", BinaryMessageCodecs.MESSAGES);
+  }
+
+  /**
+   * Schema of the query results sent on the result topics.
+   *
+   * @param format - the wire format of the result topics
+   * @return the query result schema
+   */
+  public static Schema<ProductRegistryQueryResult> queryResults(MessageFormat format) {
+    return schema(format, ProductRegistryQueryResult.class, "product-registry-query-result-binary",
+        BinaryMessageCodecs.QUERY_RESULTS);
+  }
+
+  private static <T> Schema<T> schema(MessageFormat format, Class<T> type, String binaryName,
+      MessageCodec<T> codec) {
+    return switch (format) {
+      case JSON -> Schema.JSON(type);
+      case BINARY -> new MessageCodecSchema<>(binaryName, codec);
+    };
+  }
+}